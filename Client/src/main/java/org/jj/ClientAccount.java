@@ -8,35 +8,39 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
+// Fills and order states are kept up to date by the account's execution report stream, the server is only asked for an
+// order's details once, the first time it is listed
 public class ClientAccount {
     private UUID uuid;
-    private Map<Integer, Order> idToOrderMap = new HashMap<>();
-    private Set<Integer> activeOrderIdSet = new HashSet<>();
+    private Map<Long, Order> idToOrderMap = new HashMap<>();
+    private Set<Long> activeOrderIdSet = new HashSet<>();
+    private Map<Long, Long> quantityFilledByOrderId = new HashMap<>();
     private Map<String, Long> productQuantityOwned = new TreeMap<>();
     private static final ClientAccount instance = new ClientAccount();
-    private static ClientProxy clientProxy;
+    private final ClientProxy clientProxy;
     private static final int PORT = 50051;
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientAccount.class);
 
     public ClientAccount() {
         uuid = UUID.randomUUID();
         ManagedChannel channel = Grpc.newChannelBuilder(String.format("localhost:%d", PORT), InsecureChannelCredentials.create()).build();
-        clientProxy = new ClientProxy(channel);
+        clientProxy = new ClientProxy(channel, uuid.toString());
+        clientProxy.subscribeToExecutionReports(this::onExecutionReport);
     }
 
     public static ClientAccount getInstance() {
         return instance;
     }
 
-    public Map<Integer, Order> getIdToOrderMap() {
+    public synchronized Map<Long, Order> getIdToOrderMap() {
         return idToOrderMap;
     }
 
-    public void addOrder(Order order) {
+    public synchronized void addOrder(Order order) {
         this.idToOrderMap.put(order.orderId(), order);
     }
 
-    public void removeOrder(int orderId) {
+    public synchronized void removeOrder(long orderId) {
         this.idToOrderMap.remove(orderId);
     }
 
@@ -44,29 +48,44 @@ public class ClientAccount {
         return clientProxy;
     }
 
-    public List<Order> getOrders() {
-        LOGGER.info("getOrders method called, active order count = {}", activeOrderIdSet.size());
-        List<Order> orders = clientProxy.getOrders(activeOrderIdSet);
-        orders.stream().forEach(order -> {
-            idToOrderMap.put(order.orderId(), order);
-            if (order.quantityFilled() == order.quantity()) {
-                activeOrderIdSet.remove(order.orderId());
-            }
-            updateOwnedProducts(order.product(), order.quantityFilled());
-        });
+    public synchronized List<Order> getOrders() {
+        Set<Long> unknownOrderIds = new HashSet<>(activeOrderIdSet);
+        unknownOrderIds.removeAll(idToOrderMap.keySet());
+        LOGGER.info("getOrders method called, active order count = {}, fetching {}", activeOrderIdSet.size(), unknownOrderIds.size());
+        if (!unknownOrderIds.isEmpty()) {
+            clientProxy.getOrders(unknownOrderIds).forEach(order -> idToOrderMap.put(order.orderId(), withQuantityFilled(order)));
+        }
         return new ArrayList<>(idToOrderMap.values());
     }
 
-    private void updateOwnedProducts(String product, long quantityFilled) {
-        productQuantityOwned.compute(product, (key, value) -> (value == null) ? quantityFilled : quantityFilled + value);
+    public synchronized void addOrderId(long orderId) {
+        activeOrderIdSet.add(orderId);
     }
 
-    public void addOrderId(int orderId) {
-        activeOrderIdSet.add(orderId);
+    public synchronized Long getQuantityOwned(String product) {
+        return productQuantityOwned.getOrDefault(product, 0L);
+    }
+
+    // Runs on the gRPC thread for every event on this account's orders. Buys add to what is owned, sells take from it.
+    synchronized void onExecutionReport(Service.ExecutionReport report) {
+        long orderId = report.getOrderId();
+        switch (report.getExecType()) {
+            case PARTIALLY_FILLED, FILLED -> {
+                long signedQuantity = report.getBuySell() == Service.BuySell.BUY ? report.getLastQuantity() : -report.getLastQuantity();
+                productQuantityOwned.merge(report.getProductSymbol(), signedQuantity, Long::sum);
+                quantityFilledByOrderId.put(orderId, report.getQuantityFilled());
+                idToOrderMap.computeIfPresent(orderId, (id, order) -> withQuantityFilled(order));
+            }
+            default -> {
+            }
+        }
+        if (report.getLeavesQuantity() == 0) {
+            activeOrderIdSet.remove(orderId);
+        }
     }
 
-    public Long getQuantityOwned(String product) {
-        getOrders();
-        return productQuantityOwned.get(product);
+    private Order withQuantityFilled(Order order) {
+        long quantityFilled = quantityFilledByOrderId.getOrDefault(order.orderId(), order.quantityFilled());
+        return new Order(order.orderId(), order.product(), order.price(), order.quantity(), quantityFilled, order.expiry(), order.buySell());
     }
 }
@@ -1,14 +1,20 @@
 package org.jj;
 
-import com.google.protobuf.Int32Value;
+import com.google.protobuf.Int64Value;
 import com.google.protobuf.StringValue;
 import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
 import org.jetbrains.annotations.NotNull;
+import org.jj.Subscribers.ExecutionReportSubscriber;
+import org.jj.Subscribers.OrderBookDeltaSubscriber;
+import org.jj.Subscribers.OrderSessionListener;
 import org.jj.Subscribers.TopOfBookSubscriber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -18,30 +24,42 @@ public class ClientProxy {
     private final ManagedChannel channel;
     private final OrderServiceGrpc.OrderServiceBlockingStub blockingStub;
     private final OrderServiceGrpc.OrderServiceStub asyncStub;
+    private final String participantId;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientProxy.class);
     private StreamObserver<Service.OrderBook> productOrderBookSubscriptionResponseObserver;
 
     public ClientProxy(ManagedChannel channel) {
+        this(channel, null);
+    }
+
+    // Orders created through this proxy carry participantId, so their execution reports reach
+    // subscribeToExecutionReports
+    public ClientProxy(ManagedChannel channel, String participantId) {
         this.channel = channel;
         this.blockingStub = OrderServiceGrpc.newBlockingStub(channel);
         this.asyncStub = OrderServiceGrpc.newStub(channel);
+        this.participantId = participantId;
     }
 
     public void shutdown() throws InterruptedException {
         channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
     }
 
-    public int createOrder(String productSymbol, BuySell buySell, double price, long quantity, Expiry expiry) {
-        Service.OrderCreateRequestDetails request = Service.OrderCreateRequestDetails.newBuilder()
+    public static Service.OrderCreateRequestDetails orderDetails(String productSymbol, BuySell buySell, double price, long quantity, Expiry expiry) {
+        return Service.OrderCreateRequestDetails.newBuilder()
                 .setBuySell(buySell == BuySell.BUY ? Service.BuySell.BUY : Service.BuySell.SELL)
                 .setProductSymbol(productSymbol)
                 .setQuantity(quantity)
                 .setPrice(price)
                 .setExpiry(Service.Expiry.valueOf(expiry.toString()))
                 .build();
+    }
 
-        int response;
+    public long createOrder(String productSymbol, BuySell buySell, double price, long quantity, Expiry expiry) {
+        Service.OrderCreateRequestDetails request = withParticipant(orderDetails(productSymbol, buySell, price, quantity, expiry));
+
+        long response;
 
         try {
             response = blockingStub.orderCreateRequest(request).getValue();
@@ -54,8 +72,61 @@ public class ClientProxy {
         return response;
     }
 
-    public boolean cancelOrder(int orderId) {
-        return blockingStub.orderCancelRequest(Int32Value.of(orderId)).getValue();
+    // Creates every order in one call, returning ids in request order with -1 for each rejected order
+    public List<Long> createOrders(List<Service.OrderCreateRequestDetails> orders) {
+        Service.OrderCreateBatchResponse response;
+
+        try {
+            response = blockingStub.orderCreateBatch(Service.OrderCreateBatchRequest.newBuilder().addAllOrders(orders.stream().map(this::withParticipant).toList()).build());
+        } catch (Exception e) {
+            LOGGER.error("Failed to create orders: ", e);
+            return orders.stream().map(order -> -1L).toList();
+        }
+
+        return response.getResultsList().stream().map(result -> {
+            if (result.hasOrderId()) {
+                return result.getOrderId();
+            }
+            LOGGER.warn("Order rejected: {}", result.getRejectReason());
+            return -1L;
+        }).toList();
+    }
+
+    // quantity is the order's new total including anything already filled, returns false when it is no longer resting
+    public boolean amendOrder(long orderId, double price, long quantity) {
+        Service.OrderAmendRequest request = Service.OrderAmendRequest.newBuilder()
+                .setOrderId(orderId)
+                .setPrice(price)
+                .setQuantity(quantity)
+                .build();
+        return blockingStub.orderAmend(request).getValue();
+    }
+
+    // Replaces all of participantId's quotes on productSymbol in one step, returns the new quote ids or null when rejected
+    public Service.MassQuoteResponse massQuote(String participantId, String productSymbol, List<Service.QuoteLevel> bids, List<Service.QuoteLevel> asks) {
+        Service.MassQuoteRequest request = Service.MassQuoteRequest.newBuilder()
+                .setParticipantId(participantId)
+                .setProductSymbol(productSymbol)
+                .addAllBids(bids)
+                .addAllAsks(asks)
+                .build();
+
+        try {
+            return blockingStub.massQuote(request);
+        } catch (Exception e) {
+            LOGGER.error("Failed to mass quote: ", e);
+            return null;
+        }
+    }
+
+    public boolean cancelOrder(long orderId) {
+        return blockingStub.orderCancelRequest(Int64Value.of(orderId)).getValue();
+    }
+
+    // Opens a streaming session for pipelining orders and cancels instead of one blocking call each. Orders can carry
+    // client order ids only when this proxy has a participant id, as they are unique per participant.
+    public OrderSession openOrderSession(OrderSessionListener listener) {
+        return new OrderSession(asyncStub, participantId, listener);
     }
 
     public List<String> getTradingProductsList() {
@@ -70,6 +141,85 @@ public class ClientProxy {
         asyncStub.orderBookSubscriptionService(StringValue.of(symbol), responseObserver);
     }
 
+    // At most one book every conflationInterval, intermediate books are skipped rather than queued
+    public void subscribeToProductOrderBook(String symbol, Duration conflationInterval, TopOfBookSubscriber listener) {
+        StreamObserver<Service.OrderBook> responseObserver = getResponseObserver(listener);
+        this.productOrderBookSubscriptionResponseObserver = responseObserver;
+
+        Service.OrderBookSubscriptionRequest request = Service.OrderBookSubscriptionRequest.newBuilder()
+                                                                                           .setSymbol(symbol)
+                                                                                           .setConflationIntervalMs((int) conflationInterval.toMillis())
+                                                                                           .build();
+        asyncStub.conflatedOrderBookSubscription(request, responseObserver);
+    }
+
+    // Keeps a local copy of symbol's book from a snapshot plus deltas, resubscribing for a fresh snapshot on any gap
+    public LocalOrderBook subscribeToOrderBookDeltas(String symbol, OrderBookDeltaSubscriber subscriber) {
+        LocalOrderBook book = new LocalOrderBook();
+        subscribeToOrderBookDeltas(symbol, book, subscriber);
+        return book;
+    }
+
+    private void subscribeToOrderBookDeltas(String symbol, LocalOrderBook book, OrderBookDeltaSubscriber subscriber) {
+        asyncStub.orderBookDeltaSubscription(StringValue.of(symbol), new ClientResponseObserver<StringValue, Service.OrderBookDeltaUpdate>() {
+            private ClientCallStreamObserver<StringValue> call;
+
+            @Override
+            public void beforeStart(ClientCallStreamObserver<StringValue> requestStream) {
+                this.call = requestStream;
+            }
+
+            @Override
+            public void onNext(Service.OrderBookDeltaUpdate update) {
+                long lastSequence = book.getSequence();
+                if (book.apply(update)) {
+                    subscriber.onOrderBookUpdate(book);
+                    return;
+                }
+
+                LOGGER.warn("Gap in {} order book deltas, last {} received {}, resubscribing", symbol, lastSequence, update.getSequence());
+                subscriber.onGap(lastSequence, update.getSequence());
+                call.cancel("Gap in order book deltas", null);
+                subscribeToOrderBookDeltas(symbol, book, subscriber);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                LOGGER.error("Error receiving order book deltas: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                LOGGER.info("Order book delta stream closed by server.");
+            }
+        });
+    }
+
+    // Streams every execution event on this proxy's participant's orders to subscriber, the alternative to polling getOrders
+    public void subscribeToExecutionReports(ExecutionReportSubscriber subscriber) {
+        if (participantId == null) {
+            throw new IllegalStateException("Execution reports need a ClientProxy created with a participant id");
+        }
+
+        Service.ExecutionReportsRequest request = Service.ExecutionReportsRequest.newBuilder().setParticipantId(participantId).build();
+        asyncStub.executionReports(request, new StreamObserver<>() {
+            @Override
+            public void onNext(Service.ExecutionReport report) {
+                subscriber.onExecutionReport(report);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                LOGGER.error("Error receiving execution reports: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                LOGGER.info("Execution report stream closed by server.");
+            }
+        });
+    }
+
     public void unsubscribeFromProduct() {
         productOrderBookSubscriptionResponseObserver.onCompleted();
     }
@@ -97,7 +247,14 @@ public class ClientProxy {
         };
     }
 
-    public List<Order> getOrders(final Set<Integer> orderIdList) {
+    private Service.OrderCreateRequestDetails withParticipant(Service.OrderCreateRequestDetails request) {
+        if (participantId == null || !request.getParticipantId().isEmpty()) {
+            return request;
+        }
+        return request.toBuilder().setParticipantId(participantId).build();
+    }
+
+    public List<Order> getOrders(final Set<Long> orderIdList) {
         Service.OrderIdList request = Service.OrderIdList.newBuilder().addAllId(orderIdList).build();
 
         List<Order> response;
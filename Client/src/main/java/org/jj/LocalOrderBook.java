@@ -0,0 +1,62 @@
+package org.jj;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// A client-side copy of one product's book, rebuilt from a delta subscription's snapshot and kept current by its deltas
+public class LocalOrderBook {
+    private final NavigableMap<Double, Long> buyLevels = new TreeMap<>(Comparator.reverseOrder());
+    private final NavigableMap<Double, Long> sellLevels = new TreeMap<>();
+    private long sequence = -1;
+
+    // Returns false when the update doesn't follow on from the last one, the book is then stale until the next snapshot
+    public synchronized boolean apply(Service.OrderBookDeltaUpdate update) {
+        switch (update.getUpdateCase()) {
+            case SNAPSHOT -> {
+                buyLevels.clear();
+                sellLevels.clear();
+                update.getSnapshot().getBuyLevelsList().forEach(level -> buyLevels.put(level.getPrice(), level.getQuantity()));
+                update.getSnapshot().getSellLevelsList().forEach(level -> sellLevels.put(level.getPrice(), level.getQuantity()));
+                sequence = update.getSequence();
+                return true;
+            }
+            case DELTA -> {
+                if (sequence == -1 || update.getSequence() != sequence + 1) {
+                    sequence = -1;
+                    return false;
+                }
+                for (Service.LevelChange change : update.getDelta().getChangesList()) {
+                    NavigableMap<Double, Long> levels = change.getSide() == Service.BuySell.BUY ? buyLevels : sellLevels;
+                    if (change.getQuantity() == 0) {
+                        levels.remove(change.getPrice());
+                    } else {
+                        levels.put(change.getPrice(), change.getQuantity());
+                    }
+                }
+                sequence = update.getSequence();
+                return true;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    // -1 until a snapshot has been applied and again after a gap
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // Price to quantity, best price first
+    public synchronized Map<Double, Long> getBuyLevels() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(buyLevels));
+    }
+
+    public synchronized Map<Double, Long> getSellLevels() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(sellLevels));
+    }
+}
@@ -113,7 +113,7 @@ public class ClientMain extends JFrame {
     }
 
     public static void main(String[] args) {
-        new ClientAccount();
+        ClientAccount.getInstance();
         SwingUtilities.invokeLater(ClientMain::new);
     }
 }
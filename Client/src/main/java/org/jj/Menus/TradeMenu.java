@@ -243,7 +243,7 @@ public class TradeMenu extends JFrame {
                 return;
             }
 
-            int orderId = clientProxy.createOrder(productSymbol, buySell, price, quantity, expiry);
+            long orderId = clientProxy.createOrder(productSymbol, buySell, price, quantity, expiry);
             ClientAccount.getInstance().addOrderId(orderId);
 
             ClientAccount.getInstance().getOrders();
@@ -0,0 +1,109 @@
+package org.jj;
+
+import io.grpc.stub.StreamObserver;
+import org.jj.Subscribers.OrderSessionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Client end of the OrderSession stream. Requests are sent without waiting for earlier responses, answers arrive on
+// the listener tagged with the correlation id they were sent with.
+public class OrderSession implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderSession.class);
+
+    private final StreamObserver<Service.OrderSessionRequest> requestObserver;
+    private final String participantId;
+
+    OrderSession(OrderServiceGrpc.OrderServiceStub asyncStub, String participantId, OrderSessionListener listener) {
+        this.participantId = participantId;
+        this.requestObserver = asyncStub.orderSession(new StreamObserver<>() {
+            @Override
+            public void onNext(Service.OrderSessionResponse response) {
+                switch (response.getResponseCase()) {
+                    case ACK -> listener.onAck(response.getCorrelationId(), response.getAck().getOrderId());
+                    case REJECT -> listener.onReject(response.getCorrelationId(), response.getReject().getReason());
+                    case RESPONSE_NOT_SET -> LOGGER.warn("Empty order session response for {}", response.getCorrelationId());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                LOGGER.error("Order session failed: {}", t.getMessage());
+                listener.onClosed();
+            }
+
+            @Override
+            public void onCompleted() {
+                listener.onClosed();
+            }
+        });
+    }
+
+    // Sends are not thread-safe, a session belongs to one sending thread
+    public void createOrder(long correlationId, String productSymbol, BuySell buySell, double price, long quantity, Expiry expiry) {
+        requestObserver.onNext(Service.OrderSessionRequest.newBuilder()
+                                                          .setCorrelationId(correlationId)
+                                                          .setNewOrder(ClientProxy.orderDetails(productSymbol, buySell, price, quantity, expiry))
+                                                          .build());
+    }
+
+    // The order can be cancelled or amended by clientOrderId straight away, without waiting for its ack. Sending it
+    // again under the same clientOrderId, say after a retry, is acked with the same order id and enters nothing new.
+    public void createOrder(long correlationId, long clientOrderId, String productSymbol, BuySell buySell, double price, long quantity, Expiry expiry) {
+        Service.OrderCreateRequestDetails order = ClientProxy.orderDetails(productSymbol, buySell, price, quantity, expiry)
+                                                             .toBuilder()
+                                                             .setParticipantId(requireParticipant())
+                                                             .setClientOrderId(clientOrderId)
+                                                             .build();
+        requestObserver.onNext(Service.OrderSessionRequest.newBuilder().setCorrelationId(correlationId).setNewOrder(order).build());
+    }
+
+    public void cancelOrderByClientId(long correlationId, long clientOrderId) {
+        requestObserver.onNext(Service.OrderSessionRequest.newBuilder()
+                                                          .setCorrelationId(correlationId)
+                                                          .setCancel(Service.OrderCancelRequest.newBuilder()
+                                                                                               .setParticipantId(requireParticipant())
+                                                                                               .setClientOrderId(clientOrderId))
+                                                          .build());
+    }
+
+    public void amendOrderByClientId(long correlationId, long clientOrderId, double price, long quantity) {
+        requestObserver.onNext(Service.OrderSessionRequest.newBuilder()
+                                                          .setCorrelationId(correlationId)
+                                                          .setAmend(Service.OrderAmendRequest.newBuilder()
+                                                                                             .setParticipantId(requireParticipant())
+                                                                                             .setClientOrderId(clientOrderId)
+                                                                                             .setPrice(price)
+                                                                                             .setQuantity(quantity))
+                                                          .build());
+    }
+
+    private String requireParticipant() {
+        if (participantId == null) {
+            throw new IllegalStateException("Client order ids need a participant id, open the session from a ClientProxy that has one");
+        }
+        return participantId;
+    }
+
+    public void cancelOrder(long correlationId, long orderId) {
+        requestObserver.onNext(Service.OrderSessionRequest.newBuilder()
+                                                          .setCorrelationId(correlationId)
+                                                          .setCancel(Service.OrderCancelRequest.newBuilder().setOrderId(orderId))
+                                                          .build());
+    }
+
+    public void amendOrder(long correlationId, long orderId, double price, long quantity) {
+        requestObserver.onNext(Service.OrderSessionRequest.newBuilder()
+                                                          .setCorrelationId(correlationId)
+                                                          .setAmend(Service.OrderAmendRequest.newBuilder()
+                                                                                             .setOrderId(orderId)
+                                                                                             .setPrice(price)
+                                                                                             .setQuantity(quantity))
+                                                          .build());
+    }
+
+    // The server answers everything already sent before closing its side, onClosed follows the last answer
+    @Override
+    public void close() {
+        requestObserver.onCompleted();
+    }
+}
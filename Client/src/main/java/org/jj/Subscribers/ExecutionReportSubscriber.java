@@ -0,0 +1,8 @@
+package org.jj.Subscribers;
+
+import org.jj.Service;
+
+public interface ExecutionReportSubscriber {
+    // Called for every event on the participant's orders, in the order the engine produced them
+    void onExecutionReport(Service.ExecutionReport report);
+}
@@ -0,0 +1,12 @@
+package org.jj.Subscribers;
+
+import org.jj.LocalOrderBook;
+
+public interface OrderBookDeltaSubscriber {
+    // Called after every snapshot or delta has been applied to book
+    void onOrderBookUpdate(LocalOrderBook book);
+
+    // Updates were missed, the subscription is restarted and a fresh snapshot follows
+    default void onGap(long lastSequence, long receivedSequence) {
+    }
+}
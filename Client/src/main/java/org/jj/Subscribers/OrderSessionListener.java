@@ -0,0 +1,12 @@
+package org.jj.Subscribers;
+
+// Called from gRPC threads as the server answers requests sent on an OrderSession
+public interface OrderSessionListener {
+    // orderId is the new order's id for a new order, the cancelled or amended order's id otherwise
+    void onAck(long correlationId, long orderId);
+
+    void onReject(long correlationId, String reason);
+
+    default void onClosed() {
+    }
+}
@@ -11,7 +11,20 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.jj.Subscribers.OrderSessionListener;
+import org.jj.Subscribers.TopOfBookSubscriber;
+
 import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -19,6 +32,7 @@ public class ClientProxyTest {
     private static final int PORT = 50051;
     private ManagedChannel channel;
     private OrderServiceServer server;
+    private MatchingEngineProvider matchingEngineProvider;
     private ClientProxy clientA;
     private int productId;
     private final String productSymbol = "JJ";
@@ -29,7 +43,8 @@ public class ClientProxyTest {
         ProductStore productStore = new ProductStore(new IntIdProvider());
         productStore.addProduct("JENSEN JONES", "JJ");
 
-        server = new OrderServiceServer(PORT, new MatchingEngineProvider(productStore), new OrderStore());
+        matchingEngineProvider = new MatchingEngineProvider(productStore);
+        server = new OrderServiceServer(PORT, matchingEngineProvider, new OrderStore());
         server.start();
         channel = Grpc.newChannelBuilder(String.format("localhost:%d", PORT), InsecureChannelCredentials.create()).build();
         clientA = new ClientProxy(channel);
@@ -62,13 +77,13 @@ public class ClientProxyTest {
 
     @Test
     void shouldFailToCreateIncorrectOrder() {
-        int orderId = clientA.createOrder("ABC", BuySell.BUY, 10, 10, expiry);
-        assertThat(orderId).isEqualTo(-1);
+        long orderId = clientA.createOrder("ABC", BuySell.BUY, 10, 10, expiry);
+        assertThat(orderId).isEqualTo(-1L);
     }
 
     @Test
     void shouldCancelOrder() {
-        int orderId = clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
+        long orderId = clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
         assertThat(orderId).isGreaterThanOrEqualTo(1);
 
         boolean cancelResult = clientA.cancelOrder(orderId);
@@ -80,8 +95,8 @@ public class ClientProxyTest {
     void shouldFillTradeBetweenTwoClients() {
         ClientProxy clientB = new ClientProxy(channel);
 
-        int clientAOrderId = clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
-        int clientBOrderId = clientB.createOrder(productSymbol, BuySell.SELL, 10, 10, expiry);
+        long clientAOrderId = clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
+        long clientBOrderId = clientB.createOrder(productSymbol, BuySell.SELL, 10, 10, expiry);
 
         boolean clientACancelRequest = clientA.cancelOrder(clientAOrderId);
         boolean clientBCancelRequest = clientB.cancelOrder(clientBOrderId);
@@ -89,4 +104,221 @@ public class ClientProxyTest {
         assertThat(clientACancelRequest).isFalse();
         assertThat(clientBCancelRequest).isFalse();
     }
+
+    @Test
+    void shouldPipelineOrdersOnSession() throws InterruptedException {
+        RecordingSessionListener listener = new RecordingSessionListener();
+        int orders = 1000;
+
+        try (OrderSession session = clientA.openOrderSession(listener)) {
+            for (int i = 0; i < orders; i++) {
+                session.createOrder(i, productSymbol, BuySell.BUY, 10, 1, expiry);
+            }
+        }
+
+        assertThat(listener.closed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.acks).hasSize(orders);
+        assertThat(listener.acks.keySet()).containsExactlyInAnyOrderElementsOf(LongStream.range(0, orders).boxed().toList());
+        assertThat(new HashSet<>(listener.acks.values())).hasSize(orders);
+        assertThat(listener.rejects).isEmpty();
+    }
+
+    @Test
+    void shouldAckAndRejectOnSessionByCorrelationId() throws InterruptedException {
+        long orderId = clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
+        RecordingSessionListener listener = new RecordingSessionListener();
+
+        try (OrderSession session = clientA.openOrderSession(listener)) {
+            session.createOrder(1, "ABC", BuySell.BUY, 10, 10, expiry);
+            session.cancelOrder(2, orderId);
+            session.cancelOrder(3, orderId);
+            session.cancelOrder(4, 999_999);
+            session.amendOrder(5, orderId, 11, 10);
+        }
+
+        assertThat(listener.closed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.acks).containsExactly(Map.entry(2L, orderId));
+        assertThat(listener.rejects).containsOnlyKeys(1L, 3L, 4L, 5L);
+        assertThat(listener.rejects.get(5L)).isEqualTo("Order is not resting");
+        assertThat(listener.rejects.get(1L)).isEqualTo("Product does not exist");
+        assertThat(listener.rejects.get(3L)).isEqualTo("Order is not resting");
+    }
+
+    @Test
+    void shouldReferToOrdersByClientOrderIdBeforeTheirAck() throws InterruptedException {
+        ClientProxy trader = new ClientProxy(channel, "alice");
+        RecordingSessionListener listener = new RecordingSessionListener();
+
+        try (OrderSession session = trader.openOrderSession(listener)) {
+            session.createOrder(1, 100, productSymbol, BuySell.BUY, 10, 10, expiry);
+            session.amendOrderByClientId(2, 100, 10, 5);
+            session.createOrder(3, 100, productSymbol, BuySell.BUY, 10, 10, expiry);
+            session.cancelOrderByClientId(4, 100);
+            session.cancelOrderByClientId(5, 100);
+            session.cancelOrderByClientId(6, 999);
+            session.createOrder(7, 101, productSymbol, BuySell.BUY, 10, 10, expiry);
+        }
+
+        assertThat(listener.closed.await(10, TimeUnit.SECONDS)).isTrue();
+        long orderId = listener.acks.get(1L);
+        assertThat(listener.acks).containsEntry(2L, orderId).containsEntry(3L, orderId).containsEntry(4L, orderId);
+        assertThat(listener.acks.get(7L)).isNotEqualTo(orderId);
+        assertThat(listener.rejects).containsOnlyKeys(5L, 6L);
+        assertThat(listener.rejects.get(5L)).isEqualTo("Order is not resting");
+        assertThat(listener.rejects.get(6L)).isEqualTo("Order ID does not exist");
+        assertThat(trader.getOrders(Set.of(orderId))).extracting(Order::quantity).containsExactly(5L);
+    }
+
+    @Test
+    void shouldCreateBatchAcrossProductsWithPerOrderResults() {
+        List<Service.OrderCreateRequestDetails> orders = List.of(
+                ClientProxy.orderDetails(productSymbol, BuySell.BUY, 10, 10, expiry),
+                ClientProxy.orderDetails("ABC", BuySell.BUY, 10, 10, expiry),
+                ClientProxy.orderDetails(productSymbol, BuySell.SELL, 11, 5, expiry),
+                ClientProxy.orderDetails(productSymbol, BuySell.SELL, 10, 10, expiry));
+
+        List<Long> orderIds = clientA.createOrders(orders);
+
+        assertThat(orderIds).hasSize(4);
+        assertThat(orderIds.get(1)).isEqualTo(-1L);
+        assertThat(orderIds.get(0)).isPositive();
+        assertThat(orderIds.get(2)).isGreaterThan(orderIds.get(0));
+        assertThat(orderIds.get(3)).isGreaterThan(orderIds.get(2));
+        // The last order traded against the first, the second sell still rests
+        assertThat(clientA.cancelOrder(orderIds.get(0))).isFalse();
+        assertThat(clientA.cancelOrder(orderIds.get(2))).isTrue();
+    }
+
+    @Test
+    void shouldAmendOrderKeepingItsId() {
+        long orderId = clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
+
+        assertThat(clientA.amendOrder(orderId, 10, 5)).isTrue();
+        assertThat(clientA.amendOrder(orderId, 11, 5)).isTrue();
+        Order amended = clientA.getOrders(Set.of(orderId)).get(0);
+        assertThat(amended.price()).isEqualTo(11);
+        assertThat(amended.quantity()).isEqualTo(5);
+
+        int sellId = clientA.createOrder(productSymbol, BuySell.SELL, 11, 5, expiry);
+        assertThat(clientA.cancelOrder(sellId)).isFalse();
+        assertThat(clientA.amendOrder(orderId, 12, 5)).isFalse();
+    }
+
+    @Test
+    void shouldConflateBooksToLatestWithinInterval() throws InterruptedException {
+        List<Service.OrderBook> books = new CopyOnWriteArrayList<>();
+        CountDownLatch caughtUp = new CountDownLatch(1);
+
+        clientA.subscribeToProductOrderBook(productSymbol, Duration.ofMillis(200), new TopOfBookSubscriber() {
+            @Override
+            public void startSubscription(String symbol) {
+            }
+
+            @Override
+            public void onOrderBookUpdate(Service.OrderBook orderBook) {
+                books.add(orderBook);
+                if (orderBook.getBuyPricesList().contains(20.0)) {
+                    caughtUp.countDown();
+                }
+            }
+
+            @Override
+            public void unsubscribe() {
+            }
+        });
+        for (int i = 1; i <= 20; i++) {
+            clientA.createOrder(productSymbol, BuySell.BUY, i, 1, expiry);
+        }
+
+        assertThat(caughtUp.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(books.size()).isLessThan(21);
+        assertThat(books.get(books.size() - 1).getBuyPricesList()).containsExactly(20.0, 19.0, 18.0, 17.0, 16.0);
+        channel.shutdownNow();
+    }
+
+    @Test
+    void shouldKeepLocalBookInStepWithDeltas() throws InterruptedException {
+        clientA.createOrder(productSymbol, BuySell.BUY, 10, 10, expiry);
+        CountDownLatch caughtUp = new CountDownLatch(1);
+
+        LocalOrderBook book = clientA.subscribeToOrderBookDeltas(productSymbol, updated -> {
+            if (updated.getSellLevels().equals(Map.of(12.0, 3L)) && updated.getBuyLevels().equals(Map.of(10.0, 6L))) {
+                caughtUp.countDown();
+            }
+        });
+        clientA.createOrder(productSymbol, BuySell.SELL, 10, 4, expiry);
+        int sellId = clientA.createOrder(productSymbol, BuySell.SELL, 11, 1, expiry);
+        clientA.createOrder(productSymbol, BuySell.SELL, 12, 3, expiry);
+        clientA.cancelOrder(sellId);
+
+        assertThat(caughtUp.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(book.getSequence()).isPositive();
+        channel.shutdownNow();
+    }
+
+    @Test
+    void shouldStreamExecutionReportsForOwnOrders() throws InterruptedException {
+        ClientProxy trader = new ClientProxy(channel, "trader");
+        List<Service.ExecutionReport> reports = new CopyOnWriteArrayList<>();
+        CountDownLatch filled = new CountDownLatch(1);
+        trader.subscribeToExecutionReports(report -> {
+            reports.add(report);
+            if (report.getExecType() == Service.ExecType.FILLED) {
+                filled.countDown();
+            }
+        });
+        while (!matchingEngineProvider.getExecutionReportRouter().hasSubscriber("trader")) {
+            Thread.sleep(10);
+        }
+
+        long buyId = trader.createOrder(productSymbol, BuySell.BUY, 10, 5, expiry);
+        clientA.createOrder(productSymbol, BuySell.SELL, 10, 2, expiry);
+        clientA.createOrder(productSymbol, BuySell.SELL, 10, 3, expiry);
+
+        assertThat(filled.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(reports).extracting(Service.ExecutionReport::getExecType)
+                           .containsExactly(Service.ExecType.ACCEPTED, Service.ExecType.PARTIALLY_FILLED, Service.ExecType.FILLED);
+        assertThat(reports).allMatch(report -> report.getOrderId() == buyId);
+        assertThat(reports.get(2).getQuantityFilled()).isEqualTo(5);
+        channel.shutdownNow();
+    }
+
+    @Test
+    void shouldReplaceQuotesWithMassQuote() {
+        Service.MassQuoteResponse first = clientA.massQuote("MM", productSymbol,
+                                                            List.of(quote(9, 10), quote(8, 10)),
+                                                            List.of(quote(11, 10)));
+        Service.MassQuoteResponse second = clientA.massQuote("MM", productSymbol, List.of(quote(9.5, 5)), List.of());
+
+        assertThat(first.getBidOrderIdsList()).hasSize(2);
+        assertThat(first.getAskOrderIdsList()).hasSize(1);
+        assertThat(clientA.cancelOrder(first.getAskOrderIds(0))).isFalse();
+        assertThat(clientA.cancelOrder(second.getBidOrderIds(0))).isTrue();
+        assertThat(clientA.massQuote("MM", "ABC", List.of(quote(9, 10)), List.of())).isNull();
+    }
+
+    private static Service.QuoteLevel quote(double price, long quantity) {
+        return Service.QuoteLevel.newBuilder().setPrice(price).setQuantity(quantity).build();
+    }
+
+    private static class RecordingSessionListener implements OrderSessionListener {
+        final Map<Long, Long> acks = new ConcurrentHashMap<>();
+        final Map<Long, String> rejects = new ConcurrentHashMap<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void onAck(long correlationId, long orderId) {
+            acks.put(correlationId, orderId);
+        }
+
+        @Override
+        public void onReject(long correlationId, String reason) {
+            rejects.put(correlationId, reason);
+        }
+
+        @Override
+        public void onClosed() {
+            closed.countDown();
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package org.jj;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalOrderBookTest {
+    private final LocalOrderBook subject = new LocalOrderBook();
+
+    @Test
+    void shouldRebuildBookFromSnapshotAndDeltas() {
+        assertThat(subject.apply(snapshot(7))).isTrue();
+        assertThat(subject.apply(delta(8, Service.BuySell.BUY, 9.5, 3))).isTrue();
+        assertThat(subject.apply(delta(9, Service.BuySell.SELL, 11, 0))).isTrue();
+
+        assertThat(subject.getSequence()).isEqualTo(9);
+        assertThat(subject.getBuyLevels()).containsExactly(Map.entry(10.0, 5L), Map.entry(9.5, 3L));
+        assertThat(subject.getSellLevels()).isEmpty();
+    }
+
+    @Test
+    void shouldDetectGapsUntilNextSnapshot() {
+        subject.apply(snapshot(7));
+
+        assertThat(subject.apply(delta(9, Service.BuySell.BUY, 9.5, 3))).isFalse();
+        assertThat(subject.getSequence()).isEqualTo(-1);
+        assertThat(subject.apply(delta(10, Service.BuySell.BUY, 9.5, 3))).isFalse();
+
+        assertThat(subject.apply(snapshot(12))).isTrue();
+        assertThat(subject.apply(delta(13, Service.BuySell.BUY, 9.5, 3))).isTrue();
+    }
+
+    @Test
+    void shouldRejectDeltaBeforeSnapshot() {
+        assertThat(subject.apply(delta(1, Service.BuySell.BUY, 9.5, 3))).isFalse();
+    }
+
+    private static Service.OrderBookDeltaUpdate snapshot(long sequence) {
+        return Service.OrderBookDeltaUpdate.newBuilder()
+                                           .setSequence(sequence)
+                                           .setSnapshot(Service.OrderBookSnapshot.newBuilder()
+                                                                                 .addBuyLevels(Service.PriceLevel.newBuilder().setPrice(10).setQuantity(5))
+                                                                                 .addSellLevels(Service.PriceLevel.newBuilder().setPrice(11).setQuantity(2)))
+                                           .build();
+    }
+
+    private static Service.OrderBookDeltaUpdate delta(long sequence, Service.BuySell side, double price, long quantity) {
+        return Service.OrderBookDeltaUpdate.newBuilder()
+                                           .setSequence(sequence)
+                                           .setDelta(Service.OrderBookDelta.newBuilder()
+                                                                           .addChanges(Service.LevelChange.newBuilder()
+                                                                                                          .setSide(side)
+                                                                                                          .setPrice(price)
+                                                                                                          .setQuantity(quantity)))
+                                           .build();
+    }
+}
@@ -1,6 +1,6 @@
 package org.jj;
 
-public record Order (int orderId, String product, double price, long quantity, long quantityFilled, Expiry expiry, BuySell buySell) {
+public record Order (long orderId, String product, double price, long quantity, long quantityFilled, Expiry expiry, BuySell buySell) {
     public Service.Order toProto() {
         return Service.Order.newBuilder().setId(orderId)
                                          .setProductSymbol(product)
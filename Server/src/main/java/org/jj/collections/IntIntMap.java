@@ -0,0 +1,156 @@
+package org.jj.collections;
+
+import java.util.Arrays;
+
+// Open-addressing int -> int map with linear probing, so nothing is boxed on put, get or remove.
+// An empty slot is marked by missingValue, which therefore can never be stored as a value.
+public class IntIntMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.65f;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int resizeThreshold;
+    private int size = 0;
+
+    public IntIntMap(int missingValue) {
+        this(DEFAULT_CAPACITY, missingValue);
+    }
+
+    public IntIntMap(int initialCapacity, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(capacityFor(initialCapacity));
+    }
+
+    public int get(int key) {
+        int index = hash(key) & mask;
+        while (values[index] != missingValue) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != missingValue;
+    }
+
+    // Returns the previous value for key, or missingValue when there was none
+    public int put(int key, int value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("Cannot store the missing value " + missingValue);
+        }
+
+        int index = hash(key) & mask;
+        while (values[index] != missingValue) {
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    // Returns the removed value, or missingValue when key was not present
+    public int remove(int key) {
+        int index = hash(key) & mask;
+        while (values[index] != missingValue) {
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = missingValue;
+                size--;
+                compactChain(index);
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getMissingValue() {
+        return missingValue;
+    }
+
+    public void clear() {
+        Arrays.fill(values, missingValue);
+        size = 0;
+    }
+
+    // Shifts later entries of the probe chain back into the freed slot so lookups never need tombstones
+    private void compactChain(int deleteIndex) {
+        int index = deleteIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == missingValue) {
+                return;
+            }
+
+            int home = hash(keys[index]) & mask;
+            if ((index < home && (home <= deleteIndex || deleteIndex <= index))
+                    || (home <= deleteIndex && deleteIndex <= index)) {
+                keys[deleteIndex] = keys[index];
+                values[deleteIndex] = values[index];
+                values[index] = missingValue;
+                deleteIndex = index;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != missingValue) {
+                int index = hash(oldKeys[i]) & mask;
+                while (values[index] != missingValue) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, missingValue);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity too large: " + expectedSize);
+        }
+        return capacity;
+    }
+
+    static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
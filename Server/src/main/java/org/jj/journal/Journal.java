@@ -0,0 +1,507 @@
+package org.jj.journal;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.InputJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+// Append-only binary journal of every input the engines accept, written through memory-mapped segment files. Appends
+// take no lock: each writer encodes its record in a buffer of its own, claims the record's room and sequence together
+// with one compare-and-set on the segment's tail, then copies the record in, so the engines' shards never wait on each
+// other. A flusher thread forces every complete record to disk once per flush interval, so acks never wait for the
+// disk. A machine crash loses at most the last interval. A process crash loses nothing that was appended, except in the
+// instant a record is being copied in, when records claimed after it are past where readers stop. Every run starts a
+// new segment named after its first sequence, or reuses the one already under that name when the run before stopped
+// without completing a record in it.
+//
+// Record layout: int length, int CRC32C of everything after it, long sequence, int product id, byte type, then the
+// fields of the type. The length is written last, so a zero length or a bad CRC marks where a segment ends.
+public class Journal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Journal.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+    static final byte CREATE_ORDER = 1;
+    static final byte CANCEL_ORDER = 2;
+    static final byte AMEND_ORDER = 3;
+    static final byte MASS_QUOTE = 4;
+
+    static final int CRC_OFFSET = 4;
+    static final int CHECKED_OFFSET = 8;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 1;
+    static final int NO_PARTICIPANT = -1;
+
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    // A segment's tail once it is full, no record goes in after it
+    private static final long SEALED = -1;
+    private static final int INITIAL_RECORD_SIZE = 256;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService flusher;
+    // For the append methods called directly, engines write through forProduct with a writer each
+    private final RecordWriter sharedWriter = new RecordWriter();
+
+    private volatile Segment segment;
+    private volatile Exception rollFailure;
+    private volatile boolean closed = false;
+    private volatile Runnable appendListener;
+
+    // Guarded by this, only the flusher and close move them
+    private Segment flushing;
+    private int flushedPosition;
+
+    // nextSequence continues from the last sequence JournalReader replayed
+    public Journal(Path directory, long nextSequence) throws IOException {
+        this(directory, nextSequence, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public Journal(Path directory, long nextSequence, long segmentSize, long flushIntervalMillis) throws IOException {
+        if (segmentSize <= HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size out of range: " + segmentSize);
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = (int) segmentSize;
+        this.segment = new Segment(openSegment(nextSequence), nextSequence);
+        this.flushing = segment;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Told after every append, for a reader following the journal as it is written. Must be quick, it runs on the
+    // appending thread.
+    public void setAppendListener(Runnable appendListener) {
+        this.appendListener = appendListener;
+    }
+
+    // The journal one product's engine writes to. Like the engine it is used by one thread at a time.
+    public InputJournal forProduct(int productId) {
+        return new ProductJournal(productId);
+    }
+
+    // clientOrderId is 0 for an order sent without one
+    public long appendCreateOrder(int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                  long clientOrderId) {
+        synchronized (sharedWriter) {
+            return sharedWriter.createOrder(productId, quantity, price, buySell, expiry, participant, clientOrderId);
+        }
+    }
+
+    public long appendCancelOrder(int productId, int orderId) {
+        synchronized (sharedWriter) {
+            return sharedWriter.cancelOrder(productId, orderId);
+        }
+    }
+
+    public long appendAmendOrder(int productId, int orderId, long quantity, long price) {
+        synchronized (sharedWriter) {
+            return sharedWriter.amendOrder(productId, orderId, quantity, price);
+        }
+    }
+
+    public long appendMassQuote(int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities) {
+        synchronized (sharedWriter) {
+            return sharedWriter.massQuote(productId, participant, bidPrices, bidQuantities, askPrices, askQuantities);
+        }
+    }
+
+    // Appends a record exactly as another journal wrote it, for a standby copying its primary. The record must carry the
+    // next sequence, so both journals hold the same records under the same sequences. Only the standby's follower
+    // appends to its journal, so nothing can take that sequence in between.
+    public long appendReplicated(ByteBuffer record) {
+        synchronized (sharedWriter) {
+            return sharedWriter.replicated(record);
+        }
+    }
+
+    // The sequence of the last record appended, one before the first when there is none yet. A record still being
+    // copied in counts as appended.
+    public long getLastSequence() {
+        while (true) {
+            Segment current = segment;
+            long tail = current.tail.get();
+            if (tail != SEALED) {
+                return current.firstSequence + (tail >>> Integer.SIZE) - 1;
+            }
+            awaitRoll(current);
+        }
+    }
+
+    // Forces every complete record appended so far to disk, the flusher calls this once per interval. Records are forced
+    // in order up to the first one still being copied in, the next flush carries on from there. A full segment is
+    // finished off before the next one, so rolling never waits for the disk.
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        while (true) {
+            int end = completeEnd(flushing.buffer, flushedPosition);
+            if (end > flushedPosition) {
+                flushing.buffer.force(flushedPosition, end - flushedPosition);
+                flushedPosition = end;
+            }
+            Segment next = flushing.next;
+            if (next == null || end < flushing.end) {
+                return;
+            }
+            flushing = next;
+            flushedPosition = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flush();
+        closed = true;
+    }
+
+    // Where the records from position on stop being complete
+    private int completeEnd(MappedByteBuffer buffer, int position) {
+        while (position <= segmentSize - Integer.BYTES) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            position += length;
+        }
+        VarHandle.acquireFence();
+        return position;
+    }
+
+    // Only the writer that sealed full rolls, the rest wait for it here. The rest of full is left zeroed, which readers
+    // take as its end.
+    private void roll(Segment full, long tail) {
+        long nextSequence = full.firstSequence + (tail >>> Integer.SIZE);
+        Segment next;
+        try {
+            next = new Segment(openSegment(nextSequence), nextSequence);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to open journal segment in {}", directory, e);
+            rollFailure = e;
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+        full.end = (int) tail;
+        full.next = next;
+        segment = next;
+    }
+
+    private void awaitRoll(Segment full) {
+        while (segment == full) {
+            Exception failure = rollFailure;
+            if (failure != null) {
+                throw new IllegalStateException("Journal could not open its next segment", failure);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // A segment already under the name was left by a run that stopped before completing a record in it: one that took
+    // no inputs, one that crashed right after rolling, or one restarted from a snapshot with nothing new since. It is
+    // zeroed, torn record and all, and reused. One that holds a complete record was never replayed and is refused
+    // rather than overwritten.
+    private MappedByteBuffer openSegment(long nextSequence) throws IOException {
+        Path path = directory.resolve(segmentName(nextSequence));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean existed = channel.size() > 0;
+            if (channel.size() > segmentSize) {
+                channel.truncate(segmentSize);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            if (!existed) {
+                LOGGER.info("Journal segment {} opened", path);
+                return mapped;
+            }
+
+            if (JournalReader.recordLength(mapped, 0, new CRC32C()) != 0) {
+                LOGGER.error("Journal segment {} holds records from sequence {} that were not replayed", path, nextSequence);
+                throw new IllegalStateException("Journal segment " + path + " already holds records");
+            }
+            zero(mapped);
+            LOGGER.info("Journal segment {} reused", path);
+            return mapped;
+        }
+    }
+
+    private static void zero(MappedByteBuffer mapped) {
+        int i = 0;
+        for (; i + Long.BYTES <= mapped.capacity(); i += Long.BYTES) {
+            mapped.putLong(i, 0);
+        }
+        for (; i < mapped.capacity(); i++) {
+            mapped.put(i, (byte) 0);
+        }
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    // Bytes the participant takes as UTF-8, worked out from its chars so appends allocate nothing. A lone surrogate
+    // takes one byte, it is written as '?' just as String.getBytes would.
+    private static int encodedLength(String participant) {
+        if (participant == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < participant.length(); i++) {
+            char c = participant.charAt(i);
+            if (c < 0x80 || (Character.isSurrogate(c) && !isSurrogatePair(participant, i))) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        if (length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Participant id is too long to journal");
+        }
+        return length;
+    }
+
+    private static boolean isSurrogatePair(String participant, int i) {
+        return Character.isHighSurrogate(participant.charAt(i))
+                && i + 1 < participant.length()
+                && Character.isLowSurrogate(participant.charAt(i + 1));
+    }
+
+    // A mapped segment file. Writers claim room in it through tail, which holds how many records have been claimed above
+    // where the next one starts. A writer whose record doesn't fit seals it by setting tail to SEALED and rolls.
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        final long firstSequence;
+        final AtomicLong tail = new AtomicLong();
+        // Where the last record ends, set once the segment is sealed and before next is
+        int end;
+        volatile Segment next;
+
+        Segment(MappedByteBuffer buffer, long firstSequence) {
+            this.buffer = buffer;
+            this.firstSequence = firstSequence;
+        }
+    }
+
+    // Encodes one writer's records in a buffer of its own and copies each into the segment once it has claimed room
+    // for it. Used by one thread at a time, so appends allocate nothing once the buffer is big enough.
+    private final class RecordWriter {
+        private final CRC32C crc = new CRC32C();
+        private ByteBuffer record = ByteBuffer.allocate(INITIAL_RECORD_SIZE);
+
+        // The room last claimed
+        private Segment claimed;
+        private long claimedSequence;
+        private int claimedStart;
+
+        long createOrder(int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant, long clientOrderId) {
+            int participantLength = encodedLength(participant);
+            begin(productId, CREATE_ORDER, 8 + 8 + 1 + 1 + 2 + participantLength + 8);
+            record.putLong(quantity);
+            record.putLong(price);
+            record.put((byte) buySell.ordinal());
+            record.put((byte) expiry.ordinal());
+            putParticipant(participant, participantLength);
+            record.putLong(clientOrderId);
+            return append();
+        }
+
+        long cancelOrder(int productId, int orderId) {
+            begin(productId, CANCEL_ORDER, 4);
+            record.putInt(orderId);
+            return append();
+        }
+
+        long amendOrder(int productId, int orderId, long quantity, long price) {
+            begin(productId, AMEND_ORDER, 4 + 8 + 8);
+            record.putInt(orderId);
+            record.putLong(quantity);
+            record.putLong(price);
+            return append();
+        }
+
+        long massQuote(int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities) {
+            int participantLength = encodedLength(participant);
+            begin(productId, MASS_QUOTE, 2 + participantLength + 4 + bidPrices.length * 16 + 4 + askPrices.length * 16);
+            putParticipant(participant, participantLength);
+            putLevels(bidPrices, bidQuantities);
+            putLevels(askPrices, askQuantities);
+            return append();
+        }
+
+        long replicated(ByteBuffer replicated) {
+            int length = replicated.getInt(replicated.position());
+            long sequence = replicated.getLong(replicated.position() + CHECKED_OFFSET);
+            if (sequence != getLastSequence() + 1) {
+                throw new IllegalStateException("Replicated record " + sequence + " does not follow " + getLastSequence());
+            }
+            claim(length);
+            claimed.buffer.put(claimedStart + CRC_OFFSET, replicated, replicated.position() + CRC_OFFSET, length - CRC_OFFSET);
+            return publish(length);
+        }
+
+        private void begin(int productId, byte type, int bodySize) {
+            int length = HEADER_SIZE + bodySize;
+            if (length > segmentSize) {
+                throw new IllegalArgumentException("Journal record of " + length + " bytes does not fit in a segment");
+            }
+            if (record.capacity() < length) {
+                record = ByteBuffer.allocate(Math.max(length, record.capacity() * 2));
+            }
+            record.clear();
+            record.putInt(0);
+            record.putInt(0);
+            record.putLong(0);
+            record.putInt(productId);
+            record.put(type);
+        }
+
+        private long append() {
+            int length = record.position();
+            claim(length);
+            record.putLong(CHECKED_OFFSET, claimedSequence);
+            crc.reset();
+            crc.update(record.array(), CHECKED_OFFSET, length - CHECKED_OFFSET);
+            record.putInt(CRC_OFFSET, (int) crc.getValue());
+            claimed.buffer.put(claimedStart + CRC_OFFSET, record, CRC_OFFSET, length - CRC_OFFSET);
+            return publish(length);
+        }
+
+        // Claims length bytes and the sequence that goes with them in one step, rolling when the segment is full
+        private void claim(int length) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (length > segmentSize) {
+                throw new IllegalArgumentException("Journal record of " + length + " bytes does not fit in a segment");
+            }
+            while (true) {
+                Segment current = segment;
+                long tail = current.tail.get();
+                if (tail == SEALED) {
+                    awaitRoll(current);
+                    continue;
+                }
+                int start = (int) tail;
+                if (start + (long) length > segmentSize) {
+                    if (current.tail.compareAndSet(tail, SEALED)) {
+                        roll(current, tail);
+                    }
+                    continue;
+                }
+                if (current.tail.compareAndSet(tail, tail + (1L << Integer.SIZE) + length)) {
+                    claimed = current;
+                    claimedSequence = current.firstSequence + (tail >>> Integer.SIZE);
+                    claimedStart = start;
+                    return;
+                }
+            }
+        }
+
+        private long publish(int length) {
+            // A reader only sees the length once the rest of the record is there
+            VarHandle.releaseFence();
+            claimed.buffer.putInt(claimedStart, length);
+            Runnable listener = appendListener;
+            if (listener != null) {
+                listener.run();
+            }
+            return claimedSequence;
+        }
+
+        private void putParticipant(String participant, int length) {
+            if (participant == null) {
+                record.putShort((short) NO_PARTICIPANT);
+                return;
+            }
+            record.putShort((short) length);
+            for (int i = 0; i < participant.length(); i++) {
+                char c = participant.charAt(i);
+                if (c < 0x80) {
+                    record.put((byte) c);
+                } else if (c < 0x800) {
+                    record.put((byte) (0xC0 | c >> 6));
+                    record.put((byte) (0x80 | c & 0x3F));
+                } else if (isSurrogatePair(participant, i)) {
+                    int codePoint = Character.toCodePoint(c, participant.charAt(++i));
+                    record.put((byte) (0xF0 | codePoint >> 18));
+                    record.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                    record.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                    record.put((byte) (0x80 | codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    record.put((byte) '?');
+                } else {
+                    record.put((byte) (0xE0 | c >> 12));
+                    record.put((byte) (0x80 | c >> 6 & 0x3F));
+                    record.put((byte) (0x80 | c & 0x3F));
+                }
+            }
+        }
+
+        private void putLevels(long[] prices, long[] quantities) {
+            record.putInt(prices.length);
+            for (int i = 0; i < prices.length; i++) {
+                record.putLong(prices[i]);
+                record.putLong(quantities[i]);
+            }
+        }
+    }
+
+    private class ProductJournal implements InputJournal {
+        private final int productId;
+        private final RecordWriter writer = new RecordWriter();
+
+        ProductJournal(int productId) {
+            this.productId = productId;
+        }
+
+        @Override
+        public long createOrder(long quantity, long price, BuySell buySell, Expiry expiry, String participant, long clientOrderId) {
+            return writer.createOrder(productId, quantity, price, buySell, expiry, participant, clientOrderId);
+        }
+
+        @Override
+        public long cancelOrder(int id) {
+            return writer.cancelOrder(productId, id);
+        }
+
+        @Override
+        public long amendOrder(int id, long quantity, long price) {
+            return writer.amendOrder(productId, id, quantity, price);
+        }
+
+        @Override
+        public long massQuote(String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities) {
+            return writer.massQuote(productId, participant, bidPrices, bidQuantities, askPrices, askQuantities);
+        }
+    }
+}
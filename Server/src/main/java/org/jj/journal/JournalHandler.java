@@ -0,0 +1,16 @@
+package org.jj.journal;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+
+// Receives the journal's records in the order they were written, see JournalReader
+public interface JournalHandler {
+    // clientOrderId is the participant's own id for the order, 0 when it was sent without one
+    void onCreateOrder(long sequence, int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant, long clientOrderId);
+
+    void onCancelOrder(long sequence, int productId, int orderId);
+
+    void onAmendOrder(long sequence, int productId, int orderId, long quantity, long price);
+
+    void onMassQuote(long sequence, int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities);
+}
@@ -0,0 +1,169 @@
+package org.jj.journal;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Reads back what Journal wrote. Segments are read in sequence order, each up to its first incomplete record, which is
+// where a run that crashed stopped. A record whose sequence was already replayed is skipped. Engines only journal
+// inputs they have checked, so a record the handler fails on means the journal and the engines disagree, and replay
+// stops with the handler's exception rather than carry on from a different state.
+public class JournalReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalReader.class);
+
+    private JournalReader() {
+    }
+
+    // Returns the last sequence handed to handler, 0 for an empty or missing journal
+    public static long replay(Path directory, JournalHandler handler) throws IOException {
+        return replay(directory, 0, handler);
+    }
+
+    // Replays only the records after afterSequence, as a snapshot covers the rest. Segments that end before it are not
+    // read at all. Returns the last sequence handed to handler, afterSequence when there was nothing after it.
+    public static long replay(Path directory, long afterSequence, JournalHandler handler) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return afterSequence;
+        }
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(JournalReader::isSegment).sorted().toList();
+        }
+
+        long lastSequence = afterSequence;
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            lastSequence = replaySegment(segments.get(i), lastSequence, handler);
+        }
+        LOGGER.info("Replayed journal in {} from sequence {} up to {}", directory, afterSequence + 1, lastSequence);
+        return lastSequence;
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(Journal.SEGMENT_PREFIX) && name.endsWith(Journal.SEGMENT_SUFFIX);
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(Journal.SEGMENT_PREFIX.length(), name.length() - Journal.SEGMENT_SUFFIX.length()));
+    }
+
+    private static long replaySegment(Path path, long lastSequence, JournalHandler handler) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32C crc = new CRC32C();
+        while (segment.remaining() >= Journal.HEADER_SIZE) {
+            int start = segment.position();
+            int length = recordLength(segment, start, crc);
+            if (length == 0) {
+                if (segment.getInt(start) != 0) {
+                    LOGGER.warn("Journal segment {} ends with a torn record at offset {}", path, start);
+                }
+                break;
+            }
+
+            long sequence = segment.getLong(start + Journal.CHECKED_OFFSET);
+            if (sequence > lastSequence) {
+                dispatch(segment.slice(start, length), handler);
+                lastSequence = sequence;
+            }
+            segment.position(start + length);
+        }
+        return lastSequence;
+    }
+
+    // The length of the complete record at start, 0 when there is none: nothing written there yet, a record running
+    // past the end of buffer or one that fails its CRC
+    static int recordLength(ByteBuffer buffer, int start, CRC32C crc) {
+        int length = buffer.getInt(start);
+        if (length < Journal.HEADER_SIZE || length > buffer.limit() - start) {
+            return 0;
+        }
+        crc.reset();
+        crc.update(buffer.slice(start + Journal.CHECKED_OFFSET, length - Journal.CHECKED_OFFSET));
+        return (int) crc.getValue() == buffer.getInt(start + Journal.CRC_OFFSET) ? length : 0;
+    }
+
+    // Whether record holds exactly one complete record with a matching CRC
+    public static boolean isComplete(ByteBuffer record) {
+        return record.remaining() >= Journal.HEADER_SIZE && recordLength(record.slice(), 0, new CRC32C()) == record.remaining();
+    }
+
+    // Hands the single record filling record to handler, returning its sequence. The caller has checked it is complete.
+    public static long dispatch(ByteBuffer record, JournalHandler handler) {
+        ByteBuffer body = record.slice().position(Journal.CHECKED_OFFSET);
+        long sequence = body.getLong();
+        replayRecord(body, sequence, handler);
+        return sequence;
+    }
+
+    private static void replayRecord(ByteBuffer segment, long sequence, JournalHandler handler) {
+        int productId = segment.getInt();
+        byte type = segment.get();
+        switch (type) {
+            case Journal.CREATE_ORDER -> {
+                long quantity = segment.getLong();
+                long price = segment.getLong();
+                BuySell buySell = BuySell.values()[segment.get()];
+                Expiry expiry = Expiry.values()[segment.get()];
+                String participant = getParticipant(segment);
+                handler.onCreateOrder(sequence, productId, quantity, price, buySell, expiry, participant, segment.getLong());
+            }
+            case Journal.CANCEL_ORDER -> handler.onCancelOrder(sequence, productId, segment.getInt());
+            case Journal.AMEND_ORDER -> {
+                int orderId = segment.getInt();
+                long quantity = segment.getLong();
+                long price = segment.getLong();
+                handler.onAmendOrder(sequence, productId, orderId, quantity, price);
+            }
+            case Journal.MASS_QUOTE -> {
+                String participant = getParticipant(segment);
+                long[][] bids = getLevels(segment);
+                long[][] asks = getLevels(segment);
+                handler.onMassQuote(sequence, productId, participant, bids[0], bids[1], asks[0], asks[1]);
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + type + " at sequence " + sequence);
+        }
+    }
+
+    private static String getParticipant(ByteBuffer segment) {
+        short length = segment.getShort();
+        if (length == Journal.NO_PARTICIPANT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        segment.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Prices then quantities
+    private static long[][] getLevels(ByteBuffer segment) {
+        int count = segment.getInt();
+        long[][] levels = new long[2][count];
+        for (int i = 0; i < count; i++) {
+            levels[0][i] = segment.getLong();
+            levels[1][i] = segment.getLong();
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,114 @@
+package org.jj.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Follows a journal while it is being written, handing out each complete record after a given sequence in order. The
+// segment being written is mapped as well, so a record can be read as soon as the journal has appended it. When the
+// current segment has nothing more, the next one is the segment named after the following sequence, as every roll
+// and every restart of the journal starts one there.
+public class JournalTailer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalTailer.class);
+
+    // Looking for the next segment costs a file system call, so while the current one has room it is done at most this often
+    private static final long SEGMENT_CHECK_NANOS = 1_000_000;
+
+    private final Path directory;
+    private final CRC32C crc = new CRC32C();
+
+    private MappedByteBuffer segment;
+    private long lastSequence;
+    private long nextSegmentCheck;
+
+    // Starts with the record after afterSequence
+    public JournalTailer(Path directory, long afterSequence) throws IOException {
+        this.directory = directory;
+        this.lastSequence = afterSequence;
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(JournalReader::isSegment).sorted().toList();
+        }
+        // The last segment starting at or before the first record wanted holds it, or the journal hasn't got that far
+        int first = 0;
+        while (first + 1 < segments.size() && JournalReader.firstSequence(segments.get(first + 1)) <= afterSequence + 1) {
+            first++;
+        }
+        if (!segments.isEmpty()) {
+            segment = map(segments.get(first));
+        }
+    }
+
+    // The next complete record as a buffer holding just that record, null when the journal has nothing newer yet. The
+    // buffer is only valid until the next call.
+    public ByteBuffer poll() throws IOException {
+        while (true) {
+            if (segment == null && !nextSegment()) {
+                return null;
+            }
+
+            int start = segment.position();
+            int length = segment.remaining() >= Journal.HEADER_SIZE ? segment.getInt(start) : 0;
+            VarHandle.acquireFence();
+            if (length != 0) {
+                length = JournalReader.recordLength(segment, start, crc);
+            }
+            if (length == 0) {
+                if (segment.remaining() >= Journal.HEADER_SIZE && System.nanoTime() < nextSegmentCheck) {
+                    return null;
+                }
+                nextSegmentCheck = System.nanoTime() + SEGMENT_CHECK_NANOS;
+                if (!nextSegment()) {
+                    return null;
+                }
+                continue;
+            }
+
+            segment.position(start + length);
+            long sequence = segment.getLong(start + Journal.CHECKED_OFFSET);
+            if (sequence > lastSequence) {
+                lastSequence = sequence;
+                return segment.slice(start, length);
+            }
+        }
+    }
+
+    // The sequence of the last record handed out, or the one started after
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    private boolean nextSegment() throws IOException {
+        Path next = directory.resolve(Journal.segmentName(lastSequence + 1));
+        if (!Files.exists(next)) {
+            return false;
+        }
+        MappedByteBuffer mapped = map(next);
+        if (mapped == null) {
+            return false;
+        }
+        LOGGER.debug("Tailing journal segment {}", next);
+        segment = mapped;
+        return true;
+    }
+
+    // null while the journal has created the file but not yet sized it
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return size < Journal.HEADER_SIZE ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.jj.matchingEngine;
+
+import org.jj.BuySell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Order queueing and matching shared by every side, subclasses decide how price levels are indexed
+abstract class AbstractOrderBookSide implements OrderBookSide {
+    protected static final Logger LOGGER = LoggerFactory.getLogger(OrderBookSide.class);
+
+    protected final OrderIndex orderIndex;
+    protected final OrderPool pool;
+    protected final boolean bestIsHighest;
+    private final ArrayDeque<OrdersAtPrice> freeLevels = new ArrayDeque<>();
+    private int levelCount = 0;
+    private long[] changedPrices = new long[16];
+    private int changedCount = 0;
+    private TradeListener tradeListener;
+
+    protected AbstractOrderBookSide(BuySell buySell, OrderIndex orderIndex) {
+        this.bestIsHighest = buySell == BuySell.BUY;
+        this.orderIndex = orderIndex;
+        this.pool = orderIndex.getPool();
+    }
+
+    protected abstract OrdersAtPrice getLevel(long price);
+
+    protected abstract void insertLevel(OrdersAtPrice ordersAtPrice);
+
+    protected abstract void removeLevel(OrdersAtPrice ordersAtPrice);
+
+    protected abstract OrdersAtPrice getBestLevel();
+
+    // The next level away from the best price after ordersAtPrice, null when there is none
+    protected abstract OrdersAtPrice getNextLevel(OrdersAtPrice ordersAtPrice);
+
+    @Override
+    public void addOrder(int id, long quantity, long quantityFilled, long price) {
+        OrdersAtPrice ordersAtPrice = getLevel(price);
+        if (ordersAtPrice == null) {
+            ordersAtPrice = newLevel(price);
+            insertLevel(ordersAtPrice);
+            levelCount++;
+        }
+
+        int slot = pool.allocate(id, quantity, quantityFilled);
+        orderIndex.put(id, slot);
+        ordersAtPrice.add(slot);
+        levelChanged(price);
+    }
+
+    @Override
+    public boolean hasOrder(int id) {
+        int slot = orderIndex.get(id);
+        return slot != OrderPool.NONE && pool.getLevel(slot).getSide() == this;
+    }
+
+    @Override
+    public boolean removeOrder(int id) {
+        if (!hasOrder(id)) {
+            return false;
+        }
+
+        unlink(orderIndex.remove(id));
+        return true;
+    }
+
+    @Override
+    public boolean reduceOrder(int id, long quantity) {
+        if (!hasOrder(id)) {
+            return false;
+        }
+
+        int slot = orderIndex.get(id);
+        if (quantity >= pool.getQuantity(slot) || quantity <= pool.getQuantityFilled(slot)) {
+            return false;
+        }
+        pool.getLevel(slot).reduce(slot, quantity);
+        levelChanged(pool.getLevel(slot).getPrice());
+        return true;
+    }
+
+    @Override
+    public long getQuantityAtPrice(long price) {
+        OrdersAtPrice ordersAtPrice = getLevel(price);
+        return ordersAtPrice == null ? 0 : ordersAtPrice.getTotalQuantity();
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    @Override
+    public int getChangedLevelCount() {
+        return changedCount;
+    }
+
+    @Override
+    public long getChangedLevelPrice(int index) {
+        return changedPrices[index];
+    }
+
+    @Override
+    public void clearChangedLevels() {
+        changedCount = 0;
+    }
+
+    // A single order touches a handful of levels, so a linear scan is enough to keep the list free of duplicates
+    private void levelChanged(long price) {
+        for (int i = 0; i < changedCount; i++) {
+            if (changedPrices[i] == price) {
+                return;
+            }
+        }
+        if (changedCount == changedPrices.length) {
+            changedPrices = Arrays.copyOf(changedPrices, changedCount * 2);
+        }
+        changedPrices[changedCount++] = price;
+    }
+
+    @Override
+    public void setTradeListener(TradeListener tradeListener) {
+        this.tradeListener = tradeListener;
+    }
+
+    @Override
+    public BuySell getBuySell() {
+        return bestIsHighest ? BuySell.BUY : BuySell.SELL;
+    }
+
+    // Takes a resting order off its level without searching, the caller has already removed it from orderIndex
+    void unlink(int slot) {
+        OrdersAtPrice ordersAtPrice = pool.getLevel(slot);
+        levelChanged(ordersAtPrice.getPrice());
+        ordersAtPrice.removeNode(slot);
+        pool.release(slot);
+        if (ordersAtPrice.isEmpty()) {
+            releaseLevel(ordersAtPrice);
+        }
+    }
+
+    @Override
+    public long matchOrder(int id, long quantity, long price) {
+        long quantityTraded = 0;
+
+        OrdersAtPrice ordersAtPrice;
+        while (quantityTraded < quantity && (ordersAtPrice = getBestLevel()) != null) {
+            if (!crosses(ordersAtPrice.getPrice(), price)) {
+                break;
+            }
+
+            levelChanged(ordersAtPrice.getPrice());
+            int currentSlot = ordersAtPrice.gethead();
+            while (currentSlot != OrderPool.NONE && quantityTraded < quantity) {
+                quantityTraded += trade(id, quantity - quantityTraded, ordersAtPrice, currentSlot);
+
+                int nextSlot = pool.getNext(currentSlot);
+                if (pool.getQuantityRemaining(currentSlot) == 0) {
+                    orderIndex.remove(pool.getOrderId(currentSlot));
+                    ordersAtPrice.removeNode(currentSlot);
+                    pool.release(currentSlot);
+                }
+                currentSlot = nextSlot;
+            }
+
+            if (ordersAtPrice.isEmpty()) {
+                releaseLevel(ordersAtPrice);
+            }
+        }
+        return quantityTraded;
+    }
+
+    @Override
+    public boolean matchMustFillOrder(int id, long quantity, long price) {
+        long fillable = 0;
+
+        OrdersAtPrice ordersAtPrice = getBestLevel();
+        while (ordersAtPrice != null && fillable < quantity) {
+            if (!crosses(ordersAtPrice.getPrice(), price)) {
+                break;
+            }
+
+            fillable += ordersAtPrice.getTotalQuantity();
+            ordersAtPrice = getNextLevel(ordersAtPrice);
+        }
+
+        if (fillable < quantity) {
+            return false;
+        }
+
+        matchOrder(id, quantity, price);
+        return true;
+    }
+
+    @Override
+    public int getBestLevels(long[] prices, long[] quantities) {
+        int levels = 0;
+
+        OrdersAtPrice ordersAtPrice = getBestLevel();
+        while (ordersAtPrice != null && levels < prices.length) {
+            prices[levels] = ordersAtPrice.getPrice();
+            quantities[levels] = ordersAtPrice.getTotalQuantity();
+            levels++;
+            ordersAtPrice = getNextLevel(ordersAtPrice);
+        }
+
+        return levels;
+    }
+
+    @Override
+    public void writeOrders(DataOutput out) throws IOException {
+        out.writeInt(levelCount);
+        for (OrdersAtPrice ordersAtPrice = getBestLevel(); ordersAtPrice != null; ordersAtPrice = getNextLevel(ordersAtPrice)) {
+            out.writeLong(ordersAtPrice.getPrice());
+            out.writeInt(ordersAtPrice.getOrderCount());
+            for (int slot = ordersAtPrice.gethead(); slot != OrderPool.NONE; slot = pool.getNext(slot)) {
+                out.writeInt(pool.getOrderId(slot));
+                out.writeLong(pool.getQuantity(slot));
+                out.writeLong(pool.getQuantityFilled(slot));
+            }
+        }
+    }
+
+    // Restored orders are not changes anyone has to be told about
+    @Override
+    public void readOrders(DataInput in) throws IOException {
+        int levels = in.readInt();
+        for (int level = 0; level < levels; level++) {
+            long price = in.readLong();
+            int orders = in.readInt();
+            for (int order = 0; order < orders; order++) {
+                int id = in.readInt();
+                long quantity = in.readLong();
+                addOrder(id, quantity, in.readLong(), price);
+            }
+        }
+        clearChangedLevels();
+    }
+
+    protected long trade(int id, long quantityRemaining, OrdersAtPrice ordersAtPrice, int slot) {
+        long tradeQuantity = Math.min(quantityRemaining, pool.getQuantityRemaining(slot));
+        ordersAtPrice.fill(slot, tradeQuantity);
+        if (tradeListener != null) {
+            tradeListener.onTrade(id, pool.getOrderId(slot), tradeQuantity, ordersAtPrice.getPrice(), pool.getQuantity(slot), pool.getQuantityFilled(slot));
+        }
+        return tradeQuantity;
+    }
+
+    private OrdersAtPrice newLevel(long price) {
+        OrdersAtPrice ordersAtPrice = freeLevels.poll();
+        if (ordersAtPrice == null) {
+            return new OrdersAtPrice(price, this, pool);
+        }
+        ordersAtPrice.reset(price);
+        return ordersAtPrice;
+    }
+
+    private void releaseLevel(OrdersAtPrice ordersAtPrice) {
+        removeLevel(ordersAtPrice);
+        levelCount--;
+        freeLevels.push(ordersAtPrice);
+    }
+
+    // Resting orders on this side trade against an aggressor at price when they are at least as good
+    protected boolean crosses(long restingPrice, long price) {
+        return bestIsHighest ? restingPrice >= price : restingPrice <= price;
+    }
+}
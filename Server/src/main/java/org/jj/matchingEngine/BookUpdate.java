@@ -0,0 +1,119 @@
+package org.jj.matchingEngine;
+
+import java.util.Arrays;
+
+// One entry of an engine's output: the levels an operation changed, the execution events it produced, or a
+// subscription task. Copied out on the engine's thread so that protobuf building, fan-out and any other consumer can
+// work elsewhere. Reused for every update, the arrays only grow when an operation touches more than any before it.
+public class BookUpdate {
+    public enum Type {
+        BOOK,
+        EXECUTIONS,
+        TASK
+    }
+
+    Type type;
+    OrderBookUpdateListenerImpl listener;
+    long sequence;
+
+    int changeCount;
+    long[] changePrices = new long[16];
+    long[] changeQuantities = new long[16];
+    boolean[] changeIsBuy = new boolean[16];
+
+    final long[] buyPrices = new long[OrderBook.PUBLISHED_DEPTH];
+    final long[] buyQuantities = new long[OrderBook.PUBLISHED_DEPTH];
+    final long[] sellPrices = new long[OrderBook.PUBLISHED_DEPTH];
+    final long[] sellQuantities = new long[OrderBook.PUBLISHED_DEPTH];
+    int buyLevels;
+    int sellLevels;
+
+    final Executions executions = new Executions();
+    ExecutionReportListener executionListener;
+
+    Runnable task;
+
+    public void set(OrderBookUpdateListenerImpl listener, long sequence, OrderBookSide buySide, OrderBookSide sellSide) {
+        this.type = Type.BOOK;
+        this.listener = listener;
+        this.sequence = sequence;
+        this.executionListener = null;
+        this.executions.clear();
+        this.task = null;
+        this.changeCount = 0;
+        addChanges(buySide, true);
+        addChanges(sellSide, false);
+        this.buyLevels = buySide.getBestLevels(buyPrices, buyQuantities);
+        this.sellLevels = sellSide.getBestLevels(sellPrices, sellQuantities);
+    }
+
+    // executionListener may be null when the events are only for other consumers
+    public void setExecutions(ExecutionReportListener executionListener, Executions executions) {
+        this.type = Type.EXECUTIONS;
+        this.listener = null;
+        this.task = null;
+        this.executionListener = executionListener;
+        this.executions.copyFrom(executions);
+    }
+
+    public void setTask(Runnable task) {
+        this.type = Type.TASK;
+        this.listener = null;
+        this.executionListener = null;
+        this.executions.clear();
+        this.task = task;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The events of an EXECUTIONS entry, empty for any other
+    public Executions getExecutions() {
+        return executions;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Builds and sends the messages for a book change or execution events, or runs a task, on whichever thread is
+    // publishing market data
+    public void dispatch() {
+        switch (type) {
+            case BOOK -> listener.onBookUpdate(this);
+            case EXECUTIONS -> {
+                if (executionListener != null) {
+                    executionListener.onExecutions(executions);
+                }
+            }
+            case TASK -> task.run();
+        }
+    }
+
+    // Drops references once handled so a parked entry doesn't keep books or subscribers alive
+    public void clear() {
+        type = null;
+        listener = null;
+        executionListener = null;
+        executions.clear();
+        task = null;
+    }
+
+    private void addChanges(OrderBookSide side, boolean isBuy) {
+        int count = side.getChangedLevelCount();
+        if (changeCount + count > changePrices.length) {
+            int capacity = Math.max(changePrices.length * 2, changeCount + count);
+            changePrices = Arrays.copyOf(changePrices, capacity);
+            changeQuantities = Arrays.copyOf(changeQuantities, capacity);
+            changeIsBuy = Arrays.copyOf(changeIsBuy, capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            long price = side.getChangedLevelPrice(i);
+            changePrices[changeCount] = price;
+            changeQuantities[changeCount] = side.getQuantityAtPrice(price);
+            changeIsBuy[changeCount] = isBuy;
+            changeCount++;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.jj.matchingEngine;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.providers.TimestampProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// One market data subscriber's stream. Full book updates are conflated: while gRPC reports the stream not ready, or
+// inside the subscription's conflation interval, only the latest book is held and it goes out once the stream drains
+// or the interval ends. Deltas can't be conflated that way, so a delta stream that isn't ready drops them and is marked
+// stale until its resync handler has had a fresh snapshot sent. Either way a slow subscriber holds at most one message.
+public class ConflatingSubscriber<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConflatingSubscriber.class);
+    private static final ScheduledExecutorService FLUSH_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "market-data-conflation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StreamObserver<T> observer;
+    private final ServerCallStreamObserver<T> flowControlledObserver;
+    private final long intervalMillis;
+    private final TimestampProvider timestampProvider;
+
+    private T pending;
+    private boolean flushScheduled = false;
+    private boolean stale = false;
+    private long lastSentMillis = Long.MIN_VALUE;
+    private Runnable resyncHandler;
+
+    public ConflatingSubscriber(StreamObserver<T> observer) {
+        this(observer, 0, new SystemTimestampProvider());
+    }
+
+    public ConflatingSubscriber(StreamObserver<T> observer, long intervalMillis) {
+        this(observer, intervalMillis, new SystemTimestampProvider());
+    }
+
+    // A ServerCallStreamObserver only accepts an on-ready handler while the service method is still running, so
+    // subscribers have to be built there rather than on the engine's thread
+    public ConflatingSubscriber(StreamObserver<T> observer, long intervalMillis, TimestampProvider timestampProvider) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Conflation interval must not be negative");
+        }
+        this.observer = observer;
+        this.intervalMillis = intervalMillis;
+        this.timestampProvider = timestampProvider;
+        if (observer instanceof ServerCallStreamObserver<T> serverObserver) {
+            this.flowControlledObserver = serverObserver;
+            serverObserver.setOnReadyHandler(this::onReady);
+        } else {
+            this.flowControlledObserver = null;
+        }
+    }
+
+    public StreamObserver<T> getObserver() {
+        return observer;
+    }
+
+    // Run when a stale delta stream can take a snapshot again, expected to get one built on the engine's thread and
+    // hand it to resync
+    public synchronized void setResyncHandler(Runnable resyncHandler) {
+        this.resyncHandler = resyncHandler;
+    }
+
+    public synchronized void onNext(T message) {
+        if (isReady() && intervalElapsed()) {
+            send(message);
+            return;
+        }
+
+        pending = message;
+        if (isReady()) {
+            scheduleFlush();
+        }
+    }
+
+    // Drops delta once the stream has fallen behind, until resync has replaced everything that was dropped
+    public synchronized void onNextDelta(T delta) {
+        if (stale || !isReady()) {
+            stale = true;
+            return;
+        }
+
+        send(delta);
+    }
+
+    public synchronized void resync(T snapshot) {
+        if (stale && isReady()) {
+            send(snapshot);
+            stale = false;
+        }
+    }
+
+    public synchronized boolean isStale() {
+        return stale;
+    }
+
+    public synchronized boolean hasPending() {
+        return pending != null;
+    }
+
+    public void onError(Throwable t) {
+        observer.onError(t);
+    }
+
+    private void onReady() {
+        Runnable resync;
+        synchronized (this) {
+            flush();
+            resync = stale ? resyncHandler : null;
+        }
+        if (resync != null) {
+            resync.run();
+        }
+    }
+
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (pending == null || !isReady()) {
+            return;
+        }
+        if (!intervalElapsed()) {
+            scheduleFlush();
+            return;
+        }
+
+        T message = pending;
+        pending = null;
+        try {
+            send(message);
+        } catch (RuntimeException e) {
+            // The stream has gone, its cancel handler removes the subscriber
+            LOGGER.warn("Dropping conflated update for closed subscriber: {}", e.getMessage());
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        long delay = Math.max(0, lastSentMillis + intervalMillis - timestampProvider.getTimestamp());
+        FLUSH_TIMER.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(T message) {
+        lastSentMillis = timestampProvider.getTimestamp();
+        observer.onNext(message);
+    }
+
+    private boolean isReady() {
+        return flowControlledObserver == null || flowControlledObserver.isReady();
+    }
+
+    private boolean intervalElapsed() {
+        return intervalMillis == 0 || lastSentMillis == Long.MIN_VALUE || timestampProvider.getTimestamp() - lastSentMillis >= intervalMillis;
+    }
+}
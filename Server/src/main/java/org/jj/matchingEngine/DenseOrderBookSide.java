@@ -0,0 +1,208 @@
+package org.jj.matchingEngine;
+
+import org.jj.BuySell;
+
+// Price levels live in a tick-indexed ladder, level i holds the orders resting at basePrice + i * tickSize.
+// The ladder re-centres (and grows when needed) whenever a price falls outside of it, up to MAX_LADDER_SIZE levels.
+public class DenseOrderBookSide extends AbstractOrderBookSide {
+    private static final int DEFAULT_LADDER_SIZE = 1024;
+    private static final int MAX_LADDER_SIZE = 1 << 22;
+    private static final long DEFAULT_TICK_SIZE = 1;
+
+    private final long tickSize;
+
+    private OrdersAtPrice[] levels;
+    private long basePrice;
+    private int bestIndex = -1;
+    private int levelCount = 0;
+
+    public DenseOrderBookSide(BuySell buySell) {
+        this(buySell, new OrderIndex());
+    }
+
+    public DenseOrderBookSide(BuySell buySell, OrderIndex orderIndex) {
+        this(buySell, orderIndex, DEFAULT_TICK_SIZE, DEFAULT_LADDER_SIZE);
+    }
+
+    public DenseOrderBookSide(BuySell buySell, long tickSize, int ladderSize) {
+        this(buySell, new OrderIndex(), tickSize, ladderSize);
+    }
+
+    public DenseOrderBookSide(BuySell buySell, OrderIndex orderIndex, long tickSize, int ladderSize) {
+        super(buySell, orderIndex);
+        if (tickSize <= 0 || ladderSize <= 0) {
+            throw new IllegalArgumentException("Tick size and ladder size must be positive");
+        }
+        this.tickSize = tickSize;
+        this.levels = new OrdersAtPrice[ladderSize];
+    }
+
+    @Override
+    protected OrdersAtPrice getLevel(long price) {
+        if (levelCount == 0) {
+            return null;
+        }
+        long index = (price - basePrice) / tickSize;
+        if (index < 0 || index >= levels.length) {
+            return null;
+        }
+        OrdersAtPrice ordersAtPrice = levels[(int) index];
+        return ordersAtPrice != null && ordersAtPrice.getPrice() == price ? ordersAtPrice : null;
+    }
+
+    @Override
+    protected void insertLevel(OrdersAtPrice ordersAtPrice) {
+        int index = indexFor(ordersAtPrice.getPrice());
+
+        levels[index] = ordersAtPrice;
+        levelCount++;
+        if (bestIndex == -1 || isBetter(index, bestIndex)) {
+            bestIndex = index;
+        }
+    }
+
+    @Override
+    protected void removeLevel(OrdersAtPrice ordersAtPrice) {
+        int index = (int) ((ordersAtPrice.getPrice() - basePrice) / tickSize);
+        levels[index] = null;
+        levelCount--;
+
+        if (index != bestIndex) {
+            return;
+        }
+        bestIndex = levelCount == 0 ? -1 : nextOccupiedIndex(index);
+    }
+
+    @Override
+    protected OrdersAtPrice getBestLevel() {
+        return bestIndex == -1 ? null : levels[bestIndex];
+    }
+
+    @Override
+    protected OrdersAtPrice getNextLevel(OrdersAtPrice ordersAtPrice) {
+        int step = worseStep();
+        for (int i = (int) ((ordersAtPrice.getPrice() - basePrice) / tickSize) + step; i >= 0 && i < levels.length; i += step) {
+            if (levels[i] != null) {
+                return levels[i];
+            }
+        }
+        return null;
+    }
+
+    private boolean isBetter(int index, int otherIndex) {
+        return bestIsHighest ? index > otherIndex : index < otherIndex;
+    }
+
+    private int worseStep() {
+        return bestIsHighest ? -1 : 1;
+    }
+
+    // Only called while another level is still occupied, so the scan always finds one
+    private int nextOccupiedIndex(int index) {
+        int next = index + worseStep();
+        while (levels[next] == null) {
+            next += worseStep();
+        }
+        return next;
+    }
+
+    // An order at a price outside the ladder needs a recentre, which is only refused when the band it would have to
+    // span gets too wide. Prices already inside the ladder always fit.
+    @Override
+    public void checkPriceRange(long lowPrice, long highPrice) {
+        checkTick(lowPrice);
+        checkTick(highPrice);
+        if (levelCount == 0) {
+            checkLadderSize(lowPrice, (highPrice - lowPrice) / tickSize + 1);
+            return;
+        }
+        if (isInLadder(lowPrice) && isInLadder(highPrice)) {
+            return;
+        }
+
+        long lowest = Math.min(lowPrice, basePrice + lowestOccupiedIndex() * tickSize);
+        long highest = Math.max(highPrice, basePrice + highestOccupiedIndex() * tickSize);
+        checkLadderSize(lowPrice, (highest - lowest) / tickSize + 1);
+    }
+
+    private int indexFor(long price) {
+        checkTick(price);
+
+        if (levelCount == 0) {
+            basePrice = price - (levels.length / 2) * tickSize;
+        }
+
+        if (!isInLadder(price)) {
+            recentre(price);
+        }
+        return (int) ((price - basePrice) / tickSize);
+    }
+
+    private boolean isInLadder(long price) {
+        long index = (price - basePrice) / tickSize;
+        return price >= basePrice && index < levels.length;
+    }
+
+    private void checkTick(long price) {
+        if (Math.floorMod(price, tickSize) != 0) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of tick size " + tickSize);
+        }
+    }
+
+    private void checkLadderSize(long price, long required) {
+        if (ladderSizeFor(required) > MAX_LADDER_SIZE) {
+            LOGGER.error("Price {} is too far from the book for a dense ladder, {} levels required", price, required);
+            throw new IllegalArgumentException("Price band too wide for dense price ladder");
+        }
+    }
+
+    // Doubles the ladder until required levels fill at most half of it
+    private long ladderSizeFor(long required) {
+        long size = levels.length;
+        while (required > size / 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private int lowestOccupiedIndex() {
+        int index = 0;
+        while (levels[index] == null) {
+            index++;
+        }
+        return index;
+    }
+
+    private int highestOccupiedIndex() {
+        int index = levels.length - 1;
+        while (levels[index] == null) {
+            index--;
+        }
+        return index;
+    }
+
+    // Moves the occupied levels to the middle of the ladder, doubling its size until it spans at most half
+    private void recentre(long price) {
+        int lowest = lowestOccupiedIndex();
+        int highest = highestOccupiedIndex();
+
+        long lowPrice = Math.min(price, basePrice + lowest * tickSize);
+        long highPrice = Math.max(price, basePrice + highest * tickSize);
+        long required = (highPrice - lowPrice) / tickSize + 1;
+
+        checkLadderSize(price, required);
+        long size = ladderSizeFor(required);
+
+        long newBasePrice = lowPrice - ((size - required) / 2) * tickSize;
+        int shift = (int) ((basePrice - newBasePrice) / tickSize);
+
+        OrdersAtPrice[] newLevels = new OrdersAtPrice[(int) size];
+        for (int i = lowest; i <= highest; i++) {
+            newLevels[i + shift] = levels[i];
+        }
+
+        levels = newLevels;
+        basePrice = newBasePrice;
+        bestIndex += shift;
+    }
+}
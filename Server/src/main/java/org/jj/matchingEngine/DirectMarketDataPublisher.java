@@ -0,0 +1,25 @@
+package org.jj.matchingEngine;
+
+// Builds and sends every update on the engine's own thread, for engines used on their own without a publisher stage
+public class DirectMarketDataPublisher implements MarketDataPublisher {
+    private final BookUpdate update = new BookUpdate();
+
+    @Override
+    public void publish(OrderBookUpdateListenerImpl listener, long sequence, OrderBookSide buySide, OrderBookSide sellSide) {
+        update.set(listener, sequence, buySide, sellSide);
+        update.dispatch();
+        update.clear();
+    }
+
+    @Override
+    public void publishExecutions(ExecutionReportListener listener, Executions executions) {
+        if (listener != null) {
+            listener.onExecutions(executions);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        task.run();
+    }
+}
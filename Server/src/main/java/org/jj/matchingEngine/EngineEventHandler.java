@@ -0,0 +1,8 @@
+package org.jj.matchingEngine;
+
+// A consumer of every engine's output stream, called on its own thread for each entry in the order the engines
+// produced them. Entries are reused once every consumer has moved past them, so nothing may be kept from one.
+@FunctionalInterface
+public interface EngineEventHandler {
+    void onEvent(BookUpdate event);
+}
@@ -0,0 +1,9 @@
+package org.jj.matchingEngine;
+
+// Receives the execution events of every operation on one book, driven by its MarketDataPublisher
+public interface ExecutionReportListener {
+    // Read on the engine's thread, which doesn't record executions at all while nobody is subscribed
+    boolean hasSubscribers();
+
+    void onExecutions(Executions executions);
+}
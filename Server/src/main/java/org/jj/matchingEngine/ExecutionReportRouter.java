@@ -0,0 +1,104 @@
+package org.jj.matchingEngine;
+
+import io.grpc.stub.StreamObserver;
+import org.jj.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+// Sends every book's execution events to the ExecutionReports streams of the participant that owns each order.
+// Streams are added and removed on gRPC threads, reports are sent on the publishing thread of each book. Each stream
+// queues what its client isn't ready for and is dropped once it falls too far behind, see ExecutionReportStream.
+public class ExecutionReportRouter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionReportRouter.class);
+
+    private final Map<String, Set<ExecutionReportStream>> streamsByParticipant = new ConcurrentHashMap<>();
+
+    // Called from the ExecutionReports service method, see ExecutionReportStream
+    public void addObserver(String participant, StreamObserver<Service.ExecutionReport> observer) {
+        addStream(participant, new ExecutionReportStream(participant, observer));
+    }
+
+    public void addStream(String participant, ExecutionReportStream stream) {
+        streamsByParticipant.computeIfAbsent(participant, key -> new CopyOnWriteArraySet<>()).add(stream);
+    }
+
+    public void removeObserver(String participant, StreamObserver<Service.ExecutionReport> observer) {
+        streamsByParticipant.computeIfPresent(participant, (key, streams) -> {
+            streams.removeIf(stream -> stream.getObserver() == observer);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private void removeStream(String participant, ExecutionReportStream stream) {
+        streamsByParticipant.computeIfPresent(participant, (key, streams) -> {
+            streams.remove(stream);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    public boolean hasSubscriber(String participant) {
+        return streamsByParticipant.containsKey(participant);
+    }
+
+    // The listener a product's engine reports to, stamping every report with symbol
+    public ExecutionReportListener forProduct(String symbol) {
+        return new ExecutionReportListener() {
+            @Override
+            public boolean hasSubscribers() {
+                return !streamsByParticipant.isEmpty();
+            }
+
+            @Override
+            public void onExecutions(Executions executions) {
+                send(symbol, executions);
+            }
+        };
+    }
+
+    private void send(String symbol, Executions executions) {
+        for (int i = 0; i < executions.size(); i++) {
+            // Orders without a participant are recorded for other consumers of the engine's output
+            String participant = executions.getParticipant(i);
+            Set<ExecutionReportStream> streams = participant == null ? null : streamsByParticipant.get(participant);
+            if (streams == null) {
+                continue;
+            }
+
+            Service.ExecutionReport report = toReport(symbol, executions, i);
+            for (ExecutionReportStream stream : streams) {
+                try {
+                    if (!stream.send(report)) {
+                        removeStream(participant, stream);
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Execution report stream for {} failed, removing it: {}", participant, e.getMessage());
+                    removeStream(participant, stream);
+                }
+            }
+        }
+    }
+
+    private static Service.ExecutionReport toReport(String symbol, Executions executions, int index) {
+        ExecutionType type = executions.getType(index);
+        long quantity = executions.getQuantity(index);
+        long quantityFilled = executions.getQuantityFilled(index);
+        boolean done = type == ExecutionType.CANCELLED || type == ExecutionType.EXPIRED;
+
+        return Service.ExecutionReport.newBuilder()
+                                      .setOrderId(executions.getOrderId(index))
+                                      .setProductSymbol(symbol)
+                                      .setExecType(Service.ExecType.valueOf(type.name()))
+                                      .setBuySell(Service.BuySell.valueOf(executions.getSide(index).name()))
+                                      .setLastQuantity(executions.getLastQuantity(index))
+                                      .setLastPrice(executions.getPrice(index) / 1000.0)
+                                      .setQuantity(quantity)
+                                      .setQuantityFilled(quantityFilled)
+                                      .setLeavesQuantity(done ? 0 : quantity - quantityFilled)
+                                      .build();
+    }
+}
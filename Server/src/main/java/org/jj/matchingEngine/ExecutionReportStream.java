@@ -0,0 +1,99 @@
+package org.jj.matchingEngine;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.jj.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+
+// One participant's ExecutionReports stream. Unlike market data, reports can't be conflated or dropped, every fill
+// matters, so while gRPC reports the stream not ready they are queued and go out in order once it drains. A participant
+// that falls more than maxQueuedReports behind is cut off with RESOURCE_EXHAUSTED rather than let the queue grow without
+// bound, it reconnects and catches up on its orders through getOrdersRequest. Either way the thread publishing reports
+// never waits on a client.
+public class ExecutionReportStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionReportStream.class);
+
+    public static final int DEFAULT_MAX_QUEUED_REPORTS = 10_000;
+
+    private final String participant;
+    private final StreamObserver<Service.ExecutionReport> observer;
+    private final ServerCallStreamObserver<Service.ExecutionReport> flowControlledObserver;
+    private final int maxQueuedReports;
+    private final ArrayDeque<Service.ExecutionReport> queued = new ArrayDeque<>();
+
+    private boolean closed = false;
+
+    public ExecutionReportStream(String participant, StreamObserver<Service.ExecutionReport> observer) {
+        this(participant, observer, DEFAULT_MAX_QUEUED_REPORTS);
+    }
+
+    // Like ConflatingSubscriber, built while the service method is still running so the on-ready handler can be set
+    public ExecutionReportStream(String participant, StreamObserver<Service.ExecutionReport> observer, int maxQueuedReports) {
+        if (maxQueuedReports <= 0) {
+            throw new IllegalArgumentException("Report queue must hold at least one report");
+        }
+        this.participant = participant;
+        this.observer = observer;
+        this.maxQueuedReports = maxQueuedReports;
+        if (observer instanceof ServerCallStreamObserver<Service.ExecutionReport> serverObserver) {
+            this.flowControlledObserver = serverObserver;
+            serverObserver.setOnReadyHandler(this::onReady);
+        } else {
+            this.flowControlledObserver = null;
+        }
+    }
+
+    public StreamObserver<Service.ExecutionReport> getObserver() {
+        return observer;
+    }
+
+    // Returns false once the stream has been cut off, for the router to drop it
+    public synchronized boolean send(Service.ExecutionReport report) {
+        if (closed) {
+            return false;
+        }
+        if (queued.isEmpty() && isReady()) {
+            observer.onNext(report);
+            return true;
+        }
+        if (queued.size() >= maxQueuedReports) {
+            cutOff();
+            return false;
+        }
+        queued.addLast(report);
+        return true;
+    }
+
+    public synchronized int getQueuedReports() {
+        return queued.size();
+    }
+
+    private synchronized void onReady() {
+        try {
+            while (!closed && !queued.isEmpty() && isReady()) {
+                observer.onNext(queued.pollFirst());
+            }
+        } catch (RuntimeException e) {
+            // The stream has gone, its cancel handler removes it from the router
+            LOGGER.warn("Dropping {} queued execution reports for closed stream of {}: {}", queued.size(), participant, e.getMessage());
+            closed = true;
+            queued.clear();
+        }
+    }
+
+    private void cutOff() {
+        LOGGER.warn("Execution report stream for {} fell {} reports behind, closing it", participant, queued.size());
+        closed = true;
+        queued.clear();
+        observer.onError(Status.RESOURCE_EXHAUSTED.withDescription("Execution reports fell too far behind, reconnect and query your orders")
+                                                  .asRuntimeException());
+    }
+
+    private boolean isReady() {
+        return flowControlledObserver == null || flowControlledObserver.isReady();
+    }
+}
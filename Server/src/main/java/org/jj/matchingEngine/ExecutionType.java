@@ -0,0 +1,10 @@
+package org.jj.matchingEngine;
+
+public enum ExecutionType {
+    ACCEPTED,
+    PARTIALLY_FILLED,
+    FILLED,
+    CANCELLED,
+    EXPIRED,
+    REPLACED
+}
@@ -0,0 +1,130 @@
+package org.jj.matchingEngine;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.providers.PartitionedIdProvider;
+
+import java.util.Arrays;
+
+// Execution events from one engine operation, in the order they happened. Reused for every operation, the arrays only
+// grow when an operation produces more events than any before it.
+// For fills price is the trade price, for every other event it is the order's own price. Order ids are the 64 bit ones
+// seen outside the engine, see PartitionedIdProvider. Only ACCEPTED events carry the order's expiry, nothing after
+// changes it.
+public class Executions {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long orderIdBase;
+    private int size = 0;
+    private ExecutionType[] types = new ExecutionType[INITIAL_CAPACITY];
+    private long[] orderIds = new long[INITIAL_CAPACITY];
+    private String[] participants = new String[INITIAL_CAPACITY];
+    private BuySell[] sides = new BuySell[INITIAL_CAPACITY];
+    private long[] lastQuantities = new long[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] quantities = new long[INITIAL_CAPACITY];
+    private long[] quantitiesFilled = new long[INITIAL_CAPACITY];
+    private Expiry[] expiries = new Expiry[INITIAL_CAPACITY];
+
+    Executions() {
+        this(0);
+    }
+
+    // Events from productId's engine
+    Executions(int productId) {
+        this.orderIdBase = PartitionedIdProvider.toOrderId(productId, 0);
+    }
+
+    // orderId is the id the engine knows the order by, expiry is null on all but ACCEPTED events
+    void add(ExecutionType type, int orderId, String participant, BuySell side, long lastQuantity, long price, long quantity, long quantityFilled,
+             Expiry expiry) {
+        if (size == types.length) {
+            grow(size * 2);
+        }
+        types[size] = type;
+        orderIds[size] = orderIdBase | orderId;
+        participants[size] = participant;
+        sides[size] = side;
+        lastQuantities[size] = lastQuantity;
+        prices[size] = price;
+        quantities[size] = quantity;
+        quantitiesFilled[size] = quantityFilled;
+        expiries[size] = expiry;
+        size++;
+    }
+
+    void copyFrom(Executions other) {
+        if (other.size > types.length) {
+            grow(other.size);
+        }
+        System.arraycopy(other.types, 0, types, 0, other.size);
+        System.arraycopy(other.orderIds, 0, orderIds, 0, other.size);
+        System.arraycopy(other.participants, 0, participants, 0, other.size);
+        System.arraycopy(other.sides, 0, sides, 0, other.size);
+        System.arraycopy(other.lastQuantities, 0, lastQuantities, 0, other.size);
+        System.arraycopy(other.prices, 0, prices, 0, other.size);
+        System.arraycopy(other.quantities, 0, quantities, 0, other.size);
+        System.arraycopy(other.quantitiesFilled, 0, quantitiesFilled, 0, other.size);
+        System.arraycopy(other.expiries, 0, expiries, 0, other.size);
+        size = other.size;
+    }
+
+    // Drops participant references too, so a parked buffer doesn't keep them alive
+    void clear() {
+        Arrays.fill(participants, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ExecutionType getType(int index) {
+        return types[index];
+    }
+
+    public long getOrderId(int index) {
+        return orderIds[index];
+    }
+
+    public String getParticipant(int index) {
+        return participants[index];
+    }
+
+    public BuySell getSide(int index) {
+        return sides[index];
+    }
+
+    public long getLastQuantity(int index) {
+        return lastQuantities[index];
+    }
+
+    public long getPrice(int index) {
+        return prices[index];
+    }
+
+    public long getQuantity(int index) {
+        return quantities[index];
+    }
+
+    public long getQuantityFilled(int index) {
+        return quantitiesFilled[index];
+    }
+
+    // null unless the event is ACCEPTED
+    public Expiry getExpiry(int index) {
+        return expiries[index];
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        participants = Arrays.copyOf(participants, capacity);
+        sides = Arrays.copyOf(sides, capacity);
+        lastQuantities = Arrays.copyOf(lastQuantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        quantitiesFilled = Arrays.copyOf(quantitiesFilled, capacity);
+        expiries = Arrays.copyOf(expiries, capacity);
+    }
+}
@@ -0,0 +1,16 @@
+package org.jj.matchingEngine;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+
+// Records the inputs one engine accepts, each before it is applied, so the engine can be rebuilt by replaying them in
+// the same order. Called on the engine's own thread, each returns the sequence the input was recorded under.
+public interface InputJournal {
+    long createOrder(long quantity, long price, BuySell buySell, Expiry expiry, String participant, long clientOrderId);
+
+    long cancelOrder(int id);
+
+    long amendOrder(int id, long quantity, long price);
+
+    long massQuote(String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities);
+}
@@ -0,0 +1,20 @@
+package org.jj.matchingEngine;
+
+// Where an engine hands off its book changes. Both methods are called on the engine's own thread and everything
+// handed over for one book is handled in the order it was given.
+public interface MarketDataPublisher {
+    void publish(OrderBookUpdateListenerImpl listener, long sequence, OrderBookSide buySide, OrderBookSide sellSide);
+
+    // Sends the execution events of one operation, ahead of the book change published after them. listener is null
+    // when nobody streams execution reports and the events are only for other consumers.
+    void publishExecutions(ExecutionReportListener listener, Executions executions);
+
+    // True while something besides market data reads the engines' output, every book change and execution event is
+    // then published whether or not anyone subscribes to them
+    default boolean hasEventConsumers() {
+        return false;
+    }
+
+    // Runs task after everything already published, for subscription changes that must line up with the updates
+    void execute(Runnable task);
+}
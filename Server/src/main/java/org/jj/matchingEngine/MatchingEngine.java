@@ -7,5 +7,10 @@ public interface MatchingEngine {
 
     int createOrder(long quantity, long price, BuySell buySell, Expiry expiry);
 
+    // participant receives the order's execution reports, null for an order nobody follows
+    int createOrder(long quantity, long price, BuySell buySell, Expiry expiry, String participant);
+
     boolean cancelOrder(int id);
+
+    boolean amendOrder(int id, long quantity, long price);
 }
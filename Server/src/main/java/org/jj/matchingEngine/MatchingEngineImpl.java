@@ -5,47 +5,277 @@ import org.jj.BuySell;
 import org.jj.Expiry;
 import org.jj.Service;
 import org.jj.providers.IdProvider;
+import org.jj.providers.PartitionedIdProvider;
 import org.jj.providers.TimestampProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 public class MatchingEngineImpl implements MatchingEngine {
     private static final Logger LOGGER = LoggerFactory.getLogger(MatchingEngineImpl.class);
 
-    private final OrderBook orderBook = new OrderBook(new OrderBookUpdateListenerImpl());
+    private final OrderBook orderBook;
+    private final Map<String, int[]> quoteIdsByParticipant = new HashMap<>();
 
     private final TimestampProvider timestampProvider;
     private final IdProvider idProvider;
+    private final int productId;
+    private InputJournal journal;
+    private long lastJournalSequence = 0;
 
     public MatchingEngineImpl(TimestampProvider timestampProvider, IdProvider idProvider) {
+        this(timestampProvider, idProvider, DenseOrderBookSide::new);
+    }
+
+    public MatchingEngineImpl(TimestampProvider timestampProvider, IdProvider idProvider, OrderBookSideFactory orderBookSideFactory) {
+        this(timestampProvider, idProvider, orderBookSideFactory, new DirectMarketDataPublisher());
+    }
+
+    // publisher builds and sends market data, off the engine's thread unless it is a DirectMarketDataPublisher
+    public MatchingEngineImpl(TimestampProvider timestampProvider, IdProvider idProvider, OrderBookSideFactory orderBookSideFactory, MarketDataPublisher publisher) {
+        this(timestampProvider, idProvider, orderBookSideFactory, publisher, 0);
+    }
+
+    // Order ids the engine hands out are its own, toOrderId turns them into the ids productId's orders are known by
+    // everywhere else
+    public MatchingEngineImpl(TimestampProvider timestampProvider, IdProvider idProvider, OrderBookSideFactory orderBookSideFactory, MarketDataPublisher publisher, int productId) {
         this.timestampProvider = timestampProvider;
         this.idProvider = idProvider;
+        this.productId = productId;
+        this.orderBook = new OrderBook(new OrderBookUpdateListenerImpl(), orderBookSideFactory, publisher, productId);
     }
 
     @Override
     public int createOrder(long quantity, long price, BuySell buySell, Expiry expiry) {
+        return createOrder(quantity, price, buySell, expiry, null);
+    }
+
+    // Where accepted inputs are recorded before they are applied, null for nowhere. Left unset while a journal is
+    // replayed into the engine, so nothing is written twice.
+    public void setInputJournal(InputJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public int createOrder(long quantity, long price, BuySell buySell, Expiry expiry, String participant) {
+        return createOrder(quantity, price, buySell, expiry, participant, 0);
+    }
+
+    // clientOrderId is the participant's own id for the order, 0 for none. The engine only journals it, so the
+    // participant's client order ids can be rebuilt along with the book.
+    //
+    // Inputs are checked before they are journaled, like every input below, so the journal only holds ones the book
+    // took and replaying it never fails on a rejected one.
+    public int createOrder(long quantity, long price, BuySell buySell, Expiry expiry, String participant, long clientOrderId) {
+        checkIdsLeft(1);
+        if (expiry == Expiry.GTC) {
+            orderBook.checkOrderPrice(buySell, price);
+        }
+        if (journal != null) {
+            lastJournalSequence = journal.createOrder(quantity, price, buySell, expiry, participant, clientOrderId);
+        }
         int id = idProvider.generateId();
 
         switch (expiry) {
-            case GTC -> orderBook.addGtcOrder(id, buySell, quantity, price);
-            case IOC -> orderBook.addIocOrder(id, buySell, quantity, price);
-            case FOK -> orderBook.addFokOrder(id, buySell, quantity, price);
+            case GTC -> orderBook.addGtcOrder(id, buySell, quantity, price, participant);
+            case IOC -> orderBook.addIocOrder(id, buySell, quantity, price, participant);
+            case FOK -> orderBook.addFokOrder(id, buySell, quantity, price, participant);
         }
 
         return id;
     }
 
+    // The journal sequence of the last input this engine recorded, 0 before the first. Read on the engine's thread
+    // right after an input, it is that input's own sequence.
+    public long getLastJournalSequence() {
+        return lastJournalSequence;
+    }
+
+    public long toOrderId(int engineOrderId) {
+        return PartitionedIdProvider.toOrderId(productId, engineOrderId);
+    }
+
+    // The id the next order or quote on this engine gets, the ones after it follow on by one
+    public int getNextOrderId() {
+        return idProvider.peekNextId();
+    }
+
+    // An order that isn't resting is left out of the journal, cancelling it changes nothing
     @Override
     public boolean cancelOrder(int id) {
+        if (!orderBook.isResting(id)) {
+            return false;
+        }
+        if (journal != null) {
+            lastJournalSequence = journal.cancelOrder(id);
+        }
         return orderBook.cancelOrder(id);
     }
 
+    // Replaces every quote participant has on this book with the given bid and ask levels, empty arrays pull all of
+    // them. Book changes are applied together with a single publication. Returns the new quote ids, bids then asks.
+    public int[] massQuote(String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices, long[] askQuantities) {
+        validateQuotes(bidPrices, bidQuantities);
+        validateQuotes(askPrices, askQuantities);
+        if (bidPrices.length > 0 && askPrices.length > 0 && max(bidPrices) >= min(askPrices)) {
+            throw new IllegalArgumentException("Quotes for " + participant + " cross each other");
+        }
+        orderBook.checkQuotePrices(bidPrices, askPrices);
+        checkIdsLeft(bidPrices.length + askPrices.length);
+        if (journal != null) {
+            lastJournalSequence = journal.massQuote(participant, bidPrices, bidQuantities, askPrices, askQuantities);
+        }
+
+        int[] bidIds = new int[bidPrices.length];
+        int[] askIds = new int[askPrices.length];
+        int[] quoteIds = new int[bidIds.length + askIds.length];
+        for (int i = 0; i < bidIds.length; i++) {
+            bidIds[i] = idProvider.generateId();
+            quoteIds[i] = bidIds[i];
+        }
+        for (int i = 0; i < askIds.length; i++) {
+            askIds[i] = idProvider.generateId();
+            quoteIds[bidIds.length + i] = askIds[i];
+        }
+
+        int[] oldQuoteIds = quoteIdsByParticipant.put(participant, quoteIds);
+        orderBook.replaceQuotes(participant, oldQuoteIds == null ? new int[0] : oldQuoteIds, bidIds, bidPrices, bidQuantities, askIds, askPrices, askQuantities);
+
+        return quoteIds;
+    }
+
+    // Checked before anything changes, so a bad quote leaves the participant's old quotes in place
+    private static void validateQuotes(long[] prices, long[] quantities) {
+        if (prices.length != quantities.length) {
+            throw new IllegalArgumentException("Every quote needs a price and a quantity");
+        }
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] <= 0 || quantities[i] <= 0) {
+                throw new IllegalArgumentException("Quote prices and quantities must be positive");
+            }
+        }
+    }
+
+    // Ids are handed out after the input is journaled, replay hands out the same ones again
+    private void checkIdsLeft(int count) {
+        if (idProvider.getLastId() > PartitionedIdProvider.MAX_ORDERS - count) {
+            throw new IllegalStateException("Order ids for product " + productId + " are used up");
+        }
+    }
+
+    private static long max(long[] values) {
+        return Arrays.stream(values).max().orElseThrow();
+    }
+
+    private static long min(long[] values) {
+        return Arrays.stream(values).min().orElseThrow();
+    }
+
+    // Changes a resting order's total quantity and price under the same id, see OrderBook.amendOrder
+    @Override
+    public boolean amendOrder(int id, long quantity, long price) {
+        if (quantity <= 0 || price <= 0) {
+            throw new IllegalArgumentException("Amended quantity and price must be positive");
+        }
+        if (!orderBook.checkAmend(id, quantity, price)) {
+            return false;
+        }
+        if (journal != null) {
+            lastJournalSequence = journal.amendOrder(id, quantity, price);
+        }
+        return orderBook.amendOrder(id, quantity, price);
+    }
+
+    // Where execution reports for this book's orders go, null for nowhere
+    public void setExecutionReportListener(ExecutionReportListener executionReportListener) {
+        orderBook.setExecutionListener(executionReportListener);
+    }
+
     public void addOrderBookListener(StreamObserver<Service.OrderBook> responseObserver) {
-        orderBook.getListener().addResponseObserver(responseObserver);
+        addOrderBookListener(new ConflatingSubscriber<>(responseObserver));
+    }
+
+    // Subscription changes go through the publisher so they line up with the updates already handed to it. Like the
+    // rest of the engine these must be called on the engine's own thread.
+    public void addOrderBookListener(ConflatingSubscriber<Service.OrderBook> subscriber) {
+        OrderBookUpdateListenerImpl listener = orderBook.getListener();
+        listener.expectSubscriber();
+        Service.OrderBook initialOrderBook = orderBook.getOrderBook();
+        orderBook.getPublisher().execute(() -> {
+            subscriber.onNext(initialOrderBook);
+            listener.addResponseObserver(subscriber);
+        });
     }
 
     public void removeOrderBookListener(StreamObserver<Service.OrderBook> responseObserver) {
-        orderBook.getListener().removeResponseObserver(responseObserver);
+        OrderBookUpdateListenerImpl listener = orderBook.getListener();
+        orderBook.getPublisher().execute(() -> listener.removeResponseObserver(responseObserver));
+    }
+
+    public void addOrderBookDeltaListener(StreamObserver<Service.OrderBookDeltaUpdate> deltaObserver) {
+        addOrderBookDeltaListener(new ConflatingSubscriber<>(deltaObserver));
+    }
+
+    // Sends the full book with its sequence number, then every delta after it
+    public void addOrderBookDeltaListener(ConflatingSubscriber<Service.OrderBookDeltaUpdate> subscriber) {
+        OrderBookUpdateListenerImpl listener = orderBook.getListener();
+        listener.expectSubscriber();
+        Service.OrderBookDeltaUpdate snapshot = orderBook.getSnapshot();
+        orderBook.getPublisher().execute(() -> {
+            subscriber.getObserver().onNext(snapshot);
+            listener.addDeltaObserver(subscriber);
+        });
+    }
+
+    // Catches a delta subscriber that fell behind back up with a snapshot taken now
+    public void resyncOrderBookDeltaListener(StreamObserver<Service.OrderBookDeltaUpdate> deltaObserver) {
+        OrderBookUpdateListenerImpl listener = orderBook.getListener();
+        Service.OrderBookDeltaUpdate snapshot = orderBook.getSnapshot();
+        orderBook.getPublisher().execute(() -> listener.resyncDeltaObserver(deltaObserver, snapshot));
+    }
+
+    public void removeOrderBookDeltaListener(StreamObserver<Service.OrderBookDeltaUpdate> deltaObserver) {
+        OrderBookUpdateListenerImpl listener = orderBook.getListener();
+        orderBook.getPublisher().execute(() -> listener.removeDeltaObserver(deltaObserver));
+    }
+
+    // The engine's whole state: its id counter, every participant's quotes and the book. Like any other change, only on
+    // the engine's own thread or while its shard is paused.
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(idProvider.getLastId());
+        out.writeInt(quoteIdsByParticipant.size());
+        for (Map.Entry<String, int[]> quotes : quoteIdsByParticipant.entrySet()) {
+            out.writeUTF(quotes.getKey());
+            out.writeInt(quotes.getValue().length);
+            for (int id : quotes.getValue()) {
+                out.writeInt(id);
+            }
+        }
+        orderBook.writeSnapshot(out);
+    }
+
+    // Restores what writeSnapshot wrote into an engine that has not taken any input yet
+    public void readSnapshot(DataInput in) throws IOException {
+        if (idProvider.getLastId() != 0) {
+            throw new IllegalStateException("Snapshots can only be read into a new engine");
+        }
+        idProvider.setLastId(in.readInt());
+        int participants = in.readInt();
+        for (int i = 0; i < participants; i++) {
+            String participant = in.readUTF();
+            int[] quoteIds = new int[in.readInt()];
+            for (int j = 0; j < quoteIds.length; j++) {
+                quoteIds[j] = in.readInt();
+            }
+            quoteIdsByParticipant.put(participant, quoteIds);
+        }
+        orderBook.readSnapshot(in);
     }
 
     public Service.OrderBook getInitialOrderBookForSubscriber() {
@@ -1,106 +1,425 @@
 package org.jj.matchingEngine;
 
-import org.jetbrains.annotations.Nullable;
 import org.jj.BuySell;
+import org.jj.Expiry;
 import org.jj.Service;
-import org.jj.providers.SystemTimestampProvider;
+import org.jj.collections.IntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Consumer;
 
-public class OrderBook {
-    private final OrderBookSide buySide = new OrderBookSide(new SystemTimestampProvider(), Comparator.reverseOrder());
-    private final OrderBookSide sellSide = new OrderBookSide(new SystemTimestampProvider(), Comparator.naturalOrder());
+public class OrderBook implements TradeListener {
+    static final int PUBLISHED_DEPTH = 5;
+
+    private final OrderIndex orderIndex = new OrderIndex();
+    private final OrderBookSide buySide;
+    private final OrderBookSide sellSide;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OrderBook.class);
     private final OrderBookUpdateListenerImpl listener;
+    private final MarketDataPublisher publisher;
+    private long sequence = 0;
+
+    // Execution reports only go to participants, so only their resting orders are tracked. Events are recorded while
+    // the listener has subscribers or the publisher has other consumers, and handed to the publisher ahead of the book
+    // change they belong to.
+    private final IntObjectMap<String> participants = new IntObjectMap<>();
+    private final Executions executions;
+    private ExecutionReportListener executionListener;
+    private boolean reporting = false;
+
+    // The order currently trading against the book
+    private String aggressorParticipant;
+    private BuySell aggressorSide;
+    private long aggressorQuantity;
+    private long aggressorFilled;
 
     public void addGtcOrder(int id, BuySell buySell, long quantity, long price) {
-        LOGGER.info("ORDER ID '{}', Adding GTC order", id);
-        long quantityFilled = getOrderSide(BuySell.getOtherSide(buySell)).matchOrder(id, quantity, price);
+        addGtcOrder(id, buySell, quantity, price, null);
+    }
+
+    // A price the order could not rest at is rejected before it trades
+    public void addGtcOrder(int id, BuySell buySell, long quantity, long price, String participant) {
+        checkOrderPrice(buySell, price);
+        startOperation();
+        matchOrRest(id, buySell, quantity, price, participant);
+        publish();
+    }
+
+    // Per-order logging is guarded so that ids are only boxed when debug logging is switched on
+    private void matchOrRest(int id, BuySell buySell, long quantity, long price, String participant) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("ORDER ID '{}', Adding GTC order", id);
+        }
+        long quantityFilled = match(id, buySell, quantity, price, participant, Expiry.GTC);
 
         if (quantityFilled < quantity) {
-            LOGGER.info("Order ID '{}' not filled, adding to orderBook", id);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Order ID '{}' not filled, adding to orderBook", id);
+            }
             getOrderSide(buySell).addOrder(id, quantity, quantityFilled, price);
+            if (participant != null) {
+                participants.put(id, participant);
+            }
+        }
+    }
+
+    // Throws IllegalArgumentException when a GTC order could not rest at price
+    void checkOrderPrice(BuySell buySell, long price) {
+        getOrderSide(buySell).checkPriceRange(price, price);
+    }
+
+    // Throws IllegalArgumentException when a quote could not rest at its price, before any quote is replaced
+    void checkQuotePrices(long[] bidPrices, long[] askPrices) {
+        checkPrices(buySide, bidPrices);
+        checkPrices(sellSide, askPrices);
+    }
+
+    private static void checkPrices(OrderBookSide side, long[] prices) {
+        if (prices.length == 0) {
+            return;
+        }
+        long lowest = prices[0];
+        long highest = prices[0];
+        for (long price : prices) {
+            side.checkPriceRange(price, price);
+            lowest = Math.min(lowest, price);
+            highest = Math.max(highest, price);
+        }
+        side.checkPriceRange(lowest, highest);
+    }
+
+    // Cancels the old quotes and enters the new ones as GTC orders in one pass, publishing the book once at the end.
+    // Old quote ids that already traded away are skipped. The caller has checked the prices with checkQuotePrices.
+    void replaceQuotes(String participant, int[] oldQuoteIds, int[] bidIds, long[] bidPrices, long[] bidQuantities, int[] askIds, long[] askPrices, long[] askQuantities) {
+        startOperation();
+        for (int id : oldQuoteIds) {
+            cancel(id);
+        }
+        for (int i = 0; i < bidIds.length; i++) {
+            matchOrRest(bidIds[i], BuySell.BUY, bidQuantities[i], bidPrices[i], participant);
+        }
+        for (int i = 0; i < askIds.length; i++) {
+            matchOrRest(askIds[i], BuySell.SELL, askQuantities[i], askPrices[i], participant);
         }
 
-        listener.onOrderBookUpdate(getOrderBook());
+        publish();
     }
 
     public void addIocOrder(int id, BuySell buySell, long quantity, long price) {
-        LOGGER.info("Order ID '{}', Adding IOC order", id);
-        long quantityFilled = getOrderSide(BuySell.getOtherSide(buySell)).matchOrder(id, quantity, price);
-        LOGGER.info("Order ID '{}', QuantityFilled = {}", id, quantityFilled);
+        addIocOrder(id, buySell, quantity, price, null);
+    }
 
-        listener.onOrderBookUpdate(getOrderBook());
+    public void addIocOrder(int id, BuySell buySell, long quantity, long price, String participant) {
+        startOperation();
+        long quantityFilled = match(id, buySell, quantity, price, participant, Expiry.IOC);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Order ID '{}', IOC order QuantityFilled = {}", id, quantityFilled);
+        }
+        if (quantityFilled < quantity) {
+            report(ExecutionType.EXPIRED, id, participant, buySell, 0, price, quantity, quantityFilled);
+        }
+
+        publish();
     }
 
     public void addFokOrder(int id, BuySell buySell, long quantity, long price) {
-        LOGGER.info("Order ID '{}', Adding FOK order", id);
-        Boolean filled = getOrderSide(BuySell.getOtherSide(buySell)).matchMustFillOrder(id, quantity, price);
-        LOGGER.info("Order ID '{}', Filled status = {}", id, filled);
+        addFokOrder(id, buySell, quantity, price, null);
+    }
+
+    public void addFokOrder(int id, BuySell buySell, long quantity, long price, String participant) {
+        startOperation();
+        reportAccepted(id, participant, buySell, price, quantity, Expiry.FOK);
+        startAggressor(participant, buySell, quantity, 0);
+        boolean filled = getOrderSide(BuySell.getOtherSide(buySell)).matchMustFillOrder(id, quantity, price);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Order ID '{}', FOK order Filled status = {}", id, filled);
+        }
+        if (!filled) {
+            report(ExecutionType.EXPIRED, id, participant, buySell, 0, price, quantity, 0);
+        }
+
+        publish();
+    }
+
+    // Acknowledges a new order and trades it against the other side, returning how much filled
+    private long match(int id, BuySell buySell, long quantity, long price, String participant, Expiry expiry) {
+        reportAccepted(id, participant, buySell, price, quantity, expiry);
+        startAggressor(participant, buySell, quantity, 0);
+        return getOrderSide(BuySell.getOtherSide(buySell)).matchOrder(id, quantity, price);
+    }
+
+    private void startAggressor(String participant, BuySell buySell, long quantity, long quantityFilled) {
+        aggressorParticipant = participant;
+        aggressorSide = buySell;
+        aggressorQuantity = quantity;
+        aggressorFilled = quantityFilled;
+    }
+
+    // Called by the side for every fill, reports both orders and forgets resting orders that filled completely
+    @Override
+    public void onTrade(int aggressorOrderId, int passiveOrderId, long quantity, long price, long passiveQuantity, long passiveQuantityFilled) {
+        aggressorFilled += quantity;
+        String passiveParticipant = passiveQuantityFilled == passiveQuantity ? participants.remove(passiveOrderId) : participants.get(passiveOrderId);
+
+        report(fillType(aggressorQuantity, aggressorFilled), aggressorOrderId, aggressorParticipant, aggressorSide, quantity, price, aggressorQuantity, aggressorFilled);
+        report(fillType(passiveQuantity, passiveQuantityFilled), passiveOrderId, passiveParticipant, BuySell.getOtherSide(aggressorSide), quantity, price, passiveQuantity, passiveQuantityFilled);
+    }
+
+    private static ExecutionType fillType(long quantity, long quantityFilled) {
+        return quantityFilled == quantity ? ExecutionType.FILLED : ExecutionType.PARTIALLY_FILLED;
+    }
+
+    private void report(ExecutionType type, int id, String participant, BuySell buySell, long lastQuantity, long price, long quantity, long quantityFilled) {
+        if (reporting) {
+            executions.add(type, id, participant, buySell, lastQuantity, price, quantity, quantityFilled, null);
+        }
+    }
 
-        listener.onOrderBookUpdate(getOrderBook());
+    private void reportAccepted(int id, String participant, BuySell buySell, long price, long quantity, Expiry expiry) {
+        if (reporting) {
+            executions.add(ExecutionType.ACCEPTED, id, participant, buySell, 0, price, quantity, 0, expiry);
+        }
+    }
+
+    // Sets where execution reports for this book go, null for nowhere
+    public void setExecutionListener(ExecutionReportListener executionListener) {
+        this.executionListener = executionListener;
     }
 
     public OrderBook(OrderBookUpdateListenerImpl listener) {
+        this(listener, DenseOrderBookSide::new);
+    }
+
+    public OrderBook(OrderBookUpdateListenerImpl listener, OrderBookSideFactory orderBookSideFactory) {
+        this(listener, orderBookSideFactory, new DirectMarketDataPublisher());
+    }
+
+    public OrderBook(OrderBookUpdateListenerImpl listener, OrderBookSideFactory orderBookSideFactory, MarketDataPublisher publisher) {
+        this(listener, orderBookSideFactory, publisher, 0);
+    }
+
+    // productId goes into the order ids of execution reports, see PartitionedIdProvider
+    public OrderBook(OrderBookUpdateListenerImpl listener, OrderBookSideFactory orderBookSideFactory, MarketDataPublisher publisher, int productId) {
         this.listener = listener;
+        this.executions = new Executions(productId);
+        this.publisher = publisher;
+        this.buySide = orderBookSideFactory.create(BuySell.BUY, orderIndex);
+        this.sellSide = orderBookSideFactory.create(BuySell.SELL, orderIndex);
+        this.buySide.setTradeListener(this);
+        this.sellSide.setTradeListener(this);
+    }
+
+    boolean isResting(int id) {
+        return orderIndex.get(id) != OrderPool.NONE;
     }
 
     boolean cancelOrder(int id) {
-        BuySell buySell = getOrderSide(id);
-        if (buySell == null) {
+        startOperation();
+        if (!cancel(id)) {
             return false;
         }
-        OrderBookSide sameSideOrders = getOrderSide(buySell);
-        return sameSideOrders.removeOrder(id);
+        publish();
+        return true;
     }
 
-    Service.OrderBook getOrderBook() {
-        LOGGER.info("Retrieving order book");
-        AbstractMap.SimpleEntry<List<Long>, List<Long>> fiveBestBuyOrdersAndQuantitiesList = buySide.getFiveBestOrdersAndQuantitiesList();
-        AbstractMap.SimpleEntry<List<Long>, List<Long>> fiveBestSellOrdersAndQuantitiesList = sellSide.getFiveBestOrdersAndQuantitiesList();
+    private boolean cancel(int id) {
+        int slot = orderIndex.get(id);
+        if (slot == OrderPool.NONE) {
+            return false;
+        }
+
+        OrderPool pool = orderIndex.getPool();
+        OrdersAtPrice ordersAtPrice = pool.getLevel(slot);
+        report(ExecutionType.CANCELLED, id, participants.remove(id), ordersAtPrice.getSide().getBuySell(), 0, ordersAtPrice.getPrice(),
+               pool.getQuantity(slot), pool.getQuantityFilled(slot));
+        return removeOrder(id);
+    }
+
+    private boolean removeOrder(int id) {
+        int slot = orderIndex.remove(id);
+        if (slot == OrderPool.NONE) {
+            return false;
+        }
+        orderIndex.getPool().getLevel(slot).getSide().unlink(slot);
+        return true;
+    }
+
+    // Amends a resting order under the same id, quantity being the new total including what has already filled.
+    // Shrinking at the same price keeps the order's place in the queue. A price change or a size increase takes it out
+    // and re-enters it at the back of the new price, trading first if it now crosses. Amending to no more than has
+    // filled cancels it, any other change is reported as REPLACED. Returns false when the order isn't resting. A new
+    // price the order could not rest at is rejected with the order left as it was.
+    boolean amendOrder(int id, long quantity, long price) {
+        if (!checkAmend(id, quantity, price)) {
+            return false;
+        }
+
+        int slot = orderIndex.get(id);
+        OrderPool pool = orderIndex.getPool();
+        OrdersAtPrice ordersAtPrice = pool.getLevel(slot);
+        OrderBookSide side = ordersAtPrice.getSide();
+        long quantityFilled = pool.getQuantityFilled(slot);
+
+        if (price == ordersAtPrice.getPrice() && quantity == pool.getQuantity(slot)) {
+            return true;
+        }
 
-        List<Double> convertedBuyPrices = new ArrayList<>();
-        for (long price : fiveBestBuyOrdersAndQuantitiesList.getKey()) {
-            convertedBuyPrices.add((price / 1000.0));
+        startOperation();
+        if (quantity <= quantityFilled) {
+            cancel(id);
+        } else {
+            // Reported under the new terms ahead of any fill the new price brings
+            report(ExecutionType.REPLACED, id, participants.get(id), side.getBuySell(), 0, price, quantity, quantityFilled);
+            if (price != ordersAtPrice.getPrice() || !side.reduceOrder(id, quantity)) {
+                removeOrder(id);
+                startAggressor(participants.get(id), side.getBuySell(), quantity, quantityFilled);
+                long quantityTraded = getOrderSide(BuySell.getOtherSide(side.getBuySell())).matchOrder(id, quantity - quantityFilled, price);
+                if (quantityFilled + quantityTraded < quantity) {
+                    side.addOrder(id, quantity, quantityFilled + quantityTraded, price);
+                } else {
+                    participants.remove(id);
+                }
+            }
         }
 
-        List<Double> convertedSellPrices = new ArrayList<>();
-        for (long price : fiveBestSellOrdersAndQuantitiesList.getKey()) {
-            convertedSellPrices.add((price / 1000.0));
+        publish();
+        return true;
+    }
+
+    // Returns false when the order isn't resting and throws IllegalArgumentException when amendOrder would reject the
+    // new price, without changing anything
+    boolean checkAmend(int id, long quantity, long price) {
+        int slot = orderIndex.get(id);
+        if (slot == OrderPool.NONE) {
+            return false;
         }
 
+        OrderPool pool = orderIndex.getPool();
+        OrdersAtPrice ordersAtPrice = pool.getLevel(slot);
+        if (price != ordersAtPrice.getPrice() && quantity > pool.getQuantityFilled(slot)) {
+            ordersAtPrice.getSide().checkPriceRange(price, price);
+        }
+        return true;
+    }
+
+    Service.OrderBook getOrderBook() {
         Service.OrderBook.Builder orderBookBuilder = Service.OrderBook.newBuilder();
+        long[] prices = new long[PUBLISHED_DEPTH];
+        long[] quantities = new long[PUBLISHED_DEPTH];
+
+        int buyLevels = buySide.getBestLevels(prices, quantities);
+        for (int i = 0; i < buyLevels; i++) {
+            orderBookBuilder.addBuyPrices(prices[i] / 1000.0);
+            orderBookBuilder.addBuyQuantities(quantities[i]);
+        }
 
-        orderBookBuilder.addAllBuyQuantities(fiveBestBuyOrdersAndQuantitiesList.getValue());
-        orderBookBuilder.addAllBuyPrices(convertedBuyPrices);
-        orderBookBuilder.addAllSellQuantities(fiveBestSellOrdersAndQuantitiesList.getValue());
-        orderBookBuilder.addAllSellPrices(convertedSellPrices);
+        int sellLevels = sellSide.getBestLevels(prices, quantities);
+        for (int i = 0; i < sellLevels; i++) {
+            orderBookBuilder.addSellPrices(prices[i] / 1000.0);
+            orderBookBuilder.addSellQuantities(quantities[i]);
+        }
 
         return orderBookBuilder.build();
     }
 
+    // Every level on both sides, tagged with the sequence of the last delta it includes
+    Service.OrderBookDeltaUpdate getSnapshot() {
+        Service.OrderBookSnapshot.Builder snapshot = Service.OrderBookSnapshot.newBuilder();
+        addLevels(buySide, snapshot::addBuyLevels);
+        addLevels(sellSide, snapshot::addSellLevels);
+        return Service.OrderBookDeltaUpdate.newBuilder().setSequence(sequence).setSnapshot(snapshot).build();
+    }
+
+    private static void addLevels(OrderBookSide side, Consumer<Service.PriceLevel> levels) {
+        long[] prices = new long[side.getLevelCount()];
+        long[] quantities = new long[prices.length];
+        int count = side.getBestLevels(prices, quantities);
+        for (int i = 0; i < count; i++) {
+            levels.accept(Service.PriceLevel.newBuilder().setPrice(prices[i] / 1000.0).setQuantity(quantities[i]).build());
+        }
+    }
+
+    // Resting orders, who owns them and the market data sequence, read back by readSnapshot
+    void writeSnapshot(DataOutput out) throws IOException {
+        out.writeLong(sequence);
+        buySide.writeOrders(out);
+        sellSide.writeOrders(out);
+
+        int[] ids = new int[participants.size()];
+        String[] owners = new String[ids.length];
+        int[] count = {0};
+        participants.forEach((participant, id) -> {
+            ids[count[0]] = id;
+            owners[count[0]++] = participant;
+        });
+        out.writeInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            out.writeInt(ids[i]);
+            out.writeUTF(owners[i]);
+        }
+    }
+
+    // Only into a book that has never taken an order, nothing is published
+    void readSnapshot(DataInput in) throws IOException {
+        if (sequence != 0 || orderIndex.size() > 0) {
+            throw new IllegalStateException("Snapshots can only be read into an empty book");
+        }
+        sequence = in.readLong();
+        buySide.readOrders(in);
+        sellSide.readOrders(in);
+
+        int owned = in.readInt();
+        for (int i = 0; i < owned; i++) {
+            int id = in.readInt();
+            participants.put(id, in.readUTF());
+        }
+    }
+
     public OrderBookUpdateListenerImpl getListener() {
         return listener;
     }
 
+    public MarketDataPublisher getPublisher() {
+        return publisher;
+    }
+
+    private void startOperation() {
+        reporting = publisher.hasEventConsumers() || executionListener != null && executionListener.hasSubscribers();
+    }
+
+    // Execution reports go out ahead of the book change the same operation made
+    private void publish() {
+        if (executions.size() > 0) {
+            publisher.publishExecutions(executionListener != null && executionListener.hasSubscribers() ? executionListener : null, executions);
+            executions.clear();
+        }
+        publishOrderBook();
+    }
+
+    // Only operations that changed a level are published, each one moves the sequence on whether or not anyone is
+    // listening. The engine's thread only copies the changed levels out, messages are built by the publisher.
+    private void publishOrderBook() {
+        if (buySide.getChangedLevelCount() == 0 && sellSide.getChangedLevelCount() == 0) {
+            return;
+        }
+
+        sequence++;
+        if (listener.hasSubscribers() || publisher.hasEventConsumers()) {
+            publisher.publish(listener, sequence, buySide, sellSide);
+        }
+        buySide.clearChangedLevels();
+        sellSide.clearChangedLevels();
+    }
+
     private OrderBookSide getOrderSide(BuySell buySell) {
         if (buySell == BuySell.BUY) {
             return buySide;
         }
         return sellSide;
     }
-
-    @Nullable
-    private BuySell getOrderSide(int id) {
-        if (buySide.hasOrder(id)) {
-            return BuySell.BUY;
-        } else if (sellSide.hasOrder(id)) {
-            return BuySell.SELL;
-        } else {
-            return null;
-        }
-    }
 }
@@ -0,0 +1,8 @@
+package org.jj.matchingEngine;
+
+import org.jj.BuySell;
+
+@FunctionalInterface
+public interface OrderBookSideFactory {
+    OrderBookSide create(BuySell buySell, OrderIndex orderIndex);
+}
@@ -3,8 +3,15 @@ package org.jj.matchingEngine;
 import io.grpc.stub.StreamObserver;
 import org.jj.Service;
 
+// One book's subscribers, driven by its MarketDataPublisher
 public interface OrderBookUpdateListener {
-    void onOrderBookUpdate(Service.OrderBook orderBook);
+    // Builds only the messages somebody is subscribed to
+    void onBookUpdate(BookUpdate update);
+
+    // Read on the engine's thread, which skips publishing altogether while nobody is subscribed
+    boolean hasSubscribers();
 
     void removeResponseObserver(StreamObserver<Service.OrderBook> responseObserver);
+
+    void removeDeltaObserver(StreamObserver<Service.OrderBookDeltaUpdate> deltaObserver);
 }
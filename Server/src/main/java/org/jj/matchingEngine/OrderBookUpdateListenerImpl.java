@@ -5,41 +5,127 @@ import org.jj.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// Subscribers are keyed by their stream so that the cancel handler, which only has the stream, can remove them.
+// They are added and removed on the publishing thread, but counted as soon as the engine accepts them so that no update
+// after their initial book is skipped for lack of subscribers.
 public class OrderBookUpdateListenerImpl implements OrderBookUpdateListener {
-    private final Set<StreamObserver<Service.OrderBook>> responseObserverSet = ConcurrentHashMap.newKeySet();
+    private final Map<StreamObserver<Service.OrderBook>, ConflatingSubscriber<Service.OrderBook>> responseObservers = new ConcurrentHashMap<>();
+    private final Map<StreamObserver<Service.OrderBookDeltaUpdate>, ConflatingSubscriber<Service.OrderBookDeltaUpdate>> deltaObservers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OrderBookUpdateListenerImpl.class);
 
     public OrderBookUpdateListenerImpl() {
     }
 
-    public void addResponseObserver(StreamObserver<Service.OrderBook> responseObserver) {
-        responseObserverSet.add(responseObserver);
+    // Called on the engine's thread before the subscriber's initial message is built
+    void expectSubscriber() {
+        subscriberCount.incrementAndGet();
     }
 
     @Override
-    public void onOrderBookUpdate(Service.OrderBook orderBook) {
-        for (StreamObserver<Service.OrderBook> responseObserver : responseObserverSet) {
+    public boolean hasSubscribers() {
+        return subscriberCount.get() > 0;
+    }
+
+    public void addResponseObserver(ConflatingSubscriber<Service.OrderBook> subscriber) {
+        responseObservers.put(subscriber.getObserver(), subscriber);
+    }
+
+    public void addDeltaObserver(ConflatingSubscriber<Service.OrderBookDeltaUpdate> subscriber) {
+        deltaObservers.put(subscriber.getObserver(), subscriber);
+    }
+
+    @Override
+    public void onBookUpdate(BookUpdate update) {
+        if (!responseObservers.isEmpty()) {
+            onOrderBookUpdate(toOrderBook(update));
+        }
+        if (!deltaObservers.isEmpty()) {
+            onOrderBookDelta(toDelta(update));
+        }
+    }
+
+    private void onOrderBookUpdate(Service.OrderBook orderBook) {
+        for (ConflatingSubscriber<Service.OrderBook> subscriber : responseObservers.values()) {
             try {
-                responseObserver.onNext(orderBook);
+                subscriber.onNext(orderBook);
             } catch (io.grpc.StatusRuntimeException e) {
                 LOGGER.warn("Client disconnected, removing observer: {}", e.getStatus());
-                responseObserverSet.remove(responseObserver);
+                removeResponseObserver(subscriber.getObserver());
             } catch (Exception e) {
                 LOGGER.error("Unexpected error in order book streaming", e);
-                responseObserverSet.remove(responseObserver);
-                responseObserver.onError(e);
+                removeResponseObserver(subscriber.getObserver());
+                subscriber.onError(e);
             }
 
         }
     }
 
+    private void onOrderBookDelta(Service.OrderBookDeltaUpdate delta) {
+        for (ConflatingSubscriber<Service.OrderBookDeltaUpdate> subscriber : deltaObservers.values()) {
+            try {
+                subscriber.onNextDelta(delta);
+            } catch (io.grpc.StatusRuntimeException e) {
+                LOGGER.warn("Client disconnected, removing delta observer: {}", e.getStatus());
+                removeDeltaObserver(subscriber.getObserver());
+            } catch (Exception e) {
+                LOGGER.error("Unexpected error in order book delta streaming", e);
+                removeDeltaObserver(subscriber.getObserver());
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    // Sends a fresh snapshot to deltaObserver if it fell behind and its stream has drained since
+    public void resyncDeltaObserver(StreamObserver<Service.OrderBookDeltaUpdate> deltaObserver, Service.OrderBookDeltaUpdate snapshot) {
+        ConflatingSubscriber<Service.OrderBookDeltaUpdate> subscriber = deltaObservers.get(deltaObserver);
+        if (subscriber != null) {
+            subscriber.resync(snapshot);
+        }
+    }
+
     @Override
     public void removeResponseObserver(StreamObserver<Service.OrderBook> responseObserver) {
-        responseObserverSet.remove(responseObserver);
-        LOGGER.info("Removed response listener");
+        if (responseObservers.remove(responseObserver) != null) {
+            subscriberCount.decrementAndGet();
+            LOGGER.info("Removed response listener");
+        }
+    }
+
+    @Override
+    public void removeDeltaObserver(StreamObserver<Service.OrderBookDeltaUpdate> deltaObserver) {
+        if (deltaObservers.remove(deltaObserver) != null) {
+            subscriberCount.decrementAndGet();
+            LOGGER.info("Removed delta listener");
+        }
+    }
+
+    private static Service.OrderBook toOrderBook(BookUpdate update) {
+        Service.OrderBook.Builder orderBookBuilder = Service.OrderBook.newBuilder();
+        for (int i = 0; i < update.buyLevels; i++) {
+            orderBookBuilder.addBuyPrices(update.buyPrices[i] / 1000.0);
+            orderBookBuilder.addBuyQuantities(update.buyQuantities[i]);
+        }
+        for (int i = 0; i < update.sellLevels; i++) {
+            orderBookBuilder.addSellPrices(update.sellPrices[i] / 1000.0);
+            orderBookBuilder.addSellQuantities(update.sellQuantities[i]);
+        }
+        return orderBookBuilder.build();
+    }
+
+    private static Service.OrderBookDeltaUpdate toDelta(BookUpdate update) {
+        Service.OrderBookDelta.Builder delta = Service.OrderBookDelta.newBuilder();
+        for (int i = 0; i < update.changeCount; i++) {
+            delta.addChanges(Service.LevelChange.newBuilder()
+                                                .setSide(update.changeIsBuy[i] ? Service.BuySell.BUY : Service.BuySell.SELL)
+                                                .setPrice(update.changePrices[i] / 1000.0)
+                                                .setQuantity(update.changeQuantities[i]));
+        }
+        return Service.OrderBookDeltaUpdate.newBuilder().setSequence(update.sequence).setDelta(delta).build();
     }
 }
@@ -0,0 +1,33 @@
+package org.jj.matchingEngine;
+
+import org.jj.collections.IntIntMap;
+
+// Every resting order of one book by id, shared by both sides so a cancel needs a single lookup
+public class OrderIndex {
+    private final IntIntMap idToSlot = new IntIntMap(OrderPool.NONE);
+    private final OrderPool pool = new OrderPool();
+
+    public boolean contains(int id) {
+        return idToSlot.containsKey(id);
+    }
+
+    public int size() {
+        return idToSlot.size();
+    }
+
+    OrderPool getPool() {
+        return pool;
+    }
+
+    int get(int id) {
+        return idToSlot.get(id);
+    }
+
+    void put(int id, int slot) {
+        idToSlot.put(id, slot);
+    }
+
+    int remove(int id) {
+        return idToSlot.remove(id);
+    }
+}
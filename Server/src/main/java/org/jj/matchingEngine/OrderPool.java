@@ -0,0 +1,127 @@
+package org.jj.matchingEngine;
+
+import java.util.Arrays;
+
+// Resting orders of one book stored column-wise in primitive arrays and linked by slot index.
+// Released slots go on a free list threaded through next, so adding and removing orders allocates nothing
+// once the pool has grown to the book's working size.
+class OrderPool {
+    static final int NONE = -1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] orderId;
+    private long[] quantity;
+    private long[] quantityFilled;
+    private int[] next;
+    private int[] prev;
+    private OrdersAtPrice[] level;
+
+    private int freeHead = NONE;
+    private int highWaterMark = 0;
+    private int size = 0;
+
+    OrderPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    OrderPool(int capacity) {
+        orderId = new int[capacity];
+        quantity = new long[capacity];
+        quantityFilled = new long[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        level = new OrdersAtPrice[capacity];
+    }
+
+    int allocate(int id, long orderQuantity, long orderQuantityFilled) {
+        int slot;
+        if (freeHead != NONE) {
+            slot = freeHead;
+            freeHead = next[slot];
+        } else {
+            if (highWaterMark == orderId.length) {
+                grow();
+            }
+            slot = highWaterMark++;
+        }
+
+        orderId[slot] = id;
+        quantity[slot] = orderQuantity;
+        quantityFilled[slot] = orderQuantityFilled;
+        next[slot] = NONE;
+        prev[slot] = NONE;
+        size++;
+        return slot;
+    }
+
+    void release(int slot) {
+        level[slot] = null;
+        prev[slot] = NONE;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getOrderId(int slot) {
+        return orderId[slot];
+    }
+
+    long getQuantity(int slot) {
+        return quantity[slot];
+    }
+
+    void setQuantity(int slot, long orderQuantity) {
+        quantity[slot] = orderQuantity;
+    }
+
+    long getQuantityFilled(int slot) {
+        return quantityFilled[slot];
+    }
+
+    long getQuantityRemaining(int slot) {
+        return quantity[slot] - quantityFilled[slot];
+    }
+
+    void fill(int slot, long tradeQuantity) {
+        quantityFilled[slot] += tradeQuantity;
+    }
+
+    int getNext(int slot) {
+        return next[slot];
+    }
+
+    void setNext(int slot, int nextSlot) {
+        next[slot] = nextSlot;
+    }
+
+    int getPrev(int slot) {
+        return prev[slot];
+    }
+
+    void setPrev(int slot, int prevSlot) {
+        prev[slot] = prevSlot;
+    }
+
+    OrdersAtPrice getLevel(int slot) {
+        return level[slot];
+    }
+
+    void setLevel(int slot, OrdersAtPrice ordersAtPrice) {
+        level[slot] = ordersAtPrice;
+    }
+
+    private void grow() {
+        int capacity = orderId.length * 2;
+        orderId = Arrays.copyOf(orderId, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        quantityFilled = Arrays.copyOf(quantityFilled, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        level = Arrays.copyOf(level, capacity);
+    }
+}
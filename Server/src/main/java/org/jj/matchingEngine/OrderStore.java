@@ -1,49 +1,122 @@
 package org.jj.matchingEngine;
 
+import org.jj.BuySell;
+import org.jj.Expiry;
 import org.jj.Order;
+import org.jj.collections.IntObjectMap;
+import org.jj.providers.PartitionedIdProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+// Written only by OrderStoreUpdater on the event bus, as the engines accept, amend and fill orders, so the sequencer
+// threads never wait on it. Read from gRPC threads, which can trail the engines by the bus backlog. Orders are kept
+// per product, the product of an order is read off its id, see PartitionedIdProvider.
 public class OrderStore {
     private static final Logger LOGGER = LoggerFactory.getLogger(OrderStore.class);
 
-    private final Map<Integer, Integer> orderIdToProductId = new HashMap<>();
-    private final Map<Integer, Order> orderIdToOrder = new HashMap<>();
+    private final IntObjectMap<IntObjectMap<Order>> productIdToOrders = new IntObjectMap<>();
 
     public OrderStore() {
     }
 
-    public void addOrderIdToProduct(int orderId, int productId) {
-        if (orderIdToProductId.put(orderId, productId) != null) {
-            LOGGER.error("Order ID {} already exists in orderIdToProductId", orderId);
+    public synchronized void addOrder(Order order) {
+        if (ordersOf(order.orderId()).put(PartitionedIdProvider.engineOrderIdOf(order.orderId()), order) != null) {
+            LOGGER.error("Order ID {} already exists in orderIDToOrder", order.orderId());
             throw new IllegalStateException("Order ID already exists");
         }
     }
 
-    public void addOrder(Order order) {
-        if (orderIdToOrder.put(order.orderId(), order) != null) {
-            LOGGER.error("Order ID {} already exists in orderIDToOrder", order.orderId());
-            throw new IllegalStateException("Order ID already exists");
+    public synchronized Order getOrder(long orderId) {
+        IntObjectMap<Order> orders = productIdToOrders.get(PartitionedIdProvider.productOf(orderId));
+        return orders == null ? null : orders.get(PartitionedIdProvider.engineOrderIdOf(orderId));
+    }
+
+    // The new terms of an amended order, which keeps what it filled so far. An order that isn't here is dropped, as in fill.
+    public synchronized void amend(long orderId, double price, long quantity) {
+        Order order = getOrder(orderId);
+        if (order != null) {
+            ordersOf(orderId).put(PartitionedIdProvider.engineOrderIdOf(orderId),
+                                  new Order(orderId, order.product(), price, quantity, order.quantityFilled(), order.expiry(), order.buySell()));
+        }
+    }
+
+    public synchronized void removeOrder(long orderId) {
+        IntObjectMap<Order> orders = productIdToOrders.get(PartitionedIdProvider.productOf(orderId));
+        if (orders != null) {
+            orders.remove(PartitionedIdProvider.engineOrderIdOf(orderId));
+        }
+    }
+
+    // quantityFilled is the order's total filled so far, which only grows, so fills applied late or twice are harmless.
+    // Orders are added from their ACCEPTED event, which comes ahead of their fills, a fill for an order that isn't here
+    // is for one the store never saw accepted and is dropped.
+    public synchronized void fill(long orderId, long quantityFilled) {
+        Order order = getOrder(orderId);
+        if (order != null && quantityFilled > order.quantityFilled()) {
+            ordersOf(orderId).put(PartitionedIdProvider.engineOrderIdOf(orderId), withQuantityFilled(order, quantityFilled));
+        }
+    }
+
+    private static Order withQuantityFilled(Order order, long quantityFilled) {
+        return new Order(order.orderId(), order.product(), order.price(), order.quantity(), quantityFilled, order.expiry(), order.buySell());
+    }
+
+    public synchronized boolean hasOrder(long orderId) {
+        return getOrder(orderId) != null;
+    }
+
+    public synchronized Integer getProductId(long orderId) {
+        return hasOrder(orderId) ? PartitionedIdProvider.productOf(orderId) : null;
+    }
+
+    private IntObjectMap<Order> ordersOf(long orderId) {
+        IntObjectMap<Order> orders = productIdToOrders.get(PartitionedIdProvider.productOf(orderId));
+        if (orders == null) {
+            orders = new IntObjectMap<>();
+            productIdToOrders.put(PartitionedIdProvider.productOf(orderId), orders);
         }
+        return orders;
     }
 
-    public boolean hasOrder(int orderId) {
-        return orderIdToProductId.containsKey(orderId);
+    // Every stored order. Snapshots are only taken once every fill reported so far has been applied.
+    public synchronized void writeSnapshot(DataOutput out) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        productIdToOrders.forEachValue(productOrders -> productOrders.forEachValue(orders::add));
+        out.writeInt(orders.size());
+        for (Order order : orders) {
+            out.writeLong(order.orderId());
+            out.writeUTF(order.product());
+            out.writeDouble(order.price());
+            out.writeLong(order.quantity());
+            out.writeLong(order.quantityFilled());
+            out.writeByte(order.expiry().ordinal());
+            out.writeByte(order.buySell().ordinal());
+        }
     }
 
-    public Integer getProductId(int orderId) {
-        return orderIdToProductId.get(orderId);
+    // Into an empty store, before any order is recorded
+    public synchronized void readSnapshot(DataInput in) throws IOException {
+        if (!productIdToOrders.isEmpty()) {
+            throw new IllegalStateException("Snapshots can only be read into an empty order store");
+        }
+        int orders = in.readInt();
+        for (int i = 0; i < orders; i++) {
+            long orderId = in.readLong();
+            ordersOf(orderId).put(PartitionedIdProvider.engineOrderIdOf(orderId), new Order(orderId, in.readUTF(), in.readDouble(), in.readLong(), in.readLong(),
+                                                                      Expiry.values()[in.readByte()], BuySell.values()[in.readByte()]));
+        }
     }
 
-    public List<Order> getClientOrders(List<Integer> orderIdList) {
+    public synchronized List<Order> getClientOrders(List<Long> orderIdList) {
         ArrayList<Order> orders = new ArrayList<>();
         try {
-            orderIdList.stream().forEach(id -> orders.add(orderIdToOrder.get(id)));
+            orderIdList.stream().forEach(id -> orders.add(getOrder(id)));
         } catch (NullPointerException NPE) {
             LOGGER.error("Null Pointer Exceptions. orderIdList contains invalid argument(s)");
         }
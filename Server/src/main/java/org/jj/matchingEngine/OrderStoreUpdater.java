@@ -0,0 +1,44 @@
+package org.jj.matchingEngine;
+
+import org.jj.Order;
+import org.jj.providers.PartitionedIdProvider;
+
+import java.util.function.IntFunction;
+
+// Keeps the order store up to date from the engines' execution events: orders are stored as they are accepted and
+// follow their amends and fills. Runs on the event bus, so the sequencer threads neither lock the store nor build
+// Orders. productSymbols names a product id.
+public class OrderStoreUpdater implements EngineEventHandler {
+    private final OrderStore orderStore;
+    private final IntFunction<String> productSymbols;
+
+    public OrderStoreUpdater(OrderStore orderStore, IntFunction<String> productSymbols) {
+        this.orderStore = orderStore;
+        this.productSymbols = productSymbols;
+    }
+
+    @Override
+    public void onEvent(BookUpdate event) {
+        if (event.getType() != BookUpdate.Type.EXECUTIONS) {
+            return;
+        }
+
+        Executions executions = event.getExecutions();
+        for (int i = 0; i < executions.size(); i++) {
+            long orderId = executions.getOrderId(i);
+            switch (executions.getType(i)) {
+                case ACCEPTED -> orderStore.addOrder(acceptedOrder(executions, i));
+                case REPLACED -> orderStore.amend(orderId, executions.getPrice(i) / 1000.0, executions.getQuantity(i));
+                case PARTIALLY_FILLED, FILLED -> orderStore.fill(orderId, executions.getQuantityFilled(i));
+                default -> {
+                }
+            }
+        }
+    }
+
+    private Order acceptedOrder(Executions executions, int index) {
+        long orderId = executions.getOrderId(index);
+        return new Order(orderId, productSymbols.apply(PartitionedIdProvider.productOf(orderId)), executions.getPrice(index) / 1000.0,
+                         executions.getQuantity(index), 0, executions.getExpiry(index), executions.getSide(index));
+    }
+}
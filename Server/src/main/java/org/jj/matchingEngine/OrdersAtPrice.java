@@ -0,0 +1,99 @@
+package org.jj.matchingEngine;
+
+// Orders resting at one price in time priority, as a doubly linked list of OrderPool slots.
+// Emptied levels are reset and reused by their side rather than thrown away.
+class OrdersAtPrice {
+
+    private final OrderPool pool;
+    private final AbstractOrderBookSide side;
+    private int head = OrderPool.NONE;
+    private int tail = OrderPool.NONE;
+    private long price;
+    private long totalQuantity = 0;
+    private int orderCount = 0;
+
+    public OrdersAtPrice(long price, AbstractOrderBookSide side, OrderPool pool) {
+        this.price = price;
+        this.side = side;
+        this.pool = pool;
+    }
+
+    public void reset(long price) {
+        this.price = price;
+        head = tail = OrderPool.NONE;
+        totalQuantity = 0;
+        orderCount = 0;
+    }
+
+    public void add(int slot) {
+        pool.setLevel(slot, this);
+        totalQuantity += pool.getQuantityRemaining(slot);
+        orderCount++;
+
+        if (tail == OrderPool.NONE) {
+            head = tail = slot;
+            return;
+        }
+        pool.setNext(tail, slot);
+        pool.setPrev(slot, tail);
+        tail = slot;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public AbstractOrderBookSide getSide() {
+        return side;
+    }
+
+    // Ensures Head and Tail of OrdersAtPrice are kept when either head or tail node are removed
+    public void removeNode(int slot) {
+        totalQuantity -= pool.getQuantityRemaining(slot);
+        orderCount--;
+
+        int next = pool.getNext(slot);
+        int prev = pool.getPrev(slot);
+        if (head == slot) {
+            head = next;
+        }
+        if (tail == slot) {
+            tail = prev;
+        }
+        if (next != OrderPool.NONE) {
+            pool.setPrev(next, prev);
+        }
+        if (prev != OrderPool.NONE) {
+            pool.setNext(prev, next);
+        }
+        pool.setLevel(slot, null);
+    }
+
+    public int gethead() {
+        return head;
+    }
+
+    public boolean isEmpty() {
+        return head == OrderPool.NONE;
+    }
+
+    public void fill(int slot, long quantity) {
+        pool.fill(slot, quantity);
+        totalQuantity -= quantity;
+    }
+
+    // Shrinks an order where it stands, so it keeps its place in the queue
+    public void reduce(int slot, long quantity) {
+        totalQuantity -= pool.getQuantity(slot) - quantity;
+        pool.setQuantity(slot, quantity);
+    }
+
+    // Remaining quantity over every order at this price, kept up to date on add, fill and remove
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+}
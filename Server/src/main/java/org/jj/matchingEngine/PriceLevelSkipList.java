@@ -0,0 +1,134 @@
+package org.jj.matchingEngine;
+
+// Skip list of price levels ordered by a primitive long key, giving O(log levels) get, put and remove.
+// Removed entries are kept on free lists by height and reused by later puts.
+class PriceLevelSkipList {
+    private static final int MAX_HEIGHT = 32;
+
+    private final Entry head = new Entry(Long.MIN_VALUE, null, MAX_HEIGHT);
+    private final Entry[] update = new Entry[MAX_HEIGHT];
+    private final Entry[] freeEntries = new Entry[MAX_HEIGHT + 1];
+    private int height = 1;
+    private int size = 0;
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    public OrdersAtPrice get(long key) {
+        Entry entry = findLast(key).next[0];
+        return entry != null && entry.key == key ? entry.value : null;
+    }
+
+    public void put(long key, OrdersAtPrice value) {
+        Entry current = head;
+        for (int level = height - 1; level >= 0; level--) {
+            while (current.next[level] != null && current.next[level].key < key) {
+                current = current.next[level];
+            }
+            update[level] = current;
+        }
+
+        Entry existing = current.next[0];
+        if (existing != null && existing.key == key) {
+            existing.value = value;
+            return;
+        }
+
+        int entryHeight = randomHeight();
+        if (entryHeight > height) {
+            for (int level = height; level < entryHeight; level++) {
+                update[level] = head;
+            }
+            height = entryHeight;
+        }
+
+        Entry entry = freeEntries[entryHeight];
+        if (entry == null) {
+            entry = new Entry(key, value, entryHeight);
+        } else {
+            freeEntries[entryHeight] = entry.next[0];
+            entry.key = key;
+            entry.value = value;
+        }
+        for (int level = 0; level < entryHeight; level++) {
+            entry.next[level] = update[level].next[level];
+            update[level].next[level] = entry;
+        }
+        size++;
+    }
+
+    public boolean remove(long key) {
+        Entry current = head;
+        for (int level = height - 1; level >= 0; level--) {
+            while (current.next[level] != null && current.next[level].key < key) {
+                current = current.next[level];
+            }
+            update[level] = current;
+        }
+
+        Entry entry = current.next[0];
+        if (entry == null || entry.key != key) {
+            return false;
+        }
+
+        for (int level = 0; level < entry.next.length; level++) {
+            update[level].next[level] = entry.next[level];
+            entry.next[level] = null;
+        }
+        entry.value = null;
+        entry.next[0] = freeEntries[entry.next.length];
+        freeEntries[entry.next.length] = entry;
+        while (height > 1 && head.next[height - 1] == null) {
+            height--;
+        }
+        size--;
+        return true;
+    }
+
+    public OrdersAtPrice first() {
+        Entry entry = head.next[0];
+        return entry == null ? null : entry.value;
+    }
+
+    // The value with the smallest key strictly greater than key, null when there is none
+    public OrdersAtPrice higher(long key) {
+        Entry entry = findLast(key).next[0];
+        if (entry != null && entry.key == key) {
+            entry = entry.next[0];
+        }
+        return entry == null ? null : entry.value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The last entry with a key strictly less than key, or head when there is none
+    private Entry findLast(long key) {
+        Entry current = head;
+        for (int level = height - 1; level >= 0; level--) {
+            while (current.next[level] != null && current.next[level].key < key) {
+                current = current.next[level];
+            }
+        }
+        return current;
+    }
+
+    // Geometric with p = 1/2, from a xorshift generator so layouts are reproducible
+    private int randomHeight() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return Math.min(MAX_HEIGHT, Long.numberOfTrailingZeros(seed | (1L << (MAX_HEIGHT - 1))) + 1);
+    }
+
+    private static class Entry {
+        private long key;
+        private OrdersAtPrice value;
+        private final Entry[] next;
+
+        private Entry(long key, OrdersAtPrice value, int height) {
+            this.key = key;
+            this.value = value;
+            this.next = new Entry[height];
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.jj.matchingEngine;
+
+import org.jj.BuySell;
+
+// Price levels live in a skip list keyed by price, so memory only grows with the number of occupied levels.
+// Suits products whose prices are scattered over a range too wide for DenseOrderBookSide.
+public class SparseOrderBookSide extends AbstractOrderBookSide {
+    private final PriceLevelSkipList levels = new PriceLevelSkipList();
+
+    public SparseOrderBookSide(BuySell buySell) {
+        this(buySell, new OrderIndex());
+    }
+
+    public SparseOrderBookSide(BuySell buySell, OrderIndex orderIndex) {
+        super(buySell, orderIndex);
+    }
+
+    @Override
+    protected OrdersAtPrice getLevel(long price) {
+        return levels.get(keyOf(price));
+    }
+
+    @Override
+    protected void insertLevel(OrdersAtPrice ordersAtPrice) {
+        levels.put(keyOf(ordersAtPrice.getPrice()), ordersAtPrice);
+    }
+
+    @Override
+    protected void removeLevel(OrdersAtPrice ordersAtPrice) {
+        levels.remove(keyOf(ordersAtPrice.getPrice()));
+    }
+
+    @Override
+    protected OrdersAtPrice getBestLevel() {
+        return levels.first();
+    }
+
+    @Override
+    protected OrdersAtPrice getNextLevel(OrdersAtPrice ordersAtPrice) {
+        return levels.higher(keyOf(ordersAtPrice.getPrice()));
+    }
+
+    // Keys ascend from the best price, so the buy side stores negated prices
+    private long keyOf(long price) {
+        return bestIsHighest ? -price : price;
+    }
+}
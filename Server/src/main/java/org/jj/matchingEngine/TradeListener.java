@@ -0,0 +1,7 @@
+package org.jj.matchingEngine;
+
+// Told about every fill as it happens. Primitives only, so reporting trades doesn't allocate on the matching path.
+@FunctionalInterface
+public interface TradeListener {
+    void onTrade(int aggressorOrderId, int passiveOrderId, long quantity, long price, long passiveQuantity, long passiveQuantityFilled);
+}
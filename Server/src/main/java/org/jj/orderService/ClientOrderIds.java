@@ -0,0 +1,217 @@
+package org.jj.orderService;
+
+import org.jj.matchingEngine.BookUpdate;
+import org.jj.matchingEngine.EngineEventHandler;
+import org.jj.matchingEngine.ExecutionType;
+import org.jj.matchingEngine.Executions;
+import org.jj.providers.PartitionedIdProvider;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Orders by the id their participant gave them, so a participant can refer to an order before it has the engine's id
+// and a resubmitted order is recognised rather than entered twice. Ids are scoped per participant. An id is kept while
+// its order is live and for the participant's last RETAINED_DONE_ORDERS orders after that, so a late retry is still
+// recognised but what is kept stays bounded by the orders resting. Orders are seen to be done through the engines'
+// execution events, see onEvent.
+//
+// Client order ids are journaled with their orders, so recovery and the standby rebuild them as they replay, and are
+// part of the snapshot with the order store.
+class ClientOrderIds implements EngineEventHandler {
+    static final int RETAINED_DONE_ORDERS = 1024;
+
+    private final Map<String, ParticipantOrders> ordersByParticipant = new ConcurrentHashMap<>();
+    // Orders the engines have taken and not reported done yet
+    private final Map<Long, OrderRef> liveOrders = new ConcurrentHashMap<>();
+
+    // Registers order under its client order id, returning the order already sent under it instead if there is one
+    OrderRef register(OrderRef order) {
+        return participantOrders(order.participant).register(order);
+    }
+
+    // For a journaled order being replayed, which replaces whatever the id was kept for before
+    void restore(OrderRef order) {
+        participantOrders(order.participant).restore(order);
+    }
+
+    OrderRef get(String participant, long clientOrderId) {
+        ParticipantOrders orders = ordersByParticipant.get(participant);
+        return orders == null ? null : orders.get(clientOrderId);
+    }
+
+    // Frees the id of an order the engine rejected, so it can be sent again
+    void remove(OrderRef order) {
+        ParticipantOrders orders = ordersByParticipant.get(order.participant);
+        if (orders != null) {
+            orders.remove(order);
+        }
+    }
+
+    // Called on the engine's thread with the id the engine is about to give order, before it can trade
+    void assign(OrderRef order, long orderId) {
+        order.orderId = orderId;
+        liveOrders.put(orderId, order);
+    }
+
+    // Called on the engine's thread when the engine rejected order after assign
+    void unassign(OrderRef order) {
+        liveOrders.remove(order.orderId, order);
+        order.orderId = 0;
+    }
+
+    @Override
+    public void onEvent(BookUpdate event) {
+        if (event.getType() != BookUpdate.Type.EXECUTIONS) {
+            return;
+        }
+
+        Executions executions = event.getExecutions();
+        for (int i = 0; i < executions.size(); i++) {
+            ExecutionType type = executions.getType(i);
+            if (type == ExecutionType.FILLED || type == ExecutionType.CANCELLED || type == ExecutionType.EXPIRED) {
+                OrderRef order = liveOrders.remove(executions.getOrderId(i));
+                if (order != null) {
+                    participantOrders(order.participant).done(order);
+                }
+            }
+        }
+    }
+
+    // Every order the engines have taken, live ones then each participant's done ones oldest first. Orders still on
+    // their way to the engine are left out, their inputs come after the snapshot's journal sequence.
+    synchronized void writeSnapshot(DataOutput out) throws IOException {
+        List<ParticipantOrders> participants = new ArrayList<>(ordersByParticipant.values());
+        out.writeInt(participants.size());
+        for (ParticipantOrders orders : participants) {
+            orders.writeSnapshot(out);
+        }
+    }
+
+    // Into an empty map, before any order is recorded
+    synchronized void readSnapshot(DataInput in) throws IOException {
+        if (!ordersByParticipant.isEmpty()) {
+            throw new IllegalStateException("Snapshots can only be read into empty client order ids");
+        }
+        int participants = in.readInt();
+        for (int i = 0; i < participants; i++) {
+            String participant = in.readUTF();
+            ParticipantOrders orders = participantOrders(participant);
+            int live = in.readInt();
+            for (int j = 0; j < live; j++) {
+                OrderRef order = readOrder(in, participant);
+                orders.restore(order);
+                liveOrders.put(order.orderId, order);
+            }
+            int done = in.readInt();
+            for (int j = 0; j < done; j++) {
+                OrderRef order = readOrder(in, participant);
+                orders.restore(order);
+                orders.done(order);
+            }
+        }
+    }
+
+    private static OrderRef readOrder(DataInput in, String participant) throws IOException {
+        long clientOrderId = in.readLong();
+        long orderId = in.readLong();
+        OrderRef order = new OrderRef(PartitionedIdProvider.productOf(orderId), participant, clientOrderId);
+        order.orderId = orderId;
+        order.created.complete(orderId);
+        return order;
+    }
+
+    private static void writeOrder(DataOutput out, OrderRef order) throws IOException {
+        out.writeLong(order.clientOrderId);
+        out.writeLong(order.orderId);
+    }
+
+    private ParticipantOrders participantOrders(String participant) {
+        return ordersByParticipant.computeIfAbsent(participant, ParticipantOrders::new);
+    }
+
+    private final class ParticipantOrders {
+        private final String participant;
+        private final Map<Long, OrderRef> orders = new HashMap<>();
+        private final ArrayDeque<OrderRef> doneOrders = new ArrayDeque<>();
+
+        ParticipantOrders(String participant) {
+            this.participant = participant;
+        }
+
+        synchronized OrderRef register(OrderRef order) {
+            return orders.putIfAbsent(order.clientOrderId, order);
+        }
+
+        synchronized void restore(OrderRef order) {
+            orders.put(order.clientOrderId, order);
+        }
+
+        synchronized OrderRef get(long clientOrderId) {
+            return orders.get(clientOrderId);
+        }
+
+        synchronized void remove(OrderRef order) {
+            orders.remove(order.clientOrderId, order);
+        }
+
+        synchronized void done(OrderRef order) {
+            doneOrders.addLast(order);
+            if (doneOrders.size() > RETAINED_DONE_ORDERS) {
+                OrderRef oldest = doneOrders.removeFirst();
+                orders.remove(oldest.clientOrderId, oldest);
+            }
+        }
+
+        synchronized void writeSnapshot(DataOutput out) throws IOException {
+            List<OrderRef> live = new ArrayList<>();
+            for (OrderRef order : orders.values()) {
+                if (order.orderId != 0 && liveOrders.get(order.orderId) == order) {
+                    live.add(order);
+                }
+            }
+            out.writeUTF(participant);
+            out.writeInt(live.size());
+            for (OrderRef order : live) {
+                writeOrder(out, order);
+            }
+            out.writeInt(doneOrders.size());
+            for (OrderRef order : doneOrders) {
+                writeOrder(out, order);
+            }
+        }
+    }
+
+    // An order a cancel or amend can refer to. orderId is 0 until the engine is about to take the order and is only set
+    // on the engine's thread, so a request run on that thread after the order's creation always sees it.
+    static class OrderRef {
+        final int productId;
+        final String participant;
+        final long clientOrderId;
+        volatile long orderId;
+        // Completes as the original request did, for answering a resubmission; null for an order referred to by its id
+        final CompletableFuture<Long> created;
+
+        OrderRef(int productId, String participant, long clientOrderId) {
+            this.productId = productId;
+            this.participant = participant;
+            this.clientOrderId = clientOrderId;
+            this.created = new CompletableFuture<>();
+        }
+
+        OrderRef(long orderId) {
+            this.productId = PartitionedIdProvider.productOf(orderId);
+            this.participant = null;
+            this.clientOrderId = 0;
+            this.orderId = orderId;
+            this.created = null;
+        }
+    }
+}
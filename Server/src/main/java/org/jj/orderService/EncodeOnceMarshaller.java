@@ -0,0 +1,109 @@
+package org.jj.orderService;
+
+import com.google.protobuf.Message;
+import io.grpc.BindableService;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import org.jj.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Response marshaller for market data streams. The publisher hands the same message instance to every subscriber in
+// turn, so the bytes of the last message encoded are kept and written straight to every further stream it goes to.
+// Each update is encoded once however many subscribers there are. Any other message, such as a conflated book sent
+// later, is simply encoded again.
+public class EncodeOnceMarshaller<T extends Message> implements MethodDescriptor.Marshaller<T> {
+    private final T defaultInstance;
+    private final MethodDescriptor.Marshaller<T> protoMarshaller;
+    private volatile Encoded<T> lastEncoded;
+
+    private record Encoded<T>(T message, byte[] bytes) {
+    }
+
+    public EncodeOnceMarshaller(T defaultInstance) {
+        this.defaultInstance = defaultInstance;
+        this.protoMarshaller = ProtoUtils.marshaller(defaultInstance);
+    }
+
+    @Override
+    public InputStream stream(T value) {
+        Encoded<T> encoded = lastEncoded;
+        if (encoded == null || encoded.message() != value) {
+            encoded = new Encoded<>(value, value.toByteArray());
+            lastEncoded = encoded;
+        }
+        return new EncodedInputStream(encoded.bytes());
+    }
+
+    @Override
+    public T parse(InputStream stream) {
+        return protoMarshaller.parse(stream);
+    }
+
+    // The order service with book and delta streams sharing one encoding of each update between all their subscribers
+    public static ServerServiceDefinition bindMarketData(BindableService service) {
+        return rebind(service.bindService(), new EncodeOnceMarshaller<>(Service.OrderBook.getDefaultInstance()),
+                      new EncodeOnceMarshaller<>(Service.OrderBookDeltaUpdate.getDefaultInstance()));
+    }
+
+    // Swaps in marshallers for every method of service whose response is one of their message types, keeping the
+    // schema descriptors that reflection reads
+    public static ServerServiceDefinition rebind(ServerServiceDefinition service, EncodeOnceMarshaller<?>... marshallers) {
+        ServiceDescriptor original = service.getServiceDescriptor();
+        List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        for (ServerMethodDefinition<?, ?> method : service.getMethods()) {
+            methods.add(rebind(method, marshallers));
+        }
+
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(original.getName()).setSchemaDescriptor(original.getSchemaDescriptor());
+        methods.forEach(method -> descriptor.addMethod(method.getMethodDescriptor()));
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptor.build());
+        methods.forEach(builder::addMethod);
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> rebind(ServerMethodDefinition<ReqT, RespT> method, EncodeOnceMarshaller<?>... marshallers) {
+        MethodDescriptor<ReqT, RespT> descriptor = method.getMethodDescriptor();
+        if (!(descriptor.getResponseMarshaller() instanceof MethodDescriptor.PrototypeMarshaller<RespT> responseMarshaller)) {
+            return method;
+        }
+
+        for (EncodeOnceMarshaller<?> marshaller : marshallers) {
+            if (marshaller.handles(responseMarshaller.getMessagePrototype())) {
+                MethodDescriptor<ReqT, RespT> rebound = descriptor.toBuilder(descriptor.getRequestMarshaller(), (MethodDescriptor.Marshaller<RespT>) marshaller).build();
+                return ServerMethodDefinition.create(rebound, method.getServerCallHandler());
+            }
+        }
+        return method;
+    }
+
+    private boolean handles(Object prototype) {
+        return prototype != null && prototype.getClass() == defaultInstance.getClass();
+    }
+
+    // Lets gRPC size the frame up front and copy the shared bytes straight into its buffer
+    private static class EncodedInputStream extends ByteArrayInputStream implements KnownLength, Drainable {
+        EncodedInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int length = available();
+            target.write(buf, pos, length);
+            pos = count;
+            return length;
+        }
+    }
+}
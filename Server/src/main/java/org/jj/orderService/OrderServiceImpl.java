@@ -1,18 +1,48 @@
 package org.jj.orderService;
 
 import com.google.protobuf.BoolValue;
-import com.google.protobuf.Int32Value;
+import com.google.protobuf.Int64Value;
 import com.google.protobuf.StringValue;
 import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.jj.*;
-import org.jj.matchingEngine.OrderStore;
+import org.jj.journal.Journal;
+import org.jj.journal.JournalHandler;
+import org.jj.journal.JournalReader;
+import org.jj.matchingEngine.ConflatingSubscriber;
+import org.jj.orderService.ClientOrderIds.OrderRef;
+import org.jj.matchingEngine.ExecutionReportRouter;
 import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.matchingEngine.OrderStoreUpdater;
 import org.jj.providers.MatchingEngineProvider;
+import org.jj.providers.PartitionedIdProvider;
+import org.jj.replication.ReplicatedInputHandler;
+import org.jj.replication.ReplicationFollower;
+import org.jj.replication.ReplicationMode;
+import org.jj.replication.ReplicationServer;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.snapshot.Snapshot;
+import org.jj.snapshot.SnapshotStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class OrderServiceImpl extends OrderServiceGrpc.OrderServiceImplBase {
 
@@ -20,60 +50,624 @@ public class OrderServiceImpl extends OrderServiceGrpc.OrderServiceImplBase {
 
     private final MatchingEngineProvider matchingEngineProvider;
     private final OrderStore orderStore;
+    private final ClientOrderIds clientOrderIds = new ClientOrderIds();
+
+    // Set on a primary whose inputs are replicated, see submitReplicated
+    private volatile ReplicationServer replicationServer;
+    // Set while this is a standby, which takes no orders until it takes over
+    private volatile ReplicationFollower follower;
+    private volatile boolean standby = false;
 
     public OrderServiceImpl(MatchingEngineProvider matchingEngineProvider, OrderStore orderStore) {
         this.matchingEngineProvider = matchingEngineProvider;
         this.orderStore = orderStore;
+        // One consumer keeps both up to date, so neither costs a thread of its own
+        OrderStoreUpdater orderStoreUpdater = new OrderStoreUpdater(orderStore, matchingEngineProvider::productIdToSymbol);
+        matchingEngineProvider.addEventConsumer("order-store-updater", event -> {
+            orderStoreUpdater.onEvent(event);
+            clientOrderIds.onEvent(event);
+        });
     }
 
+    // Orders are handed to the engine's sequencer, the response is sent from the sequencer thread once it has run
     @Override
-    public void orderCreateRequest(Service.OrderCreateRequestDetails request, StreamObserver<Int32Value> responseObserver) {
+    public void orderCreateRequest(Service.OrderCreateRequestDetails request, StreamObserver<Int64Value> responseObserver) {
+        submitOrder(request).whenComplete((orderId, error) -> {
+            if (error != null) {
+                responseObserver.onError(causeOf(error));
+                return;
+            }
+
+            responseObserver.onNext(Int64Value.of(orderId));
+            responseObserver.onCompleted();
+        });
+    }
+
+    @Override
+    public void orderCancelRequest(Int64Value request, StreamObserver<BoolValue> responseObserver) {
+        submitCancel(request.getValue()).whenComplete((cancelled, error) -> {
+            if (error != null) {
+                responseObserver.onError(causeOf(error));
+                return;
+            }
+
+            responseObserver.onNext(BoolValue.of(cancelled));
+            responseObserver.onCompleted();
+        });
+    }
+
+    @Override
+    public void orderAmend(Service.OrderAmendRequest request, StreamObserver<BoolValue> responseObserver) {
+        submitAmend(request).whenComplete((amended, error) -> {
+            if (error != null) {
+                responseObserver.onError(causeOf(error));
+                return;
+            }
+
+            responseObserver.onNext(BoolValue.of(amended != 0));
+            responseObserver.onCompleted();
+        });
+    }
+
+    @Override
+    public StreamObserver<Service.OrderSessionRequest> orderSession(StreamObserver<Service.OrderSessionResponse> responseObserver) {
+        return new OrderSessionHandler(this, responseObserver);
+    }
+
+    // Completes with the new order id once the engine has taken the order. The order store follows from the event bus,
+    // which snapshots drain first, so a snapshot never sees the engine change without the stored order. An order resent
+    // under a client order id already in use completes with the first one's id.
+    CompletableFuture<Long> submitOrder(Service.OrderCreateRequestDetails request) {
+        if (standby) {
+            return standbyRejection();
+        }
         String productSymbol = request.getProductSymbol();
 
-        MatchingEngineImpl matchingEngine = matchingEngineProvider.getMatchingEngine(productSymbol);
+        SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(productSymbol);
+
+        if (matchingEngine == null) {
+            LOGGER.error("Product does not exist: Matching Engine == null");
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Product does not exist"));
+        }
 
         int productId = matchingEngineProvider.productSymbolToId(productSymbol);
+        long quantity = request.getQuantity();
+        double price = request.getPrice();
+        BuySell buySell = BuySell.valueOf(request.getBuySell().toString());
+        Expiry expiry = Expiry.valueOf(request.getExpiry().toString());
+
+        long clientOrderId = request.getClientOrderId();
+        if (clientOrderId == 0) {
+            return submitReplicated(matchingEngine, engine -> createRecordedOrder(engine, quantity, Math.round(price * 1000), buySell, expiry,
+                                                                                  participantOf(request), null));
+        }
+
+        String participant = participantOf(request);
+        if (participant == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Client order ids need a participant id"));
+        }
+        // Registered before the order reaches the engine, so a cancel or amend sent right after it finds it
+        OrderRef order = new OrderRef(productId, participant, clientOrderId);
+        OrderRef sent = clientOrderIds.register(order);
+        if (sent != null) {
+            return sent.productId == productId ? sent.created
+                                               : CompletableFuture.failedFuture(new IllegalArgumentException("Client order id is in use on another product"));
+        }
+
+        submitReplicated(matchingEngine, engine -> createRecordedOrder(engine, quantity, Math.round(price * 1000), buySell, expiry, participant,
+                                                                       order)).whenComplete((orderId, error) -> {
+            if (error != null) {
+                clientOrderIds.remove(order);
+                order.created.completeExceptionally(causeOf(error));
+            } else {
+                order.created.complete(orderId);
+            }
+        });
+        return order.created;
+    }
+
+    // Orders are grouped by product and each group runs as a single command on its engine, a rejected order doesn't
+    // stop the rest of its group. Client order ids are registered as submitOrder does, an order resent under one
+    // already in use is answered as the first one was.
+    @Override
+    public void orderCreateBatch(Service.OrderCreateBatchRequest request, StreamObserver<Service.OrderCreateBatchResponse> responseObserver) {
+        if (standby) {
+            responseObserver.onError(standbyError());
+            return;
+        }
+        List<Service.OrderCreateRequestDetails> orders = request.getOrdersList();
+        Service.OrderCreateResult[] results = new Service.OrderCreateResult[orders.size()];
+
+        Map<String, List<Integer>> indicesBySymbol = new HashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            indicesBySymbol.computeIfAbsent(orders.get(i).getProductSymbol(), symbol -> new ArrayList<>()).add(i);
+        }
+
+        OrderRef[] clientOrders = new OrderRef[orders.size()];
+        List<CompletableFuture<?>> groups = new ArrayList<>();
+        indicesBySymbol.forEach((symbol, indices) -> {
+            SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(symbol);
+            if (matchingEngine == null) {
+                indices.forEach(i -> results[i] = rejected("Product does not exist"));
+                return;
+            }
+
+            int productId = matchingEngineProvider.productSymbolToId(symbol);
+            List<Integer> toCreate = new ArrayList<>();
+            for (int i : indices) {
+                Service.OrderCreateRequestDetails order = orders.get(i);
+                if (order.getClientOrderId() == 0) {
+                    toCreate.add(i);
+                    continue;
+                }
+                String participant = participantOf(order);
+                if (participant == null) {
+                    results[i] = rejected("Client order ids need a participant id");
+                    continue;
+                }
+                OrderRef clientOrder = new OrderRef(productId, participant, order.getClientOrderId());
+                OrderRef sent = clientOrderIds.register(clientOrder);
+                if (sent == null) {
+                    clientOrders[i] = clientOrder;
+                    toCreate.add(i);
+                } else if (sent.productId != productId) {
+                    results[i] = rejected("Client order id is in use on another product");
+                } else {
+                    int index = i;
+                    groups.add(sent.created.handle((orderId, error) -> results[index] = error == null ? created(orderId)
+                                                                                                       : rejected(reasonOf(causeOf(error)))));
+                }
+            }
+            if (toCreate.isEmpty()) {
+                return;
+            }
+
+            groups.add(submitReplicated(matchingEngine, engine -> {
+                for (int i : toCreate) {
+                    results[i] = createOrder(engine, orders.get(i), clientOrders[i]);
+                }
+                return null;
+            }).whenComplete((ignored, error) -> {
+                for (int i : toCreate) {
+                    if (clientOrders[i] != null) {
+                        completeClientOrder(clientOrders[i], error == null ? results[i] : null, error);
+                    }
+                }
+            }));
+        });
+
+        CompletableFuture.allOf(groups.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            if (error != null) {
+                responseObserver.onError(causeOf(error));
+                return;
+            }
+
+            responseObserver.onNext(Service.OrderCreateBatchResponse.newBuilder().addAllResults(Arrays.asList(results)).build());
+            responseObserver.onCompleted();
+        });
+    }
+
+    // The whole replacement runs as one command on the engine's sequencer, so no other order sees half of it
+    @Override
+    public void massQuote(Service.MassQuoteRequest request, StreamObserver<Service.MassQuoteResponse> responseObserver) {
+        if (standby) {
+            responseObserver.onError(standbyError());
+            return;
+        }
+        String productSymbol = request.getProductSymbol();
+        SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(productSymbol);
 
         if (matchingEngine == null) {
             LOGGER.error("Product does not exist: Matching Engine == null");
             responseObserver.onError(new IllegalArgumentException("Product does not exist"));
-        } else {
-            long quantity = request.getQuantity();
-            double price = request.getPrice();
-            BuySell buySell = BuySell.valueOf(request.getBuySell().toString());
-            Expiry expiry = Expiry.valueOf(request.getExpiry().toString());
-            int orderId = matchingEngine.createOrder(quantity,
-                                                     Math.round(price * 1000),
-                                                     buySell,
-                                                     expiry);
+            return;
+        }
 
-            Order order = new Order(orderId, productSymbol, price, quantity, 0, expiry, buySell); // TODO adjust quantity filled
-            orderStore.addOrderIdToProduct(orderId, productId);
-            orderStore.addOrder(order);
+        int bidCount = request.getBidsCount();
+        int askCount = request.getAsksCount();
+        long[] bidPrices = new long[bidCount];
+        long[] bidQuantities = new long[bidCount];
+        long[] askPrices = new long[askCount];
+        long[] askQuantities = new long[askCount];
+        for (int i = 0; i < bidCount; i++) {
+            bidPrices[i] = Math.round(request.getBids(i).getPrice() * 1000);
+            bidQuantities[i] = request.getBids(i).getQuantity();
+        }
+        for (int i = 0; i < askCount; i++) {
+            askPrices[i] = Math.round(request.getAsks(i).getPrice() * 1000);
+            askQuantities[i] = request.getAsks(i).getQuantity();
+        }
+
+        submitReplicated(matchingEngine, engine -> {
+            long[] quoteIds = createRecordedQuotes(engine, request, bidPrices, bidQuantities, askPrices, askQuantities);
+            return quoteResponse(quoteIds, request.getBidsCount());
+        }).whenComplete((response, error) -> {
+            if (error != null) {
+                responseObserver.onError(causeOf(error));
+                return;
+            }
+
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        });
+    }
 
-            responseObserver.onNext(Int32Value.of(orderId));
+    private static Service.MassQuoteResponse quoteResponse(long[] quoteIds, int bidCount) {
+        Service.MassQuoteResponse.Builder response = Service.MassQuoteResponse.newBuilder();
+        for (int i = 0; i < quoteIds.length; i++) {
+            if (i < bidCount) {
+                response.addBidOrderIds(quoteIds[i]);
+            } else {
+                response.addAskOrderIds(quoteIds[i]);
+            }
         }
+        return response.build();
+    }
 
-        responseObserver.onCompleted();
+    // Runs on the engine's sequencer thread. Quotes are stored from their ACCEPTED events, like orders in
+    // createRecordedOrder.
+    private long[] createRecordedQuotes(MatchingEngineImpl engine, Service.MassQuoteRequest request, long[] bidPrices, long[] bidQuantities,
+                                        long[] askPrices, long[] askQuantities) {
+        int[] quoteIds = engine.massQuote(request.getParticipantId(), bidPrices, bidQuantities, askPrices, askQuantities);
+        long[] orderIds = new long[quoteIds.length];
+        for (int i = 0; i < quoteIds.length; i++) {
+            orderIds[i] = engine.toOrderId(quoteIds[i]);
+        }
+        return orderIds;
     }
 
-    @Override
-    public void orderCancelRequest(Int32Value request, StreamObserver<BoolValue> responseObserver) {
-        int orderId = request.getValue();
-        int productId = orderStore.getProductId(orderId);
+    // Runs on the engine's sequencer thread as part of a batch. Any failure rejects just this order, so the batch still
+    // answers with one result per order.
+    private Service.OrderCreateResult createOrder(MatchingEngineImpl matchingEngine, Service.OrderCreateRequestDetails request, OrderRef clientOrder) {
+        try {
+            long orderId = createRecordedOrder(matchingEngine,
+                                               request.getQuantity(),
+                                               Math.round(request.getPrice() * 1000),
+                                               BuySell.valueOf(request.getBuySell().toString()),
+                                               Expiry.valueOf(request.getExpiry().toString()),
+                                               participantOf(request),
+                                               clientOrder);
+            return created(orderId);
+        } catch (RuntimeException e) {
+            return rejected(reasonOf(e));
+        }
+    }
 
-        MatchingEngineImpl matchingEngine = matchingEngineProvider.getMatchingEngine(productId);
+    // Orders sent without a participant get no execution reports
+    private static String participantOf(Service.OrderCreateRequestDetails request) {
+        return request.getParticipantId().isEmpty() ? null : request.getParticipantId();
+    }
+
+    // Once a batch order's group is done, in SYNC replication after the standby has it. A rejected order frees its
+    // client order id, so it can be sent again, and a resubmission waiting on it is rejected the same way.
+    private void completeClientOrder(OrderRef clientOrder, Service.OrderCreateResult result, Throwable error) {
+        if (result != null && result.getOrderId() != 0) {
+            clientOrder.created.complete(result.getOrderId());
+            return;
+        }
+        clientOrderIds.remove(clientOrder);
+        clientOrder.created.completeExceptionally(result != null ? new IllegalArgumentException(result.getRejectReason()) : causeOf(error));
+    }
+
+    private static Service.OrderCreateResult created(long orderId) {
+        return Service.OrderCreateResult.newBuilder().setOrderId(orderId).build();
+    }
+
+    // The exception's own name stands in when it has no message
+    private static String reasonOf(Throwable error) {
+        return error.getMessage() == null ? error.toString() : error.getMessage();
+    }
+
+    private static Service.OrderCreateResult rejected(String reason) {
+        return Service.OrderCreateResult.newBuilder().setRejectReason(reason).build();
+    }
+
+    // Runs on the engine's sequencer thread. The order store takes the order from its ACCEPTED event on the event bus,
+    // ahead of its fills, so nothing here locks the store. A clientOrder, null for none, is given the id the engine is
+    // about to hand out, taken back if the engine rejects the order, and has its client order id journaled with it.
+    private long createRecordedOrder(MatchingEngineImpl engine, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                     OrderRef clientOrder) {
+        if (clientOrder == null) {
+            return engine.toOrderId(engine.createOrder(quantity, price, buySell, expiry, participant, 0));
+        }
+        clientOrderIds.assign(clientOrder, engine.toOrderId(engine.getNextOrderId()));
+        try {
+            return engine.toOrderId(engine.createOrder(quantity, price, buySell, expiry, participant, clientOrder.clientOrderId));
+        } catch (RuntimeException e) {
+            clientOrderIds.unassign(clientOrder);
+            throw e;
+        }
+    }
+
+    // The engine an order id came from, read off the id itself, see PartitionedIdProvider. An id no engine handed out
+    // either names no product or is not resting in its engine.
+    private SequencedMatchingEngine engineOf(long orderId) {
+        return matchingEngineProvider.getSequencedMatchingEngine(PartitionedIdProvider.productOf(orderId));
+    }
+
+    // Completes with the cancelled order's id, 0 when it was not resting
+    CompletableFuture<Long> submitCancel(Service.OrderCancelRequest request) {
+        long clientOrderId = request.getClientOrderId();
+        if (clientOrderId == 0) {
+            long orderId = request.getOrderId();
+            return submitCancel(orderId).thenApply(cancelled -> cancelled ? orderId : 0L);
+        }
+        if (standby) {
+            return standbyRejection();
+        }
+
+        OrderRef order = clientOrderIds.get(request.getParticipantId(), clientOrderId);
+        SequencedMatchingEngine matchingEngine = order == null ? null : matchingEngineProvider.getSequencedMatchingEngine(order.productId);
+
+        if (matchingEngine == null) {
+            LOGGER.error("Client order ID does not exist: {} {}", request.getParticipantId(), clientOrderId);
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Order ID does not exist"));
+        }
+
+        return submitReplicated(matchingEngine, engine -> {
+            long orderId = order.orderId;
+            return orderId != 0 && engine.cancelOrder(PartitionedIdProvider.engineOrderIdOf(orderId)) ? orderId : 0L;
+        });
+    }
+
+    CompletableFuture<Boolean> submitCancel(long orderId) {
+        if (standby) {
+            return standbyRejection();
+        }
+        SequencedMatchingEngine matchingEngine = engineOf(orderId);
 
         if (matchingEngine == null) {
-            responseObserver.onError(new IllegalArgumentException("Order ID does not exist"));
             LOGGER.error("Order ID does not exist: Matching Engine == null");
-            return;
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Order ID does not exist"));
         }
 
-        responseObserver.onNext(BoolValue.of(matchingEngine.cancelOrder(orderId)));
+        return submitReplicated(matchingEngine, engine -> engine.cancelOrder(PartitionedIdProvider.engineOrderIdOf(orderId)));
+    }
+
+    // Completes with the amended order's id, 0 when it is no longer resting. The stored order follows the amend through
+    // the event bus.
+    CompletableFuture<Long> submitAmend(Service.OrderAmendRequest request) {
+        if (standby) {
+            return standbyRejection();
+        }
+        OrderRef order = request.getClientOrderId() == 0
+                ? new OrderRef(request.getOrderId())
+                : clientOrderIds.get(request.getParticipantId(), request.getClientOrderId());
+        SequencedMatchingEngine matchingEngine = order == null ? null : matchingEngineProvider.getSequencedMatchingEngine(order.productId);
+
+        if (matchingEngine == null) {
+            LOGGER.error("Order ID does not exist: Matching Engine == null");
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Order ID does not exist"));
+        }
+
+        return submitReplicated(matchingEngine, engine -> {
+            long orderId = order.orderId;
+            if (orderId == 0 || !engine.amendOrder(PartitionedIdProvider.engineOrderIdOf(orderId), request.getQuantity(),
+                                                   Math.round(request.getPrice() * 1000))) {
+                return 0L;
+            }
+            return orderId;
+        });
+    }
+
+    // Runs task on the engine's sequencer thread. In SYNC replication its result is held back until the standby holds
+    // the last input task journaled, read off the engine right after the task so inputs other engines journal meanwhile
+    // don't hold it up. A task that journals nothing waits for the engine's previous input, which is harmless.
+    private <T> CompletableFuture<T> submitReplicated(SequencedMatchingEngine matchingEngine, Function<MatchingEngineImpl, T> task) {
+        ReplicationServer server = replicationServer;
+        if (server == null || server.getMode() == ReplicationMode.ASYNC) {
+            return matchingEngine.submit(task);
+        }
+        return matchingEngine.submit(engine -> new Applied<>(task.apply(engine), engine.getLastJournalSequence()))
+                             .thenCompose(applied -> server.whenReplicated(applied.journalSequence()).thenApply(ignored -> applied.result()));
+    }
+
+    private record Applied<T>(T result, long journalSequence) {
+    }
+
+    private static <T> CompletableFuture<T> standbyRejection() {
+        return CompletableFuture.failedFuture(standbyError());
+    }
+
+    private static IllegalStateException standbyError() {
+        return new IllegalStateException("Standby does not take orders");
+    }
+
+    // Captures every book, the order store and client order ids as of the last journaled input, with the engines paused
+    // only while their state is copied out. Files are written afterwards while orders flow. Returns the journal sequence
+    // covered.
+    public long snapshot(Path snapshotDirectory) throws IOException {
+        if (standby) {
+            throw new IllegalStateException("Standby takes no snapshots, its journal is the primary's");
+        }
+        Snapshot snapshot = matchingEngineProvider.whilePaused(() -> {
+            ByteArrayOutputStream orders = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(orders)) {
+                orderStore.writeSnapshot(out);
+                clientOrderIds.writeSnapshot(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Snapshot(matchingEngineProvider.getJournalSequence(), matchingEngineProvider.writeBookSnapshots(), orders.toByteArray());
+        });
+        SnapshotStore.write(snapshotDirectory, snapshot);
+        return snapshot.journalSequence();
+    }
+
+    public long recover(Path journalDirectory) throws IOException {
+        return recover(journalDirectory, null);
+    }
+
+    // Rebuilds every book, the order store and client order ids, before the server takes any orders. The latest snapshot
+    // in snapshotDirectory is loaded first, then the journal after it is replayed. Replayed inputs go straight to the
+    // engines and are recorded the same way live ones are, the order store follows through the event bus and has caught
+    // up by the time this returns. Returns the last sequence recovered.
+    public long recover(Path journalDirectory, Path snapshotDirectory) throws IOException {
+        long snapshotSequence = 0;
+        Snapshot snapshot = snapshotDirectory == null ? null : SnapshotStore.readLatest(snapshotDirectory);
+        if (snapshot != null) {
+            matchingEngineProvider.readBookSnapshots(snapshot.books());
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot.orders()))) {
+                orderStore.readSnapshot(in);
+                clientOrderIds.readSnapshot(in);
+            }
+            snapshotSequence = snapshot.journalSequence();
+        }
+
+        long recovered = JournalReader.replay(journalDirectory, snapshotSequence, new InputApplier() {
+            @Override
+            void apply(int productId, Consumer<MatchingEngineImpl> input) {
+                input.accept(matchingEngineProvider.getMatchingEngine(productId));
+            }
+        });
+        return matchingEngineProvider.whilePaused(() -> recovered);
+    }
+
+    // Sends this server's inputs to the standby connected to server, see submitReplicated
+    public void replicateTo(ReplicationServer server) {
+        this.replicationServer = server;
+    }
+
+    // Makes this the standby of the primary at host:port, after recover has brought it up to journal. Orders are
+    // refused, the primary's inputs are journaled and applied through the sequencers, so books, market data and order
+    // queries follow the primary. Once the primary has been gone for failoverMillis this takes over as primary.
+    public void follow(String host, int port, Journal journal, long failoverMillis) {
+        standby = true;
+        follower = new ReplicationFollower(host, port, journal, new StandbyApplier(), failoverMillis, () -> takeOver(journal));
+        follower.start();
+    }
+
+    // Stops following, for shutdown. The journal is closed with it unless this has taken over and the engines own it.
+    public void stopFollowing(Journal journal) {
+        ReplicationFollower current = follower;
+        if (current != null) {
+            current.close();
+            if (standby) {
+                journal.close();
+            }
+        }
+    }
+
+    public boolean isStandby() {
+        return standby;
+    }
+
+    // Every input the follower applied has been acknowledged, so the engines are up to the journal's last sequence
+    private void takeOver(Journal journal) {
+        matchingEngineProvider.attachJournal(journal);
+        standby = false;
+        LOGGER.warn("Took over as primary at journal sequence {}", journal.getLastSequence());
+    }
+
+    @Override
+    public void replicationStatus(Service.EmptyQuery request, StreamObserver<Service.ReplicationStatusResponse> responseObserver) {
+        Service.ReplicationStatusResponse.Builder status = Service.ReplicationStatusResponse.newBuilder().setStandby(standby);
+        ReplicationFollower currentFollower = follower;
+        ReplicationServer server = replicationServer;
+        if (standby && currentFollower != null) {
+            status.setJournalSequence(currentFollower.getJournalSequence())
+                  .setReplicatedSequence(currentFollower.getAppliedSequence())
+                  .setConnected(currentFollower.isConnected());
+        } else {
+            status.setJournalSequence(matchingEngineProvider.getJournalSequence());
+            if (server != null) {
+                status.setReplicatedSequence(server.getReplicatedSequence())
+                      .setLag(server.getLag())
+                      .setConnected(server.isFollowerConnected());
+            }
+        }
+        responseObserver.onNext(status.build());
         responseObserver.onCompleted();
     }
 
+    // Applies journaled inputs to the engines and records them the same way live ones are, the order store follows
+    // through the event bus. apply runs an input against its product's engine.
+    private abstract class InputApplier implements JournalHandler {
+
+        abstract void apply(int productId, Consumer<MatchingEngineImpl> input);
+
+        @Override
+        public void onCreateOrder(long sequence, int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                  long clientOrderId) {
+            if (clientOrderId == 0 || participant == null) {
+                apply(productId, engine -> createRecordedOrder(engine, quantity, price, buySell, expiry, participant, null));
+                return;
+            }
+            // The participant can go on referring to the order by its client order id, here and after a takeover
+            OrderRef order = new OrderRef(productId, participant, clientOrderId);
+            apply(productId, engine -> {
+                clientOrderIds.restore(order);
+                try {
+                    order.created.complete(createRecordedOrder(engine, quantity, price, buySell, expiry, participant, order));
+                } catch (RuntimeException e) {
+                    clientOrderIds.remove(order);
+                    throw e;
+                }
+            });
+        }
+
+        @Override
+        public void onCancelOrder(long sequence, int productId, int orderId) {
+            apply(productId, engine -> engine.cancelOrder(orderId));
+        }
+
+        @Override
+        public void onAmendOrder(long sequence, int productId, int orderId, long quantity, long price) {
+            apply(productId, engine -> engine.amendOrder(orderId, quantity, price));
+        }
+
+        @Override
+        public void onMassQuote(long sequence, int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices,
+                                long[] askQuantities) {
+            Service.MassQuoteRequest.Builder request = Service.MassQuoteRequest.newBuilder()
+                    .setParticipantId(participant)
+                    .setProductSymbol(matchingEngineProvider.productIdToSymbol(productId));
+            for (int i = 0; i < bidPrices.length; i++) {
+                request.addBids(Service.QuoteLevel.newBuilder().setPrice(bidPrices[i] / 1000.0).setQuantity(bidQuantities[i]));
+            }
+            for (int i = 0; i < askPrices.length; i++) {
+                request.addAsks(Service.QuoteLevel.newBuilder().setPrice(askPrices[i] / 1000.0).setQuantity(askQuantities[i]));
+            }
+            apply(productId, engine -> createRecordedQuotes(engine, request.build(), bidPrices, bidQuantities, askPrices, askQuantities));
+        }
+    }
+
+    // A standby applies the primary's inputs on the sequencers, as it keeps serving market data and queries meanwhile.
+    // An input the engine rejects was rejected on the primary too, so it is only logged.
+    private class StandbyApplier extends InputApplier implements ReplicatedInputHandler {
+        private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        @Override
+        void apply(int productId, Consumer<MatchingEngineImpl> input) {
+            SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(productId);
+            if (matchingEngine == null) {
+                LOGGER.warn("Replicated input for unknown product {} skipped", productId);
+                return;
+            }
+            pending.add(matchingEngine.submit(engine -> {
+                input.accept(engine);
+                return null;
+            }));
+        }
+
+        @Override
+        public void awaitApplied() {
+            for (CompletableFuture<Void> applied : pending) {
+                try {
+                    applied.join();
+                } catch (CompletionException e) {
+                    LOGGER.warn("Replicated input failed to apply: {}", causeOf(e).getMessage());
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    // Dependent stages wrap a failure in CompletionException, callers want the original reason
+    static Throwable causeOf(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     @Override
     public void getTradingProductsRequest(Service.EmptyQuery request, StreamObserver<Service.TradingProductsList> responseObserver) {
         responseObserver.onNext(Service.TradingProductsList.newBuilder()
@@ -84,8 +678,16 @@ public class OrderServiceImpl extends OrderServiceGrpc.OrderServiceImplBase {
 
     @Override
     public void orderBookSubscriptionService(StringValue request, StreamObserver<Service.OrderBook> responseObserver) {
-        String symbol = request.getValue();
-        MatchingEngineImpl matchingEngine = matchingEngineProvider.getMatchingEngine(symbol);
+        subscribeToOrderBook(request.getValue(), responseObserver, 0);
+    }
+
+    @Override
+    public void conflatedOrderBookSubscription(Service.OrderBookSubscriptionRequest request, StreamObserver<Service.OrderBook> responseObserver) {
+        subscribeToOrderBook(request.getSymbol(), responseObserver, request.getConflationIntervalMs());
+    }
+
+    private void subscribeToOrderBook(String symbol, StreamObserver<Service.OrderBook> responseObserver, long conflationIntervalMillis) {
+        SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(symbol);
 
         if (matchingEngine == null) {
             LOGGER.error("Matching Engine is null for provided product with symbol: {}", symbol);
@@ -93,17 +695,80 @@ public class OrderServiceImpl extends OrderServiceGrpc.OrderServiceImplBase {
             return;
         }
 
-        // Initial return of order book in current state then listen for changes
-        responseObserver.onNext(matchingEngine.getInitialOrderBookForSubscriber());
-
-        matchingEngine.addOrderBookListener(responseObserver);
-
         ServerCallStreamObserver<Service.OrderBook> serverObserver = (ServerCallStreamObserver<Service.OrderBook>) responseObserver;
+        ConflatingSubscriber<Service.OrderBook> subscriber = new ConflatingSubscriber<>(responseObserver, conflationIntervalMillis);
 
         serverObserver.setOnCancelHandler(() -> {
-            matchingEngine.removeOrderBookListener(responseObserver);
+            matchingEngine.submit(engine -> {
+                engine.removeOrderBookListener(responseObserver);
+                return null;
+            });
             LOGGER.info("Client disconnected, removed from observers: {}", symbol);
         });
+
+        // Initial return of order book in current state then listen for changes, taken on the sequencer thread so no
+        // update can land between the two
+        matchingEngine.submit(engine -> {
+            if (!serverObserver.isCancelled()) {
+                engine.addOrderBookListener(subscriber);
+            }
+            return null;
+        });
+    }
+
+    // Snapshot then deltas, see OrderBookDeltaUpdate
+    @Override
+    public void orderBookDeltaSubscription(StringValue request, StreamObserver<Service.OrderBookDeltaUpdate> responseObserver) {
+        String symbol = request.getValue();
+        SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(symbol);
+
+        if (matchingEngine == null) {
+            LOGGER.error("Matching Engine is null for provided product with symbol: {}", symbol);
+            responseObserver.onError(new IllegalArgumentException("No matching engine found for symbol: " + symbol));
+            return;
+        }
+
+        ServerCallStreamObserver<Service.OrderBookDeltaUpdate> serverObserver = (ServerCallStreamObserver<Service.OrderBookDeltaUpdate>) responseObserver;
+
+        ConflatingSubscriber<Service.OrderBookDeltaUpdate> subscriber = new ConflatingSubscriber<>(responseObserver);
+        subscriber.setResyncHandler(() -> matchingEngine.submit(engine -> {
+            engine.resyncOrderBookDeltaListener(responseObserver);
+            return null;
+        }));
+
+        serverObserver.setOnCancelHandler(() -> {
+            matchingEngine.submit(engine -> {
+                engine.removeOrderBookDeltaListener(responseObserver);
+                return null;
+            });
+            LOGGER.info("Client disconnected, removed from delta observers: {}", symbol);
+        });
+
+        matchingEngine.submit(engine -> {
+            if (!serverObserver.isCancelled()) {
+                engine.addOrderBookDeltaListener(subscriber);
+            }
+            return null;
+        });
+    }
+
+    // Pushes every execution event on participant's orders as the engines produce them, until the client cancels or
+    // falls too far behind to keep up, see ExecutionReportStream
+    @Override
+    public void executionReports(Service.ExecutionReportsRequest request, StreamObserver<Service.ExecutionReport> responseObserver) {
+        String participant = request.getParticipantId();
+        if (participant.isEmpty()) {
+            responseObserver.onError(new IllegalArgumentException("Participant id is required"));
+            return;
+        }
+
+        ExecutionReportRouter router = matchingEngineProvider.getExecutionReportRouter();
+        ServerCallStreamObserver<Service.ExecutionReport> serverObserver = (ServerCallStreamObserver<Service.ExecutionReport>) responseObserver;
+        serverObserver.setOnCancelHandler(() -> {
+            router.removeObserver(participant, responseObserver);
+            LOGGER.info("Client disconnected, removed execution report stream for: {}", participant);
+        });
+        router.addObserver(participant, responseObserver);
     }
 
     @Override
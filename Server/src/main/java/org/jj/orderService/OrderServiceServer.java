@@ -3,19 +3,40 @@ package org.jj.orderService;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
 import org.jetbrains.annotations.VisibleForTesting;
+import org.jj.journal.Journal;
 import org.jj.matchingEngine.OrderStore;
 import org.jj.providers.MatchingEngineProvider;
 import org.jj.product.ProductStore;
 import org.jj.providers.IntIdProvider;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.replication.ReplicationFollower;
+import org.jj.replication.ReplicationMode;
+import org.jj.replication.ReplicationServer;
+import org.jj.sequencer.WaitStrategy;
 import io.grpc.protobuf.services.ProtoReflectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class OrderServiceServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderServiceServer.class);
+
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 60;
 
     private final int port;
     private final Server server;
+    private final MatchingEngineProvider matchingEngineProvider;
+    private ScheduledExecutorService snapshotter;
+    private OrderServiceImpl orderService;
+    private ReplicationServer replicationServer;
+    private Journal standbyJournal;
 
     public OrderServiceServer(int port) {
         this.port = port;
@@ -24,8 +45,47 @@ public class OrderServiceServer {
         productStoreWithProducts.addProduct("Jensen Stock", "JJ");
         productStoreWithProducts.addProduct("Secondary Stock", "NOOO");
 
+        // -DwaitStrategy=busy-spin|yield|park picks how idle engine threads wait for orders
+        // -DengineShards=n sets how many engine threads the products are spread over, one per core by default
+        // -Djournal=dir journals every accepted input to dir and rebuilds the books from it on start
+        // -Dsnapshots=dir with a journal snapshots every book to dir once per -DsnapshotIntervalSeconds, 60 by default,
+        // so a start only replays the journal after the latest snapshot
+        // -DreplicationPort=n with a journal streams it to a standby connecting on port n, -Dreplication=sync|async,
+        // sync by default, says whether responses wait for the standby to acknowledge the input
+        // -DfollowPrimary=host:port with a journal runs as the standby of that primary, taking over once it has been gone
+        // for -DfailoverMillis, 2000 by default
+        String waitStrategy = System.getProperty("waitStrategy", "park");
+        int engineShards = Integer.getInteger("engineShards", Runtime.getRuntime().availableProcessors());
+        this.matchingEngineProvider = new MatchingEngineProvider(productStoreWithProducts,
+                                                                 product -> DenseOrderBookSide::new,
+                                                                 () -> WaitStrategy.fromName(waitStrategy),
+                                                                 engineShards);
+
+        OrderServiceImpl orderService = new OrderServiceImpl(matchingEngineProvider, new OrderStore());
+        this.orderService = orderService;
+        String journalDirectory = System.getProperty("journal");
+        String snapshotDirectory = System.getProperty("snapshots");
+        String primary = System.getProperty("followPrimary");
+        Integer replicationPort = Integer.getInteger("replicationPort");
+        if ((primary != null || replicationPort != null) && journalDirectory == null) {
+            throw new IllegalArgumentException("Replication needs a journal, set -Djournal");
+        }
+        if (primary != null) {
+            follow(orderService, Path.of(journalDirectory), snapshotDirectory == null ? null : Path.of(snapshotDirectory), primary,
+                   Long.getLong("failoverMillis", ReplicationFollower.DEFAULT_FAILOVER_MILLIS));
+        } else if (journalDirectory != null) {
+            Journal journal = openJournal(orderService, Path.of(journalDirectory), snapshotDirectory == null ? null : Path.of(snapshotDirectory));
+            if (replicationPort != null) {
+                replicate(orderService, journal, Path.of(journalDirectory), replicationPort,
+                          ReplicationMode.fromName(System.getProperty("replication", "sync")));
+            }
+        }
+        if (journalDirectory != null && snapshotDirectory != null) {
+            scheduleSnapshots(orderService, Path.of(snapshotDirectory), Long.getLong("snapshotIntervalSeconds", DEFAULT_SNAPSHOT_INTERVAL_SECONDS));
+        }
+
         this.server = ServerBuilder.forPort(this.port)
-                .addService(new OrderServiceImpl(new MatchingEngineProvider(productStoreWithProducts), new OrderStore()))
+                .addService(EncodeOnceMarshaller.bindMarketData(orderService))
                 .addService(ProtoReflectionService.newInstance()) // Enable reflection
                 .build();
     }
@@ -33,11 +93,77 @@ public class OrderServiceServer {
     @VisibleForTesting
     public OrderServiceServer(int port, MatchingEngineProvider matchingEngineProvider, OrderStore orderStore) {
         this.port = port;
+        this.matchingEngineProvider = matchingEngineProvider;
+        this.server = ServerBuilder.forPort(this.port)
+                .addService(EncodeOnceMarshaller.bindMarketData(new OrderServiceImpl(matchingEngineProvider, orderStore)))
+                .build();
+    }
+
+    // Replays whatever journalDirectory already holds, then journals to it from the next sequence on
+    @VisibleForTesting
+    public OrderServiceServer(int port, MatchingEngineProvider matchingEngineProvider, OrderStore orderStore, Path journalDirectory) {
+        this.port = port;
+        this.matchingEngineProvider = matchingEngineProvider;
+        OrderServiceImpl orderService = new OrderServiceImpl(matchingEngineProvider, orderStore);
+        openJournal(orderService, journalDirectory, null);
         this.server = ServerBuilder.forPort(this.port)
-                .addService(new OrderServiceImpl(matchingEngineProvider, orderStore))
+                .addService(EncodeOnceMarshaller.bindMarketData(orderService))
                 .build();
     }
 
+    private Journal openJournal(OrderServiceImpl orderService, Path journalDirectory, Path snapshotDirectory) {
+        Journal journal = recover(orderService, journalDirectory, snapshotDirectory);
+        matchingEngineProvider.attachJournal(journal);
+        return journal;
+    }
+
+    private Journal recover(OrderServiceImpl orderService, Path journalDirectory, Path snapshotDirectory) {
+        try {
+            long lastSequence = orderService.recover(journalDirectory, snapshotDirectory);
+            return new Journal(journalDirectory, lastSequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal in " + journalDirectory, e);
+        }
+    }
+
+    private void replicate(OrderServiceImpl orderService, Journal journal, Path journalDirectory, int replicationPort, ReplicationMode mode) {
+        try {
+            replicationServer = new ReplicationServer(replicationPort, journal, journalDirectory, mode);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen for a standby on port " + replicationPort, e);
+        }
+        replicationServer.start();
+        orderService.replicateTo(replicationServer);
+    }
+
+    // The standby catches up from its own journal first, the primary then only sends what it is missing
+    private void follow(OrderServiceImpl orderService, Path journalDirectory, Path snapshotDirectory, String primary, long failoverMillis) {
+        int separator = primary.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Primary must be host:port, got " + primary);
+        }
+        standbyJournal = recover(orderService, journalDirectory, snapshotDirectory);
+        orderService.follow(primary.substring(0, separator), Integer.parseInt(primary.substring(separator + 1)), standbyJournal, failoverMillis);
+    }
+
+    private void scheduleSnapshots(OrderServiceImpl orderService, Path snapshotDirectory, long intervalSeconds) {
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            if (orderService.isStandby()) {
+                return;
+            }
+            try {
+                orderService.snapshot(snapshotDirectory);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Snapshot to {} failed", snapshotDirectory, e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
     public void start() throws IOException {
         server.start();
         System.out.println("Server started, listening on " + port);
@@ -52,6 +178,16 @@ public class OrderServiceServer {
         if (server != null) {
             server.shutdown();
         }
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+        }
+        if (replicationServer != null) {
+            replicationServer.close();
+        }
+        if (standbyJournal != null) {
+            orderService.stopFollowing(standbyJournal);
+        }
+        matchingEngineProvider.close();
     }
 
     public void blockUntilShutdown() throws InterruptedException {
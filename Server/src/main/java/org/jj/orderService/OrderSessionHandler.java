@@ -0,0 +1,117 @@
+package org.jj.orderService;
+
+import io.grpc.stub.StreamObserver;
+import org.jj.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One client's order entry stream. Requests are handed to the engines as they arrive without waiting for earlier
+// ones, acks and rejects go back on the same stream as each engine finishes, tagged with the request's correlation id.
+// Responses come from several sequencer threads, so writes to the stream are serialised here.
+class OrderSessionHandler implements StreamObserver<Service.OrderSessionRequest> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderSessionHandler.class);
+
+    private final OrderServiceImpl orderService;
+    private final StreamObserver<Service.OrderSessionResponse> responseObserver;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private volatile boolean requestsCompleted;
+    private boolean closed;
+
+    OrderSessionHandler(OrderServiceImpl orderService, StreamObserver<Service.OrderSessionResponse> responseObserver) {
+        this.orderService = orderService;
+        this.responseObserver = responseObserver;
+    }
+
+    @Override
+    public void onNext(Service.OrderSessionRequest request) {
+        long correlationId = request.getCorrelationId();
+        outstanding.incrementAndGet();
+
+        switch (request.getRequestCase()) {
+            case NEW_ORDER -> orderService.submitOrder(request.getNewOrder()).whenComplete((orderId, error) -> {
+                if (error != null) {
+                    reject(correlationId, OrderServiceImpl.causeOf(error).getMessage());
+                } else {
+                    ack(correlationId, orderId);
+                }
+            });
+            // An order referred to by client order id is acked with the engine's id for it
+            case CANCEL -> orderService.submitCancel(request.getCancel()).whenComplete((orderId, error) -> {
+                if (error != null) {
+                    reject(correlationId, OrderServiceImpl.causeOf(error).getMessage());
+                } else if (orderId == 0) {
+                    reject(correlationId, "Order is not resting");
+                } else {
+                    ack(correlationId, orderId);
+                }
+            });
+            case AMEND -> orderService.submitAmend(request.getAmend()).whenComplete((orderId, error) -> {
+                if (error != null) {
+                    reject(correlationId, OrderServiceImpl.causeOf(error).getMessage());
+                } else if (orderId == 0) {
+                    reject(correlationId, "Order is not resting");
+                } else {
+                    ack(correlationId, orderId);
+                }
+            });
+            case REQUEST_NOT_SET -> reject(correlationId, "Empty request");
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        LOGGER.warn("Order session closed by client: {}", t.getMessage());
+        synchronized (this) {
+            closed = true;
+        }
+    }
+
+    // The stream is completed once every request received so far has been answered
+    @Override
+    public void onCompleted() {
+        requestsCompleted = true;
+        if (outstanding.get() == 0) {
+            complete();
+        }
+    }
+
+    private void ack(long correlationId, long orderId) {
+        respond(Service.OrderSessionResponse.newBuilder()
+                                            .setCorrelationId(correlationId)
+                                            .setAck(Service.OrderAck.newBuilder().setOrderId(orderId))
+                                            .build());
+    }
+
+    private void reject(long correlationId, String reason) {
+        respond(Service.OrderSessionResponse.newBuilder()
+                                            .setCorrelationId(correlationId)
+                                            .setReject(Service.OrderReject.newBuilder().setReason(reason == null ? "Rejected" : reason))
+                                            .build());
+    }
+
+    private void respond(Service.OrderSessionResponse response) {
+        synchronized (this) {
+            if (!closed) {
+                try {
+                    responseObserver.onNext(response);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Order session stream broken, dropping further responses: {}", e.getMessage());
+                    closed = true;
+                }
+            }
+        }
+        if (outstanding.decrementAndGet() == 0 && requestsCompleted) {
+            complete();
+        }
+    }
+
+    private synchronized void complete() {
+        if (!closed) {
+            closed = true;
+            responseObserver.onCompleted();
+        }
+    }
+}
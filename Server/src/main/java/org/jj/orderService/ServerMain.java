@@ -3,7 +3,8 @@ package org.jj.orderService;
 public class ServerMain {
     public static void main(String[] args) {
         try {
-            OrderServiceServer server = new OrderServiceServer(50051);
+            // -Dport=n serves on port n, a standby on the same box needs one of its own
+            OrderServiceServer server = new OrderServiceServer(Integer.getInteger("port", 50051));
             server.start();
             server.blockUntilShutdown();
         } catch (Exception e) {
@@ -2,4 +2,14 @@ package org.jj.providers;
 
 public interface IdProvider {
     int generateId();
+
+    // The id generateId hands out next, without handing it out. Ids follow on from each other, the one after that is
+    // this plus one.
+    int peekNextId();
+
+    // The last id handed out, 0 before the first
+    int getLastId();
+
+    // Carries on from lastId, for an engine restored from a snapshot
+    void setLastId(int lastId);
 }
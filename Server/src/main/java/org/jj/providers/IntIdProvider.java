@@ -1,5 +1,6 @@
 package org.jj.providers;
 
+// Counts up from 1. Not thread safe, whoever uses one keeps it to a single thread.
 public class IntIdProvider implements IdProvider {
     private int lastId = 0;
 
@@ -7,4 +8,19 @@ public class IntIdProvider implements IdProvider {
     public int generateId() {
         return ++lastId;
     }
+
+    @Override
+    public int peekNextId() {
+        return lastId + 1;
+    }
+
+    @Override
+    public int getLastId() {
+        return lastId;
+    }
+
+    @Override
+    public void setLastId(int lastId) {
+        this.lastId = lastId;
+    }
 }
@@ -1,33 +1,114 @@
 package org.jj.providers;
 
 import org.jetbrains.annotations.VisibleForTesting;
+import org.jj.journal.Journal;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.matchingEngine.EngineEventHandler;
+import org.jj.matchingEngine.ExecutionReportRouter;
 import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.matchingEngine.OrderBookSideFactory;
 import org.jj.product.Product;
 import org.jj.product.ProductStore;
+import org.jj.sequencer.EngineEventBus;
+import org.jj.sequencer.EngineSequencer;
+import org.jj.sequencer.ParkingWaitStrategy;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.sequencer.WaitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
-public class MatchingEngineProvider {
+// Engines are spread over a fixed pool of shards, each shard a sequencer thread that is the only writer to every book
+// assigned to it. gRPC threads reach an engine through getSequencedMatchingEngine. Every engine's output goes onto one
+// event bus, whose thread builds and sends market data and routes execution reports, and which other consumers can
+// join with addEventConsumer.
+public class MatchingEngineProvider implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MatchingEngineProvider.class);
 
-    private final Map<Product, MatchingEngineImpl> productToMatchingEngine = new HashMap<>();
-    private final ProductStore productStore;
+    private static final long DRAIN_PARK_NANOS = 100_000;
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
 
+    private final Map<Product, SequencedMatchingEngine> productToMatchingEngine = new ConcurrentHashMap<>();
+    private final ProductStore productStore;
+    private final Function<Product, OrderBookSideFactory> orderBookSideFactorySelector;
+    private final Supplier<WaitStrategy> waitStrategySupplier;
+    private final ToIntFunction<Product> shardSelector;
+    private final EngineSequencer[] shards;
+    private final EngineEventBus eventBus;
+    private final ExecutionReportRouter executionReportRouter = new ExecutionReportRouter();
+    private volatile Journal journal;
 
     public MatchingEngineProvider(ProductStore productStore) {
+        this(productStore, product -> DenseOrderBookSide::new);
+    }
+
+    // orderBookSideFactorySelector picks the book implementation each product's engine is built with
+    public MatchingEngineProvider(ProductStore productStore, Function<Product, OrderBookSideFactory> orderBookSideFactorySelector) {
+        this(productStore, orderBookSideFactorySelector, ParkingWaitStrategy::new);
+    }
+
+    // waitStrategySupplier gives each shard thread its own wait strategy, one shard per available core
+    public MatchingEngineProvider(ProductStore productStore, Function<Product, OrderBookSideFactory> orderBookSideFactorySelector, Supplier<WaitStrategy> waitStrategySupplier) {
+        this(productStore, orderBookSideFactorySelector, waitStrategySupplier, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Products are hashed onto shards by id
+    public MatchingEngineProvider(ProductStore productStore, Function<Product, OrderBookSideFactory> orderBookSideFactorySelector, Supplier<WaitStrategy> waitStrategySupplier, int shardCount) {
+        this(productStore, orderBookSideFactorySelector, waitStrategySupplier, shardCount, product -> Math.floorMod(product.getId(), shardCount));
+    }
+
+    // shardSelector returns the shard in [0, shardCount) a product's engine runs on
+    public MatchingEngineProvider(ProductStore productStore, Function<Product, OrderBookSideFactory> orderBookSideFactorySelector, Supplier<WaitStrategy> waitStrategySupplier, int shardCount, ToIntFunction<Product> shardSelector) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        // A product whose id can't go into its orders' ids is refused before anything starts
+        for (Product product : productStore.getAllProducts()) {
+            PartitionedIdProvider.checkProductId(product.getId());
+        }
         this.productStore = productStore;
+        this.orderBookSideFactorySelector = orderBookSideFactorySelector;
+        this.waitStrategySupplier = waitStrategySupplier;
+        this.shardSelector = shardSelector;
+        this.shards = new EngineSequencer[shardCount];
+        this.eventBus = new EngineEventBus("market-data-publisher", waitStrategySupplier.get());
+        this.eventBus.start();
 
         for (Product product : productStore.getAllProducts()) {
-            productToMatchingEngine.put(product, new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider()));
+            productToMatchingEngine.put(product, createMatchingEngine(product));
         }
     }
 
+    // Direct access to the engine, only safe from its sequencer thread or while no orders are flowing
     public MatchingEngineImpl getMatchingEngine(int productId) {
+        SequencedMatchingEngine sequencedMatchingEngine = getSequencedMatchingEngine(productId);
+        return sequencedMatchingEngine == null ? null : sequencedMatchingEngine.getMatchingEngine();
+    }
+
+    public MatchingEngineImpl getMatchingEngine(String symbol) {
+        SequencedMatchingEngine sequencedMatchingEngine = getSequencedMatchingEngine(symbol);
+        return sequencedMatchingEngine == null ? null : sequencedMatchingEngine.getMatchingEngine();
+    }
+
+    public SequencedMatchingEngine getSequencedMatchingEngine(int productId) {
         Product product = productStore.getProduct(productId);
 
         if (product == null) {
@@ -35,11 +116,10 @@ public class MatchingEngineProvider {
             return null;
         }
 
-        return productToMatchingEngine.computeIfAbsent(product,
-                key -> new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider()));
+        return productToMatchingEngine.computeIfAbsent(product, this::createMatchingEngine);
     }
 
-    public MatchingEngineImpl getMatchingEngine(String symbol) {
+    public SequencedMatchingEngine getSequencedMatchingEngine(String symbol) {
         Product product = productStore.getProduct(symbol);
 
         if (product == null) {
@@ -52,8 +132,7 @@ public class MatchingEngineProvider {
             return null;
         }
 
-        return productToMatchingEngine.computeIfAbsent(product,
-                key -> new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider()));
+        return productToMatchingEngine.computeIfAbsent(product, this::createMatchingEngine);
     }
 
     public List<String> getAllTradingProducts() {
@@ -64,4 +143,193 @@ public class MatchingEngineProvider {
         return productStore.getProductId(productSymbol);
     }
 
+    // null for an unknown product
+    public String productIdToSymbol(int productId) {
+        Product product = productStore.getProduct(productId);
+        return product == null ? null : product.getSymbol();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // The shard the product's engine runs on right now, -1 for an unknown product
+    public synchronized int getShardIndex(Product product) {
+        SequencedMatchingEngine sequencedMatchingEngine = productToMatchingEngine.get(product);
+        if (sequencedMatchingEngine == null) {
+            return -1;
+        }
+        EngineSequencer sequencer = sequencedMatchingEngine.getSequencer();
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i] == sequencer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Commands submitted so far per product, the difference between two samples gives each product's message rate
+    public Map<Product, Long> getMessageCounts() {
+        Map<Product, Long> messageCounts = new HashMap<>();
+        productToMatchingEngine.forEach((product, sequencedMatchingEngine) -> messageCounts.put(product, sequencedMatchingEngine.getMessageCount()));
+        return messageCounts;
+    }
+
+    // Moves a product's book to another shard while orders keep flowing, returns how long the book was paused in nanoseconds
+    public synchronized long migrate(int productId, int shard) {
+        SequencedMatchingEngine sequencedMatchingEngine = getSequencedMatchingEngine(productId);
+        if (sequencedMatchingEngine == null) {
+            throw new IllegalArgumentException("Product does not exist: " + productId);
+        }
+
+        long pauseNanos = sequencedMatchingEngine.moveTo(getShard(shard));
+        LOGGER.info("Moved product {} to shard {}, book paused for {} us", productId, shard, pauseNanos / 1_000);
+        return pauseNanos;
+    }
+
+    // Every engine, and any created later, records the inputs it accepts in journal from now on. Call once any replay
+    // has finished and before orders flow. The provider closes it.
+    public synchronized void attachJournal(Journal journal) {
+        this.journal = journal;
+        productToMatchingEngine.forEach((product, sequencedMatchingEngine) ->
+                sequencedMatchingEngine.getMatchingEngine().setInputJournal(journal.forProduct(product.getId())));
+    }
+
+    // The journal sequence of the last input any engine has taken, 0 without a journal
+    public long getJournalSequence() {
+        Journal current = journal;
+        return current == null ? 0 : current.getLastSequence();
+    }
+
+    // Runs action with every shard thread parked and everything the engines published read by every event bus consumer,
+    // so the books, the journal and what consumers keep are in one consistent state while it runs. Orders queue up in
+    // the meantime. Must not be called from a shard thread.
+    public synchronized <T> T whilePaused(Supplier<T> action) {
+        List<EngineSequencer> started = new ArrayList<>();
+        for (EngineSequencer shard : shards) {
+            if (shard != null) {
+                started.add(shard);
+            }
+        }
+
+        CountDownLatch paused = new CountDownLatch(started.size());
+        CountDownLatch resume = new CountDownLatch(1);
+        try {
+            for (EngineSequencer shard : started) {
+                shard.submit(null, engine -> {
+                    paused.countDown();
+                    awaitUninterruptibly(resume);
+                    return null;
+                });
+            }
+            awaitUninterruptibly(paused);
+            while (eventBus.getBacklog() > 0) {
+                LockSupport.parkNanos(DRAIN_PARK_NANOS);
+            }
+            return action.get();
+        } finally {
+            resume.countDown();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Every engine's state encoded by product id, each product on its own core where there are enough. Only consistent
+    // from inside whilePaused.
+    public Map<Integer, byte[]> writeBookSnapshots() {
+        Map<Integer, byte[]> books = new ConcurrentHashMap<>();
+        productToMatchingEngine.entrySet().parallelStream().forEach(entry -> {
+            Product product = entry.getKey();
+            SequencedMatchingEngine sequencedMatchingEngine = entry.getValue();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes, SNAPSHOT_BUFFER_SIZE))) {
+                sequencedMatchingEngine.getMatchingEngine().writeSnapshot(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            books.put(product.getId(), bytes.toByteArray());
+        });
+        return books;
+    }
+
+    // Loads what writeBookSnapshots encoded into the engines of a provider that has not taken any orders, each product's
+    // book on its own core where there are enough
+    public void readBookSnapshots(Map<Integer, byte[]> books) {
+        books.entrySet().parallelStream().forEach(book -> {
+            MatchingEngineImpl matchingEngine = getMatchingEngine(book.getKey());
+            if (matchingEngine == null) {
+                LOGGER.warn("Snapshot holds a book for unknown product {}, skipping it", book.getKey());
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(book.getValue()))) {
+                matchingEngine.readSnapshot(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        for (EngineSequencer shard : shards) {
+            if (shard != null) {
+                shard.close();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        eventBus.close();
+    }
+
+    public EngineEventBus getEventBus() {
+        return eventBus;
+    }
+
+    // handler reads every engine's output on its own thread, from now on
+    public void addEventConsumer(String name, EngineEventHandler handler) {
+        eventBus.addConsumer(name, waitStrategySupplier.get(), handler);
+    }
+
+    public ExecutionReportRouter getExecutionReportRouter() {
+        return executionReportRouter;
+    }
+
+    private SequencedMatchingEngine createMatchingEngine(Product product) {
+        MatchingEngineImpl matchingEngine = new MatchingEngineImpl(new SystemTimestampProvider(), new PartitionedIdProvider(product.getId()),
+                                                                   orderBookSideFactorySelector.apply(product),
+                                                                   eventBus, product.getId());
+        matchingEngine.setExecutionReportListener(executionReportRouter.forProduct(product.getSymbol()));
+        if (journal != null) {
+            matchingEngine.setInputJournal(journal.forProduct(product.getId()));
+        }
+        return new SequencedMatchingEngine(matchingEngine, getShard(shardSelector.applyAsInt(product)));
+    }
+
+    // Shards start on first use, so a provider with few products doesn't hold a thread per core
+    private synchronized EngineSequencer getShard(int index) {
+        if (index < 0 || index >= shards.length) {
+            LOGGER.error("Shard selector returned {} for {} shards", index, shards.length);
+            throw new IllegalArgumentException("Shard index out of range: " + index);
+        }
+        if (shards[index] == null) {
+            shards[index] = new EngineSequencer("engine-shard-" + index, waitStrategySupplier.get());
+            shards[index].start();
+        }
+        return shards[index];
+    }
+
 }
@@ -0,0 +1,65 @@
+package org.jj.providers;
+
+// Order ids for one product's engine. Inside the engine, and in its journal, an order is known by a count of that
+// engine's orders. Outside it an order id is 64 bits: the product id in the top half and the engine's count below.
+// Ids from different engines never collide, so no two engine threads share anything to hand them out, and productOf
+// gives the product of any id without a lookup. Only the engine's own thread calls generateId.
+//
+// Ids are not tied to the shard an engine runs on, books move between shards without their orders' ids changing.
+public class PartitionedIdProvider implements IdProvider {
+    public static final int MAX_ORDERS = Integer.MAX_VALUE;
+
+    private final int productId;
+    private int lastId = 0;
+
+    public PartitionedIdProvider(int productId) {
+        checkProductId(productId);
+        this.productId = productId;
+    }
+
+    // Product ids have to be positive ints to sit in the top half of an order id
+    public static void checkProductId(int productId) {
+        if (productId < 0) {
+            throw new IllegalArgumentException("Product id " + productId + " does not fit in an order id, it must not be negative");
+        }
+    }
+
+    public static long toOrderId(int productId, int engineOrderId) {
+        return (long) productId << Integer.SIZE | engineOrderId;
+    }
+
+    public static int productOf(long orderId) {
+        return (int) (orderId >>> Integer.SIZE);
+    }
+
+    // The id the product's engine knows the order by
+    public static int engineOrderIdOf(long orderId) {
+        return (int) orderId;
+    }
+
+    @Override
+    public int generateId() {
+        if (lastId == MAX_ORDERS) {
+            throw new IllegalStateException("Order ids for product " + productId + " are used up");
+        }
+        return ++lastId;
+    }
+
+    @Override
+    public int peekNextId() {
+        return lastId + 1;
+    }
+
+    @Override
+    public int getLastId() {
+        return lastId;
+    }
+
+    @Override
+    public void setLastId(int lastId) {
+        if (lastId < 0) {
+            throw new IllegalArgumentException("Order id " + lastId + " is not one of product " + productId);
+        }
+        this.lastId = lastId;
+    }
+}
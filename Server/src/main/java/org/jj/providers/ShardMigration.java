@@ -0,0 +1,7 @@
+package org.jj.providers;
+
+import org.jj.product.Product;
+
+// One book moved by ShardRebalancer, with the shard loads in messages per sample that triggered it
+public record ShardMigration(Product product, int fromShard, int toShard, long fromShardLoad, long toShardLoad, long pauseNanos) {
+}
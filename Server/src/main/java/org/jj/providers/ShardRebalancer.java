@@ -0,0 +1,113 @@
+package org.jj.providers;
+
+import org.jj.product.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Samples per-product message rates and moves one book at a time from the busiest shard to the idlest one.
+// Only a product that narrows the gap between the two shards is moved, a single hot product is never bounced around.
+public class ShardRebalancer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final double DEFAULT_IMBALANCE_RATIO = 1.5;
+
+    private final MatchingEngineProvider matchingEngineProvider;
+    private final double imbalanceRatio;
+
+    private Map<Product, Long> lastMessageCounts = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ShardRebalancer(MatchingEngineProvider matchingEngineProvider) {
+        this(matchingEngineProvider, DEFAULT_IMBALANCE_RATIO);
+    }
+
+    // imbalanceRatio is how many times busier than the idlest shard the busiest one must be before a book is moved
+    public ShardRebalancer(MatchingEngineProvider matchingEngineProvider, double imbalanceRatio) {
+        this.matchingEngineProvider = matchingEngineProvider;
+        this.imbalanceRatio = imbalanceRatio;
+    }
+
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Rebalancer already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebalance();
+            } catch (RuntimeException e) {
+                LOGGER.error("Rebalancing failed", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Takes a sample and moves at most one book, returns the move or null when the shards are balanced enough
+    public synchronized ShardMigration rebalance() {
+        Map<Product, Long> messageCounts = matchingEngineProvider.getMessageCounts();
+        Map<Product, Long> rates = new HashMap<>();
+        Map<Product, Integer> shardOf = new HashMap<>();
+        long[] shardLoads = new long[matchingEngineProvider.getShardCount()];
+
+        messageCounts.forEach((product, count) -> {
+            int shard = matchingEngineProvider.getShardIndex(product);
+            long rate = count - lastMessageCounts.getOrDefault(product, 0L);
+            rates.put(product, rate);
+            shardOf.put(product, shard);
+            shardLoads[shard] += rate;
+        });
+        lastMessageCounts = messageCounts;
+
+        int busiest = 0;
+        int idlest = 0;
+        for (int i = 1; i < shardLoads.length; i++) {
+            if (shardLoads[i] > shardLoads[busiest]) {
+                busiest = i;
+            }
+            if (shardLoads[i] < shardLoads[idlest]) {
+                idlest = i;
+            }
+        }
+        if (busiest == idlest || shardLoads[busiest] == 0 || shardLoads[busiest] <= imbalanceRatio * shardLoads[idlest]) {
+            return null;
+        }
+
+        // Moving a product with rate r leaves a gap of |gap - 2r|, pick the one that leaves the smallest
+        long gap = shardLoads[busiest] - shardLoads[idlest];
+        Product candidate = null;
+        long bestRemainingGap = gap;
+        for (Map.Entry<Product, Long> entry : rates.entrySet()) {
+            long remainingGap = Math.abs(gap - 2 * entry.getValue());
+            if (shardOf.get(entry.getKey()) == busiest && entry.getValue() > 0 && remainingGap < bestRemainingGap) {
+                candidate = entry.getKey();
+                bestRemainingGap = remainingGap;
+            }
+        }
+        if (candidate == null) {
+            return null;
+        }
+
+        long pauseNanos = matchingEngineProvider.migrate(candidate.getId(), idlest);
+        LOGGER.info("Rebalanced {} from shard {} ({} msgs) to shard {} ({} msgs), paused {} us",
+                    candidate.getSymbol(), busiest, shardLoads[busiest], idlest, shardLoads[idlest], pauseNanos / 1_000);
+        return new ShardMigration(candidate, busiest, idlest, shardLoads[busiest], shardLoads[idlest], pauseNanos);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
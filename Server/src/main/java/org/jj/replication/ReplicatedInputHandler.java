@@ -0,0 +1,10 @@
+package org.jj.replication;
+
+import org.jj.journal.JournalHandler;
+
+// Applies the inputs a standby is sent, possibly on other threads
+public interface ReplicatedInputHandler extends JournalHandler {
+
+    // Returns once every input handed over so far has been applied
+    void awaitApplied();
+}
@@ -0,0 +1,190 @@
+package org.jj.replication;
+
+import org.jj.journal.Journal;
+import org.jj.journal.JournalReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a standby in step with its primary: connects, sends the last sequence its journal holds, then appends every
+// record it is sent to that journal, hands it to handler and acknowledges each batch once it is applied. While the
+// primary is gone it reconnects, and once it has been gone for failoverMillis onPrimaryLost runs and following stops.
+public class ReplicationFollower implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    public static final long DEFAULT_FAILOVER_MILLIS = 2_000;
+
+    private static final long RECONNECT_MILLIS = 100;
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 16;
+
+    private final InetSocketAddress primary;
+    private final Journal journal;
+    private final ReplicatedInputHandler handler;
+    private final long failoverNanos;
+    private final Runnable onPrimaryLost;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private volatile boolean connected = false;
+    private volatile long appliedSequence;
+    private volatile SocketChannel channel;
+
+    public ReplicationFollower(String host, int port, Journal journal, ReplicatedInputHandler handler, long failoverMillis, Runnable onPrimaryLost) {
+        if (failoverMillis <= 0) {
+            throw new IllegalArgumentException("Failover timeout must be positive");
+        }
+        this.primary = new InetSocketAddress(host, port);
+        this.journal = journal;
+        this.handler = handler;
+        this.failoverNanos = TimeUnit.MILLISECONDS.toNanos(failoverMillis);
+        this.onPrimaryLost = onPrimaryLost;
+        this.appliedSequence = journal.getLastSequence();
+        this.thread = new Thread(this::run, "replication-follower");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    // The last sequence applied and acknowledged
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    // The last sequence the standby's journal holds, which runs ahead of getAppliedSequence while a batch is applied
+    public long getJournalSequence() {
+        return journal.getLastSequence();
+    }
+
+    // Stops following without taking over
+    @Override
+    public void close() {
+        running = false;
+        SocketChannel current = channel;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close primary connection", e);
+            }
+        }
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Failover only counts from losing a primary once followed, a standby started first waits for it
+    private void run() {
+        long lostSince = -1;
+        while (running) {
+            try (SocketChannel opened = SocketChannel.open(primary)) {
+                channel = opened;
+                opened.socket().setTcpNoDelay(true);
+                connected = true;
+                LOGGER.info("Following primary {} from sequence {}", primary, journal.getLastSequence());
+                follow(opened);
+            } catch (IOException e) {
+                if (connected && running) {
+                    LOGGER.warn("Lost primary {}: {}", primary, e.getMessage());
+                    lostSince = System.nanoTime();
+                }
+            } catch (RuntimeException e) {
+                // A record that doesn't follow what the journal holds can't be repaired by reconnecting
+                LOGGER.error("Stopped following primary {}", primary, e);
+                running = false;
+            } finally {
+                channel = null;
+                connected = false;
+            }
+
+            if (!running) {
+                return;
+            }
+            if (lostSince >= 0 && System.nanoTime() - lostSince > failoverNanos) {
+                LOGGER.warn("Primary {} gone for over {}ms, taking over at sequence {}", primary, TimeUnit.NANOSECONDS.toMillis(failoverNanos), appliedSequence);
+                running = false;
+                onPrimaryLost.run();
+                return;
+            }
+            sleep();
+        }
+    }
+
+    private void follow(SocketChannel channel) throws IOException {
+        ByteBuffer handshake = ByteBuffer.allocate(Long.BYTES).putLong(journal.getLastSequence()).flip();
+        writeFully(channel, handshake);
+
+        ByteBuffer received = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+        ByteBuffer acknowledgement = ByteBuffer.allocate(Long.BYTES);
+        while (running) {
+            if (channel.read(received) < 0) {
+                throw new IOException("Connection closed");
+            }
+            received.flip();
+
+            long lastSequence = -1;
+            while (received.remaining() >= Integer.BYTES) {
+                int length = received.getInt(received.position());
+                if (length <= 0) {
+                    throw new IOException("Bad record length " + length + " from primary");
+                }
+                if (length > received.remaining()) {
+                    break;
+                }
+                ByteBuffer record = received.slice(received.position(), length);
+                if (!JournalReader.isComplete(record)) {
+                    throw new IOException("Record failed its CRC after sequence " + appliedSequence);
+                }
+                journal.appendReplicated(record);
+                lastSequence = JournalReader.dispatch(record, handler);
+                received.position(received.position() + length);
+            }
+            received = compact(received);
+
+            if (lastSequence >= 0) {
+                handler.awaitApplied();
+                appliedSequence = lastSequence;
+                writeFully(channel, acknowledgement.clear().putLong(lastSequence).flip());
+            }
+        }
+    }
+
+    // Keeps what is left of a partly received record, in a bigger buffer when it won't fit
+    private static ByteBuffer compact(ByteBuffer received) {
+        if (received.remaining() >= Integer.BYTES) {
+            int length = received.getInt(received.position());
+            if (length > received.capacity()) {
+                return ByteBuffer.allocate(length).put(received);
+            }
+        }
+        return received.compact();
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(RECONNECT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
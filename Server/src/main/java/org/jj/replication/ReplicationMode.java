@@ -0,0 +1,18 @@
+package org.jj.replication;
+
+// When the primary answers an input: SYNC once the standby has acknowledged it, ASYNC as soon as it is applied, leaving
+// the standby to catch up. Either way the input is applied first, so its fills and market data go out before the
+// standby has it. SYNC only promises that an input the sender saw answered survives a failover, an input lost with
+// the primary may already have been seen on other streams.
+public enum ReplicationMode {
+    SYNC,
+    ASYNC;
+
+    public static ReplicationMode fromName(String name) {
+        return switch (name) {
+            case "sync" -> SYNC;
+            case "async" -> ASYNC;
+            default -> throw new IllegalArgumentException("Unknown replication mode: " + name);
+        };
+    }
+}
@@ -0,0 +1,278 @@
+package org.jj.replication;
+
+import org.jj.journal.Journal;
+import org.jj.journal.JournalTailer;
+import org.jj.sequencer.ParkingWaitStrategy;
+import org.jj.sequencer.WaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+
+// Streams a primary's journal to one standby over TCP. The standby opens with the last sequence it holds, from then on
+// the primary sends every record after it as the journal holds it, and the standby answers with the sequence it has
+// applied after each batch. In SYNC mode whenReplicated holds a response back until the standby has acknowledged the
+// input it answers, by that input's own sequence. It holds back only the response, see ReplicationMode. In ASYNC mode
+// the standby only trails behind by getLag inputs. Without a standby connected the primary carries on alone rather
+// than stop trading, responses held back when it drops are let go.
+public class ReplicationServer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationServer.class);
+
+    private static final int SEND_BUFFER_SIZE = 1 << 16;
+
+    private final Journal journal;
+    private final Path journalDirectory;
+    private final ReplicationMode mode;
+    private final ServerSocketChannel serverChannel;
+    private final WaitStrategy waitStrategy = new ParkingWaitStrategy();
+    private final Thread acceptor;
+
+    // Replications waited for, completed in sequence order as acknowledgements come in
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    private volatile boolean running = true;
+    private volatile SocketChannel follower;
+    private volatile long replicatedSequence;
+
+    public ReplicationServer(int port, Journal journal, Path journalDirectory, ReplicationMode mode) throws IOException {
+        this.journal = journal;
+        this.journalDirectory = journalDirectory;
+        this.mode = mode;
+        this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(port));
+        this.journal.setAppendListener(waitStrategy::signal);
+        this.acceptor = new Thread(this::accept, "replication-acceptor");
+        this.acceptor.setDaemon(true);
+    }
+
+    public void start() {
+        acceptor.start();
+        LOGGER.info("Replicating journal in {} on port {} in {} mode", journalDirectory, getPort(), mode);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public ReplicationMode getMode() {
+        return mode;
+    }
+
+    public boolean isFollowerConnected() {
+        return follower != null;
+    }
+
+    // The last sequence the standby has acknowledged
+    public long getReplicatedSequence() {
+        return replicatedSequence;
+    }
+
+    // Inputs journaled here the standby has yet to acknowledge
+    public long getLag() {
+        return Math.max(0, journal.getLastSequence() - replicatedSequence);
+    }
+
+    // Completes once the standby has acknowledged sequence, at once in ASYNC mode
+    public CompletableFuture<Void> whenReplicated(long sequence) {
+        if (mode == ReplicationMode.ASYNC || follower == null || sequence <= replicatedSequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (waiters) {
+            // The standby may have acknowledged or dropped since the check above
+            if (follower == null || sequence <= replicatedSequence) {
+                return CompletableFuture.completedFuture(null);
+            }
+            waiters.add(new Waiter(sequence, future));
+        }
+        return future;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        journal.setAppendListener(null);
+        try {
+            serverChannel.close();
+            SocketChannel channel = follower;
+            if (channel != null) {
+                channel.close();
+            }
+            acceptor.join();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close replication socket", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        releaseWaiters();
+    }
+
+    private void releaseWaiters() {
+        synchronized (waiters) {
+            follower = null;
+            if (!waiters.isEmpty()) {
+                LOGGER.warn("Releasing {} responses the standby did not acknowledge", waiters.size());
+            }
+            while (!waiters.isEmpty()) {
+                waiters.poll().future.complete(null);
+            }
+        }
+    }
+
+    // One standby at a time, further ones are turned away while it is connected
+    private void accept() {
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.error("Replication socket failed", e);
+                }
+                return;
+            }
+            if (follower != null) {
+                LOGGER.warn("Turning away standby {}, one is already connected", address(channel));
+                closeQuietly(channel);
+                continue;
+            }
+            follower = channel;
+            Thread sender = new Thread(() -> serve(channel), "replication-sender");
+            sender.setDaemon(true);
+            sender.start();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        Thread acknowledger = null;
+        try {
+            channel.socket().setTcpNoDelay(true);
+            ByteBuffer handshake = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, handshake);
+            long afterSequence = handshake.flip().getLong();
+            if (afterSequence > journal.getLastSequence()) {
+                LOGGER.error("Standby {} is at sequence {}, ahead of this primary at {}", address(channel), afterSequence, journal.getLastSequence());
+                return;
+            }
+            LOGGER.info("Standby {} connected at sequence {}", address(channel), afterSequence);
+            // A standby that went away may come back with less than it acknowledged before
+            synchronized (waiters) {
+                replicatedSequence = afterSequence;
+            }
+
+            acknowledger = new Thread(() -> readAcknowledgements(channel), "replication-acknowledger");
+            acknowledger.setDaemon(true);
+            acknowledger.start();
+            send(channel, new JournalTailer(journalDirectory, afterSequence));
+        } catch (IOException e) {
+            if (running) {
+                LOGGER.warn("Standby {} disconnected: {}", address(channel), e.getMessage());
+            }
+        } finally {
+            closeQuietly(channel);
+            if (acknowledger != null) {
+                try {
+                    acknowledger.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            releaseWaiters();
+        }
+    }
+
+    // Records are batched while the journal has more, the batch goes out as soon as it has caught up
+    private void send(SocketChannel channel, JournalTailer tailer) throws IOException {
+        ByteBuffer batch = ByteBuffer.allocateDirect(SEND_BUFFER_SIZE);
+        int idleCount = 0;
+        while (running && channel.isOpen()) {
+            ByteBuffer record = tailer.poll();
+            if (record == null) {
+                if (batch.position() > 0) {
+                    writeFully(channel, batch.flip());
+                    batch.clear();
+                }
+                waitStrategy.idle(idleCount++);
+                continue;
+            }
+            idleCount = 0;
+
+            if (record.remaining() > batch.remaining()) {
+                writeFully(channel, batch.flip());
+                batch.clear();
+            }
+            if (record.remaining() > batch.capacity()) {
+                writeFully(channel, record);
+            } else {
+                batch.put(record);
+            }
+        }
+    }
+
+    private void readAcknowledgements(SocketChannel channel) {
+        ByteBuffer acknowledgement = ByteBuffer.allocate(Long.BYTES);
+        try {
+            while (running) {
+                acknowledgement.clear();
+                readFully(channel, acknowledgement);
+                acknowledged(acknowledgement.flip().getLong());
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+        }
+    }
+
+    private void acknowledged(long sequence) {
+        synchronized (waiters) {
+            if (sequence > replicatedSequence) {
+                replicatedSequence = sequence;
+            }
+            while (!waiters.isEmpty() && waiters.peek().sequence <= sequence) {
+                waiters.poll().future.complete(null);
+            }
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static String address(SocketChannel channel) {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close standby connection", e);
+        }
+    }
+
+    private record Waiter(long sequence, CompletableFuture<Void> future) implements Comparable<Waiter> {
+        @Override
+        public int compareTo(Waiter other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.jj.sequencer;
+
+// Lowest latency, but keeps a core fully busy for every sequencer
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void idle(int idleCount) {
+        Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,107 @@
+package org.jj.sequencer;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.MatchingEngineImpl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+// A ring buffer entry, reused for every command so publishing only writes fields
+class EngineCommand {
+    enum Type {
+        CREATE_ORDER,
+        CANCEL_ORDER,
+        AMEND_ORDER,
+        TASK,
+        // Sequencer controls for a move, see EngineSequencer.park
+        PARK,
+        UNPARK
+    }
+
+    Type type;
+    MatchingEngineImpl matchingEngine;
+
+    long quantity;
+    long price;
+    BuySell buySell;
+    Expiry expiry;
+    String participant;
+    int orderId;
+
+    Function<MatchingEngineImpl, ?> task;
+    CompletableFuture<?> completion;
+
+    void setCreateOrder(MatchingEngineImpl matchingEngine, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                        CompletableFuture<Integer> completion) {
+        this.type = Type.CREATE_ORDER;
+        this.matchingEngine = matchingEngine;
+        this.quantity = quantity;
+        this.price = price;
+        this.buySell = buySell;
+        this.expiry = expiry;
+        this.participant = participant;
+        this.completion = completion;
+    }
+
+    void setCancelOrder(MatchingEngineImpl matchingEngine, int orderId, CompletableFuture<Boolean> completion) {
+        this.type = Type.CANCEL_ORDER;
+        this.matchingEngine = matchingEngine;
+        this.orderId = orderId;
+        this.completion = completion;
+    }
+
+    void setAmendOrder(MatchingEngineImpl matchingEngine, int orderId, long quantity, long price, CompletableFuture<Boolean> completion) {
+        this.type = Type.AMEND_ORDER;
+        this.matchingEngine = matchingEngine;
+        this.orderId = orderId;
+        this.quantity = quantity;
+        this.price = price;
+        this.completion = completion;
+    }
+
+    <T> void setTask(MatchingEngineImpl matchingEngine, Function<MatchingEngineImpl, T> task, CompletableFuture<T> completion) {
+        this.type = Type.TASK;
+        this.matchingEngine = matchingEngine;
+        this.task = task;
+        this.completion = completion;
+    }
+
+    void setPark(MatchingEngineImpl matchingEngine) {
+        this.type = Type.PARK;
+        this.matchingEngine = matchingEngine;
+    }
+
+    void setUnpark(MatchingEngineImpl matchingEngine, CompletableFuture<Long> completion) {
+        this.type = Type.UNPARK;
+        this.matchingEngine = matchingEngine;
+        this.completion = completion;
+    }
+
+    // A copy that outlives its ring slot, for a command held back while its engine is parked
+    EngineCommand copy() {
+        EngineCommand copy = new EngineCommand();
+        copy.type = type;
+        copy.matchingEngine = matchingEngine;
+        copy.quantity = quantity;
+        copy.price = price;
+        copy.buySell = buySell;
+        copy.expiry = expiry;
+        copy.participant = participant;
+        copy.orderId = orderId;
+        copy.task = task;
+        copy.completion = completion;
+        return copy;
+    }
+
+    // Drops references once handled so a parked entry doesn't keep engines or callers alive
+    void clear() {
+        type = null;
+        matchingEngine = null;
+        buySell = null;
+        expiry = null;
+        participant = null;
+        task = null;
+        completion = null;
+    }
+}
@@ -0,0 +1,169 @@
+package org.jj.sequencer;
+
+import org.jj.matchingEngine.BookUpdate;
+import org.jj.matchingEngine.EngineEventHandler;
+import org.jj.matchingEngine.ExecutionReportListener;
+import org.jj.matchingEngine.Executions;
+import org.jj.matchingEngine.MarketDataPublisher;
+import org.jj.matchingEngine.OrderBookSide;
+import org.jj.matchingEngine.OrderBookUpdateListenerImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The single ordered output of every engine handed to it: book changes, execution events and market data
+// subscription tasks, in one preallocated ring. Engine threads only copy what an operation did into a ring entry, so
+// the time an order takes to be acknowledged doesn't depend on what reads it. Market data is built and sent on the
+// bus's own thread, further consumers each get a thread and read at their own pace. A full ring holds engine threads
+// back until the slowest consumer catches up.
+public class EngineEventBus implements MarketDataPublisher, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngineEventBus.class);
+
+    public static final int DEFAULT_RING_SIZE = 1 << 14;
+
+    private final RingBuffer<BookUpdate> ringBuffer;
+    private final List<Consumer> consumers = new ArrayList<>();
+
+    // Read by engine threads on every publish, so kept as arrays rather than walking the consumer list
+    private volatile WaitStrategy[] waitStrategies;
+    private volatile boolean hasEventConsumers = false;
+    private volatile boolean running;
+
+    public EngineEventBus(String name, WaitStrategy waitStrategy) {
+        this(name, waitStrategy, DEFAULT_RING_SIZE);
+    }
+
+    public EngineEventBus(String name, WaitStrategy waitStrategy, int ringSize) {
+        this.ringBuffer = new RingBuffer<>(ringSize, BookUpdate::new);
+        this.consumers.add(new Consumer(name, waitStrategy, 0, 0, BookUpdate::dispatch));
+        this.waitStrategies = new WaitStrategy[]{waitStrategy};
+    }
+
+    public synchronized void start() {
+        running = true;
+        consumers.get(0).thread.start();
+    }
+
+    // Adds a consumer with its own thread that sees every entry published after this returns. Subscription tasks
+    // only concern market data and are not passed on.
+    public synchronized void addConsumer(String name, WaitStrategy waitStrategy, EngineEventHandler handler) {
+        if (!running) {
+            throw new IllegalStateException("Consumers can only join a running event bus");
+        }
+        hasEventConsumers = true;
+
+        // The consumer starts at an entry claimed here, no other consumer can pass it before it is published
+        long start = ringBuffer.claim();
+        int index = ringBuffer.addConsumer(start);
+        Consumer consumer = new Consumer(name, waitStrategy, index, start, event -> {
+            if (event.getType() != BookUpdate.Type.TASK) {
+                handler.onEvent(event);
+            }
+        });
+        consumers.add(consumer);
+        waitStrategies = Arrays.copyOf(waitStrategies, waitStrategies.length + 1);
+        waitStrategies[waitStrategies.length - 1] = waitStrategy;
+        consumer.thread.start();
+
+        ringBuffer.get(start).setTask(() -> {
+        });
+        publish(start);
+    }
+
+    @Override
+    public boolean hasEventConsumers() {
+        return hasEventConsumers;
+    }
+
+    @Override
+    public void publish(OrderBookUpdateListenerImpl listener, long sequence, OrderBookSide buySide, OrderBookSide sellSide) {
+        long ringSequence = ringBuffer.claim();
+        ringBuffer.get(ringSequence).set(listener, sequence, buySide, sellSide);
+        publish(ringSequence);
+    }
+
+    @Override
+    public void publishExecutions(ExecutionReportListener listener, Executions executions) {
+        long ringSequence = ringBuffer.claim();
+        ringBuffer.get(ringSequence).setExecutions(listener, executions);
+        publish(ringSequence);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long ringSequence = ringBuffer.claim();
+        ringBuffer.get(ringSequence).setTask(task);
+        publish(ringSequence);
+    }
+
+    // Entries claimed but not yet read by the slowest consumer, how far the bus is behind the engines
+    public long getBacklog() {
+        return ringBuffer.size();
+    }
+
+    // Stops once every consumer has read every entry published before the call
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (WaitStrategy waitStrategy : waitStrategies) {
+            waitStrategy.signal();
+        }
+        try {
+            for (Consumer consumer : consumers) {
+                consumer.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(long ringSequence) {
+        ringBuffer.publish(ringSequence);
+        for (WaitStrategy waitStrategy : waitStrategies) {
+            waitStrategy.signal();
+        }
+    }
+
+    // Entries are left as they are once read, the next claim of the slot overwrites them
+    private class Consumer {
+        private final WaitStrategy waitStrategy;
+        private final int index;
+        private final long startSequence;
+        private final EngineEventHandler handler;
+        private final Thread thread;
+
+        Consumer(String name, WaitStrategy waitStrategy, int index, long startSequence, EngineEventHandler handler) {
+            this.waitStrategy = waitStrategy;
+            this.index = index;
+            this.startSequence = startSequence;
+            this.handler = handler;
+            this.thread = new Thread(this::run, name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            long nextSequence = startSequence;
+            int idleCount = 0;
+
+            while (running || ringBuffer.isPublished(nextSequence)) {
+                if (!ringBuffer.isPublished(nextSequence)) {
+                    waitStrategy.idle(idleCount++);
+                    continue;
+                }
+                idleCount = 0;
+
+                do {
+                    try {
+                        handler.onEvent(ringBuffer.get(nextSequence));
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Engine event failed on {}", thread.getName(), e);
+                    }
+                    ringBuffer.release(index, ++nextSequence);
+                } while (ringBuffer.isPublished(nextSequence));
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.jj.sequencer;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+// Owns one thread that is the only writer to the engines it is given commands for.
+// Any thread may submit, commands run in the order they were claimed on the ring and complete the returned future
+// on the sequencer thread.
+public class EngineSequencer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngineSequencer.class);
+
+    public static final int DEFAULT_RING_SIZE = 1 << 14;
+
+    private final RingBuffer<EngineCommand> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final Thread thread;
+
+    private volatile boolean running;
+
+    // Engines whose commands are held back, see park. Only touched on the sequencer thread.
+    private final Map<MatchingEngineImpl, ParkedEngine> parkedEngines = new IdentityHashMap<>();
+
+    public EngineSequencer(String name, WaitStrategy waitStrategy) {
+        this(name, waitStrategy, DEFAULT_RING_SIZE);
+    }
+
+    public EngineSequencer(String name, WaitStrategy waitStrategy, int ringSize) {
+        this.ringBuffer = new RingBuffer<>(ringSize, EngineCommand::new);
+        this.waitStrategy = waitStrategy;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public CompletableFuture<Integer> createOrder(MatchingEngineImpl matchingEngine, long quantity, long price, BuySell buySell, Expiry expiry) {
+        return createOrder(matchingEngine, quantity, price, buySell, expiry, null);
+    }
+
+    // participant receives the order's execution reports, null for an order nobody follows
+    public CompletableFuture<Integer> createOrder(MatchingEngineImpl matchingEngine, long quantity, long price, BuySell buySell, Expiry expiry, String participant) {
+        CompletableFuture<Integer> completion = new CompletableFuture<>();
+        publishCreateOrder(claim(), matchingEngine, quantity, price, buySell, expiry, participant, completion);
+        return completion;
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(MatchingEngineImpl matchingEngine, int orderId) {
+        CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        publishCancelOrder(claim(), matchingEngine, orderId, completion);
+        return completion;
+    }
+
+    public CompletableFuture<Boolean> amendOrder(MatchingEngineImpl matchingEngine, int orderId, long quantity, long price) {
+        CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        publishAmendOrder(claim(), matchingEngine, orderId, quantity, price, completion);
+        return completion;
+    }
+
+    // Runs task on the sequencer thread, for anything else that reads or changes engine state
+    public <T> CompletableFuture<T> submit(MatchingEngineImpl matchingEngine, Function<MatchingEngineImpl, T> task) {
+        CompletableFuture<T> completion = new CompletableFuture<>();
+        publishTask(claim(), matchingEngine, task, completion);
+        return completion;
+    }
+
+    // Claiming and publishing are split for SequencedMatchingEngine, which checks the engine is still routed here
+    // between the two. A claimed slot must always be published, with skip when there is nothing to put in it.
+    long claim() {
+        return ringBuffer.claim();
+    }
+
+    void skip(long sequence) {
+        publish(sequence);
+    }
+
+    void publishCreateOrder(long sequence, MatchingEngineImpl matchingEngine, long quantity, long price, BuySell buySell, Expiry expiry,
+                            String participant, CompletableFuture<Integer> completion) {
+        ringBuffer.get(sequence).setCreateOrder(matchingEngine, quantity, price, buySell, expiry, participant, completion);
+        publish(sequence);
+    }
+
+    void publishCancelOrder(long sequence, MatchingEngineImpl matchingEngine, int orderId, CompletableFuture<Boolean> completion) {
+        ringBuffer.get(sequence).setCancelOrder(matchingEngine, orderId, completion);
+        publish(sequence);
+    }
+
+    void publishAmendOrder(long sequence, MatchingEngineImpl matchingEngine, int orderId, long quantity, long price, CompletableFuture<Boolean> completion) {
+        ringBuffer.get(sequence).setAmendOrder(matchingEngine, orderId, quantity, price, completion);
+        publish(sequence);
+    }
+
+    <T> void publishTask(long sequence, MatchingEngineImpl matchingEngine, Function<MatchingEngineImpl, T> task, CompletableFuture<T> completion) {
+        ringBuffer.get(sequence).setTask(matchingEngine, task, completion);
+        publish(sequence);
+    }
+
+    // Holds back every command for matchingEngine published after this one until unpark, while the other engines here
+    // carry on. For SequencedMatchingEngine's moves, which park an engine on its new sequencer until the old one has
+    // run what was routed there.
+    void park(MatchingEngineImpl matchingEngine) {
+        long sequence = claim();
+        ringBuffer.get(sequence).setPark(matchingEngine);
+        publish(sequence);
+    }
+
+    // Runs the commands held back since park in order, then completes with how long the engine was parked in nanoseconds
+    CompletableFuture<Long> unpark(MatchingEngineImpl matchingEngine) {
+        CompletableFuture<Long> completion = new CompletableFuture<>();
+        long sequence = claim();
+        ringBuffer.get(sequence).setUnpark(matchingEngine, completion);
+        publish(sequence);
+        return completion;
+    }
+
+    public boolean isSequencerThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    // Stops once every command published before the call has run
+    @Override
+    public void close() {
+        running = false;
+        waitStrategy.signal();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(long sequence) {
+        ringBuffer.publish(sequence);
+        waitStrategy.signal();
+    }
+
+    private void run() {
+        long nextSequence = 0;
+        int idleCount = 0;
+
+        while (running || ringBuffer.isPublished(nextSequence)) {
+            if (!ringBuffer.isPublished(nextSequence)) {
+                waitStrategy.idle(idleCount++);
+                continue;
+            }
+            idleCount = 0;
+
+            do {
+                EngineCommand command = ringBuffer.get(nextSequence);
+                // Entries start cleared and are cleared once handled, a skipped slot is still empty
+                if (command.type != null) {
+                    handle(command);
+                    command.clear();
+                }
+                ringBuffer.release(++nextSequence);
+            } while (ringBuffer.isPublished(nextSequence));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(EngineCommand command) {
+        switch (command.type) {
+            case PARK -> parkedEngines.put(command.matchingEngine, new ParkedEngine(System.nanoTime()));
+            case UNPARK -> {
+                ParkedEngine parked = parkedEngines.remove(command.matchingEngine);
+                long parkedNanos = 0;
+                if (parked != null) {
+                    for (EngineCommand held : parked.commands) {
+                        execute(held);
+                    }
+                    parkedNanos = System.nanoTime() - parked.since;
+                }
+                ((CompletableFuture<Long>) command.completion).complete(parkedNanos);
+            }
+            default -> {
+                ParkedEngine parked = parkedEngines.isEmpty() ? null : parkedEngines.get(command.matchingEngine);
+                if (parked != null) {
+                    parked.commands.add(command.copy());
+                } else {
+                    execute(command);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void execute(EngineCommand command) {
+        try {
+            switch (command.type) {
+                case CREATE_ORDER -> {
+                    int orderId = command.matchingEngine.createOrder(command.quantity, command.price, command.buySell, command.expiry, command.participant);
+                    ((CompletableFuture<Integer>) command.completion).complete(orderId);
+                }
+                case CANCEL_ORDER -> {
+                    boolean cancelled = command.matchingEngine.cancelOrder(command.orderId);
+                    ((CompletableFuture<Boolean>) command.completion).complete(cancelled);
+                }
+                case AMEND_ORDER -> {
+                    boolean amended = command.matchingEngine.amendOrder(command.orderId, command.quantity, command.price);
+                    ((CompletableFuture<Boolean>) command.completion).complete(amended);
+                }
+                case TASK -> ((CompletableFuture<Object>) command.completion).complete(command.task.apply(command.matchingEngine));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Command {} failed on {}", command.type, thread.getName(), e);
+            command.completion.completeExceptionally(e);
+        } catch (Throwable e) {
+            // An error still fails only its own command, the caller would otherwise wait forever and the thread would
+            // die holding every engine it owns
+            LOGGER.error("Command {} failed with an error on {}", command.type, thread.getName(), e);
+            command.completion.completeExceptionally(e);
+        }
+    }
+
+    private static final class ParkedEngine {
+        final long since;
+        final List<EngineCommand> commands = new ArrayList<>();
+
+        ParkedEngine(long since) {
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.jj.sequencer;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Spins, then yields, then parks until a producer signals. A publish racing with the consumer going to sleep
+// is picked up at the latest after maxParkNanos.
+public class ParkingWaitStrategy implements WaitStrategy {
+    private static final int SPINS = 100;
+    private static final int YIELDS = 200;
+    private static final long DEFAULT_MAX_PARK_NANOS = 100_000;
+
+    private final long maxParkNanos;
+    private volatile Thread sleeper;
+
+    public ParkingWaitStrategy() {
+        this(DEFAULT_MAX_PARK_NANOS);
+    }
+
+    public ParkingWaitStrategy(long maxParkNanos) {
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount < SPINS) {
+            Thread.onSpinWait();
+        } else if (idleCount < YIELDS) {
+            Thread.yield();
+        } else {
+            sleeper = Thread.currentThread();
+            LockSupport.parkNanos(this, maxParkNanos);
+            sleeper = null;
+        }
+    }
+
+    @Override
+    public void signal() {
+        Thread thread = sleeper;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.jj.sequencer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Preallocated multi-producer ring of mutable entries, read by one consumer or by several each at their own pace.
+// Producers claim a sequence with one atomic increment, fill the entry in place and publish it.
+// Consumers only see an entry once its sequence has been published, in claim order, and it is only reused once every
+// consumer has released it.
+public class RingBuffer<E> {
+    private final Object[] entries;
+    private final int mask;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private volatile AtomicLong[] consumerSequences = {new AtomicLong()};
+    private final AtomicLongArray published;
+
+    public RingBuffer(int capacity, Supplier<E> entryFactory) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        entries = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = entryFactory.get();
+        }
+        mask = capacity - 1;
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    // Blocks the producer while the ring is full, which is the only back pressure on callers
+    public long claim() {
+        long sequence = claimSequence.getAndIncrement();
+        while (sequence - entries.length >= getMinimumConsumerSequence()) {
+            Thread.yield();
+        }
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.setRelease((int) sequence & mask, sequence);
+    }
+
+    public boolean isPublished(long sequence) {
+        return published.getAcquire((int) sequence & mask) == sequence;
+    }
+
+    // Called by the first consumer once every entry before sequence has been handled and may be reused
+    public void release(long sequence) {
+        release(0, sequence);
+    }
+
+    public void release(int consumer, long sequence) {
+        consumerSequences[consumer].setRelease(sequence);
+    }
+
+    // Adds a consumer that reads every entry from sequence on, returning its index for release. sequence must be
+    // claimed and not yet published, so no other consumer can have moved past it.
+    public synchronized int addConsumer(long sequence) {
+        AtomicLong[] current = consumerSequences;
+        AtomicLong[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = new AtomicLong(sequence);
+        consumerSequences = extended;
+        return current.length;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    // Entries claimed but not yet released by the slowest consumer
+    public long size() {
+        return claimSequence.get() - getMinimumConsumerSequence();
+    }
+
+    private long getMinimumConsumerSequence() {
+        AtomicLong[] sequences = consumerSequences;
+        long minimum = sequences[0].get();
+        for (int i = 1; i < sequences.length; i++) {
+            minimum = Math.min(minimum, sequences[i].get());
+        }
+        return minimum;
+    }
+}
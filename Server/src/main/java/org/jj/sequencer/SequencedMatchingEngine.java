@@ -0,0 +1,116 @@
+package org.jj.sequencer;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.MatchingEngineImpl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// A matching engine paired with the sequencer that currently owns it, the only way callers outside the sequencer
+// thread should reach the engine. The owner can change at runtime through moveTo.
+//
+// Submitting takes no lock. A command claims a slot on the route's sequencer, then reads the route again: if a move
+// swapped it in between, the slot is published empty and the claim retried on the new owner. A command that finds
+// the route unchanged was claimed before the move's drain marker, so it still runs on the old owner before the
+// handoff.
+public class SequencedMatchingEngine {
+    private final MatchingEngineImpl matchingEngine;
+    private final LongAdder messageCount = new LongAdder();
+
+    // A new route per move, so a command claimed across two moves back to the same sequencer is still retried
+    private volatile Route route;
+
+    public SequencedMatchingEngine(MatchingEngineImpl matchingEngine, EngineSequencer sequencer) {
+        this.matchingEngine = matchingEngine;
+        this.route = new Route(sequencer);
+    }
+
+    public CompletableFuture<Integer> createOrder(long quantity, long price, BuySell buySell, Expiry expiry) {
+        return createOrder(quantity, price, buySell, expiry, null);
+    }
+
+    public CompletableFuture<Integer> createOrder(long quantity, long price, BuySell buySell, Expiry expiry, String participant) {
+        CompletableFuture<Integer> completion = new CompletableFuture<>();
+        route((sequencer, sequence) -> sequencer.publishCreateOrder(sequence, matchingEngine, quantity, price, buySell, expiry, participant, completion));
+        return completion;
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(int id) {
+        CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        route((sequencer, sequence) -> sequencer.publishCancelOrder(sequence, matchingEngine, id, completion));
+        return completion;
+    }
+
+    public CompletableFuture<Boolean> amendOrder(int id, long quantity, long price) {
+        CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        route((sequencer, sequence) -> sequencer.publishAmendOrder(sequence, matchingEngine, id, quantity, price, completion));
+        return completion;
+    }
+
+    public <T> CompletableFuture<T> submit(Function<MatchingEngineImpl, T> task) {
+        CompletableFuture<T> completion = new CompletableFuture<>();
+        route((sequencer, sequence) -> sequencer.publishTask(sequence, matchingEngine, task, completion));
+        return completion;
+    }
+
+    // Hands the engine to target. Commands routed before the switch still run on the old sequencer, target parks the
+    // engine's commands until they have, so nothing is lost or reordered, while target's other engines carry on. Returns
+    // how long the engine was parked in nanoseconds. Moves must not run concurrently with each other or from a sequencer
+    // thread.
+    public long moveTo(EngineSequencer target) {
+        EngineSequencer source = route.sequencer();
+        if (source == target) {
+            return 0;
+        }
+
+        // Claimed before the swap, so it is ahead of every command routed to target
+        target.park(matchingEngine);
+        route = new Route(target);
+        // Claimed after the swap, so it is behind every command that found source still routed
+        return source.submit(matchingEngine, engine -> target.unpark(matchingEngine))
+                     .thenCompose(parkedNanos -> parkedNanos)
+                     .join();
+    }
+
+    // Every command submitted since creation, sampled to find hot products
+    public long getMessageCount() {
+        return messageCount.sum();
+    }
+
+    public MatchingEngineImpl getMatchingEngine() {
+        return matchingEngine;
+    }
+
+    public EngineSequencer getSequencer() {
+        return route.sequencer();
+    }
+
+    private void route(Command command) {
+        messageCount.increment();
+        Route current;
+        long sequence;
+        do {
+            current = route;
+            sequence = current.sequencer().claim();
+        } while (!isStillRouted(current, sequence));
+        command.publish(current.sequencer(), sequence);
+    }
+
+    private boolean isStillRouted(Route current, long sequence) {
+        if (route == current) {
+            return true;
+        }
+        current.sequencer().skip(sequence);
+        return false;
+    }
+
+    private record Route(EngineSequencer sequencer) {
+    }
+
+    // Fills the slot route claimed
+    private interface Command {
+        void publish(EngineSequencer sequencer, long sequence);
+    }
+}
@@ -0,0 +1,21 @@
+package org.jj.sequencer;
+
+// How a sequencer thread waits while its ring is empty
+public interface WaitStrategy {
+
+    // idleCount is the number of empty polls in a row, reset whenever work is found
+    void idle(int idleCount);
+
+    // Called by producers after publishing, so a sleeping consumer can resume early
+    default void signal() {
+    }
+
+    static WaitStrategy fromName(String name) {
+        return switch (name) {
+            case "busy-spin" -> new BusySpinWaitStrategy();
+            case "yield" -> new YieldingWaitStrategy();
+            case "park" -> new ParkingWaitStrategy();
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package org.jj.sequencer;
+
+// Spins briefly, then gives the core to other runnable threads between polls
+public class YieldingWaitStrategy implements WaitStrategy {
+    private static final int SPINS = 100;
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
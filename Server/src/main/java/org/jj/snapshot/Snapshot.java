@@ -0,0 +1,8 @@
+package org.jj.snapshot;
+
+import java.util.Map;
+
+// Everything needed to restart without replaying the journal up to journalSequence: each product's encoded engine by
+// product id and the encoded order store followed by the participants' client order ids
+public record Snapshot(long journalSequence, Map<Integer, byte[]> books, byte[] orders) {
+}
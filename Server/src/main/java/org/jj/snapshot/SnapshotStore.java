@@ -0,0 +1,137 @@
+package org.jj.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Snapshots on disk, one directory each named after the journal sequence it covers, holding a file per product and one
+// for the order store. A snapshot is written under a temporary name and renamed once every file is on disk, so a
+// snapshot directory is always complete. Only the newest few are kept.
+public class SnapshotStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStore.class);
+
+    static final int RETAINED_SNAPSHOTS = 2;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String BOOK_PREFIX = "book-";
+    private static final String BOOK_SUFFIX = ".bin";
+    private static final String ORDERS_FILE = "orders.bin";
+
+    private SnapshotStore() {
+    }
+
+    // Files are written in parallel, returns the snapshot's directory
+    public static Path write(Path directory, Snapshot snapshot) throws IOException {
+        Files.createDirectories(directory);
+        String name = String.format("%s%020d", SNAPSHOT_PREFIX, snapshot.journalSequence());
+        Path target = directory.resolve(name);
+        if (Files.exists(target)) {
+            LOGGER.info("Snapshot {} already exists", target);
+            return target;
+        }
+
+        Path temporary = directory.resolve(name + TEMPORARY_SUFFIX);
+        deleteRecursively(temporary);
+        Files.createDirectory(temporary);
+        try {
+            snapshot.books().entrySet().parallelStream().forEach(book -> writeFile(temporary.resolve(BOOK_PREFIX + book.getKey() + BOOK_SUFFIX), book.getValue()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeFile(temporary.resolve(ORDERS_FILE), snapshot.orders());
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Snapshot {} written with {} books", target, snapshot.books().size());
+
+        List<Path> snapshots = list(directory);
+        for (Path old : snapshots.subList(0, Math.max(0, snapshots.size() - RETAINED_SNAPSHOTS))) {
+            deleteRecursively(old);
+        }
+        return target;
+    }
+
+    // The newest complete snapshot with its files read in parallel, null when there is none
+    public static Snapshot readLatest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        List<Path> snapshots = list(directory);
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+
+        Path latest = snapshots.get(snapshots.size() - 1);
+        long journalSequence = Long.parseLong(latest.getFileName().toString().substring(SNAPSHOT_PREFIX.length()));
+        List<Path> bookFiles;
+        try (Stream<Path> files = Files.list(latest)) {
+            bookFiles = files.filter(file -> file.getFileName().toString().startsWith(BOOK_PREFIX)).toList();
+        }
+
+        Map<Integer, byte[]> books = new ConcurrentHashMap<>();
+        try {
+            bookFiles.parallelStream().forEach(file -> {
+                String fileName = file.getFileName().toString();
+                int productId = Integer.parseInt(fileName.substring(BOOK_PREFIX.length(), fileName.length() - BOOK_SUFFIX.length()));
+                books.put(productId, readFile(file));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        LOGGER.info("Read snapshot {} with {} books", latest, books.size());
+        return new Snapshot(journalSequence, books, Files.readAllBytes(latest.resolve(ORDERS_FILE)));
+    }
+
+    // Complete snapshots oldest first
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String fileName = file.getFileName().toString();
+                return fileName.startsWith(SNAPSHOT_PREFIX) && !fileName.endsWith(TEMPORARY_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static void writeFile(Path path, byte[] bytes) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readFile(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
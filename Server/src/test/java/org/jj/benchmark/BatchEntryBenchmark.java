@@ -0,0 +1,83 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import org.jj.OrderServiceGrpc;
+import org.jj.Service;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.orderService.OrderServiceServer;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Orders per second over a local gRPC connection, one blocking OrderCreateRequest per order against
+// OrderCreateBatch calls of growing size
+public class BatchEntryBenchmark {
+    private static final int PORT = 50071;
+    private static final int ORDERS = 50_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        productStore.addProduct("Product A", "A");
+        OrderServiceServer server = new OrderServiceServer(PORT, new MatchingEngineProvider(productStore), new OrderStore());
+        server.start();
+        ManagedChannel channel = Grpc.newChannelBuilder("localhost:" + PORT, InsecureChannelCredentials.create()).build();
+        OrderServiceGrpc.OrderServiceBlockingStub stub = OrderServiceGrpc.newBlockingStub(channel);
+
+        try {
+            unaryOrdersPerSecond(stub);
+            for (int round = 0; round < ROUNDS; round++) {
+                System.out.printf("unary:           %,10.0f orders/s%n", unaryOrdersPerSecond(stub));
+                for (int batchSize : new int[]{10, 100, 1000}) {
+                    System.out.printf("batch of %4d:   %,10.0f orders/s%n", batchSize, batchOrdersPerSecond(stub, batchSize));
+                }
+            }
+        } finally {
+            channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            server.stop();
+        }
+    }
+
+    private static double unaryOrdersPerSecond(OrderServiceGrpc.OrderServiceBlockingStub stub) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            stub.orderCreateRequest(order(i));
+        }
+        return ORDERS * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static double batchOrdersPerSecond(OrderServiceGrpc.OrderServiceBlockingStub stub, int batchSize) {
+        long start = System.nanoTime();
+        for (int sent = 0; sent < ORDERS; sent += batchSize) {
+            List<Service.OrderCreateRequestDetails> orders = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                orders.add(order(sent + i));
+            }
+            stub.orderCreateBatch(Service.OrderCreateBatchRequest.newBuilder().addAllOrders(orders).build());
+        }
+        return ORDERS * 1e9 / (System.nanoTime() - start);
+    }
+
+    // Alternating buys and sells at one price, so orders keep trading and the book stays small
+    private static Service.OrderCreateRequestDetails order(int i) {
+        return Service.OrderCreateRequestDetails.newBuilder()
+                                                .setProductSymbol("A")
+                                                .setBuySell(i % 2 == 0 ? Service.BuySell.BUY : Service.BuySell.SELL)
+                                                .setQuantity(10)
+                                                .setPrice(100)
+                                                .setExpiry(Service.Expiry.GTC)
+                                                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+// Cancels random resting orders from books of growing depth, cancel latency should not grow with depth
+public class CancelLatencyBenchmark {
+    private static final int PRICE_LEVELS = 1_000;
+    private static final int CANCELS = 100_000;
+    private static final int ROUNDS = 5;
+    private static final int WARMUP_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            nanosPerCancel(100_000, new Random(round));
+        }
+
+        for (int depth : new int[]{1_000, 10_000, 100_000, 1_000_000}) {
+            double best = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                best = Math.min(best, nanosPerCancel(depth, new Random(round)));
+            }
+            System.out.printf("depth %,9d orders: %6.1f ns/cancel%n", depth, best);
+        }
+    }
+
+    private static double nanosPerCancel(int depth, Random random) {
+        MatchingEngineImpl matchingEngine = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+
+        int[] ids = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            ids[i] = matchingEngine.createOrder(1, 1 + random.nextInt(PRICE_LEVELS), BuySell.BUY, Expiry.GTC);
+        }
+
+        int cancels = Math.min(CANCELS, depth);
+        for (int i = 0; i < cancels; i++) {
+            int j = i + random.nextInt(depth - i);
+            int id = ids[j];
+            ids[j] = ids[i];
+            ids[i] = id;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < cancels; i++) {
+            if (!matchingEngine.cancelOrder(ids[i])) {
+                throw new IllegalStateException("Order " + ids[i] + " was not resting");
+            }
+        }
+        return (System.nanoTime() - start) / (double) cancels;
+    }
+}
@@ -0,0 +1,156 @@
+package org.jj.benchmark;
+
+import org.jj.collections.IntIntMap;
+import org.jj.collections.IntObjectMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// IntIntMap and IntObjectMap against boxed HashMaps holding a million live order ids
+public class IntMapBenchmark {
+    private static final int LIVE_ENTRIES = 1_000_000;
+    private static final int OPERATIONS = 5_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] keys = new int[LIVE_ENTRIES + OPERATIONS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i + 1;
+        }
+        int[] lookups = new int[OPERATIONS];
+        Random random = new Random(1);
+        for (int i = 0; i < OPERATIONS; i++) {
+            lookups[i] = 1 + random.nextInt(LIVE_ENTRIES);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.printf("round %d%n", round);
+            runIntIntMap(keys, lookups);
+            runHashMapOfIntegers(keys, lookups);
+            runIntObjectMap(keys, lookups);
+            runHashMapOfObjects(keys, lookups);
+        }
+    }
+
+    private static void runIntIntMap(int[] keys, int[] lookups) throws InterruptedException {
+        long heap = usedHeap();
+        IntIntMap map = new IntIntMap(-1);
+        for (int i = 0; i < LIVE_ENTRIES; i++) {
+            map.put(keys[i], i);
+        }
+        long bytes = usedHeap() - heap;
+
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int lookup : lookups) {
+            sum += map.get(lookup);
+        }
+        long getNanos = System.nanoTime() - start;
+
+        // Sliding window of live ids, like orders arriving and being cancelled
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            map.remove(keys[i]);
+            map.put(keys[i + LIVE_ENTRIES], i);
+        }
+        long churnNanos = System.nanoTime() - start;
+
+        report("IntIntMap", bytes, getNanos, churnNanos, sum + map.size());
+    }
+
+    private static void runHashMapOfIntegers(int[] keys, int[] lookups) throws InterruptedException {
+        long heap = usedHeap();
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < LIVE_ENTRIES; i++) {
+            map.put(keys[i], i);
+        }
+        long bytes = usedHeap() - heap;
+
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int lookup : lookups) {
+            sum += map.get(lookup);
+        }
+        long getNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            map.remove(keys[i]);
+            map.put(keys[i + LIVE_ENTRIES], i);
+        }
+        long churnNanos = System.nanoTime() - start;
+
+        report("HashMap<Integer, Integer>", bytes, getNanos, churnNanos, sum + map.size());
+    }
+
+    private static void runIntObjectMap(int[] keys, int[] lookups) throws InterruptedException {
+        String value = "order";
+        long heap = usedHeap();
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int i = 0; i < LIVE_ENTRIES; i++) {
+            map.put(keys[i], value);
+        }
+        long bytes = usedHeap() - heap;
+
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int lookup : lookups) {
+            sum += map.get(lookup).length();
+        }
+        long getNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            map.remove(keys[i]);
+            map.put(keys[i + LIVE_ENTRIES], value);
+        }
+        long churnNanos = System.nanoTime() - start;
+
+        report("IntObjectMap", bytes, getNanos, churnNanos, sum + map.size());
+    }
+
+    private static void runHashMapOfObjects(int[] keys, int[] lookups) throws InterruptedException {
+        String value = "order";
+        long heap = usedHeap();
+        Map<Integer, String> map = new HashMap<>();
+        for (int i = 0; i < LIVE_ENTRIES; i++) {
+            map.put(keys[i], value);
+        }
+        long bytes = usedHeap() - heap;
+
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int lookup : lookups) {
+            sum += map.get(lookup).length();
+        }
+        long getNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            map.remove(keys[i]);
+            map.put(keys[i + LIVE_ENTRIES], value);
+        }
+        long churnNanos = System.nanoTime() - start;
+
+        report("HashMap<Integer, Object>", bytes, getNanos, churnNanos, sum + map.size());
+    }
+
+    private static void report(String name, long bytes, long getNanos, long churnNanos, long checksum) {
+        System.out.printf("  %-26s %5.1f bytes/entry  get %5.1f ns  remove+put %5.1f ns  (%d)%n",
+                name,
+                bytes / (double) LIVE_ENTRIES,
+                getNanos / (double) OPERATIONS,
+                churnNanos / (double) OPERATIONS,
+                checksum);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
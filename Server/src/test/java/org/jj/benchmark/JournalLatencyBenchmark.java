@@ -0,0 +1,91 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.journal.Journal;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+// Order acknowledgement latency through the sequencer with and without the journal, plus the cost of an append on its
+// own. The journal should add no more than a few microseconds to an ack as it never waits for the disk.
+public class JournalLatencyBenchmark {
+    private static final int ORDERS = 200_000;
+    private static final int WARMUP_ORDERS = 200_000;
+
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        ackLatencies(false, WARMUP_ORDERS);
+        ackLatencies(true, WARMUP_ORDERS);
+        report("no journal", ackLatencies(false, ORDERS));
+        report("journal   ", ackLatencies(true, ORDERS));
+
+        Path directory = Files.createTempDirectory("journal-benchmark");
+        try (Journal journal = new Journal(directory, 1)) {
+            for (int i = 0; i < WARMUP_ORDERS; i++) {
+                journal.appendCreateOrder(1, 1, 100_000, BuySell.BUY, Expiry.GTC, "participant", 0);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                journal.appendCreateOrder(1, 1, 100_000, BuySell.BUY, Expiry.GTC, "participant", 0);
+            }
+            System.out.printf("append      %6.0f ns/record%n", (System.nanoTime() - start) / (double) ORDERS);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    // Sends one order at a time and waits for its ack, alternating sides around a fixed price so books stay shallow
+    private static long[] ackLatencies(boolean journaled, int orders) throws IOException, ExecutionException, InterruptedException {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        productStore.addProduct("Product", "P");
+        Path directory = Files.createTempDirectory("journal-benchmark");
+        Random random = new Random(0);
+
+        long[] latencies = new long[orders];
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            if (journaled) {
+                provider.attachJournal(new Journal(directory, 1));
+            }
+            SequencedMatchingEngine engine = provider.getSequencedMatchingEngine("P");
+            for (int i = 0; i < orders; i++) {
+                BuySell buySell = random.nextBoolean() ? BuySell.BUY : BuySell.SELL;
+                long price = 100_000 + random.nextInt(10) * 1_000L;
+                long start = System.nanoTime();
+                engine.createOrder(1 + random.nextInt(10), price, buySell, Expiry.GTC, "participant").get();
+                latencies[i] = System.nanoTime() - start;
+            }
+        } finally {
+            delete(directory);
+        }
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s p50 %6.1f us, p99 %6.1f us%n", name, latencies[latencies.length / 2] / 1_000.0,
+                          latencies[latencies.length * 99 / 100] / 1_000.0);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
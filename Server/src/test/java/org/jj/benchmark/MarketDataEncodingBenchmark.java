@@ -0,0 +1,85 @@
+package org.jj.benchmark;
+
+import com.google.protobuf.Message;
+import io.grpc.Drainable;
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import org.jj.Service;
+import org.jj.orderService.EncodeOnceMarshaller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Cost of writing one market data update to every subscriber stream, with gRPC's default protobuf marshaller encoding
+// it once per stream against the encode once marshaller. Full five level books and five level deltas are timed.
+public class MarketDataEncodingBenchmark {
+    private static final int UPDATES = 200;
+    private static final int ROUNDS = 5;
+    private static final int WARMUP_ROUNDS = 20;
+
+    public static void main(String[] args) throws IOException {
+        Service.OrderBook[] books = new Service.OrderBook[UPDATES];
+        Service.OrderBookDeltaUpdate[] deltas = new Service.OrderBookDeltaUpdate[UPDATES];
+        for (int i = 0; i < UPDATES; i++) {
+            books[i] = orderBook(i);
+            deltas[i] = delta(i);
+        }
+
+        for (int subscribers : new int[]{1, 100, 1_000}) {
+            print("book", subscribers, books, ProtoUtils.marshaller(Service.OrderBook.getDefaultInstance()),
+                  new EncodeOnceMarshaller<>(Service.OrderBook.getDefaultInstance()));
+            print("delta", subscribers, deltas, ProtoUtils.marshaller(Service.OrderBookDeltaUpdate.getDefaultInstance()),
+                  new EncodeOnceMarshaller<>(Service.OrderBookDeltaUpdate.getDefaultInstance()));
+        }
+    }
+
+    private static <T extends Message> void print(String type, int subscribers, T[] updates, MethodDescriptor.Marshaller<T> perStream,
+                                                  MethodDescriptor.Marshaller<T> encodeOnce) throws IOException {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            nanosPerUpdate(subscribers, updates, perStream);
+            nanosPerUpdate(subscribers, updates, encodeOnce);
+        }
+        double perStreamNanos = Double.MAX_VALUE;
+        double encodeOnceNanos = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            perStreamNanos = Math.min(perStreamNanos, nanosPerUpdate(subscribers, updates, perStream));
+            encodeOnceNanos = Math.min(encodeOnceNanos, nanosPerUpdate(subscribers, updates, encodeOnce));
+        }
+        System.out.printf("%-5s %,5d subscribers: per stream %,12.0f ns/update, encode once %,12.0f ns/update%n", type, subscribers,
+                          perStreamNanos, encodeOnceNanos);
+    }
+
+    // Writes every update to every subscriber the way gRPC's framer does, draining the marshalled stream
+    private static <T extends Message> double nanosPerUpdate(int subscribers, T[] updates, MethodDescriptor.Marshaller<T> marshaller) throws IOException {
+        OutputStream sink = OutputStream.nullOutputStream();
+        long start = System.nanoTime();
+        for (T update : updates) {
+            for (int i = 0; i < subscribers; i++) {
+                InputStream stream = marshaller.stream(update);
+                ((Drainable) stream).drainTo(sink);
+            }
+        }
+        return (System.nanoTime() - start) / (double) updates.length;
+    }
+
+    private static Service.OrderBook orderBook(int update) {
+        Service.OrderBook.Builder builder = Service.OrderBook.newBuilder();
+        for (int level = 0; level < 5; level++) {
+            builder.addBuyPrices(100 - level * 0.01 + update * 0.001).addBuyQuantities(100 + level + update);
+            builder.addSellPrices(101 + level * 0.01 + update * 0.001).addSellQuantities(200 + level + update);
+        }
+        return builder.build();
+    }
+
+    private static Service.OrderBookDeltaUpdate delta(int update) {
+        Service.OrderBookDelta.Builder delta = Service.OrderBookDelta.newBuilder();
+        for (int level = 0; level < 5; level++) {
+            delta.addChanges(Service.LevelChange.newBuilder()
+                                                .setSide(level % 2 == 0 ? Service.BuySell.BUY : Service.BuySell.SELL)
+                                                .setPrice(100 + level * 0.01)
+                                                .setQuantity(update + level));
+        }
+        return Service.OrderBookDeltaUpdate.newBuilder().setSequence(update).setDelta(delta).build();
+    }
+}
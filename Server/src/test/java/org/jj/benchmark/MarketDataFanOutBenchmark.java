@@ -0,0 +1,96 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import io.grpc.stub.StreamObserver;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Service;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.matchingEngine.DirectMarketDataPublisher;
+import org.jj.matchingEngine.MarketDataPublisher;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.sequencer.EngineEventBus;
+import org.jj.sequencer.EngineSequencer;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.sequencer.YieldingWaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+// Order acknowledgement latency with a growing number of book subscribers, publishing on the engine's thread against
+// handing updates to the publisher thread. Subscribers serialise every message as a gRPC stream would. With the
+// publisher thread, latency should stay flat as subscribers are added.
+public class MarketDataFanOutBenchmark {
+    private static final int WARMUP_ORDERS = 20_000;
+    private static final int ORDERS = 20_000;
+
+    private static volatile long bytesSerialised;
+
+    public static void main(String[] args) throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        for (int subscribers : new int[]{0, 1, 100, 1_000}) {
+            printLatencies("direct", subscribers, measure(new DirectMarketDataPublisher(), subscribers));
+
+            try (EngineEventBus publisher = new EngineEventBus("market-data", new YieldingWaitStrategy())) {
+                publisher.start();
+                printLatencies("publisher thread", subscribers, measure(publisher, subscribers));
+            }
+        }
+    }
+
+    private static long[] measure(MarketDataPublisher publisher, int subscribers) throws ExecutionException, InterruptedException {
+        try (EngineSequencer sequencer = new EngineSequencer("engine", new YieldingWaitStrategy())) {
+            sequencer.start();
+            SequencedMatchingEngine engine = new SequencedMatchingEngine(
+                    new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), DenseOrderBookSide::new, publisher), sequencer);
+            engine.submit(matchingEngine -> {
+                for (int i = 0; i < subscribers; i++) {
+                    matchingEngine.addOrderBookListener(new SerialisingObserver());
+                }
+                return null;
+            }).get();
+
+            for (int i = 0; i < WARMUP_ORDERS; i++) {
+                roundTrip(engine, i);
+            }
+            long[] nanos = new long[ORDERS];
+            for (int i = 0; i < ORDERS; i++) {
+                nanos[i] = roundTrip(engine, i);
+            }
+            return nanos;
+        }
+    }
+
+    // Alternately rests a buy and takes it out with a sell, so every order changes the book
+    private static long roundTrip(SequencedMatchingEngine engine, int i) throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        engine.createOrder(1, 100_000, i % 2 == 0 ? BuySell.BUY : BuySell.SELL, Expiry.GTC).get();
+        return System.nanoTime() - start;
+    }
+
+    private static void printLatencies(String mode, int subscribers, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("%-16s %,5d subscribers: p50 %,8d ns  p99 %,10d ns%n", mode, subscribers,
+                          nanos[nanos.length / 2], nanos[(int) (nanos.length * 0.99)]);
+    }
+
+    private static class SerialisingObserver implements StreamObserver<Service.OrderBook> {
+        @Override
+        public void onNext(Service.OrderBook orderBook) {
+            bytesSerialised += orderBook.toByteArray().length;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
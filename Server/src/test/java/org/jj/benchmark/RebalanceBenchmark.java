@@ -0,0 +1,94 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.providers.ShardMigration;
+import org.jj.providers.ShardRebalancer;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.sequencer.YieldingWaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+// Skewed flow where the hot symbols all start on shard 0, the rebalancer should spread them and throughput should
+// rise once it has. Prints the throughput of every sample period and the pause of every move.
+public class RebalanceBenchmark {
+    private static final int SHARDS = 4;
+    private static final int HOT_PRODUCTS = 4;
+    private static final int PRODUCTS = 64;
+    private static final double HOT_SHARE = 0.9;
+    private static final int PERIODS = 10;
+    private static final long PERIOD_MILLIS = 500;
+    private static final int IN_FLIGHT = 512;
+
+    private static volatile boolean running = true;
+
+    public static void main(String[] args) throws InterruptedException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        for (int i = 0; i < PRODUCTS; i++) {
+            productStore.addProduct("Product " + i, "P" + i);
+        }
+
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore, product -> DenseOrderBookSide::new, YieldingWaitStrategy::new,
+                                                                          SHARDS, product -> product.getId() <= HOT_PRODUCTS ? 0 : product.getId() % SHARDS);
+             ShardRebalancer rebalancer = new ShardRebalancer(provider)) {
+            SequencedMatchingEngine[] engines = new SequencedMatchingEngine[PRODUCTS];
+            for (int i = 0; i < PRODUCTS; i++) {
+                engines[i] = provider.getSequencedMatchingEngine("P" + i);
+            }
+
+            LongAdder completed = new LongAdder();
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < SHARDS; p++) {
+                Random random = new Random(p);
+                producers.add(new Thread(() -> produce(engines, random, completed)));
+            }
+            producers.forEach(Thread::start);
+
+            rebalancer.rebalance();
+            for (int period = 0; period < PERIODS; period++) {
+                long before = completed.sum();
+                Thread.sleep(PERIOD_MILLIS);
+                double ordersPerSecond = (completed.sum() - before) * 1000.0 / PERIOD_MILLIS;
+
+                ShardMigration migration = rebalancer.rebalance();
+                System.out.printf("period %2d: %,12.0f orders/s%s%n", period, ordersPerSecond, migration == null ? "" :
+                        String.format(", moved %s %d -> %d, paused %,d us", migration.product().getSymbol(), migration.fromShard(),
+                                      migration.toShard(), migration.pauseNanos() / 1_000));
+            }
+
+            running = false;
+            for (Thread producer : producers) {
+                producer.join();
+            }
+        }
+    }
+
+    private static void produce(SequencedMatchingEngine[] engines, Random random, LongAdder completed) {
+        CompletableFuture<Integer> last = null;
+        for (int i = 0; running; i++) {
+            int product = random.nextDouble() < HOT_SHARE ? random.nextInt(HOT_PRODUCTS) : HOT_PRODUCTS + random.nextInt(PRODUCTS - HOT_PRODUCTS);
+            BuySell buySell = random.nextBoolean() ? BuySell.BUY : BuySell.SELL;
+            last = engines[product].createOrder(1 + random.nextInt(10), 100_000 + random.nextInt(20), buySell, Expiry.GTC);
+            if (i % IN_FLIGHT == 0) {
+                last.join();
+                completed.add(IN_FLIGHT);
+            }
+        }
+        if (last != null) {
+            last.join();
+        }
+    }
+}
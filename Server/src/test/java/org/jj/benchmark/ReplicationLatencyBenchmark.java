@@ -0,0 +1,145 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.journal.Journal;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.replication.ReplicatedInputHandler;
+import org.jj.replication.ReplicationFollower;
+import org.jj.replication.ReplicationMode;
+import org.jj.replication.ReplicationServer;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+// Order acknowledgement latency of a journaled primary on its own, replicating asynchronously and replicating
+// synchronously to a standby applying the orders to its own engine over a loopback socket. Sync adds a round trip
+// and the standby's apply to every ack, async should cost next to nothing.
+public class ReplicationLatencyBenchmark {
+    private static final int ORDERS = 100_000;
+    private static final int WARMUP_ORDERS = 100_000;
+
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        ackLatencies(null, WARMUP_ORDERS);
+        ackLatencies(ReplicationMode.ASYNC, WARMUP_ORDERS);
+        ackLatencies(ReplicationMode.SYNC, WARMUP_ORDERS);
+        report("journal only", ackLatencies(null, ORDERS));
+        report("async       ", ackLatencies(ReplicationMode.ASYNC, ORDERS));
+        report("sync        ", ackLatencies(ReplicationMode.SYNC, ORDERS));
+    }
+
+    // Sends one order at a time and waits for its ack, alternating sides around a fixed price so books stay shallow
+    private static long[] ackLatencies(ReplicationMode mode, int orders) throws IOException, ExecutionException, InterruptedException {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        productStore.addProduct("Product", "P");
+        Path directory = Files.createTempDirectory("replication-benchmark");
+        Random random = new Random(0);
+
+        long[] latencies = new long[orders];
+        ReplicationServer server = null;
+        ReplicationFollower follower = null;
+        try (MatchingEngineProvider primary = new MatchingEngineProvider(productStore);
+             MatchingEngineProvider standby = new MatchingEngineProvider(productStore);
+             Journal standbyJournal = new Journal(directory.resolve("standby"), 1)) {
+            Journal journal = new Journal(directory.resolve("primary"), 1);
+            primary.attachJournal(journal);
+            if (mode != null) {
+                server = new ReplicationServer(0, journal, directory.resolve("primary"), mode);
+                server.start();
+                follower = new ReplicationFollower("localhost", server.getPort(), standbyJournal, new StandbyHandler(standby), 10_000, () -> {
+                });
+                follower.start();
+                while (!follower.isConnected()) {
+                    Thread.sleep(1);
+                }
+            }
+
+            SequencedMatchingEngine engine = primary.getSequencedMatchingEngine("P");
+            for (int i = 0; i < orders; i++) {
+                BuySell buySell = random.nextBoolean() ? BuySell.BUY : BuySell.SELL;
+                long price = 100_000 + random.nextInt(10) * 1_000L;
+                long start = System.nanoTime();
+                engine.createOrder(1 + random.nextInt(10), price, buySell, Expiry.GTC, "participant").get();
+                if (server != null) {
+                    server.whenReplicated(primary.getJournalSequence()).get();
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        } finally {
+            if (follower != null) {
+                follower.close();
+            }
+            if (server != null) {
+                server.close();
+            }
+            delete(directory);
+        }
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s p50 %6.1f us, p99 %6.1f us%n", name, latencies[latencies.length / 2] / 1_000.0,
+                          latencies[latencies.length * 99 / 100] / 1_000.0);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // Applies created orders through the standby's sequencer, the only input this benchmark sends
+    private static class StandbyHandler implements ReplicatedInputHandler {
+        private final MatchingEngineProvider standby;
+        private final List<CompletableFuture<Integer>> pending = new ArrayList<>();
+
+        StandbyHandler(MatchingEngineProvider standby) {
+            this.standby = standby;
+        }
+
+        @Override
+        public void awaitApplied() {
+            pending.forEach(CompletableFuture::join);
+            pending.clear();
+        }
+
+        @Override
+        public void onCreateOrder(long sequence, int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                  long clientOrderId) {
+            pending.add(standby.getSequencedMatchingEngine(productId).createOrder(quantity, price, buySell, expiry, participant));
+        }
+
+        @Override
+        public void onCancelOrder(long sequence, int productId, int orderId) {
+        }
+
+        @Override
+        public void onAmendOrder(long sequence, int productId, int orderId, long quantity, long price) {
+        }
+
+        @Override
+        public void onMassQuote(long sequence, int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices,
+                                long[] askQuantities) {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.journal.Journal;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.orderService.OrderServiceImpl;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Restart time from the journal alone against the latest snapshot plus the journal after it, over enough inputs to
+// leave a deep book. Also reports how long taking a snapshot holds the engines.
+public class RestartBenchmark {
+    private static final int PRODUCTS = 8;
+    private static final int INPUTS = 2_000_000;
+    private static final int TAIL_INPUTS = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        for (int i = 0; i < PRODUCTS; i++) {
+            productStore.addProduct("Product " + i, "P" + i);
+        }
+
+        Path directory = Files.createTempDirectory("restart-benchmark");
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        try {
+            try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+                OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+                provider.attachJournal(new Journal(journalDirectory, 1));
+                Random random = new Random(0);
+
+                // Straight into the engines, the benchmark is about restarting rather than taking orders
+                provider.whilePaused(() -> {
+                    send(provider, random, INPUTS - TAIL_INPUTS);
+                    return null;
+                });
+                long start = System.nanoTime();
+                provider.whilePaused(provider::writeBookSnapshots);
+                System.out.printf("engines paused for %,d ms to copy the books out%n", (System.nanoTime() - start) / 1_000_000);
+
+                start = System.nanoTime();
+                orderService.snapshot(snapshotDirectory);
+                System.out.printf("snapshot taken and written in %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+                provider.whilePaused(() -> {
+                    send(provider, random, TAIL_INPUTS);
+                    return null;
+                });
+            }
+
+            for (int round = 0; round < 3; round++) {
+                System.out.printf("journal only:      %,6d ms%n", recoveryMillis(productStore, journalDirectory, null));
+                System.out.printf("snapshot and tail: %,6d ms%n", recoveryMillis(productStore, journalDirectory, snapshotDirectory));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // Mostly resting orders around a moving mid, with some crossing and some cancelled
+    private static void send(MatchingEngineProvider provider, Random random, int inputs) {
+        for (int i = 0; i < inputs; i++) {
+            int productId = 1 + random.nextInt(PRODUCTS);
+            BuySell buySell = random.nextBoolean() ? BuySell.BUY : BuySell.SELL;
+            long price = 100_000 + (buySell == BuySell.BUY ? -1 : 1) * random.nextInt(500) * 10L - 50;
+            int orderId = provider.getMatchingEngine(productId).createOrder(1 + random.nextInt(100), price, buySell, Expiry.GTC);
+            if (random.nextInt(4) == 0) {
+                provider.getMatchingEngine(productId).cancelOrder(orderId - random.nextInt(100));
+            }
+        }
+    }
+
+    private static long recoveryMillis(ProductStore productStore, Path journalDirectory, Path snapshotDirectory) throws IOException {
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+            long start = System.nanoTime();
+            orderService.recover(journalDirectory, snapshotDirectory);
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+}
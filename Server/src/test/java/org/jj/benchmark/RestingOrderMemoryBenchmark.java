@@ -0,0 +1,41 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+
+// Retained heap per resting order once a book holds a million of them
+public class RestingOrderMemoryBenchmark {
+    private static final int ORDERS = 1_000_000;
+    private static final int PRICE_LEVELS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        long before = usedHeap();
+        MatchingEngineImpl matchingEngine = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        for (int i = 0; i < ORDERS; i++) {
+            matchingEngine.createOrder(1, 1 + i % PRICE_LEVELS, BuySell.BUY, Expiry.GTC);
+        }
+        long after = usedHeap();
+
+        System.out.printf("%,d resting orders: %.1f bytes/order%n", ORDERS, (after - before) / (double) ORDERS);
+        Reference.reachabilityFence(matchingEngine);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
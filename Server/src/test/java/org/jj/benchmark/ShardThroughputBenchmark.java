@@ -0,0 +1,79 @@
+package org.jj.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.sequencer.YieldingWaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+// Multi-symbol order flow through the provider with a growing number of engine shards, throughput should scale with
+// shards up to the number of cores
+public class ShardThroughputBenchmark {
+    private static final int PRODUCTS = 256;
+    private static final int ORDERS_PER_PRODUCER = 500_000;
+    private static final int IN_FLIGHT = 512;
+
+    public static void main(String[] args) throws InterruptedException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        ordersPerSecond(1);
+
+        for (int shards = 1; shards <= Math.max(1, cores); shards <<= 1) {
+            System.out.printf("%2d shards on %d cores: %,12.0f orders/s%n", shards, cores, ordersPerSecond(shards));
+        }
+    }
+
+    // One producer per shard, each sending crossing orders to random products
+    private static double ordersPerSecond(int shards) throws InterruptedException {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        for (int i = 0; i < PRODUCTS; i++) {
+            productStore.addProduct("Product " + i, "P" + i);
+        }
+
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore, product -> DenseOrderBookSide::new,
+                                                                          YieldingWaitStrategy::new, shards)) {
+            SequencedMatchingEngine[] engines = new SequencedMatchingEngine[PRODUCTS];
+            for (int i = 0; i < PRODUCTS; i++) {
+                engines[i] = provider.getSequencedMatchingEngine("P" + i);
+            }
+
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < shards; p++) {
+                Random random = new Random(p);
+                producers.add(new Thread(() -> {
+                    CompletableFuture<Integer> last = null;
+                    for (int i = 0; i < ORDERS_PER_PRODUCER; i++) {
+                        SequencedMatchingEngine engine = engines[random.nextInt(PRODUCTS)];
+                        BuySell buySell = random.nextBoolean() ? BuySell.BUY : BuySell.SELL;
+                        last = engine.createOrder(1 + random.nextInt(10), 100_000 + random.nextInt(20), buySell, Expiry.GTC);
+                        if (i % IN_FLIGHT == 0) {
+                            last.join();
+                        }
+                    }
+                    last.join();
+                }));
+            }
+
+            long start = System.nanoTime();
+            producers.forEach(Thread::start);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            return (double) shards * ORDERS_PER_PRODUCER * 1_000_000_000L / elapsed;
+        }
+    }
+}
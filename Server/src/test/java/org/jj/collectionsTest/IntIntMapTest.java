@@ -0,0 +1,83 @@
+package org.jj.collectionsTest;
+
+import org.jj.collections.IntIntMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntIntMapTest {
+    IntIntMap subject;
+
+    @BeforeEach
+    void setUp() {
+        subject = new IntIntMap(-1);
+    }
+
+    @Test
+    void shouldPutAndGet() {
+        assertThat(subject.put(1, 10)).isEqualTo(-1);
+        assertThat(subject.put(0, 20)).isEqualTo(-1);
+
+        assertThat(subject.get(1)).isEqualTo(10);
+        assertThat(subject.get(0)).isEqualTo(20);
+        assertThat(subject.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReturnMissingValueForAbsentKey() {
+        assertThat(subject.get(5)).isEqualTo(-1);
+        assertThat(subject.containsKey(5)).isFalse();
+        assertThat(subject.remove(5)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldReplaceExistingValue() {
+        subject.put(1, 10);
+
+        assertThat(subject.put(1, 11)).isEqualTo(10);
+        assertThat(subject.get(1)).isEqualTo(11);
+        assertThat(subject.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRemove() {
+        subject.put(1, 10);
+
+        assertThat(subject.remove(1)).isEqualTo(10);
+        assertThat(subject.containsKey(1)).isFalse();
+        assertThat(subject.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldRejectMissingValue() {
+        assertThatThrownBy(() -> subject.put(1, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMatchHashMapUnderRandomChurn() {
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                assertThat(subject.put(key, i)).isEqualTo(expected.getOrDefault(key, -1));
+                expected.put(key, i);
+            } else {
+                assertThat(subject.remove(key)).isEqualTo(expected.getOrDefault(key, -1));
+                expected.remove(key);
+            }
+        }
+
+        assertThat(subject.size()).isEqualTo(expected.size());
+        for (int key = 0; key < 5_000; key++) {
+            assertThat(subject.get(key)).isEqualTo(expected.getOrDefault(key, -1));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.jj.collectionsTest;
+
+import org.jj.collections.IntObjectMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntObjectMapTest {
+    IntObjectMap<String> subject;
+
+    @BeforeEach
+    void setUp() {
+        subject = new IntObjectMap<>();
+    }
+
+    @Test
+    void shouldPutGetAndRemove() {
+        assertThat(subject.put(7, "seven")).isNull();
+        assertThat(subject.put(7, "SEVEN")).isEqualTo("seven");
+
+        assertThat(subject.get(7)).isEqualTo("SEVEN");
+        assertThat(subject.remove(7)).isEqualTo("SEVEN");
+        assertThat(subject.get(7)).isNull();
+    }
+
+    @Test
+    void shouldVisitEveryValue() {
+        subject.put(1, "a");
+        subject.put(2, "b");
+        subject.put(3, "c");
+        subject.remove(2);
+
+        List<String> values = new ArrayList<>();
+        subject.forEachValue(values::add);
+
+        assertThat(values).containsExactlyInAnyOrder("a", "c");
+    }
+
+    @Test
+    void shouldMatchHashMapUnderRandomChurn() {
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) > 0) {
+                String value = Integer.toString(i);
+                assertThat(subject.put(key, value)).isEqualTo(expected.put(key, value));
+            } else {
+                assertThat(subject.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+
+        assertThat(subject.size()).isEqualTo(expected.size());
+        for (int key = -2_500; key < 2_500; key++) {
+            assertThat(subject.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+}
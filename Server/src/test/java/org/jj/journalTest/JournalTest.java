@@ -0,0 +1,460 @@
+package org.jj.journalTest;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.journal.Journal;
+import org.jj.journal.JournalHandler;
+import org.jj.journal.JournalReader;
+import org.jj.journal.JournalTailer;
+import org.jj.matchingEngine.InputJournal;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.orderService.OrderServiceImpl;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayEveryRecordInOrder() throws IOException {
+        try (Journal journal = new Journal(directory, 1)) {
+            assertThat(journal.appendCreateOrder(1, 10, 100_000, BuySell.BUY, Expiry.GTC, "alice", 42)).isEqualTo(1);
+            assertThat(journal.appendCreateOrder(2, 5, 101_000, BuySell.SELL, Expiry.IOC, null, 0)).isEqualTo(2);
+            journal.appendAmendOrder(1, 7, 8, 99_000);
+            journal.appendMassQuote(3, "bob", new long[]{99_000, 98_000}, new long[]{1, 2}, new long[]{102_000}, new long[]{3});
+            journal.appendCancelOrder(1, 7);
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, handler)).isEqualTo(5);
+        assertThat(handler.records).containsExactly(
+                "1 create 1 10@100000 BUY GTC alice 42",
+                "2 create 2 5@101000 SELL IOC null 0",
+                "3 amend 1 7 8@99000",
+                "4 quote 3 bob [99000x1 98000x2] [102000x3]",
+                "5 cancel 1 7");
+    }
+
+    @Test
+    void shouldReplayParticipantsOutsideAscii() throws IOException {
+        String participant = "caf\u00e9 \u20ac \uD83D\uDCC8";
+        try (Journal journal = new Journal(directory, 1)) {
+            journal.appendCreateOrder(1, 10, 100_000, BuySell.BUY, Expiry.GTC, participant, 0);
+            journal.appendMassQuote(1, "lone \uD83D", new long[]{99_000}, new long[]{1}, new long[0], new long[0]);
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, handler)).isEqualTo(2);
+        assertThat(handler.records).containsExactly(
+                "1 create 1 10@100000 BUY GTC " + participant + " 0",
+                "2 quote 1 lone ? [99000x1] []");
+    }
+
+    @Test
+    void shouldRollToNewSegmentWhenFull() throws IOException {
+        try (Journal journal = new Journal(directory, 1, 256, 10)) {
+            for (int i = 0; i < 100; i++) {
+                journal.appendCancelOrder(1, i);
+            }
+        }
+
+        assertThat(segments().size()).isGreaterThan(1);
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, handler)).isEqualTo(100);
+        assertThat(handler.records).hasSize(100).startsWith("1 cancel 1 0").endsWith("100 cancel 1 99");
+    }
+
+    @Test
+    void shouldKeepEveryProductsRecordsInSequenceAcrossConcurrentWriters() throws Exception {
+        int products = 4;
+        int recordsPerProduct = 10_000;
+        try (Journal journal = new Journal(directory, 1, 4096, 1)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int product = 0; product < products; product++) {
+                InputJournal productJournal = journal.forProduct(product);
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < recordsPerProduct; i++) {
+                        productJournal.cancelOrder(i);
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertThat(journal.getLastSequence()).isEqualTo(products * recordsPerProduct);
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        int[] nextOrderIds = new int[products];
+        JournalReader.replay(directory, new RecordingHandler() {
+            @Override
+            public void onCancelOrder(long sequence, int productId, int orderId) {
+                sequences.add(sequence);
+                assertThat(orderId).isEqualTo(nextOrderIds[productId]++);
+            }
+        });
+        assertThat(sequences).containsExactlyElementsOf(LongStream.rangeClosed(1, products * recordsPerProduct).boxed().toList());
+        assertThat(nextOrderIds).containsOnly(recordsPerProduct);
+    }
+
+    @Test
+    void shouldStopAtCorruptedRecordAndContinueSequence() throws IOException {
+        try (Journal journal = new Journal(directory, 1)) {
+            journal.appendCancelOrder(1, 1);
+            journal.appendCancelOrder(1, 2);
+            journal.appendCancelOrder(1, 3);
+        }
+
+        // Flip a byte inside the body of the last record, as a write cut short by a crash would leave it
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int recordSize = 21 + 4;
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 2L * recordSize + recordSize - 1);
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        long lastSequence = JournalReader.replay(directory, handler);
+        assertThat(lastSequence).isEqualTo(2);
+
+        try (Journal journal = new Journal(directory, lastSequence + 1)) {
+            assertThat(journal.appendCancelOrder(1, 4)).isEqualTo(3);
+        }
+
+        handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, handler)).isEqualTo(3);
+        assertThat(handler.records).containsExactly("1 cancel 1 1", "2 cancel 1 2", "3 cancel 1 4");
+    }
+
+    @Test
+    void shouldRestartTwiceWithoutInputs() throws IOException {
+        for (int run = 0; run < 2; run++) {
+            long lastSequence = JournalReader.replay(directory, new RecordingHandler());
+            assertThat(lastSequence).isZero();
+            new Journal(directory, lastSequence + 1).close();
+        }
+
+        try (Journal journal = new Journal(directory, JournalReader.replay(directory, new RecordingHandler()) + 1)) {
+            assertThat(journal.appendCancelOrder(1, 7)).isEqualTo(1);
+        }
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, handler)).isEqualTo(1);
+        assertThat(handler.records).containsExactly("1 cancel 1 7");
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void shouldReuseSegmentLeftWithATornRecord() throws IOException {
+        try (Journal journal = new Journal(directory, 1, 256, 10)) {
+            journal.appendCancelOrder(1, 1);
+        }
+        // A record cut short after rolling: everything but its length, which is written last
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal-00000000000000000002.log"), StandardOpenOption.CREATE_NEW,
+                                                    StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 1, 2, 3, 4, 0, 0, 0, 0, 0, 0, 0, 2}));
+        }
+
+        long lastSequence = JournalReader.replay(directory, new RecordingHandler());
+        try (Journal journal = new Journal(directory, lastSequence + 1, 256, 10)) {
+            journal.appendCancelOrder(1, 2);
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, handler)).isEqualTo(2);
+        assertThat(handler.records).containsExactly("1 cancel 1 1", "2 cancel 1 2");
+    }
+
+    @Test
+    void shouldRefuseToOverwriteSegmentWithRecords() throws IOException {
+        try (Journal journal = new Journal(directory, 1)) {
+            journal.appendCancelOrder(1, 1);
+        }
+
+        assertThatThrownBy(() -> new Journal(directory, 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldReplayOnlyAfterSequence() throws IOException {
+        try (Journal journal = new Journal(directory, 1, 256, 10)) {
+            for (int i = 0; i < 100; i++) {
+                journal.appendCancelOrder(1, i);
+            }
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(directory, 90, handler)).isEqualTo(100);
+        assertThat(handler.records).hasSize(10).startsWith("91 cancel 1 90");
+
+        assertThat(JournalReader.replay(directory, 100, new RecordingHandler())).isEqualTo(100);
+    }
+
+    @Test
+    void shouldReturnZeroForMissingJournal() throws IOException {
+        assertThat(JournalReader.replay(directory.resolve("missing"), new RecordingHandler())).isZero();
+    }
+
+    @Test
+    void shouldRejectAppendAfterClose() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.close();
+
+        assertThatThrownBy(() -> journal.appendCancelOrder(1, 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldTellEachEngineTheSequenceOfItsOwnInputs() throws IOException {
+        MatchingEngineImpl first = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        MatchingEngineImpl second = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        try (Journal journal = new Journal(directory, 1)) {
+            first.setInputJournal(journal.forProduct(1));
+            second.setInputJournal(journal.forProduct(2));
+
+            int orderId = first.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC);
+            second.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC);
+            second.createOrder(10, 101_000, BuySell.BUY, Expiry.GTC);
+            assertThat(first.getLastJournalSequence()).isEqualTo(1);
+            assertThat(second.getLastJournalSequence()).isEqualTo(3);
+
+            first.cancelOrder(orderId);
+            assertThat(first.getLastJournalSequence()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void shouldJournalOnlyInputsTheBookTakes() throws IOException {
+        MatchingEngineImpl engine = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        try (Journal journal = new Journal(directory, 1)) {
+            engine.setInputJournal(journal.forProduct(1));
+            int orderId = engine.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC);
+            long outsideLadder = 100_000 + (1L << 23);
+
+            assertThatThrownBy(() -> engine.createOrder(10, outsideLadder, BuySell.BUY, Expiry.GTC)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> engine.amendOrder(orderId, 10, outsideLadder)).isInstanceOf(IllegalArgumentException.class);
+            assertThat(engine.cancelOrder(orderId + 1)).isFalse();
+            assertThat(engine.amendOrder(orderId + 1, 5, 100_000)).isFalse();
+            assertThat(engine.getLastJournalSequence()).isEqualTo(1);
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        JournalReader.replay(directory, handler);
+        assertThat(handler.records).hasSize(1);
+    }
+
+    @Test
+    void shouldStopReplayAtARecordTheHandlerFailsOn() throws IOException {
+        try (Journal journal = new Journal(directory, 1)) {
+            journal.appendCancelOrder(1, 1);
+            journal.appendCancelOrder(1, 2);
+        }
+
+        RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public void onCancelOrder(long sequence, int productId, int orderId) {
+                if (orderId == 1) {
+                    throw new IllegalStateException("Order 1 is not resting");
+                }
+                super.onCancelOrder(sequence, productId, orderId);
+            }
+        };
+        assertThatThrownBy(() -> JournalReader.replay(directory, handler)).isInstanceOf(IllegalStateException.class);
+        assertThat(handler.records).isEmpty();
+    }
+
+    @Test
+    void shouldRebuildSameBookFromJournal() throws IOException {
+        MatchingEngineImpl original = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        try (Journal journal = new Journal(directory, 1)) {
+            original.setInputJournal(journal.forProduct(1));
+            int restingId = original.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC, "alice");
+            original.createOrder(4, 100_000, BuySell.SELL, Expiry.GTC, "bob");
+            original.createOrder(3, 101_000, BuySell.SELL, Expiry.GTC);
+            original.massQuote("carol", new long[]{99_000}, new long[]{5}, new long[]{102_000}, new long[]{5});
+            original.amendOrder(restingId, 8, 100_000);
+            original.cancelOrder(restingId + 100);
+        }
+        original.setInputJournal(null);
+
+        MatchingEngineImpl rebuilt = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        JournalReader.replay(directory, new JournalHandler() {
+            @Override
+            public void onCreateOrder(long sequence, int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                      long clientOrderId) {
+                rebuilt.createOrder(quantity, price, buySell, expiry, participant);
+            }
+
+            @Override
+            public void onCancelOrder(long sequence, int productId, int orderId) {
+                rebuilt.cancelOrder(orderId);
+            }
+
+            @Override
+            public void onAmendOrder(long sequence, int productId, int orderId, long quantity, long price) {
+                rebuilt.amendOrder(orderId, quantity, price);
+            }
+
+            @Override
+            public void onMassQuote(long sequence, int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices,
+                                    long[] askQuantities) {
+                rebuilt.massQuote(participant, bidPrices, bidQuantities, askPrices, askQuantities);
+            }
+        });
+
+        assertThat(rebuilt.getInitialOrderBookForSubscriber()).isEqualTo(original.getInitialOrderBookForSubscriber());
+        assertThat(rebuilt.createOrder(1, 50_000, BuySell.BUY, Expiry.GTC)).isEqualTo(original.createOrder(1, 50_000, BuySell.BUY, Expiry.GTC));
+    }
+
+    @Test
+    void shouldRecoverOrdersIntoOrderStore() throws IOException {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int productId = productStore.addProduct("JensenProduct", "JJ");
+
+        long orderId;
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            provider.attachJournal(new Journal(directory, 1));
+            MatchingEngineImpl engine = provider.getMatchingEngine(productId);
+            orderId = engine.toOrderId(engine.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC, "alice"));
+        }
+
+        OrderStore orderStore = new OrderStore();
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, orderStore);
+            assertThat(orderService.recover(directory)).isEqualTo(1);
+            assertThat(orderStore.getProductId(orderId)).isEqualTo(productId);
+            assertThat(orderStore.getOrder(orderId).quantity()).isEqualTo(10);
+            assertThat(provider.getMatchingEngine(productId).getInitialOrderBookForSubscriber().getBuyPricesCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldTailRecordsAsTheyAreAppendedAcrossSegments() throws IOException {
+        try (Journal journal = new Journal(directory, 1, 256, 10)) {
+            JournalTailer tailer = new JournalTailer(directory, 0);
+            assertThat(tailer.poll()).isNull();
+
+            RecordingHandler handler = new RecordingHandler();
+            for (int i = 0; i < 30; i++) {
+                journal.appendCancelOrder(1, i);
+                ByteBuffer record = pollUntilPresent(tailer);
+                assertThat(JournalReader.dispatch(record, handler)).isEqualTo(i + 1);
+            }
+            assertThat(tailer.poll()).isNull();
+            assertThat(tailer.getLastSequence()).isEqualTo(30);
+            assertThat(segments().size()).isGreaterThan(1);
+            assertThat(handler.records).hasSize(30).startsWith("1 cancel 1 0").endsWith("30 cancel 1 29");
+        }
+    }
+
+    @Test
+    void shouldTailFromTheMiddleOfTheJournal() throws IOException {
+        try (Journal journal = new Journal(directory, 1, 256, 10)) {
+            for (int i = 0; i < 30; i++) {
+                journal.appendCancelOrder(1, i);
+            }
+        }
+
+        JournalTailer tailer = new JournalTailer(directory, 20);
+        RecordingHandler handler = new RecordingHandler();
+        ByteBuffer record;
+        while ((record = tailer.poll()) != null) {
+            JournalReader.dispatch(record, handler);
+        }
+        assertThat(handler.records).hasSize(10).startsWith("21 cancel 1 20").endsWith("30 cancel 1 29");
+    }
+
+    @Test
+    void shouldCopyReplicatedRecordsUnderTheSameSequence() throws IOException {
+        Path copyDirectory = directory.resolve("copy");
+        try (Journal journal = new Journal(directory.resolve("original"), 1);
+             Journal copy = new Journal(copyDirectory, 1)) {
+            journal.appendCreateOrder(1, 10, 100_000, BuySell.BUY, Expiry.GTC, "alice", 0);
+            journal.appendCancelOrder(1, 1);
+
+            JournalTailer tailer = new JournalTailer(directory.resolve("original"), 0);
+            ByteBuffer first = tailer.poll();
+            assertThat(JournalReader.isComplete(first)).isTrue();
+            assertThat(copy.appendReplicated(first)).isEqualTo(1);
+
+            ByteBuffer second = tailer.poll();
+            assertThat(copy.appendReplicated(second)).isEqualTo(2);
+            assertThatThrownBy(() -> copy.appendReplicated(first)).isInstanceOf(IllegalStateException.class);
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        assertThat(JournalReader.replay(copyDirectory, handler)).isEqualTo(2);
+        assertThat(handler.records).containsExactly("1 create 1 10@100000 BUY GTC alice 0", "2 cancel 1 1");
+    }
+
+    // A roll is only looked for every so often while the current segment has room
+    private static ByteBuffer pollUntilPresent(JournalTailer tailer) throws IOException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            ByteBuffer record = tailer.poll();
+            if (record != null) {
+                return record;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("No record after sequence " + tailer.getLastSequence());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static class RecordingHandler implements JournalHandler {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void onCreateOrder(long sequence, int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                  long clientOrderId) {
+            records.add(sequence + " create " + productId + " " + quantity + "@" + price + " " + buySell + " " + expiry + " " + participant + " "
+                        + clientOrderId);
+        }
+
+        @Override
+        public void onCancelOrder(long sequence, int productId, int orderId) {
+            records.add(sequence + " cancel " + productId + " " + orderId);
+        }
+
+        @Override
+        public void onAmendOrder(long sequence, int productId, int orderId, long quantity, long price) {
+            records.add(sequence + " amend " + productId + " " + orderId + " " + quantity + "@" + price);
+        }
+
+        @Override
+        public void onMassQuote(long sequence, int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices,
+                                long[] askQuantities) {
+            records.add(sequence + " quote " + productId + " " + participant + " " + levels(bidPrices, bidQuantities) + " " + levels(askPrices, askQuantities));
+        }
+
+        private static String levels(long[] prices, long[] quantities) {
+            List<String> levels = new ArrayList<>();
+            for (int i = 0; i < prices.length; i++) {
+                levels.add(prices[i] + "x" + quantities[i]);
+            }
+            return "[" + String.join(" ", levels) + "]";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.jj.matchingEngineTest;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.jj.matchingEngine.ConflatingSubscriber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConflatingSubscriberTest {
+    private ServerCallStreamObserver<String> observer;
+    private Runnable onReady;
+    private volatile long now = 1_000;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        observer = Mockito.mock(ServerCallStreamObserver.class);
+        when(observer.isReady()).thenReturn(true);
+    }
+
+    private ConflatingSubscriber<String> subscriber(long intervalMillis) {
+        ConflatingSubscriber<String> subscriber = new ConflatingSubscriber<>(observer, intervalMillis, () -> now);
+        ArgumentCaptor<Runnable> handler = ArgumentCaptor.forClass(Runnable.class);
+        verify(observer).setOnReadyHandler(handler.capture());
+        onReady = handler.getValue();
+        return subscriber;
+    }
+
+    @Test
+    void shouldSendStraightThroughWhileReady() {
+        ConflatingSubscriber<String> subject = subscriber(0);
+
+        subject.onNext("a");
+        subject.onNext("b");
+
+        verify(observer).onNext("a");
+        verify(observer).onNext("b");
+        assertThat(subject.hasPending()).isFalse();
+    }
+
+    @Test
+    void shouldKeepOnlyLatestWhileNotReady() {
+        ConflatingSubscriber<String> subject = subscriber(0);
+        when(observer.isReady()).thenReturn(false);
+
+        subject.onNext("a");
+        subject.onNext("b");
+        subject.onNext("c");
+        verify(observer, never()).onNext(any());
+        assertThat(subject.hasPending()).isTrue();
+
+        when(observer.isReady()).thenReturn(true);
+        onReady.run();
+
+        verify(observer, times(1)).onNext(any());
+        verify(observer).onNext("c");
+        assertThat(subject.hasPending()).isFalse();
+    }
+
+    @Test
+    void shouldHoldBackUpdatesInsideConflationInterval() {
+        ConflatingSubscriber<String> subject = subscriber(50);
+
+        subject.onNext("a");
+        now += 10;
+        subject.onNext("b");
+        subject.onNext("c");
+        verify(observer, times(1)).onNext(any());
+
+        now += 40;
+        verify(observer, timeout(1_000)).onNext("c");
+        verify(observer, never()).onNext("b");
+    }
+
+    @Test
+    void shouldResyncStaleDeltaStreamWithSnapshot() {
+        ConflatingSubscriber<String> subject = subscriber(0);
+        AtomicInteger resyncs = new AtomicInteger();
+        subject.setResyncHandler(resyncs::incrementAndGet);
+        when(observer.isReady()).thenReturn(false);
+
+        subject.onNextDelta("delta-1");
+        subject.onNextDelta("delta-2");
+        assertThat(subject.isStale()).isTrue();
+
+        when(observer.isReady()).thenReturn(true);
+        onReady.run();
+        assertThat(resyncs).hasValue(1);
+        subject.resync("snapshot-2");
+        subject.onNextDelta("delta-3");
+
+        verify(observer, never()).onNext("delta-1");
+        verify(observer, never()).onNext("delta-2");
+        verify(observer).onNext("snapshot-2");
+        verify(observer).onNext("delta-3");
+        assertThat(subject.isStale()).isFalse();
+    }
+
+    @Test
+    void shouldDropDeltasUntilResyncedEvenOnceReady() {
+        ConflatingSubscriber<String> subject = subscriber(0);
+        when(observer.isReady()).thenReturn(false);
+        subject.onNextDelta("delta-1");
+
+        when(observer.isReady()).thenReturn(true);
+        subject.onNextDelta("delta-2");
+        verify(observer, never()).onNext(any());
+
+        subject.resync("snapshot-2");
+        subject.resync("snapshot-2");
+        verify(observer, times(1)).onNext(any());
+        verify(observer).onNext("snapshot-2");
+    }
+}
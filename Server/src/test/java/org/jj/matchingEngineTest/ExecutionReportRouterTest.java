@@ -0,0 +1,141 @@
+package org.jj.matchingEngineTest;
+
+import io.grpc.stub.StreamObserver;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Service;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.matchingEngine.DirectMarketDataPublisher;
+import org.jj.matchingEngine.ExecutionReportRouter;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ExecutionReportRouterTest {
+    private MatchingEngineImpl subject;
+    private ExecutionReportRouter router;
+    private StreamObserver<Service.ExecutionReport> alice;
+    private StreamObserver<Service.ExecutionReport> bob;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        router = new ExecutionReportRouter();
+        subject = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), DenseOrderBookSide::new, new DirectMarketDataPublisher(), 7);
+        subject.setExecutionReportListener(router.forProduct("TEST"));
+
+        alice = Mockito.mock(StreamObserver.class);
+        bob = Mockito.mock(StreamObserver.class);
+        router.addObserver("alice", alice);
+        router.addObserver("bob", bob);
+    }
+
+    @Test
+    void shouldReportFillsToBothParticipants() {
+        long restingId = subject.toOrderId(subject.createOrder(10, 100_000, BuySell.SELL, Expiry.GTC, "alice"));
+        long aggressorId = subject.toOrderId(subject.createOrder(4, 100_000, BuySell.BUY, Expiry.GTC, "bob"));
+
+        assertThat(reports(alice, 2)).extracting(Service.ExecutionReport::getOrderId, Service.ExecutionReport::getExecType,
+                                                 Service.ExecutionReport::getLastQuantity, Service.ExecutionReport::getLeavesQuantity)
+                                     .containsExactly(tuple(restingId, Service.ExecType.ACCEPTED, 0L, 10L),
+                                                      tuple(restingId, Service.ExecType.PARTIALLY_FILLED, 4L, 6L));
+
+        List<Service.ExecutionReport> bobReports = reports(bob, 2);
+        assertThat(bobReports).extracting(Service.ExecutionReport::getOrderId, Service.ExecutionReport::getExecType)
+                              .containsExactly(tuple(aggressorId, Service.ExecType.ACCEPTED), tuple(aggressorId, Service.ExecType.FILLED));
+        assertThat(bobReports.get(1).getLastPrice()).isEqualTo(100.0);
+        assertThat(bobReports.get(1).getProductSymbol()).isEqualTo("TEST");
+        assertThat(bobReports.get(1).getBuySell()).isEqualTo(Service.BuySell.BUY);
+    }
+
+    @Test
+    void shouldReportExpiredIocRemainder() {
+        subject.createOrder(3, 100_000, BuySell.SELL, Expiry.GTC);
+        long iocId = subject.toOrderId(subject.createOrder(5, 100_000, BuySell.BUY, Expiry.IOC, "bob"));
+
+        assertThat(reports(bob, 3)).extracting(Service.ExecutionReport::getOrderId, Service.ExecutionReport::getExecType,
+                                               Service.ExecutionReport::getQuantityFilled, Service.ExecutionReport::getLeavesQuantity)
+                                   .containsExactly(tuple(iocId, Service.ExecType.ACCEPTED, 0L, 5L),
+                                                    tuple(iocId, Service.ExecType.PARTIALLY_FILLED, 3L, 2L),
+                                                    tuple(iocId, Service.ExecType.EXPIRED, 3L, 0L));
+    }
+
+    @Test
+    void shouldReportExpiredFokWithoutFills() {
+        subject.createOrder(3, 100_000, BuySell.SELL, Expiry.GTC, "alice");
+        long fokId = subject.toOrderId(subject.createOrder(5, 100_000, BuySell.BUY, Expiry.FOK, "bob"));
+
+        assertThat(reports(bob, 2)).extracting(Service.ExecutionReport::getOrderId, Service.ExecutionReport::getExecType)
+                                   .containsExactly(tuple(fokId, Service.ExecType.ACCEPTED), tuple(fokId, Service.ExecType.EXPIRED));
+        assertThat(reports(alice, 1)).extracting(Service.ExecutionReport::getExecType).containsExactly(Service.ExecType.ACCEPTED);
+    }
+
+    @Test
+    void shouldReportCancelAndReplacedQuotes() {
+        int orderId = subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC, "alice");
+        subject.cancelOrder(orderId);
+
+        int[] quoteIds = subject.massQuote("bob", new long[]{99_000}, new long[]{5}, new long[0], new long[0]);
+        subject.massQuote("bob", new long[0], new long[0], new long[0], new long[0]);
+
+        assertThat(reports(alice, 2)).extracting(Service.ExecutionReport::getExecType)
+                                     .containsExactly(Service.ExecType.ACCEPTED, Service.ExecType.CANCELLED);
+        assertThat(reports(bob, 2)).extracting(Service.ExecutionReport::getOrderId, Service.ExecutionReport::getExecType)
+                                   .containsExactly(tuple(subject.toOrderId(quoteIds[0]), Service.ExecType.ACCEPTED),
+                                                    tuple(subject.toOrderId(quoteIds[0]), Service.ExecType.CANCELLED));
+    }
+
+    @Test
+    void shouldReportAmendsAsReplacedAheadOfTheirFills() {
+        subject.createOrder(4, 101_000, BuySell.SELL, Expiry.GTC);
+        int orderId = subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC, "alice");
+
+        subject.amendOrder(orderId, 8, 100_000);
+        subject.amendOrder(orderId, 12, 101_000);
+
+        assertThat(reports(alice, 4)).extracting(Service.ExecutionReport::getExecType, Service.ExecutionReport::getQuantity,
+                                                 Service.ExecutionReport::getLastPrice, Service.ExecutionReport::getLeavesQuantity)
+                                     .containsExactly(tuple(Service.ExecType.ACCEPTED, 10L, 100.0, 10L),
+                                                      tuple(Service.ExecType.REPLACED, 8L, 100.0, 8L),
+                                                      tuple(Service.ExecType.REPLACED, 12L, 101.0, 12L),
+                                                      tuple(Service.ExecType.PARTIALLY_FILLED, 12L, 101.0, 8L));
+    }
+
+    @Test
+    void shouldNotReportOrdersWithoutParticipant() {
+        subject.createOrder(10, 100_000, BuySell.SELL, Expiry.GTC);
+        subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC);
+
+        verify(alice, never()).onNext(any());
+        verify(bob, never()).onNext(any());
+    }
+
+    @Test
+    void shouldStopReportingToRemovedObserver() {
+        router.removeObserver("alice", alice);
+        subject.createOrder(10, 100_000, BuySell.SELL, Expiry.GTC, "alice");
+
+        verify(alice, never()).onNext(any());
+        assertThat(router.hasSubscriber("alice")).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Service.ExecutionReport> reports(StreamObserver<Service.ExecutionReport> observer, int count) {
+        ArgumentCaptor<Service.ExecutionReport> captor = ArgumentCaptor.forClass(Service.ExecutionReport.class);
+        verify(observer, times(count)).onNext(captor.capture());
+        return captor.getAllValues();
+    }
+}
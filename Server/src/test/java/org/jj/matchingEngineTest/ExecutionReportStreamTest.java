@@ -0,0 +1,103 @@
+package org.jj.matchingEngineTest;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Service;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.matchingEngine.DirectMarketDataPublisher;
+import org.jj.matchingEngine.ExecutionReportRouter;
+import org.jj.matchingEngine.ExecutionReportStream;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExecutionReportStreamTest {
+    private ServerCallStreamObserver<Service.ExecutionReport> observer;
+    private Runnable onReady;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        observer = Mockito.mock(ServerCallStreamObserver.class);
+        when(observer.isReady()).thenReturn(true);
+    }
+
+    private ExecutionReportStream stream(int maxQueuedReports) {
+        ExecutionReportStream stream = new ExecutionReportStream("alice", observer, maxQueuedReports);
+        ArgumentCaptor<Runnable> handler = ArgumentCaptor.forClass(Runnable.class);
+        verify(observer).setOnReadyHandler(handler.capture());
+        onReady = handler.getValue();
+        return stream;
+    }
+
+    @Test
+    void shouldQueueReportsWhileNotReadyAndSendThemInOrder() {
+        ExecutionReportStream subject = stream(10);
+        when(observer.isReady()).thenReturn(false);
+
+        assertThat(subject.send(report(1))).isTrue();
+        assertThat(subject.send(report(2))).isTrue();
+        verify(observer, never()).onNext(any());
+        assertThat(subject.getQueuedReports()).isEqualTo(2);
+
+        when(observer.isReady()).thenReturn(true);
+        assertThat(subject.send(report(3))).isTrue();
+        verify(observer, never()).onNext(any());
+        onReady.run();
+
+        ArgumentCaptor<Service.ExecutionReport> sent = ArgumentCaptor.forClass(Service.ExecutionReport.class);
+        verify(observer, times(3)).onNext(sent.capture());
+        assertThat(sent.getAllValues()).extracting(Service.ExecutionReport::getOrderId).containsExactly(1L, 2L, 3L);
+        assertThat(subject.getQueuedReports()).isZero();
+    }
+
+    @Test
+    void shouldCutOffStreamThatFallsTooFarBehind() {
+        ExecutionReportStream subject = stream(2);
+        when(observer.isReady()).thenReturn(false);
+
+        assertThat(subject.send(report(1))).isTrue();
+        assertThat(subject.send(report(2))).isTrue();
+        assertThat(subject.send(report(3))).isFalse();
+
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        verify(observer).onError(error.capture());
+        assertThat(((StatusRuntimeException) error.getValue()).getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+        assertThat(subject.getQueuedReports()).isZero();
+        assertThat(subject.send(report(4))).isFalse();
+    }
+
+    @Test
+    void shouldDropCutOffStreamFromRouter() {
+        ExecutionReportRouter router = new ExecutionReportRouter();
+        MatchingEngineImpl engine = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), DenseOrderBookSide::new,
+                                                           new DirectMarketDataPublisher(), 7);
+        engine.setExecutionReportListener(router.forProduct("TEST"));
+        router.addStream("alice", stream(1));
+        when(observer.isReady()).thenReturn(false);
+
+        engine.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC, "alice");
+        engine.createOrder(10, 101_000, BuySell.BUY, Expiry.GTC, "alice");
+
+        verify(observer).onError(any());
+        assertThat(router.hasSubscriber("alice")).isFalse();
+    }
+
+    private static Service.ExecutionReport report(long orderId) {
+        return Service.ExecutionReport.newBuilder().setOrderId(orderId).build();
+    }
+}
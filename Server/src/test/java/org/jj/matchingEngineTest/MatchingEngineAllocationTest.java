@@ -0,0 +1,139 @@
+package org.jj.matchingEngineTest;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Order;
+import org.jj.journal.Journal;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.matchingEngine.ExecutionReportRouter;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.matchingEngine.OrderStoreUpdater;
+import org.jj.orderService.OrderServiceImpl;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.sequencer.EngineEventBus;
+import org.jj.sequencer.ParkingWaitStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Fails when createOrder or cancelOrder start allocating per call again once the engine is warm
+class MatchingEngineAllocationTest {
+    private static final int WARMUP_CYCLES = 50_000;
+    private static final int MEASURED_CYCLES = 100_000;
+    // Slack for the allocation counter itself, far below one object per cycle
+    private static final long ALLOWED_BYTES = 1024;
+    // Large enough that the measured cycles never roll the journal, opening a segment allocates
+    private static final long SEGMENT_SIZE = 256L << 20;
+
+    @TempDir
+    Path directory;
+
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private MatchingEngineImpl subject;
+    private EngineEventBus eventBus;
+    private Journal journal;
+    private MatchingEngineProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        assertThat(threadMXBean.isThreadAllocatedMemorySupported()).isTrue();
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (eventBus != null) {
+            eventBus.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
+    @Test
+    void shouldNotAllocateWhenCreatingAndCancellingOrders() {
+        subject = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+
+        assertNoAllocation(null);
+    }
+
+    // Wired the way MatchingEngineProvider and OrderServiceImpl wire it, so the event bus copies, the order store
+    // consumer and the journal append are all on the measured path
+    @Test
+    void shouldNotAllocateWithEventConsumersAndJournalAttached() throws IOException {
+        eventBus = new EngineEventBus("market-data-publisher", new ParkingWaitStrategy());
+        eventBus.start();
+        eventBus.addConsumer("order-store-updater", new ParkingWaitStrategy(), new OrderStoreUpdater(new OrderStore(), productId -> "JJ"));
+        journal = new Journal(directory, 1, SEGMENT_SIZE, Journal.DEFAULT_FLUSH_INTERVAL_MILLIS);
+
+        subject = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), DenseOrderBookSide::new, eventBus);
+        subject.setExecutionReportListener(new ExecutionReportRouter().forProduct("JJ"));
+        subject.setInputJournal(journal.forProduct(1));
+
+        assertNoAllocation("participant-\u00e9\u20ac");
+    }
+
+    // The engine as OrderServiceImpl creates orders on it, with the service's consumers on the provider's event bus.
+    // Every order accepted is stored, from the bus, so the store's lock and the Orders it keeps stay off this thread.
+    @Test
+    void shouldNotAllocateOnServiceCreatePath() throws IOException {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int productId = productStore.addProduct("JensenProduct", "JJ");
+        provider = new MatchingEngineProvider(productStore);
+        provider.attachJournal(new Journal(directory, 1, SEGMENT_SIZE, Journal.DEFAULT_FLUSH_INTERVAL_MILLIS));
+        OrderStore orderStore = new OrderStore();
+        new OrderServiceImpl(provider, orderStore);
+        subject = provider.getMatchingEngine(productId);
+
+        assertNoAllocation("participant");
+
+        long lastOrderId = subject.toOrderId(subject.getNextOrderId() - 1);
+        assertThat(provider.whilePaused(() -> orderStore.getOrder(lastOrderId)))
+                .isEqualTo(new Order(lastOrderId, "JJ", 0.001, 1_000, 0, Expiry.FOK, BuySell.SELL));
+    }
+
+    private void assertNoAllocation(String participant) {
+        runCycles(WARMUP_CYCLES, participant);
+
+        long before = allocatedBytes();
+        runCycles(MEASURED_CYCLES, participant);
+        long allocated = allocatedBytes() - before;
+
+        assertThat(allocated)
+                .as("bytes allocated over %d create/cancel cycles", MEASURED_CYCLES)
+                .isLessThan(ALLOWED_BYTES);
+    }
+
+    // Rests, partially fills, fully fills, kills and cancels orders, leaving the book empty again
+    private void runCycles(int cycles, String participant) {
+        for (int i = 0; i < cycles; i++) {
+            int restingBuy = subject.createOrder(10, 100 + i % 10, BuySell.BUY, Expiry.GTC, participant);
+            int restingSell = subject.createOrder(5, 200 + i % 7, BuySell.SELL, Expiry.GTC, participant);
+
+            subject.createOrder(3, 100, BuySell.SELL, Expiry.IOC, participant);
+            subject.createOrder(5, 210, BuySell.BUY, Expiry.FOK, participant);
+            subject.createOrder(1_000, 1, BuySell.SELL, Expiry.FOK, participant);
+
+            subject.cancelOrder(restingBuy);
+            subject.cancelOrder(restingSell);
+        }
+    }
+
+    private long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
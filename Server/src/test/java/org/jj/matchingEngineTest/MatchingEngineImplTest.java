@@ -4,16 +4,23 @@ import org.assertj.core.api.Fail;
 import org.jj.Expiry;
 import org.jj.matchingEngine.MatchingEngineImpl;
 import org.jj.BuySell;
+import org.jj.Service;
+import io.grpc.stub.StreamObserver;
 import org.jj.providers.IntIdProvider;
 import org.jj.providers.TimestampProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class MatchingEngineImplTest {
@@ -140,4 +147,198 @@ class MatchingEngineImplTest {
         assertThat(subject.cancelOrder(aggressorSellIocOrder)).isFalse();
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void shouldReplaceParticipantQuotes() {
+        int[] oldQuotes = subject.massQuote("MM", new long[]{99_000, 98_000}, new long[]{10, 10}, new long[]{101_000}, new long[]{5});
+        int[] newQuotes = subject.massQuote("MM", new long[]{100_000}, new long[]{7}, new long[]{102_000}, new long[]{3});
+
+        for (int id : oldQuotes) {
+            assertThat(subject.cancelOrder(id)).isFalse();
+        }
+        Service.OrderBook orderBook = subject.getInitialOrderBookForSubscriber();
+        assertThat(orderBook.getBuyPricesList()).containsExactly(100.0);
+        assertThat(orderBook.getBuyQuantitiesList()).containsExactly(7L);
+        assertThat(orderBook.getSellPricesList()).containsExactly(102.0);
+        assertThat(subject.cancelOrder(newQuotes[0])).isTrue();
+    }
+
+    @Test
+    void shouldOnlyReplaceOwnQuotes() {
+        subject.massQuote("A", new long[]{99_000}, new long[]{10}, new long[0], new long[0]);
+        subject.massQuote("B", new long[]{99_000}, new long[]{5}, new long[0], new long[0]);
+
+        subject.massQuote("A", new long[0], new long[0], new long[0], new long[0]);
+
+        assertThat(subject.getInitialOrderBookForSubscriber().getBuyQuantitiesList()).containsExactly(5L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPublishOnceForMassQuote() {
+        StreamObserver<Service.OrderBook> observer = Mockito.mock(StreamObserver.class);
+        long[] bidPrices = new long[20];
+        long[] askPrices = new long[20];
+        long[] quantities = new long[20];
+        for (int i = 0; i < 20; i++) {
+            bidPrices[i] = 99_000 - i * 10;
+            askPrices[i] = 101_000 + i * 10;
+            quantities[i] = 10;
+        }
+        subject.massQuote("MM", bidPrices, quantities, askPrices, quantities);
+        subject.addOrderBookListener(observer);
+
+        subject.massQuote("MM", askPrices.clone(), quantities, new long[]{200_000}, new long[]{1});
+
+        // The book as it was on subscribing, then the replacement quotes in one update
+        verify(observer, times(2)).onNext(any());
+    }
+
+    @Test
+    void shouldKeepOldQuotesWhenNewQuotesAreRejected() {
+        int[] quotes = subject.massQuote("MM", new long[]{99_000}, new long[]{10}, new long[]{101_000}, new long[]{10});
+
+        assertThatThrownBy(() -> subject.massQuote("MM", new long[]{101_000}, new long[]{10}, new long[]{100_000}, new long[]{10}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> subject.massQuote("MM", new long[]{99_000}, new long[]{0}, new long[0], new long[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(subject.cancelOrder(quotes[0])).isTrue();
+        assertThat(subject.cancelOrder(quotes[1])).isTrue();
+    }
+
+    @Test
+    void shouldKeepPriorityWhenAmendingSizeDown() {
+        int first = subject.createOrder(10, 100, BuySell.BUY, Expiry.GTC);
+        int second = subject.createOrder(10, 100, BuySell.BUY, Expiry.GTC);
+
+        assertThat(subject.amendOrder(first, 5, 100)).isTrue();
+        subject.createOrder(5, 100, BuySell.SELL, Expiry.GTC);
+
+        assertThat(subject.cancelOrder(first)).isFalse();
+        assertThat(subject.cancelOrder(second)).isTrue();
+    }
+
+    @Test
+    void shouldLosePriorityWhenAmendingSizeUp() {
+        int first = subject.createOrder(10, 100, BuySell.BUY, Expiry.GTC);
+        int second = subject.createOrder(10, 100, BuySell.BUY, Expiry.GTC);
+
+        assertThat(subject.amendOrder(first, 20, 100)).isTrue();
+        subject.createOrder(10, 100, BuySell.SELL, Expiry.GTC);
+
+        assertThat(subject.cancelOrder(second)).isFalse();
+        assertThat(subject.getInitialOrderBookForSubscriber().getBuyQuantitiesList()).containsExactly(20L);
+        assertThat(subject.cancelOrder(first)).isTrue();
+    }
+
+    @Test
+    void shouldMoveOrderToNewPriceAndTradeWhenItCrosses() {
+        int buy = subject.createOrder(10, 100, BuySell.BUY, Expiry.GTC);
+        subject.createOrder(4, 110, BuySell.SELL, Expiry.GTC);
+
+        assertThat(subject.amendOrder(buy, 10, 110)).isTrue();
+
+        Service.OrderBook orderBook = subject.getInitialOrderBookForSubscriber();
+        assertThat(orderBook.getSellPricesList()).isEmpty();
+        assertThat(orderBook.getBuyPricesList()).containsExactly(0.11);
+        assertThat(orderBook.getBuyQuantitiesList()).containsExactly(6L);
+    }
+
+    @Test
+    void shouldCancelWhenAmendingToFilledQuantity() {
+        int buy = subject.createOrder(10, 100, BuySell.BUY, Expiry.GTC);
+        subject.createOrder(4, 100, BuySell.SELL, Expiry.GTC);
+
+        assertThat(subject.amendOrder(buy, 4, 100)).isTrue();
+
+        assertThat(subject.cancelOrder(buy)).isFalse();
+        assertThat(subject.getInitialOrderBookForSubscriber().getBuyPricesList()).isEmpty();
+    }
+
+    @Test
+    void shouldNotAmendMissingOrder() {
+        assertThat(subject.amendOrder(42, 10, 100)).isFalse();
+        assertThatThrownBy(() -> subject.amendOrder(42, 0, 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Further from the book than the dense ladder can span
+    private static final long FAR_AWAY = 5_000_000;
+
+    @Test
+    void shouldRejectGtcOrderThatCannotRestBeforeItTrades() {
+        subject.createOrder(1, 50, BuySell.BUY, Expiry.GTC);
+        subject.createOrder(10, 100, BuySell.SELL, Expiry.GTC);
+
+        assertThatThrownBy(() -> subject.createOrder(20, 50 + FAR_AWAY, BuySell.BUY, Expiry.GTC)).isInstanceOf(IllegalArgumentException.class);
+
+        Service.OrderBook orderBook = subject.getInitialOrderBookForSubscriber();
+        assertThat(orderBook.getSellQuantitiesList()).containsExactly(10L);
+        assertThat(orderBook.getBuyQuantitiesList()).containsExactly(1L);
+    }
+
+    @Test
+    void shouldKeepOrderWhenAmendedPriceCannotRest() {
+        subject.createOrder(1, 50, BuySell.BUY, Expiry.GTC);
+        int buy = subject.createOrder(10, 60, BuySell.BUY, Expiry.GTC);
+
+        assertThatThrownBy(() -> subject.amendOrder(buy, 10, 60 + FAR_AWAY)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(subject.getInitialOrderBookForSubscriber().getBuyQuantitiesList()).containsExactly(10L, 1L);
+        assertThat(subject.cancelOrder(buy)).isTrue();
+    }
+
+    @Test
+    void shouldKeepOldQuotesWhenNewQuotesCannotRest() {
+        int[] quotes = subject.massQuote("MM", new long[]{99_000}, new long[]{10}, new long[]{101_000}, new long[]{10});
+
+        assertThatThrownBy(() -> subject.massQuote("MM", new long[]{98_000}, new long[]{10}, new long[]{101_000, 101_000 + FAR_AWAY}, new long[]{10, 10}))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(subject.getInitialOrderBookForSubscriber().getBuyPricesList()).containsExactly(99.0);
+        assertThat(subject.cancelOrder(quotes[0])).isTrue();
+        assertThat(subject.cancelOrder(quotes[1])).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamSnapshotThenSequencedDeltas() {
+        StreamObserver<Service.OrderBookDeltaUpdate> observer = Mockito.mock(StreamObserver.class);
+        int buy = subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC);
+        subject.createOrder(10, 101_000, BuySell.SELL, Expiry.GTC);
+
+        subject.addOrderBookDeltaListener(observer);
+        subject.createOrder(5, 102_000, BuySell.BUY, Expiry.IOC);
+        subject.createOrder(4, 99_000, BuySell.SELL, Expiry.GTC);
+        subject.cancelOrder(buy);
+
+        ArgumentCaptor<Service.OrderBookDeltaUpdate> updates = ArgumentCaptor.forClass(Service.OrderBookDeltaUpdate.class);
+        verify(observer, times(4)).onNext(updates.capture());
+        Service.OrderBookDeltaUpdate snapshot = updates.getAllValues().get(0);
+        assertThat(snapshot.getSequence()).isEqualTo(2);
+        assertThat(snapshot.getSnapshot().getBuyLevelsList()).extracting(Service.PriceLevel::getQuantity).containsExactly(10L);
+
+        assertThat(updates.getAllValues().subList(1, 4)).extracting(Service.OrderBookDeltaUpdate::getSequence).containsExactly(3L, 4L, 5L);
+        assertThat(updates.getAllValues().get(1).getDelta().getChangesList()).containsExactly(level(Service.BuySell.SELL, 101, 5));
+        assertThat(updates.getAllValues().get(2).getDelta().getChangesList()).containsExactly(level(Service.BuySell.BUY, 100, 6));
+        assertThat(updates.getAllValues().get(3).getDelta().getChangesList()).containsExactly(level(Service.BuySell.BUY, 100, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldNotPublishWhenNothingVisibleChanged() {
+        StreamObserver<Service.OrderBook> observer = Mockito.mock(StreamObserver.class);
+        subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC);
+        subject.addOrderBookListener(observer);
+
+        subject.createOrder(5, 101_000, BuySell.SELL, Expiry.IOC);
+        subject.createOrder(50, 100_000, BuySell.SELL, Expiry.FOK);
+        subject.cancelOrder(42);
+
+        verify(observer, times(1)).onNext(any());
+    }
+
+    private static Service.LevelChange level(Service.BuySell side, double price, long quantity) {
+        return Service.LevelChange.newBuilder().setSide(side).setPrice(price).setQuantity(quantity).build();
+    }
+}
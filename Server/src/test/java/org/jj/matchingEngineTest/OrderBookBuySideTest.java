@@ -1,11 +1,14 @@
 package org.jj.matchingEngineTest;
 
+import org.jj.BuySell;
+import org.jj.matchingEngine.DenseOrderBookSide;
 import org.jj.matchingEngine.OrderBookSide;
-import org.jj.providers.SystemTimestampProvider;
+import org.jj.matchingEngine.OrderIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
 
 public class OrderBookBuySideTest {
@@ -13,7 +16,7 @@ public class OrderBookBuySideTest {
 
     @BeforeEach
     void setUp() {
-        subject = new OrderBookSide(new SystemTimestampProvider(),  (l1, l2) -> l2.compareTo(l1));
+        subject = new DenseOrderBookSide(BuySell.BUY);
     }
 
     @Test
@@ -68,4 +71,91 @@ public class OrderBookBuySideTest {
 
         assertThat(subject.hasOrder(1)).isFalse();
     }
+
+    @Test
+    void shouldMatchBestPriceLevelFirst() {
+        subject.addOrder(1, 1, 0, 10);
+        subject.addOrder(2, 1, 0, 30);
+        subject.addOrder(3, 1, 0, 20);
+
+        assertThat(subject.matchOrder(4, 2, 10)).isEqualTo(2);
+        assertThat(subject.hasOrder(1)).isTrue();
+        assertThat(subject.hasOrder(2)).isFalse();
+        assertThat(subject.hasOrder(3)).isFalse();
+    }
+
+    @Test
+    void shouldMoveBestPriceWhenBestLevelIsCancelled() {
+        subject.addOrder(1, 1, 0, 10);
+        subject.addOrder(2, 1, 0, 20);
+
+        subject.removeOrder(2);
+
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey()).containsExactly(10L);
+    }
+
+    @Test
+    void shouldKeepOrdersWhenPriceFallsOutsideLadder() {
+        subject = new DenseOrderBookSide(BuySell.BUY, 1, 4);
+
+        subject.addOrder(1, 1, 0, 100);
+        subject.addOrder(2, 2, 0, 1_000);
+        subject.addOrder(3, 3, 0, 5);
+
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey()).containsExactly(1_000L, 100L, 5L);
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(2L, 1L, 3L);
+        assertThat(subject.matchOrder(4, 6, 5)).isEqualTo(6);
+    }
+
+    @Test
+    void shouldRejectPriceOffTickSize() {
+        subject = new DenseOrderBookSide(BuySell.BUY, 5, 16);
+
+        assertThatThrownBy(() -> subject.addOrder(1, 1, 0, 12)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldCheckPricesWithoutAddingThem() {
+        subject = new DenseOrderBookSide(BuySell.BUY, 5, 16);
+        subject.addOrder(1, 1, 0, 100);
+
+        subject.checkPriceRange(50, 1_000);
+        assertThatThrownBy(() -> subject.checkPriceRange(12, 12)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> subject.checkPriceRange(100, 100 + 5L * (1 << 22))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(subject.getLevelCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOnlyRemoveOwnOrdersFromSharedIndex() {
+        OrderIndex orderIndex = new OrderIndex();
+        subject = new DenseOrderBookSide(BuySell.BUY, orderIndex);
+        OrderBookSide sellSide = new DenseOrderBookSide(BuySell.SELL, orderIndex);
+
+        subject.addOrder(1, 1, 0, 10);
+        sellSide.addOrder(2, 1, 0, 20);
+
+        assertThat(subject.hasOrder(2)).isFalse();
+        assertThat(subject.removeOrder(2)).isFalse();
+        assertThat(sellSide.removeOrder(2)).isTrue();
+        assertThat(orderIndex.contains(1)).isTrue();
+        assertThat(orderIndex.contains(2)).isFalse();
+    }
+
+    @Test
+    void shouldKeepTimePriorityWhenCancelledOrdersAreReused() {
+        subject.addOrder(1, 1, 0, 10);
+        subject.addOrder(2, 1, 0, 10);
+        subject.addOrder(3, 1, 0, 10);
+        subject.removeOrder(2);
+        subject.addOrder(4, 1, 0, 10);
+        subject.removeOrder(1);
+        subject.addOrder(5, 1, 0, 10);
+
+        assertThat(subject.matchOrder(6, 1, 10)).isEqualTo(1);
+        assertThat(subject.hasOrder(3)).isFalse();
+        assertThat(subject.matchOrder(7, 1, 10)).isEqualTo(1);
+        assertThat(subject.hasOrder(4)).isFalse();
+        assertThat(subject.hasOrder(5)).isTrue();
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(1L);
+    }
 }
@@ -1,7 +1,8 @@
 package org.jj.matchingEngineTest;
 
+import org.jj.BuySell;
+import org.jj.matchingEngine.DenseOrderBookSide;
 import org.jj.matchingEngine.OrderBookSide;
-import org.jj.providers.SystemTimestampProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -12,7 +13,7 @@ public class OrderBookSellSideTest {
 
     @BeforeEach
     void setUp() {
-        subject = new OrderBookSide(new SystemTimestampProvider(),  (l1, l2) -> l1.compareTo(l2));
+        subject = new DenseOrderBookSide(BuySell.SELL);
     }
 
     @Test
@@ -67,4 +68,92 @@ public class OrderBookSellSideTest {
 
         assertThat(subject.hasOrder(1)).isFalse();
     }
+
+    @Test
+    void shouldMatchBestPriceLevelFirst() {
+        subject.addOrder(1, 1, 0, 30);
+        subject.addOrder(2, 1, 0, 10);
+        subject.addOrder(3, 1, 0, 20);
+
+        assertThat(subject.matchOrder(4, 2, 30)).isEqualTo(2);
+        assertThat(subject.hasOrder(1)).isTrue();
+        assertThat(subject.hasOrder(2)).isFalse();
+        assertThat(subject.hasOrder(3)).isFalse();
+    }
+
+    @Test
+    void shouldMatchEveryOrderAtLevelInTimePriority() {
+        subject.addOrder(1, 1, 0, 10);
+        subject.addOrder(2, 1, 0, 10);
+        subject.addOrder(3, 1, 0, 10);
+
+        assertThat(subject.matchOrder(4, 2, 10)).isEqualTo(2);
+        assertThat(subject.hasOrder(1)).isFalse();
+        assertThat(subject.hasOrder(2)).isFalse();
+        assertThat(subject.hasOrder(3)).isTrue();
+    }
+
+    @Test
+    void shouldKeepOrdersWhenPriceFallsOutsideLadder() {
+        subject = new DenseOrderBookSide(BuySell.SELL, 1, 4);
+
+        subject.addOrder(1, 1, 0, 100);
+        subject.addOrder(2, 2, 0, 1_000);
+        subject.addOrder(3, 3, 0, 5);
+
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey()).containsExactly(5L, 100L, 1_000L);
+        assertThat(subject.matchOrder(4, 6, 1_000)).isEqualTo(6);
+    }
+
+    @Test
+    void shouldKeepLevelQuantityAfterFillsAndCancels() {
+        subject.addOrder(1, 10, 0, 5);
+        subject.addOrder(2, 10, 4, 5);
+        subject.addOrder(3, 10, 0, 5);
+        subject.addOrder(4, 7, 0, 6);
+
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(26L, 7L);
+
+        subject.matchOrder(5, 12, 5);
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(14L, 7L);
+
+        subject.removeOrder(2);
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(10L, 7L);
+    }
+
+    @Test
+    void shouldOnlyFillMustFillOrderFromCrossingLevels() {
+        subject.addOrder(1, 5, 0, 5);
+        subject.addOrder(2, 5, 0, 6);
+
+        assertThat(subject.matchMustFillOrder(3, 6, 5)).isFalse();
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(5L, 5L);
+        assertThat(subject.matchMustFillOrder(3, 6, 6)).isTrue();
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(4L);
+    }
+
+    @Test
+    void shouldKeepPriorityWhenReducingInPlace() {
+        subject.addOrder(1, 10, 0, 1);
+        subject.addOrder(2, 10, 0, 1);
+
+        assertThat(subject.reduceOrder(1, 4)).isTrue();
+
+        assertThat(subject.matchOrder(3, 4, 1)).isEqualTo(4);
+        assertThat(subject.hasOrder(1)).isFalse();
+        assertThat(subject.hasOrder(2)).isTrue();
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(10L);
+    }
+
+    @Test
+    void shouldOnlyReduceBetweenFilledAndCurrentQuantity() {
+        subject.addOrder(1, 10, 3, 1);
+
+        assertThat(subject.reduceOrder(1, 10)).isFalse();
+        assertThat(subject.reduceOrder(1, 11)).isFalse();
+        assertThat(subject.reduceOrder(1, 3)).isFalse();
+        assertThat(subject.reduceOrder(2, 5)).isFalse();
+        assertThat(subject.reduceOrder(1, 5)).isTrue();
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getValue()).containsExactly(2L);
+    }
 }
@@ -1,6 +1,10 @@
 package org.jj.matchingEngineTest;
 
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Order;
 import org.jj.matchingEngine.OrderStore;
+import org.jj.providers.PartitionedIdProvider;
 import org.junit.jupiter.api.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -15,30 +19,71 @@ class OrderStoreTest {
     }
 
     @Test
-    void shouldAddOrdersIdToProduct() {
-        subject.addOrderIdToProduct(1, 1);
-        subject.addOrderIdToProduct(2, 1);
-        subject.addOrderIdToProduct(3, 2);
+    void shouldKeepProductsWithTheSameEngineIdsApart() {
+        long first = PartitionedIdProvider.toOrderId(1, 1);
+        long second = PartitionedIdProvider.toOrderId(2, 1);
+        subject.addOrder(new Order(first, "A", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
+        subject.addOrder(new Order(second, "B", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
 
-        assertThat(subject.hasOrder(1)).isTrue();
-        assertThat(subject.hasOrder(2)).isTrue();
-        assertThat(subject.hasOrder(3)).isTrue();
+        assertThat(subject.getOrder(first).product()).isEqualTo("A");
+        assertThat(subject.getOrder(second).product()).isEqualTo("B");
+        assertThat(subject.hasOrder(PartitionedIdProvider.toOrderId(3, 1))).isFalse();
     }
 
     @Test
     void shouldThrowExceptionForDuplicateOrder() {
-        subject.addOrderIdToProduct(1, 1);
-        subject.addOrderIdToProduct(2, 1);
+        subject.addOrder(new Order(1, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
 
-        assertThatThrownBy(() -> subject.addOrderIdToProduct(2, 2))
+        assertThatThrownBy(() -> subject.addOrder(new Order(1, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY)))
                 .isInstanceOf(IllegalStateException.class);
     }
 
     @Test
-    void shouldGetOrder() {
-        subject.addOrderIdToProduct(4, 8);
+    void shouldGetProductIdFromOrderId() {
+        long orderId = PartitionedIdProvider.toOrderId(8, 4);
+        subject.addOrder(new Order(orderId, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
 
-        assertThat(subject.getProductId(4)).isEqualTo(8);
+        assertThat(subject.getProductId(orderId)).isEqualTo(8);
+    }
+
+    @Test
+    void shouldApplyFills() {
+        subject.addOrder(new Order(1, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
+
+        subject.fill(1, 4);
+        subject.fill(1, 3);
+
+        assertThat(subject.getOrder(1).quantityFilled()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldDropFillsForOrdersItDoesNotHold() {
+        subject.fill(1, 6);
+        subject.addOrder(new Order(1, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
+
+        assertThat(subject.getOrder(1).quantityFilled()).isZero();
+    }
+
+    @Test
+    void shouldAmendOrderKeepingItsFills() {
+        subject.addOrder(new Order(1, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
+        subject.fill(1, 4);
+
+        subject.amend(1, 10.5, 12);
+        subject.amend(2, 10.5, 12);
+
+        assertThat(subject.getOrder(1)).isEqualTo(new Order(1, "JJ", 10.5, 12, 4, Expiry.GTC, BuySell.BUY));
+        assertThat(subject.hasOrder(2)).isFalse();
+    }
+
+    @Test
+    void shouldRemoveOrder() {
+        subject.addOrder(new Order(1, "JJ", 10.0, 10, 0, Expiry.GTC, BuySell.BUY));
+
+        subject.removeOrder(1);
+
+        assertThat(subject.hasOrder(1)).isFalse();
+        assertThat(subject.getOrder(1)).isNull();
     }
 
     @Test
@@ -0,0 +1,70 @@
+package org.jj.matchingEngineTest;
+
+import org.jj.BuySell;
+import org.jj.matchingEngine.OrderBookSide;
+import org.jj.matchingEngine.SparseOrderBookSide;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SparseOrderBookSideTest {
+
+    @Test
+    void shouldOrderBuyLevelsFromHighestPrice() {
+        OrderBookSide subject = new SparseOrderBookSide(BuySell.BUY);
+
+        subject.addOrder(1, 1, 0, 5);
+        subject.addOrder(2, 2, 0, 9_000_000_000L);
+        subject.addOrder(3, 3, 0, 70_000);
+
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey()).containsExactly(9_000_000_000L, 70_000L, 5L);
+    }
+
+    @Test
+    void shouldOrderSellLevelsFromLowestPrice() {
+        OrderBookSide subject = new SparseOrderBookSide(BuySell.SELL);
+
+        subject.addOrder(1, 1, 0, 5);
+        subject.addOrder(2, 2, 0, 9_000_000_000L);
+        subject.addOrder(3, 3, 0, 70_000);
+
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey()).containsExactly(5L, 70_000L, 9_000_000_000L);
+    }
+
+    @Test
+    void shouldRemoveLevelWhenLastOrderIsCancelled() {
+        OrderBookSide subject = new SparseOrderBookSide(BuySell.SELL);
+
+        subject.addOrder(1, 1, 0, 5);
+        subject.addOrder(2, 1, 0, 10);
+
+        assertThat(subject.removeOrder(1)).isTrue();
+        assertThat(subject.removeOrder(1)).isFalse();
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey()).containsExactly(10L);
+    }
+
+    @Test
+    void shouldMatchAcrossManyLevels() {
+        OrderBookSide subject = new SparseOrderBookSide(BuySell.SELL);
+
+        for (int i = 1; i <= 1_000; i++) {
+            subject.addOrder(i, 1, 0, i * 1_000_000L);
+        }
+
+        assertThat(subject.matchOrder(1_001, 10_000, 500_000_000L)).isEqualTo(500);
+        assertThat(subject.getFiveBestOrdersAndQuantitiesList().getKey().get(0)).isEqualTo(501_000_000L);
+    }
+
+    @Test
+    void shouldOnlyFillMustFillOrderWhenEnoughQuantityCrosses() {
+        OrderBookSide subject = new SparseOrderBookSide(BuySell.BUY);
+
+        subject.addOrder(1, 5, 0, 100);
+        subject.addOrder(2, 5, 0, 50);
+
+        assertThat(subject.matchMustFillOrder(3, 10, 60)).isFalse();
+        assertThat(subject.matchMustFillOrder(3, 10, 50)).isTrue();
+        assertThat(subject.hasOrder(1)).isFalse();
+        assertThat(subject.hasOrder(2)).isFalse();
+    }
+}
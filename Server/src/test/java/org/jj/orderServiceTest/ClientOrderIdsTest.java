@@ -0,0 +1,182 @@
+package org.jj.orderServiceTest;
+
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.Int64Value;
+import io.grpc.stub.StreamObserver;
+import org.jj.Service;
+import org.jj.journal.Journal;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.orderService.OrderServiceImpl;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientOrderIdsTest {
+    // ClientOrderIds.RETAINED_DONE_ORDERS
+    private static final int RETAINED_DONE_ORDERS = 1024;
+
+    @TempDir
+    Path directory;
+
+    private ProductStore productStore;
+
+    @BeforeEach
+    void setUp() {
+        productStore = new ProductStore(new IntIdProvider());
+        productStore.addProduct("Jensen Stock", "JJ");
+    }
+
+    @Test
+    void shouldAnswerResubmissionWithFirstOrderId() throws Exception {
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+
+            long orderId = createOrder(orderService, 1, Service.Expiry.GTC);
+
+            assertThat(createOrder(orderService, 1, Service.Expiry.GTC)).isEqualTo(orderId);
+            assertThat(createOrder(orderService, 2, Service.Expiry.GTC)).isNotEqualTo(orderId);
+        }
+    }
+
+    @Test
+    void shouldRegisterClientOrderIdsSentInBatches() throws Exception {
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+
+            Service.OrderCreateBatchRequest batch = Service.OrderCreateBatchRequest.newBuilder()
+                                                                                   .addOrders(order(1, Service.Expiry.GTC))
+                                                                                   .addOrders(order(1, Service.Expiry.GTC))
+                                                                                   .addOrders(order(2, Service.Expiry.GTC))
+                                                                                   .build();
+            List<Service.OrderCreateResult> results = ClientOrderIdsTest.<Service.OrderCreateBatchResponse>call(
+                    observer -> orderService.orderCreateBatch(batch, observer)).getResultsList();
+
+            long orderId = results.get(0).getOrderId();
+            assertThat(results.get(1).getOrderId()).isEqualTo(orderId);
+            assertThat(results.get(2).getOrderId()).isNotEqualTo(orderId);
+            assertThat(createOrder(orderService, 1, Service.Expiry.GTC)).isEqualTo(orderId);
+            assertThat(amendOrder(orderService, 2, 5)).isTrue();
+        }
+    }
+
+    @Test
+    void shouldKeepRestingOrdersAndOnlyTheLatestDoneOnes() throws Exception {
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+
+            long resting = createOrder(orderService, 1, Service.Expiry.GTC);
+            long firstDone = createOrder(orderService, 2, Service.Expiry.IOC);
+            long lastDone = 0;
+            for (int i = 0; i < RETAINED_DONE_ORDERS; i++) {
+                lastDone = createOrder(orderService, 100 + i, Service.Expiry.IOC);
+            }
+            provider.whilePaused(() -> null);
+
+            assertThat(createOrder(orderService, 1, Service.Expiry.GTC)).isEqualTo(resting);
+            assertThat(createOrder(orderService, 100 + RETAINED_DONE_ORDERS - 1, Service.Expiry.IOC)).isEqualTo(lastDone);
+            assertThat(createOrder(orderService, 2, Service.Expiry.IOC)).isNotEqualTo(firstDone);
+        }
+    }
+
+    @Test
+    void shouldRebuildClientOrderIdsFromJournal() throws Exception {
+        long orderId;
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+            provider.attachJournal(new Journal(directory, 1));
+            orderId = createOrder(orderService, 7, Service.Expiry.GTC);
+        }
+
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+            assertThat(orderService.recover(directory)).isEqualTo(1);
+
+            assertThat(createOrder(orderService, 7, Service.Expiry.GTC)).isEqualTo(orderId);
+            assertThat(amendOrder(orderService, 7, 5)).isTrue();
+        }
+    }
+
+    @Test
+    void shouldRestoreClientOrderIdsFromSnapshotAndJournalTail() throws Exception {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        long beforeSnapshot;
+        long afterSnapshot;
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+            provider.attachJournal(new Journal(journalDirectory, 1));
+            beforeSnapshot = createOrder(orderService, 1, Service.Expiry.GTC);
+            createOrder(orderService, 2, Service.Expiry.IOC);
+            assertThat(orderService.snapshot(snapshotDirectory)).isEqualTo(2);
+            afterSnapshot = createOrder(orderService, 3, Service.Expiry.GTC);
+        }
+
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, new OrderStore());
+            assertThat(orderService.recover(journalDirectory, snapshotDirectory)).isEqualTo(3);
+
+            assertThat(createOrder(orderService, 1, Service.Expiry.GTC)).isEqualTo(beforeSnapshot);
+            assertThat(createOrder(orderService, 3, Service.Expiry.GTC)).isEqualTo(afterSnapshot);
+            assertThat(amendOrder(orderService, 1, 5)).isTrue();
+            assertThat(amendOrder(orderService, 2, 5)).isFalse();
+        }
+    }
+
+    private static long createOrder(OrderServiceImpl orderService, long clientOrderId, Service.Expiry expiry) throws Exception {
+        Service.OrderCreateRequestDetails request = order(clientOrderId, expiry);
+        return ClientOrderIdsTest.<Int64Value>call(observer -> orderService.orderCreateRequest(request, observer)).getValue();
+    }
+
+    private static Service.OrderCreateRequestDetails order(long clientOrderId, Service.Expiry expiry) {
+        return Service.OrderCreateRequestDetails.newBuilder()
+                                                .setProductSymbol("JJ")
+                                                .setQuantity(10)
+                                                .setPrice(100.0)
+                                                .setBuySell(Service.BuySell.BUY)
+                                                .setExpiry(expiry)
+                                                .setParticipantId("alice")
+                                                .setClientOrderId(clientOrderId)
+                                                .build();
+    }
+
+    private static boolean amendOrder(OrderServiceImpl orderService, long clientOrderId, long quantity) throws Exception {
+        Service.OrderAmendRequest request = Service.OrderAmendRequest.newBuilder()
+                                                                     .setParticipantId("alice")
+                                                                     .setClientOrderId(clientOrderId)
+                                                                     .setQuantity(quantity)
+                                                                     .setPrice(100.0)
+                                                                     .build();
+        return ClientOrderIdsTest.<BoolValue>call(observer -> orderService.orderAmend(request, observer)).getValue();
+    }
+
+    // Sends a unary request and waits for its response
+    private static <T> T call(Consumer<StreamObserver<T>> request) throws Exception {
+        CompletableFuture<T> response = new CompletableFuture<>();
+        request.accept(new StreamObserver<>() {
+            @Override
+            public void onNext(T value) {
+                response.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                response.completeExceptionally(error);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        return response.get();
+    }
+}
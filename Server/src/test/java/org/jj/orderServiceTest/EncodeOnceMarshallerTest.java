@@ -0,0 +1,77 @@
+package org.jj.orderServiceTest;
+
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import org.jj.OrderServiceGrpc;
+import org.jj.Service;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.orderService.EncodeOnceMarshaller;
+import org.jj.orderService.OrderServiceImpl;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncodeOnceMarshallerTest {
+    private final EncodeOnceMarshaller<Service.OrderBook> subject = new EncodeOnceMarshaller<>(Service.OrderBook.getDefaultInstance());
+
+    @Test
+    void shouldEncodeAsProtobufAndParseBack() throws IOException {
+        Service.OrderBook orderBook = orderBook(100.5, 7);
+
+        byte[] first = subject.stream(orderBook).readAllBytes();
+        byte[] second = subject.stream(orderBook).readAllBytes();
+
+        assertThat(first).isEqualTo(orderBook.toByteArray()).isEqualTo(second);
+        assertThat(subject.parse(subject.stream(orderBook))).isEqualTo(orderBook);
+    }
+
+    @Test
+    void shouldEncodeEachNewMessage() throws IOException {
+        Service.OrderBook first = orderBook(100.5, 7);
+        Service.OrderBook second = orderBook(101, 3);
+
+        subject.stream(first).readAllBytes();
+
+        assertThat(subject.stream(second).readAllBytes()).isEqualTo(second.toByteArray());
+        assertThat(subject.stream(first).readAllBytes()).isEqualTo(first.toByteArray());
+    }
+
+    @Test
+    void shouldReportLengthUpFront() throws IOException {
+        InputStream stream = subject.stream(orderBook(100.5, 7));
+
+        assertThat(stream).isInstanceOf(KnownLength.class);
+        assertThat(stream.available()).isEqualTo(orderBook(100.5, 7).getSerializedSize());
+    }
+
+    @Test
+    void shouldRebindOnlyMarketDataMethods() {
+        OrderServiceImpl service = new OrderServiceImpl(new MatchingEngineProvider(new ProductStore(new IntIdProvider())), new OrderStore());
+
+        ServerServiceDefinition bound = EncodeOnceMarshaller.bindMarketData(service);
+
+        assertThat(bound.getServiceDescriptor().getSchemaDescriptor()).isNotNull();
+        assertThat(bound.getMethods()).hasSize(OrderServiceGrpc.getServiceDescriptor().getMethods().size());
+        assertThat(responseMarshaller(bound, OrderServiceGrpc.getOrderBookSubscriptionServiceMethod())).isInstanceOf(EncodeOnceMarshaller.class);
+        assertThat(responseMarshaller(bound, OrderServiceGrpc.getConflatedOrderBookSubscriptionMethod())).isInstanceOf(EncodeOnceMarshaller.class);
+        assertThat(responseMarshaller(bound, OrderServiceGrpc.getOrderBookDeltaSubscriptionMethod())).isInstanceOf(EncodeOnceMarshaller.class);
+        assertThat(responseMarshaller(bound, OrderServiceGrpc.getOrderCreateRequestMethod())).isNotInstanceOf(EncodeOnceMarshaller.class);
+    }
+
+    private static MethodDescriptor.Marshaller<?> responseMarshaller(ServerServiceDefinition service, MethodDescriptor<?, ?> method) {
+        ServerMethodDefinition<?, ?> definition = service.getMethod(method.getFullMethodName());
+        return definition.getMethodDescriptor().getResponseMarshaller();
+    }
+
+    private static Service.OrderBook orderBook(double price, long quantity) {
+        return Service.OrderBook.newBuilder().addBuyPrices(price).addBuyQuantities(quantity).build();
+    }
+}
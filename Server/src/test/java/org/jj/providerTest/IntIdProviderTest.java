@@ -26,4 +26,23 @@ public class IntIdProviderTest {
         assertThat(id2).isEqualTo(2);
         assertThat(id3).isEqualTo(3);
     }
+
+    @Test
+    void shouldPeekWithoutUsingUpTheId() {
+        idProvider.generateId();
+
+        assertThat(idProvider.peekNextId()).isEqualTo(2);
+        assertThat(idProvider.generateId()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCarryOnFromLastId() {
+        idProvider.generateId();
+        idProvider.generateId();
+
+        IdProvider restored = new IntIdProvider();
+        restored.setLastId(idProvider.getLastId());
+
+        assertThat(restored.generateId()).isEqualTo(3);
+    }
 }
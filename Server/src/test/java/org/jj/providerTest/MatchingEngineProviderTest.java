@@ -1,13 +1,24 @@
 package org.jj.providerTest;
 
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.DenseOrderBookSide;
 import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.matchingEngine.SparseOrderBookSide;
+import org.jj.product.Product;
 import org.jj.providers.MatchingEngineProvider;
 import org.jj.product.ProductStore;
 import org.jj.providers.IntIdProvider;
+import org.jj.providers.PartitionedIdProvider;
+import org.jj.sequencer.ParkingWaitStrategy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class MatchingEngineProviderTest {
     MatchingEngineProvider subject;
@@ -35,4 +46,84 @@ class MatchingEngineProviderTest {
 
         assertThat(subject.getMatchingEngine(id)).isInstanceOf(MatchingEngineImpl.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGiveEachProductItsOwnOrderIds() {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int first = productStore.addProduct("First", "A");
+        int second = productStore.addProduct("Second", "B");
+        subject = new MatchingEngineProvider(productStore);
+
+        MatchingEngineImpl firstEngine = subject.getMatchingEngine(first);
+        MatchingEngineImpl secondEngine = subject.getMatchingEngine(second);
+        long firstOrder = firstEngine.toOrderId(firstEngine.createOrder(1, 100_000, BuySell.BUY, Expiry.GTC));
+        long secondOrder = secondEngine.toOrderId(secondEngine.createOrder(1, 100_000, BuySell.BUY, Expiry.GTC));
+
+        assertThat(firstOrder).isNotEqualTo(secondOrder);
+        assertThat(PartitionedIdProvider.productOf(firstOrder)).isEqualTo(first);
+        assertThat(PartitionedIdProvider.productOf(secondOrder)).isEqualTo(second);
+    }
+
+    @Test
+    void shouldRefuseProductsWhoseIdsCannotGoInOrderIds() {
+        IntIdProvider productIds = new IntIdProvider();
+        productIds.setLastId(-2);
+        ProductStore productStore = new ProductStore(productIds);
+        productStore.addProduct("Negative", "NEG");
+
+        assertThatThrownBy(() -> new MatchingEngineProvider(productStore)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSelectOrderBookSidePerProduct() {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int id = productStore.addProduct("JensenProduct", "JJ");
+        List<Product> selected = new ArrayList<>();
+
+        subject = new MatchingEngineProvider(productStore, product -> {
+            selected.add(product);
+            return SparseOrderBookSide::new;
+        });
+
+        assertThat(subject.getMatchingEngine(id)).isNotNull();
+        assertThat(selected).extracting(Product::getSymbol).containsExactly("JJ");
+    }
+
+    @Test
+    void shouldHashProductsOntoShards() {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int first = productStore.addProduct("First", "A");
+        int second = productStore.addProduct("Second", "B");
+        int third = productStore.addProduct("Third", "C");
+
+        subject = new MatchingEngineProvider(productStore, product -> DenseOrderBookSide::new, ParkingWaitStrategy::new, 2);
+
+        assertThat(subject.getShardCount()).isEqualTo(2);
+        assertThat(subject.getSequencedMatchingEngine(first).getSequencer())
+                .isSameAs(subject.getSequencedMatchingEngine(third).getSequencer())
+                .isNotSameAs(subject.getSequencedMatchingEngine(second).getSequencer());
+        subject.close();
+    }
+
+    @Test
+    void shouldUseConfiguredShardAssignment() {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int first = productStore.addProduct("First", "A");
+        int second = productStore.addProduct("Second", "B");
+
+        subject = new MatchingEngineProvider(productStore, product -> DenseOrderBookSide::new, ParkingWaitStrategy::new, 4, product -> 3);
+
+        assertThat(subject.getSequencedMatchingEngine(first).getSequencer())
+                .isSameAs(subject.getSequencedMatchingEngine(second).getSequencer());
+        subject.close();
+    }
+
+    @Test
+    void shouldRejectShardOutsidePool() {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        productStore.addProduct("First", "A");
+
+        assertThatThrownBy(() -> new MatchingEngineProvider(productStore, product -> DenseOrderBookSide::new, ParkingWaitStrategy::new, 2, product -> 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
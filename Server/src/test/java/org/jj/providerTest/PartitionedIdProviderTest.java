@@ -0,0 +1,74 @@
+package org.jj.providerTest;
+
+import org.jj.providers.IdProvider;
+import org.jj.providers.PartitionedIdProvider;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionedIdProviderTest {
+
+    @Test
+    void shouldKeepProductsApart() {
+        IdProvider first = new PartitionedIdProvider(1);
+        IdProvider second = new PartitionedIdProvider(2);
+
+        long firstId = PartitionedIdProvider.toOrderId(1, first.generateId());
+        long secondId = PartitionedIdProvider.toOrderId(2, second.generateId());
+
+        assertThat(firstId).isNotEqualTo(secondId).isPositive();
+        assertThat(PartitionedIdProvider.productOf(firstId)).isEqualTo(1);
+        assertThat(PartitionedIdProvider.productOf(secondId)).isEqualTo(2);
+        assertThat(PartitionedIdProvider.engineOrderIdOf(firstId)).isEqualTo(1);
+        assertThat(first.generateId()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFitEveryProductAndOrderCount() {
+        long orderId = PartitionedIdProvider.toOrderId(Integer.MAX_VALUE, PartitionedIdProvider.MAX_ORDERS);
+
+        assertThat(orderId).isPositive();
+        assertThat(PartitionedIdProvider.productOf(orderId)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(PartitionedIdProvider.engineOrderIdOf(orderId)).isEqualTo(PartitionedIdProvider.MAX_ORDERS);
+    }
+
+    @Test
+    void shouldCarryOnFromLastId() {
+        IdProvider idProvider = new PartitionedIdProvider(3);
+        assertThat(idProvider.getLastId()).isZero();
+        idProvider.generateId();
+        idProvider.generateId();
+
+        IdProvider restored = new PartitionedIdProvider(3);
+        restored.setLastId(idProvider.getLastId());
+
+        assertThat(restored.generateId()).isEqualTo(idProvider.generateId());
+        assertThatThrownBy(() -> new PartitionedIdProvider(4).setLastId(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldPeekWithoutUsingUpTheId() {
+        IdProvider idProvider = new PartitionedIdProvider(3);
+
+        int peeked = idProvider.peekNextId();
+
+        assertThat(idProvider.generateId()).isEqualTo(peeked);
+        assertThat(idProvider.peekNextId()).isEqualTo(peeked + 1);
+    }
+
+    @Test
+    void shouldRejectProductsThatDoNotFit() {
+        assertThatThrownBy(() -> new PartitionedIdProvider(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PartitionedIdProvider.checkProductId(Integer.MIN_VALUE)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldStopWhenIdsAreUsedUp() {
+        IdProvider idProvider = new PartitionedIdProvider(1);
+        idProvider.setLastId(PartitionedIdProvider.MAX_ORDERS - 1);
+
+        assertThat(idProvider.generateId()).isEqualTo(PartitionedIdProvider.MAX_ORDERS);
+        assertThatThrownBy(idProvider::generateId).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,93 @@
+package org.jj.providerTest;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.providers.ShardMigration;
+import org.jj.providers.ShardRebalancer;
+import org.jj.sequencer.ParkingWaitStrategy;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRebalancerTest {
+    private ProductStore productStore;
+    private MatchingEngineProvider matchingEngineProvider;
+    private ShardRebalancer subject;
+
+    @BeforeEach
+    void setUp() {
+        productStore = new ProductStore(new IntIdProvider());
+        productStore.addProduct("Hot", "HOT");
+        productStore.addProduct("Warm", "WARM");
+        productStore.addProduct("Cold", "COLD");
+
+        // Everything starts on shard 0
+        matchingEngineProvider = new MatchingEngineProvider(productStore, product -> DenseOrderBookSide::new, ParkingWaitStrategy::new, 2, product -> 0);
+        subject = new ShardRebalancer(matchingEngineProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        subject.close();
+        matchingEngineProvider.close();
+    }
+
+    @Test
+    void shouldNotMoveAnythingWithoutLoad() {
+        assertThat(subject.rebalance()).isNull();
+    }
+
+    @Test
+    void shouldMoveProductThatBestEvensOutShards() {
+        send("HOT", 1000);
+        send("WARM", 600);
+        send("COLD", 400);
+
+        ShardMigration migration = subject.rebalance();
+
+        assertThat(migration.product().getSymbol()).isEqualTo("HOT");
+        assertThat(migration.fromShard()).isZero();
+        assertThat(migration.toShard()).isEqualTo(1);
+        assertThat(migration.fromShardLoad()).isEqualTo(2000);
+        assertThat(matchingEngineProvider.getShardIndex(productStore.getProduct("HOT"))).isEqualTo(1);
+        assertThat(matchingEngineProvider.getShardIndex(productStore.getProduct("WARM"))).isZero();
+    }
+
+    @Test
+    void shouldOnlyCountMessagesSinceLastSample() {
+        send("HOT", 1000);
+        send("WARM", 600);
+        send("COLD", 400);
+        subject.rebalance();
+
+        send("WARM", 500);
+        send("HOT", 500);
+
+        assertThat(subject.rebalance()).isNull();
+    }
+
+    @Test
+    void shouldNotBounceSingleHotProduct() {
+        send("HOT", 1000);
+
+        assertThat(subject.rebalance()).isNull();
+    }
+
+    private void send(String symbol, int orders) {
+        SequencedMatchingEngine matchingEngine = matchingEngineProvider.getSequencedMatchingEngine(symbol);
+        CompletableFuture<Integer> last = null;
+        for (int i = 0; i < orders; i++) {
+            last = matchingEngine.createOrder(1, 1000, BuySell.BUY, Expiry.GTC);
+        }
+        last.join();
+    }
+}
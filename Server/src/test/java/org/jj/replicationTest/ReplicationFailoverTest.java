@@ -0,0 +1,142 @@
+package org.jj.replicationTest;
+
+import com.google.protobuf.Int64Value;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import org.jj.OrderServiceGrpc;
+import org.jj.Service;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// A primary and its standby as two server processes on this box, talking over local sockets as in production
+class ReplicationFailoverTest {
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @TempDir
+    Path directory;
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (ManagedChannel channel : channels) {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (Process process : processes) {
+            process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void shouldReplicateToStandbyAndFailOverToIt() throws Exception {
+        int primaryPort = freePort();
+        int standbyPort = freePort();
+        int replicationPort = freePort();
+
+        Process primary = startServer("primary", primaryPort, "-DreplicationPort=" + replicationPort, "-Dreplication=sync");
+        startServer("standby", standbyPort, "-DfollowPrimary=localhost:" + replicationPort, "-DfailoverMillis=500");
+        OrderServiceGrpc.OrderServiceBlockingStub primaryStub = stub(primaryPort);
+        OrderServiceGrpc.OrderServiceBlockingStub standbyStub = stub(standbyPort);
+
+        await(primaryStub, Service.ReplicationStatusResponse::getConnected);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(primaryStub.orderCreateRequest(order(10 + i)).getValue());
+        }
+
+        // Sync replication answered each order only once the standby had applied it
+        Service.ReplicationStatusResponse primaryStatus = primaryStub.replicationStatus(Service.EmptyQuery.getDefaultInstance());
+        assertThat(primaryStatus.getStandby()).isFalse();
+        assertThat(primaryStatus.getJournalSequence()).isEqualTo(5);
+        assertThat(primaryStatus.getReplicatedSequence()).isEqualTo(5);
+        assertThat(primaryStatus.getLag()).isZero();
+
+        Service.ReplicationStatusResponse standbyStatus = standbyStub.replicationStatus(Service.EmptyQuery.getDefaultInstance());
+        assertThat(standbyStatus.getStandby()).isTrue();
+        assertThat(standbyStatus.getConnected()).isTrue();
+        assertThat(standbyStatus.getJournalSequence()).isEqualTo(5);
+        assertThat(standbyStatus.getReplicatedSequence()).isEqualTo(5);
+        assertThat(standbyStub.getOrdersRequest(Service.OrderIdList.newBuilder().addAllId(orderIds).build()).getOrdersList())
+                .extracting(Service.Order::getQuantity)
+                .containsExactly(10L, 11L, 12L, 13L, 14L);
+        assertThatThrownBy(() -> standbyStub.orderCreateRequest(order(1))).isInstanceOf(StatusRuntimeException.class);
+
+        primary.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+
+        await(standbyStub, status -> !status.getStandby());
+        long takenOverId = standbyStub.orderCreateRequest(order(20)).getValue();
+        assertThat(takenOverId).isNotIn(orderIds);
+        assertThat(standbyStub.orderCancelRequest(Int64Value.of(orderIds.get(0))).getValue()).isTrue();
+        assertThat(standbyStub.replicationStatus(Service.EmptyQuery.getDefaultInstance()).getJournalSequence()).isEqualTo(7);
+    }
+
+    private Process startServer(String name, int port, String... properties) throws IOException {
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                                                       "-cp", System.getProperty("java.class.path"),
+                                                       "-Dport=" + port,
+                                                       "-Djournal=" + directory.resolve(name + "-journal"),
+                                                       "-DengineShards=1"));
+        command.addAll(List.of(properties));
+        command.add("org.jj.orderService.ServerMain");
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                                                     .redirectOutput(directory.resolve(name + ".log").toFile())
+                                                     .start();
+        processes.add(process);
+        return process;
+    }
+
+    private OrderServiceGrpc.OrderServiceBlockingStub stub(int port) {
+        ManagedChannel channel = Grpc.newChannelBuilder("localhost:" + port, InsecureChannelCredentials.create()).build();
+        channels.add(channel);
+        return OrderServiceGrpc.newBlockingStub(channel);
+    }
+
+    // Retries while the server is still starting
+    private static void await(OrderServiceGrpc.OrderServiceBlockingStub stub, Predicate<Service.ReplicationStatusResponse> condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (System.nanoTime() < deadline) {
+            try {
+                if (condition.test(stub.withDeadlineAfter(1, TimeUnit.SECONDS).replicationStatus(Service.EmptyQuery.getDefaultInstance()))) {
+                    return;
+                }
+            } catch (StatusRuntimeException e) {
+                // Not listening yet
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Timed out waiting for replication status");
+    }
+
+    private static Service.OrderCreateRequestDetails order(long quantity) {
+        return Service.OrderCreateRequestDetails.newBuilder()
+                                                .setProductSymbol("JJ")
+                                                .setQuantity(quantity)
+                                                .setPrice(100.0)
+                                                .setBuySell(Service.BuySell.BUY)
+                                                .setExpiry(Service.Expiry.GTC)
+                                                .build();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
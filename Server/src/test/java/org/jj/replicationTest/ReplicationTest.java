@@ -0,0 +1,217 @@
+package org.jj.replicationTest;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.journal.Journal;
+import org.jj.journal.JournalReader;
+import org.jj.replication.ReplicatedInputHandler;
+import org.jj.replication.ReplicationFollower;
+import org.jj.replication.ReplicationMode;
+import org.jj.replication.ReplicationServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicationTest {
+    @TempDir
+    Path directory;
+
+    private Journal primaryJournal;
+    private Journal standbyJournal;
+    private ReplicationServer server;
+    private ReplicationFollower follower;
+
+    @AfterEach
+    void tearDown() {
+        if (follower != null) {
+            follower.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (standbyJournal != null) {
+            standbyJournal.close();
+        }
+        if (primaryJournal != null) {
+            primaryJournal.close();
+        }
+    }
+
+    @Test
+    void shouldStreamJournalToStandbyAndAcknowledge() throws IOException {
+        RecordingHandler handler = new RecordingHandler();
+        start(ReplicationMode.SYNC, 1, handler);
+
+        primaryJournal.appendCreateOrder(1, 10, 100_000, BuySell.BUY, Expiry.GTC, "alice", 0);
+        primaryJournal.appendAmendOrder(1, 1, 8, 99_000);
+        primaryJournal.appendCancelOrder(1, 1);
+
+        awaitTrue(() -> server.getReplicatedSequence() == 3);
+        assertThat(handler.records).containsExactly("1 create", "2 amend", "3 cancel");
+        assertThat(follower.getJournalSequence()).isEqualTo(3);
+        assertThat(follower.getAppliedSequence()).isEqualTo(3);
+        assertThat(server.getLag()).isZero();
+        assertThat(standbyJournal.getLastSequence()).isEqualTo(3);
+
+        standbyJournal.close();
+        assertThat(JournalReader.replay(directory.resolve("standby"), new RecordingHandler())).isEqualTo(3);
+    }
+
+    @Test
+    void shouldHoldSyncResponsesUntilStandbyHasApplied() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        handler.blocked = new CountDownLatch(1);
+        start(ReplicationMode.SYNC, 1, handler);
+        awaitTrue(server::isFollowerConnected);
+
+        long sequence = primaryJournal.appendCancelOrder(1, 1);
+        CompletableFuture<Void> replicated = server.whenReplicated(sequence);
+        awaitTrue(() -> handler.records.size() == 1);
+        assertThat(replicated).isNotDone();
+        assertThat(server.getLag()).isEqualTo(1);
+
+        handler.blocked.countDown();
+        replicated.get(5, TimeUnit.SECONDS);
+        assertThat(server.getReplicatedSequence()).isEqualTo(sequence);
+    }
+
+    @Test
+    void shouldNotHoldAsyncResponses() throws IOException {
+        RecordingHandler handler = new RecordingHandler();
+        handler.blocked = new CountDownLatch(1);
+        start(ReplicationMode.ASYNC, 1, handler);
+        awaitTrue(server::isFollowerConnected);
+
+        long sequence = primaryJournal.appendCancelOrder(1, 1);
+        assertThat(server.whenReplicated(sequence)).isDone();
+        awaitTrue(() -> handler.records.size() == 1);
+        assertThat(server.getLag()).isEqualTo(1);
+
+        handler.blocked.countDown();
+        awaitTrue(() -> server.getLag() == 0);
+    }
+
+    @Test
+    void shouldNotHoldSyncResponsesWithoutStandby() throws IOException {
+        primaryJournal = new Journal(directory.resolve("primary"), 1);
+        server = new ReplicationServer(0, primaryJournal, directory.resolve("primary"), ReplicationMode.SYNC);
+        server.start();
+
+        long sequence = primaryJournal.appendCancelOrder(1, 1);
+        assertThat(server.whenReplicated(sequence)).isDone();
+        assertThat(server.isFollowerConnected()).isFalse();
+        assertThat(server.getLag()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOnlySendWhatStandbyIsMissing() throws IOException {
+        standbyJournal = new Journal(directory.resolve("standby"), 1);
+        primaryJournal = new Journal(directory.resolve("primary"), 1);
+        for (int i = 0; i < 4; i++) {
+            primaryJournal.appendCancelOrder(1, i);
+            if (i < 2) {
+                standbyJournal.appendCancelOrder(1, i);
+            }
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        server = new ReplicationServer(0, primaryJournal, directory.resolve("primary"), ReplicationMode.SYNC);
+        server.start();
+        follower = new ReplicationFollower("localhost", server.getPort(), standbyJournal, handler, 2_000, () -> {
+        });
+        follower.start();
+
+        awaitTrue(() -> server.getReplicatedSequence() == 4);
+        assertThat(handler.records).containsExactly("3 cancel", "4 cancel");
+    }
+
+    @Test
+    void shouldTakeOverOnceThePrimaryIsGone() throws Exception {
+        primaryJournal = new Journal(directory.resolve("primary"), 1);
+        standbyJournal = new Journal(directory.resolve("standby"), 1);
+        server = new ReplicationServer(0, primaryJournal, directory.resolve("primary"), ReplicationMode.SYNC);
+        server.start();
+
+        CountDownLatch tookOver = new CountDownLatch(1);
+        follower = new ReplicationFollower("localhost", server.getPort(), standbyJournal, new RecordingHandler(), 200, tookOver::countDown);
+        follower.start();
+        primaryJournal.appendCancelOrder(1, 1);
+        awaitTrue(() -> server.getReplicatedSequence() == 1);
+
+        server.close();
+        assertThat(tookOver.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(follower.isConnected()).isFalse();
+        assertThat(follower.getAppliedSequence()).isEqualTo(1);
+    }
+
+    private void start(ReplicationMode mode, long nextSequence, RecordingHandler handler) throws IOException {
+        primaryJournal = new Journal(directory.resolve("primary"), nextSequence);
+        standbyJournal = new Journal(directory.resolve("standby"), nextSequence);
+        server = new ReplicationServer(0, primaryJournal, directory.resolve("primary"), mode);
+        server.start();
+        follower = new ReplicationFollower("localhost", server.getPort(), standbyJournal, handler, 2_000, () -> {
+        });
+        follower.start();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting");
+            }
+            Thread.yield();
+        }
+    }
+
+    // Records inputs as they arrive, applying them only once blocked is released
+    private static class RecordingHandler implements ReplicatedInputHandler {
+        private final List<String> records = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public void awaitApplied() {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onCreateOrder(long sequence, int productId, long quantity, long price, BuySell buySell, Expiry expiry, String participant,
+                                  long clientOrderId) {
+            records.add(sequence + " create");
+        }
+
+        @Override
+        public void onCancelOrder(long sequence, int productId, int orderId) {
+            records.add(sequence + " cancel");
+        }
+
+        @Override
+        public void onAmendOrder(long sequence, int productId, int orderId, long quantity, long price) {
+            records.add(sequence + " amend");
+        }
+
+        @Override
+        public void onMassQuote(long sequence, int productId, String participant, long[] bidPrices, long[] bidQuantities, long[] askPrices,
+                                long[] askQuantities) {
+            records.add(sequence + " quote");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.jj.sequencerTest;
+
+import io.grpc.stub.StreamObserver;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Service;
+import org.jj.matchingEngine.BookUpdate;
+import org.jj.matchingEngine.DenseOrderBookSide;
+import org.jj.matchingEngine.Executions;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.sequencer.EngineEventBus;
+import org.jj.sequencer.EngineSequencer;
+import org.jj.sequencer.ParkingWaitStrategy;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EngineEventBusTest {
+    private EngineSequencer sequencer;
+    private EngineEventBus publisher;
+    private SequencedMatchingEngine subject;
+
+    @BeforeEach
+    void setUp() {
+        sequencer = new EngineSequencer("engine", new ParkingWaitStrategy(), 256);
+        publisher = new EngineEventBus("market-data", new ParkingWaitStrategy(), 256);
+        sequencer.start();
+        publisher.start();
+        subject = new SequencedMatchingEngine(new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), DenseOrderBookSide::new, publisher),
+                                              sequencer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequencer.close();
+        publisher.close();
+    }
+
+    @Test
+    void shouldBuildAndSendUpdatesOnPublisherThread() throws Exception {
+        RecordingObserver<Service.OrderBook> observer = new RecordingObserver<>();
+        subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS);
+        subject.submit(engine -> {
+            engine.addOrderBookListener(observer);
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+
+        subject.createOrder(5, 101_000, BuySell.SELL, Expiry.GTC);
+        subject.createOrder(4, 100_000, BuySell.SELL, Expiry.GTC).get(5, TimeUnit.SECONDS);
+        publisher.close();
+
+        assertThat(observer.threads).containsOnly("market-data");
+        assertThat(observer.messages).extracting(Service.OrderBook::getBuyQuantitiesList)
+                                     .containsExactly(List.of(10L), List.of(10L), List.of(6L));
+        assertThat(observer.messages.get(2).getSellQuantitiesList()).containsExactly(5L);
+    }
+
+    @Test
+    void shouldSendDeltasInSequenceAfterSnapshot() throws Exception {
+        RecordingObserver<Service.OrderBookDeltaUpdate> observer = new RecordingObserver<>();
+        for (int i = 0; i < 100; i++) {
+            subject.createOrder(1, 100_000 + i, BuySell.BUY, Expiry.GTC);
+        }
+        subject.submit(engine -> {
+            engine.addOrderBookDeltaListener(observer);
+            return null;
+        });
+        for (int i = 0; i < 100; i++) {
+            subject.createOrder(1, 100_000, BuySell.SELL, Expiry.IOC);
+        }
+        subject.submit(engine -> null).get(5, TimeUnit.SECONDS);
+        publisher.close();
+
+        assertThat(observer.messages.get(0).hasSnapshot()).isTrue();
+        long sequence = observer.messages.get(0).getSequence();
+        for (int i = 1; i < observer.messages.size(); i++) {
+            assertThat(observer.messages.get(i).getSequence()).isEqualTo(sequence + i);
+        }
+        assertThat(observer.messages.get(observer.messages.size() - 1).getSequence()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldFeedEveryEventToAddedConsumerInOrder() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        publisher.addConsumer("consumer", new ParkingWaitStrategy(), event -> {
+            threads.add(Thread.currentThread().getName());
+            if (event.getType() == BookUpdate.Type.BOOK) {
+                events.add("BOOK " + event.getSequence());
+            } else {
+                Executions executions = event.getExecutions();
+                for (int i = 0; i < executions.size(); i++) {
+                    events.add(executions.getType(i) + " " + executions.getOrderId(i));
+                }
+            }
+        });
+
+        int buyId = subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS);
+        int sellId = subject.createOrder(10, 100_000, BuySell.SELL, Expiry.GTC).get(5, TimeUnit.SECONDS);
+        subject.submit(engine -> {
+            engine.addOrderBookListener(new RecordingObserver<>());
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+        publisher.close();
+
+        assertThat(events).containsExactly("ACCEPTED " + buyId, "BOOK 1",
+                                           "ACCEPTED " + sellId, "FILLED " + sellId, "FILLED " + buyId, "BOOK 2");
+        assertThat(threads).containsOnly("consumer");
+    }
+
+    @Test
+    void shouldHoldEnginesBackForSlowestConsumer() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        publisher.addConsumer("slow", new ParkingWaitStrategy(), event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            subject.createOrder(1, 100_000 + i, BuySell.BUY, Expiry.GTC);
+        }
+        subject.submit(engine -> null).get(5, TimeUnit.SECONDS);
+        assertThat(publisher.getBacklog()).isPositive();
+
+        release.countDown();
+        publisher.close();
+        assertThat(publisher.getBacklog()).isZero();
+    }
+
+    @Test
+    void shouldStopPublishingOnceRemoved() throws Exception {
+        RecordingObserver<Service.OrderBook> observer = new RecordingObserver<>();
+        subject.submit(engine -> {
+            engine.addOrderBookListener(observer);
+            engine.removeOrderBookListener(observer);
+            return null;
+        });
+        subject.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS);
+        publisher.close();
+
+        assertThat(observer.messages).hasSize(1);
+        assertThat(observer.messages.get(0).getBuyPricesList()).isEmpty();
+    }
+
+    private static class RecordingObserver<T> implements StreamObserver<T> {
+        private final List<T> messages = new CopyOnWriteArrayList<>();
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onNext(T value) {
+            messages.add(value);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.jj.sequencerTest;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Service;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.sequencer.EngineSequencer;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.sequencer.WaitStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EngineSequencerTest {
+    private EngineSequencer sequencer;
+    private SequencedMatchingEngine subject;
+
+    private void start(String waitStrategy) {
+        sequencer = new EngineSequencer("engine-test", WaitStrategy.fromName(waitStrategy), 256);
+        sequencer.start();
+        subject = new SequencedMatchingEngine(new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider()), sequencer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequencer.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"busy-spin", "yield", "park"})
+    void shouldKeepBookConsistentWithOrdersFromManyThreads(String waitStrategy) throws Exception {
+        start(waitStrategy);
+        int producers = 4;
+        int perProducer = 5_000;
+
+        List<List<CompletableFuture<Integer>>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            List<CompletableFuture<Integer>> own = new ArrayList<>();
+            results.add(own);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    own.add(subject.createOrder(1, 1000, BuySell.BUY, Expiry.GTC));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (List<CompletableFuture<Integer>> own : results) {
+            for (CompletableFuture<Integer> result : own) {
+                ids.add(result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertThat(ids).hasSize(producers * perProducer);
+
+        Service.OrderBook orderBook = subject.submit(MatchingEngineImpl::getInitialOrderBookForSubscriber).get(5, TimeUnit.SECONDS);
+        assertThat(orderBook.getBuyQuantitiesList()).containsExactly((long) producers * perProducer);
+    }
+
+    @Test
+    void shouldCompleteWithCommandsRunInSubmitOrder() throws Exception {
+        start("park");
+
+        int id = subject.createOrder(10, 1000, BuySell.SELL, Expiry.GTC).get(5, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> cancelled = subject.cancelOrder(id);
+        CompletableFuture<Boolean> cancelledAgain = subject.cancelOrder(id);
+
+        assertThat(cancelled.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cancelledAgain.get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void shouldRunCommandsOnSequencerThread() throws Exception {
+        start("park");
+
+        assertThat(subject.submit(engine -> sequencer.isSequencerThread()).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(sequencer.isSequencerThread()).isFalse();
+    }
+
+    @Test
+    void shouldCompleteExceptionallyAndKeepRunningWhenCommandFails() throws Exception {
+        start("park");
+        subject.createOrder(10, 1000, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Integer> tooFar = subject.createOrder(10, 1L << 40, BuySell.BUY, Expiry.GTC);
+
+        assertThatThrownBy(() -> tooFar.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                                                                 .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(subject.createOrder(10, 1001, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS)).isPositive();
+    }
+
+    @Test
+    void shouldCompleteExceptionallyAndKeepRunningWhenCommandThrowsAnError() throws Exception {
+        start("park");
+
+        CompletableFuture<Object> failed = subject.submit(engine -> {
+            throw new AssertionError("broken");
+        });
+
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                                                                .hasCauseInstanceOf(AssertionError.class);
+        assertThat(subject.createOrder(10, 1000, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS)).isPositive();
+    }
+
+    @Test
+    void shouldRunPublishedCommandsBeforeClosing() {
+        start("park");
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            results.add(subject.createOrder(1, 1000 + i, BuySell.BUY, Expiry.GTC));
+        }
+
+        sequencer.close();
+
+        assertThat(results).allMatch(CompletableFuture::isDone);
+    }
+}
@@ -0,0 +1,78 @@
+package org.jj.sequencerTest;
+
+import org.jj.sequencer.RingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferTest {
+
+    @Test
+    void shouldRejectCapacityThatIsNotAPowerOfTwo() {
+        assertThatThrownBy(() -> new RingBuffer<>(100, AtomicLong::new)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldOnlyExposePublishedEntries() {
+        RingBuffer<AtomicLong> ringBuffer = new RingBuffer<>(4, AtomicLong::new);
+
+        long first = ringBuffer.claim();
+        long second = ringBuffer.claim();
+        ringBuffer.get(second).set(2);
+        ringBuffer.publish(second);
+
+        assertThat(ringBuffer.isPublished(first)).isFalse();
+        assertThat(ringBuffer.isPublished(second)).isTrue();
+    }
+
+    @Test
+    void shouldDeliverEveryEntryFromManyProducersAcrossWraps() throws InterruptedException {
+        RingBuffer<AtomicLong> ringBuffer = new RingBuffer<>(256, AtomicLong::new);
+        int producers = 4;
+        int perProducer = 20_000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence = ringBuffer.claim();
+                    ringBuffer.get(sequence).set(base + i);
+                    ringBuffer.publish(sequence);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        long[] lastPerProducer = new long[producers];
+        Arrays.fill(lastPerProducer, -1);
+        for (long sequence = 0; sequence < seen.length; sequence++) {
+            while (!ringBuffer.isPublished(sequence)) {
+                Thread.onSpinWait();
+            }
+            long value = ringBuffer.get(sequence).get();
+            int producer = (int) (value / perProducer);
+
+            assertThat(value).isGreaterThan(lastPerProducer[producer]);
+            lastPerProducer[producer] = value;
+            seen[(int) value] = true;
+            ringBuffer.release(sequence + 1);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (boolean s : seen) {
+            assertThat(s).isTrue();
+        }
+        assertThat(ringBuffer.size()).isZero();
+    }
+}
@@ -0,0 +1,145 @@
+package org.jj.sequencerTest;
+
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Service;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.sequencer.EngineSequencer;
+import org.jj.sequencer.ParkingWaitStrategy;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SequencedMatchingEngineTest {
+    private EngineSequencer first;
+    private EngineSequencer second;
+    private SequencedMatchingEngine subject;
+
+    @BeforeEach
+    void setUp() {
+        first = new EngineSequencer("engine-first", new ParkingWaitStrategy(), 256);
+        second = new EngineSequencer("engine-second", new ParkingWaitStrategy(), 256);
+        first.start();
+        second.start();
+        subject = new SequencedMatchingEngine(new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider()), first);
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void shouldRunCommandsOnNewSequencerAfterMove() throws Exception {
+        subject.moveTo(second);
+
+        assertThat(subject.getSequencer()).isSameAs(second);
+        assertThat(subject.submit(engine -> second.isSequencerThread()).get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldKeepTargetsOtherEnginesRunningWhileMoveWaitsForSource() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> blocked = subject.submit(engine -> {
+            awaitQuietly(release);
+            return null;
+        });
+        CompletableFuture<Long> move = CompletableFuture.supplyAsync(() -> subject.moveTo(second));
+        while (subject.getSequencer() != second) {
+            Thread.onSpinWait();
+        }
+        CompletableFuture<Integer> parked = subject.createOrder(1, 1000, BuySell.BUY, Expiry.GTC);
+
+        MatchingEngineImpl other = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        assertThat(second.createOrder(other, 1, 1000, BuySell.BUY, Expiry.GTC).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(parked).isNotDone();
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertThat(move.get(5, TimeUnit.SECONDS)).isPositive();
+        assertThat(parked.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotLoseOrReorderOrdersWhileMoving() throws Exception {
+        int orders = 50_000;
+        List<CompletableFuture<Integer>> results = new ArrayList<>(orders);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < orders; i++) {
+                results.add(subject.createOrder(1, 1000, BuySell.BUY, Expiry.GTC));
+            }
+        });
+
+        producer.start();
+        for (int i = 0; producer.isAlive() || i < 2; i++) {
+            subject.moveTo(i % 2 == 0 ? second : first);
+        }
+        producer.join();
+
+        // Ids are handed out in execution order, so submission order must give 1, 2, 3...
+        for (int i = 0; i < orders; i++) {
+            assertThat(results.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i + 1);
+        }
+        Service.OrderBook orderBook = subject.submit(MatchingEngineImpl::getInitialOrderBookForSubscriber).get(5, TimeUnit.SECONDS);
+        assertThat(orderBook.getBuyQuantitiesList()).containsExactly((long) orders);
+        assertThat(subject.getMessageCount()).isEqualTo(orders + 1);
+    }
+
+    @Test
+    void shouldNeverRunEngineOnTwoSequencersAtOnceWhileMoving() throws Exception {
+        int producers = 4;
+        int tasks = 20_000;
+        AtomicBoolean running = new AtomicBoolean();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < tasks; i++) {
+                    subject.submit(engine -> {
+                        if (!running.compareAndSet(false, true)) {
+                            overlaps.incrementAndGet();
+                        }
+                        Thread.onSpinWait();
+                        running.set(false);
+                        return null;
+                    });
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+
+        for (int i = 0; threads.stream().anyMatch(Thread::isAlive); i++) {
+            subject.moveTo(i % 2 == 0 ? second : first);
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+
+        subject.submit(engine -> null).get(5, TimeUnit.SECONDS);
+        assertThat(overlaps.get()).isZero();
+        assertThat(subject.getMessageCount()).isEqualTo((long) producers * tasks + 1);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
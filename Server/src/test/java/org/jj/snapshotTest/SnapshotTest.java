@@ -0,0 +1,227 @@
+package org.jj.snapshotTest;
+
+import com.google.protobuf.Int64Value;
+import io.grpc.stub.StreamObserver;
+import org.jj.BuySell;
+import org.jj.Expiry;
+import org.jj.Order;
+import org.jj.Service;
+import org.jj.journal.Journal;
+import org.jj.matchingEngine.MatchingEngineImpl;
+import org.jj.matchingEngine.OrderBookSideFactory;
+import org.jj.matchingEngine.OrderStore;
+import org.jj.matchingEngine.SparseOrderBookSide;
+import org.jj.orderService.OrderServiceImpl;
+import org.jj.product.ProductStore;
+import org.jj.providers.IntIdProvider;
+import org.jj.providers.PartitionedIdProvider;
+import org.jj.providers.MatchingEngineProvider;
+import org.jj.providers.SystemTimestampProvider;
+import org.jj.sequencer.SequencedMatchingEngine;
+import org.jj.snapshot.Snapshot;
+import org.jj.snapshot.SnapshotStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRestoreEngineWithQueuePriorityAndFills() throws IOException {
+        MatchingEngineImpl original = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        fill(original);
+
+        MatchingEngineImpl restored = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        restored.readSnapshot(in(encode(original)));
+
+        assertThat(encode(restored)).isEqualTo(encode(original));
+        assertThat(restored.getInitialOrderBookForSubscriber()).isEqualTo(original.getInitialOrderBookForSubscriber());
+
+        // The same aggressor takes the same resting orders in the same order
+        assertThat(restored.createOrder(12, 101_000, BuySell.SELL, Expiry.GTC)).isEqualTo(original.createOrder(12, 101_000, BuySell.SELL, Expiry.GTC));
+        assertThat(encode(restored)).isEqualTo(encode(original));
+    }
+
+    @Test
+    void shouldReplaceRestoredQuotes() throws IOException {
+        MatchingEngineImpl original = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        original.massQuote("carol", new long[]{99_000}, new long[]{5}, new long[]{103_000}, new long[]{5});
+
+        MatchingEngineImpl restored = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        restored.readSnapshot(in(encode(original)));
+        restored.massQuote("carol", new long[0], new long[0], new long[0], new long[0]);
+
+        assertThat(restored.getInitialOrderBookForSubscriber().getBuyPricesCount()).isZero();
+        assertThat(restored.getInitialOrderBookForSubscriber().getSellPricesCount()).isZero();
+    }
+
+    @Test
+    void shouldRestoreSparseBook() throws IOException {
+        OrderBookSideFactory sparse = SparseOrderBookSide::new;
+        MatchingEngineImpl original = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), sparse);
+        fill(original);
+
+        MatchingEngineImpl restored = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider(), sparse);
+        restored.readSnapshot(in(encode(original)));
+
+        assertThat(encode(restored)).isEqualTo(encode(original));
+    }
+
+    @Test
+    void shouldOnlyRestoreIntoNewEngine() throws IOException {
+        MatchingEngineImpl original = new MatchingEngineImpl(new SystemTimestampProvider(), new IntIdProvider());
+        fill(original);
+        byte[] snapshot = encode(original);
+
+        assertThatThrownBy(() -> original.readSnapshot(in(snapshot))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldRestoreOrderStore() throws IOException {
+        OrderStore original = new OrderStore();
+        long first = PartitionedIdProvider.toOrderId(7, 1);
+        long second = PartitionedIdProvider.toOrderId(8, 1);
+        original.addOrder(new Order(first, "JJ", 100.5, 10, 0, Expiry.GTC, BuySell.BUY));
+        original.addOrder(new Order(second, "NOOO", 99.0, 5, 0, Expiry.IOC, BuySell.SELL));
+        original.fill(first, 4);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeSnapshot(new DataOutputStream(bytes));
+        OrderStore restored = new OrderStore();
+        restored.readSnapshot(in(bytes.toByteArray()));
+
+        assertThat(restored.getOrder(first)).isEqualTo(new Order(first, "JJ", 100.5, 10, 4, Expiry.GTC, BuySell.BUY));
+        assertThat(restored.getOrder(second)).isEqualTo(original.getOrder(second));
+        assertThat(restored.getProductId(second)).isEqualTo(8);
+    }
+
+    @Test
+    void shouldKeepOnlyNewestSnapshots() throws IOException {
+        for (long sequence : new long[]{10, 20, 30}) {
+            SnapshotStore.write(directory, new Snapshot(sequence, Map.of(1, new byte[]{(byte) sequence}, 2, new byte[0]), new byte[]{1, 2}));
+        }
+        Files.createDirectory(directory.resolve("snapshot-00000000000000000040.tmp"));
+
+        Snapshot latest = SnapshotStore.readLatest(directory);
+        assertThat(latest.journalSequence()).isEqualTo(30);
+        assertThat(latest.books()).containsOnlyKeys(1, 2);
+        assertThat(latest.books().get(1)).containsExactly(30);
+        assertThat(latest.orders()).containsExactly(1, 2);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()).sorted().toList())
+                    .containsExactly("snapshot-00000000000000000020", "snapshot-00000000000000000030", "snapshot-00000000000000000040.tmp");
+        }
+    }
+
+    @Test
+    void shouldReturnNullWithoutSnapshot() throws IOException {
+        assertThat(SnapshotStore.readLatest(directory.resolve("missing"))).isNull();
+        assertThat(SnapshotStore.readLatest(directory)).isNull();
+    }
+
+    @Test
+    void shouldRecoverFromSnapshotAndJournalTail() throws Exception {
+        ProductStore productStore = new ProductStore(new IntIdProvider());
+        int jj = productStore.addProduct("Jensen Stock", "JJ");
+        int nooo = productStore.addProduct("Secondary Stock", "NOOO");
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+
+        OrderStore orderStore = new OrderStore();
+        long resting;
+        Map<Integer, byte[]> books;
+        Order stored;
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, orderStore);
+            assertThat(orderService.recover(journalDirectory, snapshotDirectory)).isZero();
+            provider.attachJournal(new Journal(journalDirectory, 1));
+
+            resting = createOrder(orderService, 10, 100.0, Service.BuySell.BUY, "alice");
+            createOrder(orderService, 4, 100.0, Service.BuySell.SELL, "bob");
+            SequencedMatchingEngine second = provider.getSequencedMatchingEngine(nooo);
+            int other = second.createOrder(7, 50_000, BuySell.SELL, Expiry.GTC).get();
+
+            assertThat(orderService.snapshot(snapshotDirectory)).isEqualTo(3);
+
+            createOrder(orderService, 2, 100.0, Service.BuySell.SELL, "");
+            second.cancelOrder(other).get();
+            books = provider.whilePaused(provider::writeBookSnapshots);
+            stored = provider.whilePaused(() -> orderStore.getOrder(resting));
+            assertThat(provider.getJournalSequence()).isEqualTo(5);
+        }
+        assertThat(stored.quantityFilled()).isEqualTo(6);
+
+        OrderStore recoveredStore = new OrderStore();
+        try (MatchingEngineProvider provider = new MatchingEngineProvider(productStore)) {
+            OrderServiceImpl orderService = new OrderServiceImpl(provider, recoveredStore);
+            assertThat(orderService.recover(journalDirectory, snapshotDirectory)).isEqualTo(5);
+
+            Map<Integer, byte[]> recovered = provider.whilePaused(provider::writeBookSnapshots);
+            assertThat(recovered.get(jj)).isEqualTo(books.get(jj));
+            assertThat(recovered.get(nooo)).isEqualTo(books.get(nooo));
+            assertThat(provider.whilePaused(() -> recoveredStore.getOrder(resting))).isEqualTo(stored);
+        }
+    }
+
+    private static long createOrder(OrderServiceImpl orderService, long quantity, double price, Service.BuySell buySell, String participant) throws Exception {
+        CompletableFuture<Long> orderId = new CompletableFuture<>();
+        orderService.orderCreateRequest(Service.OrderCreateRequestDetails.newBuilder()
+                                                                         .setProductSymbol("JJ")
+                                                                         .setQuantity(quantity)
+                                                                         .setPrice(price)
+                                                                         .setBuySell(buySell)
+                                                                         .setExpiry(Service.Expiry.GTC)
+                                                                         .setParticipantId(participant)
+                                                                         .build(), new StreamObserver<>() {
+            @Override
+            public void onNext(Int64Value value) {
+                orderId.complete(value.getValue());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                orderId.completeExceptionally(error);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        return orderId.get();
+    }
+
+    private static void fill(MatchingEngineImpl matchingEngine) {
+        matchingEngine.createOrder(10, 100_000, BuySell.BUY, Expiry.GTC, "alice");
+        matchingEngine.createOrder(5, 100_000, BuySell.BUY, Expiry.GTC, "bob");
+        matchingEngine.createOrder(3, 100_000, BuySell.BUY, Expiry.GTC);
+        matchingEngine.createOrder(8, 101_000, BuySell.BUY, Expiry.GTC, "bob");
+        matchingEngine.createOrder(6, 101_000, BuySell.SELL, Expiry.GTC, "carol");
+        matchingEngine.createOrder(4, 102_000, BuySell.SELL, Expiry.GTC, "alice");
+        matchingEngine.massQuote("dave", new long[]{98_000}, new long[]{2}, new long[]{104_000}, new long[]{2});
+    }
+
+    private static byte[] encode(MatchingEngineImpl matchingEngine) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        matchingEngine.writeSnapshot(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream in(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}